@@ -25,6 +25,33 @@ public interface DefaultServerAttributes {
 	public static final String AUTOPUBLISH_INACTIVITY_LIMIT = "server.autopublish.inactivity.limit";
 	public static final boolean AUTOPUBLISH_ENABLEMENT_DEFAULT = true;
 	public static final int AUTOPUBLISH_INACTIVITY_LIMIT_DEFAULT = 5000;
+
+	/*
+	 * How the server's deployables are watched for changes. 
+	 * nio uses native watches for every folder, polling periodically
+	 * compares snapshots of each tree, and hybrid uses native watches 
+	 * until the watch budget is used up and polls everything past it.
+	 */
+	public static final String FILE_WATCHER_BACKEND = "server.filewatcher.backend";
+	public static final String FILE_WATCHER_BACKEND_NIO = "nio";
+	public static final String FILE_WATCHER_BACKEND_POLLING = "polling";
+	public static final String FILE_WATCHER_BACKEND_HYBRID = "hybrid";
+	public static final String FILE_WATCHER_WATCH_BUDGET = "server.filewatcher.watch.budget";
+	public static final int FILE_WATCHER_WATCH_BUDGET_DEFAULT = 4096;
+
+	/*
+	 * The number of deployables published at the same time. 
+	 * 1 publishes them one after another.
+	 */
+	public static final String PUBLISH_PARALLELISM = "server.publish.parallelism";
+	public static final int PUBLISH_PARALLELISM_DEFAULT = 1;
+	/*
+	 * The deflate level (0-9, or -1 for the default) used when a server 
+	 * that does not support exploded deployments needs a folder packed. 
+	 * 0 stores entries without compressing them.
+	 */
+	public static final String PUBLISH_COMPRESSION_LEVEL = "server.publish.compression.level";
+	public static final int PUBLISH_COMPRESSION_LEVEL_DEFAULT = -1;
 	
 	public static final String SERVER_TIMEOUT_STARTUP = "server.timeout.startup";
 	public static final String SERVER_TIMEOUT_SHUTDOWN = "server.timeout.shutdown";
@@ -40,4 +40,19 @@ public interface ICapabilityKeys {
 	 * whether the client can use the full publish API
 	 */
 	public static final String BOOLEAN_PUBLISH_ARCHIVE = "rsp.publish.archives";
+
+	/**
+	 * A capability key expecting an integer in string form:
+	 * the milliseconds during which process output is collected 
+	 * before it is sent to the client as a single notification. 
+	 * 0 sends output as soon as it is read.
+	 */
+	public static final String STRING_PROCESS_OUTPUT_FLUSH_WINDOW = "process.output.flush.window";
+
+	/**
+	 * A capability key expecting an integer in string form:
+	 * the most process output, in characters per second, 
+	 * the client wants to receive. 0 for no limit.
+	 */
+	public static final String STRING_PROCESS_OUTPUT_MAX_RATE = "process.output.max.rate";
 }
@@ -18,6 +18,7 @@ import org.jboss.tools.rsp.api.dao.MessageBoxNotification;
 import org.jboss.tools.rsp.api.dao.JobHandle;
 import org.jboss.tools.rsp.api.dao.JobProgress;
 import org.jboss.tools.rsp.api.dao.JobRemoved;
+import org.jboss.tools.rsp.api.dao.ServerBeanFound;
 import org.jboss.tools.rsp.api.dao.ServerHandle;
 import org.jboss.tools.rsp.api.dao.ServerProcess;
 import org.jboss.tools.rsp.api.dao.ServerProcessOutput;
@@ -62,6 +63,16 @@ public interface RSPClient {
 	@JsonNotification
 	void discoveryPathRemoved(DiscoveryPath message);
 
+	/**
+	 * The `client/serverBeanFound` notification is sent by the server to the
+	 * client that requested a `server/findServerBeansRecursive` search, 
+	 * each time the search recognizes a server runtime installation.
+	 * 
+	 * The job handle is the one returned by the search request.
+	 */
+	@JsonNotification
+	void serverBeanFound(ServerBeanFound found);
+
 	/**
 	 * The `client/serverAdded` notification is sent by the server to all clients in
 	 * a response to the `server/createServer` notification.
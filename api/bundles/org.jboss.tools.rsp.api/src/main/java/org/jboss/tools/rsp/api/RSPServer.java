@@ -20,6 +20,7 @@ import org.jboss.tools.rsp.api.dao.CommandLineDetails;
 import org.jboss.tools.rsp.api.dao.CreateServerResponse;
 import org.jboss.tools.rsp.api.dao.DiscoveryPath;
 import org.jboss.tools.rsp.api.dao.DownloadSingleRuntimeRequest;
+import org.jboss.tools.rsp.api.dao.FindServerBeansRequest;
 import org.jboss.tools.rsp.api.dao.GetServerJsonResponse;
 import org.jboss.tools.rsp.api.dao.JobHandle;
 import org.jboss.tools.rsp.api.dao.JobProgress;
@@ -108,6 +109,29 @@ public interface RSPServer {
 	@JsonRequest
 	CompletableFuture<List<ServerBean>> findServerBeans(DiscoveryPath path);
 
+	/**
+	 * The `server/findServerBeansRecursive` request is sent by the client to 
+	 * search a whole directory tree for server runtime installations.
+	 *
+	 * The RSP model will schedule a job that walks the tree below the given
+	 * path, up to the given depth, skipping folders that match any of the 
+	 * given exclude globs, as well as folders known not to contain servers. 
+	 * Folders are checked in parallel, and each server bean found is sent 
+	 * to the requesting client right away with a `client/serverBeanFound` 
+	 * notification. The folders below a recognized server are not searched.
+	 * 
+	 * The progress of the search is reported through the `client/jobChanged`
+	 * notification, and it may be canceled with `server/cancelJob`. 
+	 * The `client/jobRemoved` notification signals that the search is over.
+	 *
+	 * The path parameter must be an absolute file-system path, and
+	 * may not be a relative path. A depth that is 0 or less uses 
+	 * the default depth. The returned handle is null if the request 
+	 * is invalid.
+	 */
+	@JsonRequest
+	CompletableFuture<JobHandle> findServerBeansRecursive(FindServerBeansRequest request);
+
 	/**
 	 * The `server/addDiscoveryPath` request is sent by the client to add a new
 	 * path to search when discovering servers. These paths will be stored in a
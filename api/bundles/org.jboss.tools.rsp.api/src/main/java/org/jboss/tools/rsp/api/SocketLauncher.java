@@ -50,6 +50,15 @@ public class SocketLauncher<T> implements Launcher<T> {
 		this.socket = socket;
 	}
 
+	/**
+	 * For launchers whose messages are not read from the socket by lsp4j, 
+	 * ie. because a selector reads them. The socket may be <code>null</code>.
+	 */
+	protected SocketLauncher(Launcher<T> launcher, Socket socket) {
+		this.launcher = launcher;
+		this.socket = socket;
+	}
+
 	protected Builder<T> createBuilder(Class<T> remoteInterface) {
 		return new Builder<T>();
 	}
@@ -91,7 +100,8 @@ public class SocketLauncher<T> implements Launcher<T> {
 			startListeningResult.cancel(true);
 		}
 		try {
-			socket.close();
+			if( socket != null )
+				socket.close();
 		} catch(IOException ioe) {
 		}
 	}
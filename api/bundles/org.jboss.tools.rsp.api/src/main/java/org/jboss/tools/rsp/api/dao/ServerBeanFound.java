@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.api.dao;
+
+public class ServerBeanFound {
+	private JobHandle job;
+	private ServerBean bean;
+
+	public ServerBeanFound() {
+
+	}
+
+	public ServerBeanFound(JobHandle job, ServerBean bean) {
+		this.job = job;
+		this.bean = bean;
+	}
+
+	public JobHandle getJob() {
+		return job;
+	}
+
+	public void setJob(JobHandle job) {
+		this.job = job;
+	}
+
+	public ServerBean getBean() {
+		return bean;
+	}
+
+	public void setBean(ServerBean bean) {
+		this.bean = bean;
+	}
+}
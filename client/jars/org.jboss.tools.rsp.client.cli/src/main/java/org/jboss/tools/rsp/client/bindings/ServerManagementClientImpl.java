@@ -20,6 +20,7 @@ import org.jboss.tools.rsp.api.dao.JobHandle;
 import org.jboss.tools.rsp.api.dao.JobProgress;
 import org.jboss.tools.rsp.api.dao.JobRemoved;
 import org.jboss.tools.rsp.api.dao.MessageBoxNotification;
+import org.jboss.tools.rsp.api.dao.ServerBeanFound;
 import org.jboss.tools.rsp.api.dao.ServerHandle;
 import org.jboss.tools.rsp.api.dao.ServerProcess;
 import org.jboss.tools.rsp.api.dao.ServerProcessOutput;
@@ -55,6 +56,11 @@ public class ServerManagementClientImpl implements RSPClient {
 	public void discoveryPathRemoved(DiscoveryPath message) {
 		System.out.println("Removed discovery path: " + message.getFilepath());
 	}
+
+	@Override
+	public void serverBeanFound(ServerBeanFound found) {
+		System.out.println("Server bean found: " + found.getBean().getLocation());
+	}
 	
 	@Override
 	public void serverAdded(ServerHandle server) {
@@ -28,6 +28,7 @@ import org.jboss.tools.rsp.api.dao.DeployableState;
 import org.jboss.tools.rsp.api.dao.DiscoveryPath;
 import org.jboss.tools.rsp.api.dao.DownloadRuntimeDescription;
 import org.jboss.tools.rsp.api.dao.DownloadSingleRuntimeRequest;
+import org.jboss.tools.rsp.api.dao.FindServerBeansRequest;
 import org.jboss.tools.rsp.api.dao.GetServerJsonResponse;
 import org.jboss.tools.rsp.api.dao.JobHandle;
 import org.jboss.tools.rsp.api.dao.JobProgress;
@@ -118,6 +119,24 @@ public class StandardCommandHandler implements InputHandler {
 				}
 			}
 		},
+		SEARCH_TREE("search tree") {
+			@Override
+			public boolean isMatching(String command) {
+				return command.startsWith(this.command);
+			}
+
+			@Override
+			public void execute(String command, ServerManagementClientLauncher launcher, PromptAssistant assistant) throws Exception {
+				String suffix = command.substring(this.command.length());
+				FindServerBeansRequest req = new FindServerBeansRequest(suffix.trim(), 0, null);
+				JobHandle job = launcher.getServerProxy().findServerBeansRecursive(req).get();
+				if (job == null) {
+					System.out.println("Invalid path: " + suffix.trim());
+				} else {
+					System.out.println("Searching " + suffix.trim() + " in job " + job.getId());
+				}
+			}
+		},
 		REMOVE_PATH("remove path") {
 			@Override
 			public boolean isMatching(String command) {
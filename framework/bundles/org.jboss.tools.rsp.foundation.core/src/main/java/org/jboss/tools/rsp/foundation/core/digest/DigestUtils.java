@@ -68,12 +68,28 @@ public class DigestUtils {
 	 * Returns the SHA1 hash of an {@link InputStream}.
 	 */
 	public static String sha1(InputStream input) throws IOException {
+		return digest(input, "SHA1");
+	}
+
+	/**
+	 * Returns the SHA-256 hash of a {@link File}
+	 */
+	public static String sha256(File file) throws IOException {
+		if (file == null) {
+			return null;
+		}
+		try (InputStream input = Files.newInputStream(file.toPath())){
+			return digest(input, "SHA-256");
+		}
+	}
+
+	private static String digest(InputStream input, String algorithm) throws IOException {
 		if (input == null) {
 			return null;
 		}
 		StringBuilder sb = new StringBuilder();
 		try {
-			MessageDigest md = MessageDigest.getInstance("SHA1");
+			MessageDigest md = MessageDigest.getInstance(algorithm);
 			byte[] bytes = new byte[16 * 1024];
 			int count = 0;
 			while ((count = input.read(bytes)) != -1) {
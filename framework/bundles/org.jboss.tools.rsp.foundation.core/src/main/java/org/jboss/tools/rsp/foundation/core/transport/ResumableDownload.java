@@ -0,0 +1,631 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.rsp.foundation.core.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jboss.tools.rsp.eclipse.core.runtime.IProgressMonitor;
+import org.jboss.tools.rsp.eclipse.core.runtime.IStatus;
+import org.jboss.tools.rsp.eclipse.core.runtime.Status;
+import org.jboss.tools.rsp.foundation.core.FoundationCoreActivator;
+import org.jboss.tools.rsp.foundation.core.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads a url to a file.
+ *
+ * If the remote server accepts byte ranges, large files are split into
+ * segments that are downloaded concurrently. The progress of each segment
+ * is kept in a state file next to the downloaded one, so that a download
+ * that failed or was canceled continues where it stopped when it is run again,
+ * as long as the remote file did not change in the meantime.
+ */
+public class ResumableDownload {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ResumableDownload.class);
+
+	public static final int DEFAULT_CONNECT_TIMEOUT = 1 * 60 * 1000;
+	public static final int DEFAULT_READ_TIMEOUT = 2 * 60 * 1000;
+	public static final int DEFAULT_IDLE_TIMEOUT = 2 * 60 * 1000;
+	public static final int DEFAULT_SEGMENTS = 4;
+	public static final long DEFAULT_MIN_SEGMENT_SIZE = 8 * 1024 * 1024;
+	public static final int DEFAULT_RETRIES = 3;
+
+	/**
+	 * The suffix of the file that keeps the progress of a download
+	 */
+	public static final String STATE_SUFFIX = ".state";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final long STATE_SAVE_INTERVAL = 1000;
+
+	private static final Pattern CONTENT_RANGE = Pattern.compile("^bytes\\s+(\\d+)-\\d+/", Pattern.CASE_INSENSITIVE);
+
+	private static final String KEY_URL = "url";
+	private static final String KEY_LENGTH = "length";
+	private static final String KEY_VALIDATOR = "validator";
+	private static final String KEY_SEGMENTS = "segments";
+	private static final String KEY_SEGMENT = "segment.";
+
+	private final URL url;
+	private final File file;
+	private final File stateFile;
+	private String user;
+	private String pass;
+	private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+	private int readTimeout = DEFAULT_READ_TIMEOUT;
+	private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+	private int maxSegments = DEFAULT_SEGMENTS;
+	private long minSegmentSize = DEFAULT_MIN_SEGMENT_SIZE;
+	private int retries = DEFAULT_RETRIES;
+	private String sha256;
+
+	private final Set<HttpURLConnection> connections = ConcurrentHashMap.newKeySet();
+	private final AtomicLong downloaded = new AtomicLong();
+	private volatile long lastProgress;
+	private volatile boolean aborted = false;
+	private long resumedBytes = 0;
+	private int segmentCount = 0;
+	private volatile long lastStateSave = 0;
+	private volatile boolean rangesIgnored = false;
+	private RemoteFile remote;
+
+	public ResumableDownload(URL url, File file) {
+		this.url = url;
+		this.file = file;
+		this.stateFile = new File(file.getParentFile(), file.getName() + STATE_SUFFIX);
+	}
+
+	public ResumableDownload setCredentials(String user, String pass) {
+		this.user = user;
+		this.pass = pass;
+		return this;
+	}
+
+	/**
+	 * Sets the connect and the read timeout, in milliseconds.
+	 */
+	public ResumableDownload setTimeouts(int connectTimeout, int readTimeout) {
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+		return this;
+	}
+
+	/**
+	 * Sets the milliseconds after which a download that received nothing at all is given up.
+	 */
+	public ResumableDownload setIdleTimeout(int idleTimeout) {
+		this.idleTimeout = idleTimeout;
+		return this;
+	}
+
+	/**
+	 * Sets the most segments a file is split into,
+	 * and the smallest size of a segment.
+	 */
+	public ResumableDownload setSegments(int maxSegments, long minSegmentSize) {
+		this.maxSegments = Math.max(1, maxSegments);
+		this.minSegmentSize = Math.max(1, minSegmentSize);
+		return this;
+	}
+
+	/**
+	 * Sets how often a segment is tried again after it failed.
+	 */
+	public ResumableDownload setRetries(int retries) {
+		this.retries = Math.max(0, retries);
+		return this;
+	}
+
+	/**
+	 * Sets the hex encoded sha-256 the downloaded file must have, or <code>null</code>.
+	 */
+	public ResumableDownload setSha256(String sha256) {
+		this.sha256 = sha256;
+		return this;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns how many bytes were already there when the download was started
+	 */
+	public long getResumedBytes() {
+		return resumedBytes;
+	}
+
+	/**
+	 * Returns how many segments the file was downloaded in
+	 */
+	public int getSegmentCount() {
+		return segmentCount;
+	}
+
+	/**
+	 * Returns the ETag the server sent for the file, or <code>null</code>
+	 */
+	public String getETag() {
+		return remote == null ? null : remote.etag;
+	}
+
+	/**
+	 * Returns the Last-Modified the server sent for the file, or 0
+	 */
+	public long getLastModified() {
+		return remote == null ? 0 : remote.lastModified;
+	}
+
+	/**
+	 * Returns the Cache-Control the server sent for the file, or <code>null</code>
+	 */
+	public String getCacheControl() {
+		return remote == null ? null : remote.cacheControl;
+	}
+
+	/**
+	 * Downloads the file.
+	 * If the download fails or is canceled, what was downloaded so far is kept
+	 * so that the download can be resumed, unless the checksum did not match.
+	 */
+	public IStatus download(String displayName, IProgressMonitor monitor) {
+		monitor.beginTask(displayName, 100);
+		try {
+			RemoteFile remote = probe();
+			this.remote = remote;
+			List<Segment> segments = loadState(remote);
+			if (segments == null) {
+				segments = createSegments(remote);
+				Files.deleteIfExists(file.toPath());
+			}
+			segmentCount = segments.size();
+			resumedBytes = 0;
+			for (Segment s : segments) {
+				resumedBytes += s.pos - s.start;
+			}
+			downloaded.set(resumedBytes);
+			saveState(remote, segments, null, true);
+
+			IStatus result = run(remote, segments, displayName, monitor);
+			if (rangesIgnored && !monitor.isCanceled()) {
+				LOG.debug("{} answered a range request with the whole file, downloading it again in one go", url);
+				remote = remote.withoutRanges();
+				this.remote = remote;
+				segments = restart(remote);
+				result = run(remote, segments, displayName, monitor);
+			}
+			if (!result.isOK()) {
+				saveState(remote, segments, null, true);
+				return result;
+			}
+			Files.deleteIfExists(stateFile.toPath());
+			return verify();
+		} catch (IOException ioe) {
+			return error("Could not download " + url + ": " + ioe.getMessage(), ioe);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/*
+	 * Drops what was downloaded so far and returns a single segment 
+	 * that downloads the whole file. The remote file may have changed, 
+	 * its length is thus not known anymore.
+	 */
+	private List<Segment> restart(RemoteFile remote) throws IOException {
+		Files.deleteIfExists(stateFile.toPath());
+		Files.deleteIfExists(file.toPath());
+		this.aborted = false;
+		this.rangesIgnored = false;
+		List<Segment> segments = new ArrayList<>();
+		segments.add(new Segment(0, -1));
+		segmentCount = 1;
+		resumedBytes = 0;
+		downloaded.set(0);
+		return segments;
+	}
+
+	private IStatus run(RemoteFile remote, List<Segment> segments, String displayName,
+			IProgressMonitor monitor) throws IOException {
+		AtomicInteger count = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(segments.size(), (Runnable r) -> {
+			Thread t = new Thread(r, "RSP Download " + count.incrementAndGet() + " " + file.getName());
+			t.setDaemon(true);
+			return t;
+		});
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			List<Future<?>> futures = new ArrayList<>();
+			lastProgress = System.currentTimeMillis();
+			for (Segment s : segments) {
+				if (!s.isDone()) {
+					futures.add(executor.submit(() -> {
+						fetch(remote, segments, s, channel);
+						return null;
+					}));
+				}
+			}
+			return await(futures, remote, displayName, monitor);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private IStatus await(List<Future<?>> futures, RemoteFile remote, String displayName,
+			IProgressMonitor monitor) {
+		int worked = 0;
+		for (Future<?> future : futures) {
+			while (true) {
+				try {
+					future.get(100, TimeUnit.MILLISECONDS);
+					break;
+				} catch (TimeoutException te) {
+					if (monitor.isCanceled()) {
+						abort();
+						return Status.CANCEL_STATUS;
+					}
+					if (idleTimeout > 0 && System.currentTimeMillis() - lastProgress > idleTimeout) {
+						abort();
+						return error(displayName + " received nothing for " + idleTimeout + "ms", null);
+					}
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					abort();
+					return Status.CANCEL_STATUS;
+				} catch (Exception e) {
+					abort();
+					Throwable cause = e.getCause() == null ? e : e.getCause();
+					return error("Could not download " + url + ": " + cause.getMessage(), cause);
+				}
+				worked = reportProgress(remote, worked, monitor);
+			}
+		}
+		reportProgress(remote, worked, monitor);
+		return Status.OK_STATUS;
+	}
+
+	private int reportProgress(RemoteFile remote, int worked, IProgressMonitor monitor) {
+		if (remote.length <= 0) {
+			return worked;
+		}
+		int percent = (int) (downloaded.get() * 100 / remote.length);
+		if (percent > worked) {
+			monitor.worked(percent - worked);
+			return percent;
+		}
+		return worked;
+	}
+
+	private void abort() {
+		aborted = true;
+		// disconnecting waits for a pending read to return, don't block the caller on it
+		List<HttpURLConnection> pending = new ArrayList<>(connections);
+		Thread t = new Thread(() -> pending.forEach(HttpURLConnection::disconnect), "RSP Download Abort " + file.getName());
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/*
+	 * Downloads what is missing of the given segment, retrying from where
+	 * the previous attempt stopped if the remote file supports ranges.
+	 */
+	private void fetch(RemoteFile remote, List<Segment> segments, Segment s, FileChannel channel) throws IOException {
+		int attempt = 0;
+		while (true) {
+			try {
+				fetchOnce(remote, segments, s, channel);
+				return;
+			} catch (IOException ioe) {
+				if (aborted || rangesIgnored || !remote.acceptsRanges || attempt++ >= retries) {
+					throw ioe;
+				}
+				LOG.debug("Retrying download of {} from byte {}", url, s.pos, ioe);
+			}
+		}
+	}
+
+	private void fetchOnce(RemoteFile remote, List<Segment> segments, Segment s, FileChannel channel) throws IOException {
+		HttpURLConnection con = openConnection("GET");
+		connections.add(con);
+		try {
+			boolean ranged = remote.acceptsRanges && (s.pos > 0 || s.end < remote.length - 1);
+			if (ranged) {
+				con.setRequestProperty("Range", "bytes=" + s.pos + "-" + s.end);
+				if (remote.validator != null) {
+					con.setRequestProperty("If-Range", remote.validator);
+				}
+			}
+			int status = con.getResponseCode();
+			if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
+				throw new IOException("Server returned " + status + " for " + url);
+			}
+			if (ranged && status != HttpURLConnection.HTTP_PARTIAL) {
+				// the server ignores ranges, or the file changed and If-Range did not match
+				rangesIgnored = true;
+				throw new IOException("Expected a partial response from " + url + " but got " + status);
+			}
+			if (ranged) {
+				long start = getRangeStart(con.getHeaderField("Content-Range"));
+				if (start != s.pos) {
+					throw new IOException("Expected bytes from " + s.pos + " of " + url + " but got " 
+							+ con.getHeaderField("Content-Range"));
+				}
+			}
+			try (InputStream in = con.getInputStream()) {
+				byte[] bytes = new byte[BUFFER_SIZE];
+				ByteBuffer buffer = ByteBuffer.wrap(bytes);
+				int read;
+				while (!s.isDone() && (read = in.read(bytes, 0, (int) Math.min(bytes.length, s.remaining()))) != -1) {
+					if (aborted) {
+						throw new IOException("Download of " + url + " was aborted");
+					}
+					long at = s.pos;
+					buffer.clear().limit(read);
+					while (buffer.hasRemaining()) {
+						channel.write(buffer, at + buffer.position());
+					}
+					s.pos = at + read;
+					downloaded.addAndGet(read);
+					lastProgress = System.currentTimeMillis();
+					saveState(remote, segments, channel, false);
+				}
+			}
+			if (s.end >= 0 && !s.isDone()) {
+				throw new IOException("Connection to " + url + " closed before the download completed");
+			}
+			s.done = true;
+		} finally {
+			connections.remove(con);
+			con.disconnect();
+		}
+	}
+
+	/*
+	 * Returns the first byte of a Content-Range such as "bytes 100-199/1000", 
+	 * or -1 if there is none
+	 */
+	private static long getRangeStart(String contentRange) {
+		if (contentRange == null) {
+			return -1;
+		}
+		Matcher m = CONTENT_RANGE.matcher(contentRange.trim());
+		if (!m.find()) {
+			return -1;
+		}
+		return Long.parseLong(m.group(1));
+	}
+
+	private IStatus verify() throws IOException {
+		if (sha256 == null) {
+			return Status.OK_STATUS;
+		}
+		String actual = DigestUtils.sha256(file);
+		if (sha256.equalsIgnoreCase(actual)) {
+			return Status.OK_STATUS;
+		}
+		Files.deleteIfExists(file.toPath());
+		return error("Checksum of " + url + " is " + actual + " but " + sha256 + " was expected", null);
+	}
+
+	private RemoteFile probe() throws IOException {
+		HttpURLConnection con = openConnection("HEAD");
+		try {
+			int status = con.getResponseCode();
+			if (status == HttpURLConnection.HTTP_BAD_METHOD) {
+				// no HEAD support, download everything in one go
+				return new RemoteFile(-1, false, null, null, 0, null);
+			}
+			if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
+				throw new IOException("Server returned " + status + " for " + url);
+			}
+			long length = con.getContentLengthLong();
+			boolean ranges = "bytes".equalsIgnoreCase(con.getHeaderField("Accept-Ranges"));
+			String etag = con.getHeaderField("ETag");
+			// If-Range only allows strong validators
+			String validator = etag;
+			if (validator == null || validator.startsWith("W/")) {
+				validator = con.getHeaderField("Last-Modified");
+			}
+			return new RemoteFile(length, ranges && length > 0, validator,
+					etag, con.getLastModified(), con.getHeaderField("Cache-Control"));
+		} finally {
+			con.disconnect();
+		}
+	}
+
+	private HttpURLConnection openConnection(String method) throws IOException {
+		HttpURLConnection con = (HttpURLConnection) url.openConnection();
+		con.setRequestMethod(method);
+		con.setInstanceFollowRedirects(true);
+		con.setConnectTimeout(connectTimeout);
+		con.setReadTimeout(readTimeout);
+		if (user != null && pass != null) {
+			String auth = Base64.getEncoder().encodeToString((user + ":" + pass).getBytes());
+			con.setRequestProperty("Authorization", "Basic " + auth);
+		}
+		return con;
+	}
+
+	private List<Segment> createSegments(RemoteFile remote) {
+		List<Segment> segments = new ArrayList<>();
+		if (!remote.acceptsRanges) {
+			segments.add(new Segment(0, remote.length > 0 ? remote.length - 1 : -1));
+			return segments;
+		}
+		int count = (int) Math.max(1, Math.min(maxSegments, remote.length / minSegmentSize));
+		long size = remote.length / count;
+		for (int i = 0; i < count; i++) {
+			long start = i * size;
+			long end = (i == count - 1 ? remote.length - 1 : start + size - 1);
+			segments.add(new Segment(start, end));
+		}
+		return segments;
+	}
+
+	/*
+	 * Returns the segments of an earlier attempt to download the same file,
+	 * or null if there is nothing to resume.
+	 */
+	private List<Segment> loadState(RemoteFile remote) {
+		if (!remote.acceptsRanges || !file.exists() || !stateFile.exists()) {
+			return null;
+		}
+		Properties props = new Properties();
+		try (InputStream in = new FileInputStream(stateFile)) {
+			props.load(in);
+			if (!url.toExternalForm().equals(props.getProperty(KEY_URL))
+					|| !Long.toString(remote.length).equals(props.getProperty(KEY_LENGTH))
+					|| remote.validator == null
+					|| !remote.validator.equals(props.getProperty(KEY_VALIDATOR))) {
+				return null;
+			}
+			int count = Integer.parseInt(props.getProperty(KEY_SEGMENTS));
+			List<Segment> segments = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				String[] values = props.getProperty(KEY_SEGMENT + i).split(",");
+				Segment s = new Segment(Long.parseLong(values[0]), Long.parseLong(values[1]));
+				s.pos = Math.min(Long.parseLong(values[2]), s.end + 1);
+				s.done = s.isDone();
+				segments.add(s);
+			}
+			return segments;
+		} catch (IOException | RuntimeException e) {
+			LOG.debug("Ignoring download state {}", stateFile, e);
+			return null;
+		}
+	}
+
+	/*
+	 * Saves the progress of the segments. The data file is forced to disk 
+	 * before, so that the state never claims bytes that were not written. 
+	 * The channel is null if the data file is not open.
+	 */
+	private void saveState(RemoteFile remote, List<Segment> segments, FileChannel channel, boolean force) {
+		if (!remote.acceptsRanges || (!force && System.currentTimeMillis() - lastStateSave < STATE_SAVE_INTERVAL)) {
+			return;
+		}
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			if (!force && now - lastStateSave < STATE_SAVE_INTERVAL) {
+				return;
+			}
+			lastStateSave = now;
+			Properties props = new Properties();
+			props.setProperty(KEY_URL, url.toExternalForm());
+			props.setProperty(KEY_LENGTH, Long.toString(remote.length));
+			if (remote.validator != null) {
+				props.setProperty(KEY_VALIDATOR, remote.validator);
+			}
+			props.setProperty(KEY_SEGMENTS, Integer.toString(segments.size()));
+			for (int i = 0; i < segments.size(); i++) {
+				Segment s = segments.get(i);
+				props.setProperty(KEY_SEGMENT + i, s.start + "," + s.end + "," + s.pos);
+			}
+			try {
+				forceData(channel);
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				props.store(out, null);
+				URLTransportCache.writeAtomically(stateFile.toPath(), out.toByteArray());
+			} catch (IOException ioe) {
+				LOG.debug("Could not save download state {}", stateFile, ioe);
+			}
+		}
+	}
+
+	private void forceData(FileChannel channel) throws IOException {
+		if (channel != null) {
+			channel.force(false);
+		} else if (file.exists()) {
+			try (FileChannel c = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+				c.force(false);
+			}
+		}
+	}
+
+	private IStatus error(String message, Throwable t) {
+		return new Status(IStatus.ERROR, FoundationCoreActivator.PLUGIN_ID, message, t);
+	}
+
+	private static class RemoteFile {
+		private final long length;
+		private final boolean acceptsRanges;
+		private final String validator;
+		private final String etag;
+		private final long lastModified;
+		private final String cacheControl;
+
+		private RemoteFile(long length, boolean acceptsRanges, String validator,
+				String etag, long lastModified, String cacheControl) {
+			this.length = length;
+			this.acceptsRanges = acceptsRanges;
+			this.validator = validator;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.cacheControl = cacheControl;
+		}
+
+		private RemoteFile withoutRanges() {
+			return new RemoteFile(length, false, validator, etag, lastModified, cacheControl);
+		}
+	}
+
+	/*
+	 * The bytes from start to end, both inclusive.
+	 * End is -1 if the length of the remote file is not known.
+	 */
+	private static class Segment {
+		private final long start;
+		private final long end;
+		private volatile long pos;
+		private volatile boolean done;
+
+		private Segment(long start, long end) {
+			this.start = start;
+			this.end = end;
+			this.pos = start;
+		}
+
+		private boolean isDone() {
+			return done || (end >= 0 && pos > end);
+		}
+
+		private long remaining() {
+			return end < 0 ? Long.MAX_VALUE : end - pos + 1;
+		}
+	}
+}
@@ -10,29 +10,45 @@
  ******************************************************************************/
 package org.jboss.tools.rsp.foundation.core.transport;
 
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
-import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLDecoder;
-import java.net.URLEncoder;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import org.jboss.tools.rsp.eclipse.core.runtime.CoreException;
 import org.jboss.tools.rsp.eclipse.core.runtime.IPath;
@@ -62,9 +78,49 @@ public class URLTransportCache {
 	
 	
 	/**
-	 * The new index file, to be stored in each cache root folder. 
+	 * The index file, to be stored in each cache root folder. 
 	 */
-	private static final String CACHE_INDEX_FILE = "URLTransportCache.cacheIndex.properties";
+	private static final String CACHE_INDEX_FILE = "URLTransportCache.index.properties";
+
+	/**
+	 * The index file of earlier versions, only holding url and file
+	 */
+	private static final String LEGACY_CACHE_INDEX_FILE = "URLTransportCache.cacheIndex.properties";
+
+	/**
+	 * System property to set the most bytes the files in a cache folder may add up to.
+	 * The files that were used least recently are deleted once the cache grows beyond.
+	 */
+	public static final String SYSPROP_MAX_SIZE = "rsp.transport.cache.maxSize";
+	public static final long DEFAULT_MAX_SIZE = 2L * 1024 * 1024 * 1024;
+
+	/**
+	 * System property to set the milliseconds a cached file is used without
+	 * asking the remote server whether it changed, unless the server set a max-age itself.
+	 */
+	public static final String SYSPROP_MAX_AGE = "rsp.transport.cache.maxAge";
+	public static final long DEFAULT_MAX_AGE = 60 * 60 * 1000;
+
+	/**
+	 * The name of a file a download is written to before it is added to the cache, 
+	 * or of its state file
+	 */
+	private static final Pattern PARTIAL_DOWNLOAD = Pattern.compile(
+			"[0-9a-f]{40}\\.tmp(" + Pattern.quote(ResumableDownload.STATE_SUFFIX) + ")?");
+
+	/**
+	 * The milliseconds after a save of the index in which the use of a cached file 
+	 * does not save it again, but is saved along with the next change
+	 */
+	private static final long ACCESS_SAVE_INTERVAL = 1000;
+
+	private static final String KEY_URL = ".url";
+	private static final String KEY_FILE = ".file";
+	private static final String KEY_ETAG = ".etag";
+	private static final String KEY_LAST_MODIFIED = ".lastModified";
+	private static final String KEY_CACHE_CONTROL = ".cacheControl";
+	private static final String KEY_VALIDATED = ".validated";
+	private static final String KEY_ACCESSED = ".accessed";
 	
 	
 	/**
@@ -80,33 +136,71 @@ public class URLTransportCache {
 	}
 	
 	
-	private HashMap<String, String> cache;
+	private final HashMap<String, CacheEntry> cache;
 	private IPath cacheRoot;
+	private long maxSize = Long.getLong(SYSPROP_MAX_SIZE, DEFAULT_MAX_SIZE);
+	private long defaultMaxAge = Long.getLong(SYSPROP_MAX_AGE, DEFAULT_MAX_AGE);
+	private final AtomicInteger revalidations = new AtomicInteger();
+	private final ConcurrentHashMap<String, CompletableFuture<File>> downloads = new ConcurrentHashMap<>();
+	private long lastIndexSave = 0;
+
 	protected URLTransportCache(IPath cacheRoot) {
 		this.cacheRoot = cacheRoot;
 		this.cache = new HashMap<>();
 		load();
 	}
 
+	/**
+	 * Sets the most bytes the files in the cache folder may add up to, 
+	 * or -1 for no limit.
+	 */
+	public synchronized void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Sets the milliseconds a cached file is used without asking the remote server
+	 * whether it changed, unless the server sent a max-age itself.
+	 */
+	public synchronized void setDefaultMaxAge(long maxAge) {
+		this.defaultMaxAge = maxAge;
+	}
+
+	/**
+	 * Returns how often the remote server was asked whether a cached file changed
+	 */
+	public int getRevalidationCount() {
+		return revalidations.get();
+	}
+
 	/**
 	 * Get a cached file for the given url only if it is downloaded and exists.
 	 * 
 	 * @param url
 	 * @return
 	 */
-	public File getCachedFile(String url) {
-		String cacheVal = cache.get(url);
-		if (cacheVal == null)
+	public synchronized File getCachedFile(String url) {
+		CacheEntry entry = cache.get(url);
+		if (entry == null)
 			return null;
-		File f = new File(cacheVal);
-		if (f.exists())
-			return f;
-		return null;
+		File f = new File(entry.file);
+		if (!f.exists())
+			return null;
+		entry.accessed = System.currentTimeMillis();
+		// keep the order of use for eviction after a restart
+		if (entry.accessed - lastIndexSave >= ACCESS_SAVE_INTERVAL) {
+			saveIndex();
+		}
+		return f;
 	}
 
 	/**
-	 * Check whether the cache is outdated
-	 * @throws CoreException if the remote url is invalid, or the remote url cannot be reached
+	 * Check whether the cache is outdated. 
+	 * A cached file within its max-age is not outdated. Otherwise the remote server 
+	 * is asked whether it changed, given the ETag and Last-Modified it sent for it.
+	 * If the remote server cannot be reached, the cached file is used.
+	 * 
+	 * @throws CoreException if the remote url is invalid
 	 */
 	public boolean isCacheOutdated(String url, IProgressMonitor monitor)
 			throws CoreException {
@@ -115,26 +209,78 @@ public class URLTransportCache {
 		if (f == null)
 			return true;
 
-		URL url2 = toURL(url);
-		long remoteModified = getLastModified(url2, monitor);
-
-		// If the remoteModified is -1 but we have a local cache, use that (not outdated)
-		if (remoteModified == -1 
-				&& f.exists()) {
+		CacheEntry entry;
+		synchronized (this) {
+			entry = cache.get(url);
+			if (entry == null)
+				return true;
+			if (entry.isFresh(System.currentTimeMillis(), defaultMaxAge)) {
+				LOG.trace("Cache for {} is within its max-age", url);
 				return false;
+			}
 		}
-		// !!! urlModified == 0 when querying files from github
-		// It means that files from github can not be cached!
-		if (!f.exists()) {
-			// Local file doesn't exist, so, cache is outdated
-			return true;
+		return revalidate(toURL(url), entry, f);
+	}
+
+	/*
+	 * Asks the server whether the cached file changed. 
+	 * Returns true if it did, or if there is no way to tell.
+	 */
+	private boolean revalidate(URL url, CacheEntry entry, File f) {
+		HttpURLConnection con = null;
+		try {
+			con = createConnection(url, NO_TIMEOUT);
+			con.setRequestMethod("HEAD");
+			if (entry.etag != null)
+				con.setRequestProperty("If-None-Match", entry.etag);
+			long modified = entry.lastModified > 0 ? entry.lastModified : f.lastModified();
+			con.setIfModifiedSince(modified);
+			revalidations.incrementAndGet();
+			int status = con.getResponseCode();
+			if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
+				// keep using what we have
+				LOG.debug("Could not revalidate cache for {}, server returned {}", url, status);
+				return false;
+			}
+			boolean outdated;
+			if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				outdated = false;
+			} else {
+				// not all servers support conditional requests, compare the validators
+				String etag = con.getHeaderField("ETag");
+				long remoteModified = con.getLastModified();
+				if (etag != null && entry.etag != null) {
+					outdated = !etag.equals(entry.etag);
+				} else if (remoteModified > 0) {
+					outdated = remoteModified > modified;
+				} else {
+					outdated = true;
+				}
+			}
+			if (!outdated) {
+				validated(entry, con.getHeaderField("ETag"), con.getLastModified(), 
+						con.getHeaderField("Cache-Control"));
+			}
+			return outdated;
+		} catch (IOException ioe) {
+			// If the remote server cannot be reached but we have a local cache, use that (not outdated)
+			LOG.debug("Could not revalidate cache for {}", url, ioe);
+			return false;
+		} finally {
+			if (con != null)
+				con.disconnect();
 		}
-		long modified = f.lastModified();
-		return // The remote file has been updated *after* the local file was created, so, outdated
-				remoteModified > modified
-				// File comes from github or some other server not keeping accurate timestamps
-				// so, possibly oudated, and must re-fetch 					
-				|| remoteModified == 0;
+	}
+
+	private synchronized void validated(CacheEntry entry, String etag, long lastModified, String cacheControl) {
+		entry.validated = System.currentTimeMillis();
+		if (etag != null)
+			entry.etag = etag;
+		if (lastModified > 0)
+			entry.lastModified = lastModified;
+		if (cacheControl != null)
+			entry.setCacheControl(cacheControl);
+		saveIndex();
 	}
 
 	private URL toURL(String url) throws CoreException {
@@ -152,33 +298,117 @@ public class URLTransportCache {
 	
 	public File downloadAndCache(String url, String displayName, 
 			int timeout, boolean deleteOnExit, IProgressMonitor monitor) throws CoreException {
+		return downloadAndCache(url, displayName, timeout, deleteOnExit, null, monitor);
+	}
+
+	/**
+	 * Downloads the given url and adds it to the cache. 
+	 * A download of the same url that was interrupted earlier is resumed.
+	 * 
+	 * @param sha256 the sha-256 the downloaded file must have, or <code>null</code>
+	 * @return the cached file, or the file that was cached before if the download failed
+	 */
+	public File downloadAndCache(String url, String displayName, 
+			int timeout, boolean deleteOnExit, String sha256, IProgressMonitor monitor) throws CoreException {
+		// all downloads of a url share its partial file, only one of them may write to it
+		CompletableFuture<File> mine = new CompletableFuture<>();
+		CompletableFuture<File> running = downloads.putIfAbsent(url, mine);
+		if (running != null) {
+			LOG.trace("Waiting for the running download of {}", url);
+			return awaitDownload(url, running, monitor);
+		}
+		try {
+			File f = downloadToCache(url, displayName, timeout, deleteOnExit, sha256, monitor);
+			mine.complete(f);
+			return f;
+		} catch (CoreException | RuntimeException e) {
+			mine.completeExceptionally(e);
+			throw e;
+		} finally {
+			downloads.remove(url, mine);
+		}
+	}
+
+	/*
+	 * Waits for a download of the same url that another caller started. 
+	 * If the wait is canceled, what was cached before is returned.
+	 */
+	private File awaitDownload(String url, CompletableFuture<File> running, IProgressMonitor monitor) throws CoreException {
+		while (true) {
+			try {
+				return running.get(100, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException te) {
+				if (monitor.isCanceled()) {
+					return getExistingRemoteFileCacheLocation(url);
+				}
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				return getExistingRemoteFileCacheLocation(url);
+			} catch (ExecutionException ee) {
+				if (ee.getCause() instanceof CoreException) {
+					throw (CoreException) ee.getCause();
+				}
+				throw new CoreException(new Status(IStatus.ERROR, FoundationCoreActivator.PLUGIN_ID, 
+						ee.getCause().getMessage(), ee.getCause()));
+			}
+		}
+	}
+
+	private File downloadToCache(String url, String displayName, 
+			int timeout, boolean deleteOnExit, String sha256, IProgressMonitor monitor) throws CoreException {
 
 		LOG.trace("Downloading and caching {}", url);
 
 		File existing = getExistingRemoteFileCacheLocation(url);
-		File target = createNewRemoteFileCacheLocation(url);
-		try (FileOutputStream os = new FileOutputStream(target)){
-			IStatus dlStatus = download(displayName, url, os, timeout, monitor);
-			return postDownloadCaching(dlStatus, deleteOnExit, url, target, existing);
+		File partial = getPartialDownloadLocation(url);
+		try {
+			ResumableDownload download = createDownload(toURL(url), partial, null, null, timeout)
+					.setSha256(sha256);
+			IStatus dlStatus = download.download(displayName, monitor);
+			File target = null;
+			if( dlStatus.isOK()) {
+				target = createNewRemoteFileCacheLocation(url);
+				Files.move(partial.toPath(), target.toPath());
+			}
+			return postDownloadCaching(dlStatus, deleteOnExit, url, target, existing, download);
 		} catch (IOException ioe) {
 			LOG.error(ioe.getMessage(), ioe);
 		}
 		return null;
 	}
 
+	/**
+	 * Downloads the given url to the given file, resuming what was
+	 * downloaded to it before if possible.
+	 */
+	public IStatus download(String displayName, String url, String user, String pass, 
+			File file, int timeout, String sha256, IProgressMonitor monitor) throws IOException {
+		return createDownload(new URL(url), file, user, pass, timeout)
+				.setSha256(sha256)
+				.download(displayName, monitor);
+	}
+
+	private ResumableDownload createDownload(URL url, File file, String user, String pass, int timeout) {
+		ResumableDownload download = new ResumableDownload(url, file).setCredentials(user, pass);
+		if (NO_TIMEOUT != timeout) {
+			download.setTimeouts(timeout, timeout);
+		}
+		return download;
+	}
+
 	private File postDownloadCaching(IStatus dlStatus, boolean deleteOnExit, 
-			String url, File target, File existing) throws IOException {
+			String url, File target, File existing, ResumableDownload download) throws IOException {
 		if (dlStatus.isOK()) {
 			// Download completed successfully, add to cache, delete old copy
+			if( existing != null && existing.exists())
+				Files.delete(existing.toPath());
 			if (deleteOnExit)
 				target.deleteOnExit();
 			else 
 				// Only add to cache if we are NOT deleting on exit
 				// Otherwise cache ends up with stale reference on next restart
-				addToCache(url, target);
-			
-			if( existing != null && existing.exists())
-				Files.delete(existing.toPath());
+				addToCache(url, target, download.getETag(), download.getLastModified(), download.getCacheControl());
+
 			return target != null && target.exists() ? target : null;
 		}
 		// Download did not go as planned. Delete the new, return the old
@@ -189,22 +419,127 @@ public class URLTransportCache {
 	}
 	
 	public void addToCache(String url, File target) {
-		cache.put(url, target.getAbsolutePath());
-		savePreferences();
+		addToCache(url, target, null, 0, null);
 	}
-	
+
+	private synchronized void addToCache(String url, File target, String etag, long lastModified, String cacheControl) {
+		CacheEntry entry = new CacheEntry(url, target.getAbsolutePath());
+		entry.etag = etag;
+		entry.lastModified = lastModified;
+		entry.setCacheControl(cacheControl);
+		entry.validated = System.currentTimeMillis();
+		entry.accessed = entry.validated;
+		cache.put(url, entry);
+		evict(entry);
+		saveIndex();
+	}
+
+	/*
+	 * Deletes the least recently used files until the cache fits its max size.
+	 * Partial downloads that are not running count towards the size as well, 
+	 * they are deleted first.
+	 * Only files in the cache folder are deleted, 
+	 * other files the cache points to are not the cache's to delete.
+	 */
+	private void evict(CacheEntry keep) {
+		if (maxSize < 0)
+			return;
+		File root = getLocalCacheFolder().toFile().getAbsoluteFile();
+		List<CacheEntry> owned = new ArrayList<>();
+		long total = 0;
+		for (CacheEntry entry : cache.values()) {
+			File f = new File(entry.file);
+			if (root.equals(f.getAbsoluteFile().getParentFile()) && f.exists()) {
+				owned.add(entry);
+				total += f.length();
+			}
+		}
+		List<File> partials = getStalePartialDownloads(root);
+		for (File f : partials) {
+			total += f.length();
+		}
+		if (total <= maxSize)
+			return;
+		partials.sort(Comparator.comparingLong(File::lastModified));
+		for (File f : partials) {
+			if (total <= maxSize)
+				return;
+			long size = f.length();
+			try {
+				Files.deleteIfExists(f.toPath());
+				total -= size;
+				LOG.debug("Evicted partial download {} from cache {}", f.getName(), root);
+			} catch (IOException ioe) {
+				LOG.error("Could not evict " + f.getAbsolutePath(), ioe);
+			}
+		}
+		owned.sort(Comparator.comparingLong(e -> e.accessed));
+		for (CacheEntry entry : owned) {
+			if (total <= maxSize)
+				break;
+			if (entry == keep)
+				continue;
+			File f = new File(entry.file);
+			long size = f.length();
+			try {
+				Files.deleteIfExists(f.toPath());
+				cache.remove(entry.url);
+				total -= size;
+				LOG.debug("Evicted {} from cache {}", entry.url, root);
+			} catch (IOException ioe) {
+				LOG.error("Could not evict " + f.getAbsolutePath(), ioe);
+			}
+		}
+	}
+
+	/*
+	 * Returns the files of downloads into the cache folder 
+	 * that failed or were canceled, and their state files.
+	 */
+	private List<File> getStalePartialDownloads(File root) {
+		Set<String> running = new HashSet<>();
+		for (String url : downloads.keySet()) {
+			String name = getPartialDownloadLocation(url).getName();
+			running.add(name);
+			running.add(name + ResumableDownload.STATE_SUFFIX);
+		}
+		File[] partials = root.listFiles((dir, name) -> 
+			PARTIAL_DOWNLOAD.matcher(name).matches() && !running.contains(name));
+		return partials == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(partials));
+	}
+
 	private void load() {
 		File index = cacheRoot.append(CACHE_INDEX_FILE).toFile();
-		if( index.exists() && index.isFile()) {
-			try {
-				String contents = getContents(index);
-				loadIndexFromString(contents);
-			} catch(IOException ioe) {
-				LOG.error(ioe.getMessage(), ioe);
+		File legacy = cacheRoot.append(LEGACY_CACHE_INDEX_FILE).toFile();
+		try {
+			if( index.isFile()) {
+				loadIndex(index);
+			} else if( legacy.isFile()) {
+				loadIndexFromString(getContents(legacy));
 			}
+		} catch(IOException | RuntimeException e) {
+			LOG.error(e.getMessage(), e);
 		}
 		LOG.trace("Loaded {} cache file locations from preferences", cache.size());
 	}
+
+	private void loadIndex(File index) throws IOException {
+		Properties props = new Properties();
+		try (InputStream in = new FileInputStream(index)) {
+			props.load(in);
+		}
+		for (int i = 0; props.getProperty(i + KEY_URL) != null; i++) {
+			CacheEntry entry = new CacheEntry(props.getProperty(i + KEY_URL), props.getProperty(i + KEY_FILE));
+			if (entry.file == null || !new File(entry.file).exists())
+				continue;
+			entry.etag = props.getProperty(i + KEY_ETAG);
+			entry.lastModified = Long.parseLong(props.getProperty(i + KEY_LAST_MODIFIED, "0"));
+			entry.setCacheControl(props.getProperty(i + KEY_CACHE_CONTROL));
+			entry.validated = Long.parseLong(props.getProperty(i + KEY_VALIDATED, "0"));
+			entry.accessed = Long.parseLong(props.getProperty(i + KEY_ACCESSED, "0"));
+			cache.put(entry.url, entry);
+		}
+	}
 	
 	private void loadIndexFromString(String val) {
 		if( !isEmpty(val)) {
@@ -224,7 +559,7 @@ public class URLTransportCache {
 		try {
 			String decodedUrl = URLDecoder.decode(kv[0], ENCODING);
 			if (new File(kv[1]).exists())
-				cache.put(decodedUrl,kv[1]);
+				cache.put(decodedUrl, new CacheEntry(decodedUrl, kv[1]));
 		} catch(UnsupportedEncodingException uee) {
 			// Should not be hit
 			LOG.error(uee.getMessage(), uee);
@@ -236,29 +571,24 @@ public class URLTransportCache {
 		return s == null || s.isEmpty();
 	}
 	
-	private void savePreferences() {
+	private synchronized void saveIndex() {
 		// Saves are now done to an index file in the cache root. 
 		File index = cacheRoot.append(CACHE_INDEX_FILE).toFile();
+		lastIndexSave = System.currentTimeMillis();
 		
 		LOG.trace("Saving {} cache file locations to {}", cache.size(), index.getAbsolutePath());
 
-		StringBuilder sb = new StringBuilder();
-		Iterator<String> it = cache.keySet().iterator();
-		while(it.hasNext()) {
-			String k = it.next();
-			String v = cache.get(k);
-			String encodedURL = null;
-			try {
-				encodedURL = URLEncoder.encode(k, ENCODING);
-			} catch(UnsupportedEncodingException uee) {
-				// Should never happen
-			}
-			if( encodedURL != null )
-				sb.append(encodedURL + "=" + v + "\n");
+		Properties props = new Properties();
+		int i = 0;
+		for (CacheEntry entry : cache.values()) {
+			entry.store(props, i++);
 		}
-
 		try {
-			setContents(index, sb.toString());
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			props.store(bytes, null);
+			index.getParentFile().mkdirs();
+			writeAtomically(index.toPath(), bytes.toByteArray());
+			Files.deleteIfExists(cacheRoot.append(LEGACY_CACHE_INDEX_FILE).toFile().toPath());
 		} catch (IOException e) {
 			LOG.error(e.getMessage(), e);
 		}
@@ -271,14 +601,29 @@ public class URLTransportCache {
 	 */
 	private synchronized File getExistingRemoteFileCacheLocation(String url) {
 		// If this url is already cached, use it
-		String cachedLoc = cache.get(url);
-		if (cachedLoc != null) {
-			File f = new File(cache.get(url));
-			return f;
+		CacheEntry cached = cache.get(url);
+		if (cached != null) {
+			return new File(cached.file);
 		}
 		return null;
 	}	
 	
+	/*
+	 * The same url is always downloaded to the same file, 
+	 * so that an interrupted download can be resumed
+	 */
+	private synchronized File getPartialDownloadLocation(String url) {
+		File root = getLocalCacheFolder().toFile();
+		root.mkdirs();
+		String tmp;
+		try {
+			tmp = DigestUtils.sha1(url);
+		} catch (IOException O_o) {
+			tmp = url.replaceAll("[\\p{Punct}&&[^_]]", "_");
+		}
+		return new File(root, tmp + ".tmp");
+	}
+
 	private synchronized File createNewRemoteFileCacheLocation(String url) {
 		// Otherwise, make a new one
 		File root = getLocalCacheFolder().toFile();
@@ -329,9 +674,28 @@ public class URLTransportCache {
         }
     }
 	
-	private static void setContents(File file, String contents) throws IOException {
-		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), ENCODING))){
-			out.append(contents);
+	/*
+	 * Writes to a temporary file that is renamed over the given file, 
+	 * so that a crash never leaves a half written index
+	 */
+	static void writeAtomically(Path file, byte[] bytes) throws IOException {
+		Path temp = file.resolveSibling("." + file.getFileName() + ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = ByteBuffer.wrap(bytes);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(true);
+			}
+			try {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
 		}
 	}
 	
@@ -373,12 +737,6 @@ public class URLTransportCache {
 	}
 
 	
-	private IStatus download(String displayName, String url, FileOutputStream fileOutputStream, int timeout, 
-			IProgressMonitor monitor) throws IOException {
-		int contentLength = contentLength(new URL(url), timeout);
-		return download(displayName, createStream(url), fileOutputStream, timeout, contentLength, monitor);
-	}
-
 	public IStatus download(String displayName, String url, String user, String pass, 
 			FileOutputStream fileOutputStream, int timeout, IProgressMonitor monitor) throws IOException {
 	HttpURLConnection con = getURLConnection(url, user, pass, timeout);
@@ -433,18 +791,6 @@ public class URLTransportCache {
 		}
 	}
 
-	private int contentLength(URL url, int timeout) {
-		HttpURLConnection connection;
-		int contentLength = -1;
-		try {
-			connection = createConnection(url, timeout);
-			contentLength = connection.getContentLength();
-		} catch (Exception e) {
-			// ignore
-		}
-		return contentLength;
-	}
-
 	private long contentLength(HttpURLConnection connection) {
 		long contentLength = -1;
 		try {
@@ -455,10 +801,6 @@ public class URLTransportCache {
 		return contentLength;
 	}
 
-	private InputStream createStream(String url) throws IOException {
-		return new URL(url).openStream();
-	}
-
 	protected InputStream createStream(String webPage, String user, String pass, int timeout) throws IOException {
 		return getURLConnection(webPage, user, pass, timeout).getInputStream();
 	}
@@ -492,4 +834,60 @@ public class URLTransportCache {
 		return urlConnection;
 	}
 
-}
\ No newline at end of file
+	private static class CacheEntry {
+		private final String url;
+		private final String file;
+		private String etag;
+		private long lastModified;
+		private String cacheControl;
+		private long maxAge = -1;
+		private boolean noCache = false;
+		private long validated;
+		private long accessed;
+
+		private CacheEntry(String url, String file) {
+			this.url = url;
+			this.file = file;
+		}
+
+		private void setCacheControl(String cacheControl) {
+			this.cacheControl = cacheControl;
+			this.maxAge = -1;
+			this.noCache = false;
+			if (cacheControl == null)
+				return;
+			for (String directive : cacheControl.split(",")) {
+				String d = directive.trim().toLowerCase(Locale.ENGLISH);
+				if (d.equals("no-cache") || d.equals("no-store")) {
+					noCache = true;
+				} else if (d.startsWith("max-age=")) {
+					try {
+						maxAge = Long.parseLong(d.substring("max-age=".length()).trim()) * 1000;
+					} catch (NumberFormatException nfe) {
+						// ignore
+					}
+				}
+			}
+		}
+
+		/*
+		 * Whether the file may be used without asking the remote server
+		 */
+		private boolean isFresh(long now, long defaultMaxAge) {
+			long age = maxAge >= 0 ? maxAge : defaultMaxAge;
+			return !noCache && validated > 0 && validated <= now && now - validated < age;
+		}
+
+		private void store(Properties props, int i) {
+			props.setProperty(i + KEY_URL, url);
+			props.setProperty(i + KEY_FILE, file);
+			if (etag != null)
+				props.setProperty(i + KEY_ETAG, etag);
+			props.setProperty(i + KEY_LAST_MODIFIED, Long.toString(lastModified));
+			if (cacheControl != null)
+				props.setProperty(i + KEY_CACHE_CONTROL, cacheControl);
+			props.setProperty(i + KEY_VALIDATED, Long.toString(validated));
+			props.setProperty(i + KEY_ACCESSED, Long.toString(accessed));
+		}
+	}
+}
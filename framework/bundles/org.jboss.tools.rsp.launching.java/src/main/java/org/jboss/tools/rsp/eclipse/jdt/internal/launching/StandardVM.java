@@ -54,7 +54,10 @@ public class StandardVM extends AbstractVMInstall {
         if (installLocation != null) {
             File executable = getJavaExecutable();
             if (executable != null) {
-                String vmVersion = installType.getVMVersion(installLocation, executable);
+                String vmVersion = StandardVMType.getReleaseVersion(installLocation);
+                if (vmVersion == null) {
+                    vmVersion = installType.getVMVersion(installLocation, executable);
+                }
                 // strip off extra info
                 StringBuffer version = new StringBuffer();
                 for (int i = 0; i < vmVersion.length(); i++) {
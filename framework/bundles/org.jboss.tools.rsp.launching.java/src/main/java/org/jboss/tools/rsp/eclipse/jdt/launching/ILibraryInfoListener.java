@@ -0,0 +1,19 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.eclipse.jdt.launching;
+
+/**
+ * Is told when the library information of a vm install 
+ * was evaluated or dropped, ie. so that it can be saved.
+ */
+public interface ILibraryInfoListener {
+
+	public void libraryInfoChanged();
+
+}
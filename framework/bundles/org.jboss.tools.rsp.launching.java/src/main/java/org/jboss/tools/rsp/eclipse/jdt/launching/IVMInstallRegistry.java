@@ -35,9 +35,48 @@ public interface IVMInstallRegistry {
 	public void fireVMChanged(PropertyChangeEvent event);
 
 	public IVMInstall getDefaultVMInstall();
+
+	/**
+	 * Returns the vm installs whose major java version, ie. 8 for 1.8.0 
+	 * and 11 for 11.0.2, lies between the given versions, both inclusive.
+	 * Only vm installs that were indexed are found, vm installs 
+	 * are indexed in the background once they are added or changed.
+	 * 
+	 * @param minMajorVersion the lowest major version
+	 * @param maxMajorVersion the highest major version
+	 * @return the vm installs in the given range, never <code>null</code>
+	 * @see #indexVMInstalls()
+	 */
+	public IVMInstall[] findVMInstalls(int minMajorVersion, int maxMajorVersion);
+
+	/**
+	 * Indexes the vm installs that were added or changed by their java version 
+	 * now. Determining the version may launch a vm, this is not to be called 
+	 * on a thread that answers requests.
+	 */
+	public void indexVMInstalls();
 	
 	public void load(File f) throws InstantiationException, IllegalAccessException, ClassNotFoundException, FileNotFoundException;
 	
 	public void save(File f) throws IOException;
 
+	/**
+	 * Sets the file that the library information of the vm installs 
+	 * is read from, so that it is not evaluated again by launching each vm.
+	 */
+	public void setLibraryInfoFile(File f);
+
+	/**
+	 * Writes the library information of the vm installs to the given file.
+	 */
+	public void saveLibraryInfo(File f) throws IOException;
+
+	/**
+	 * Adds a listener that is told when library information 
+	 * was evaluated or dropped and should be saved.
+	 */
+	public void addLibraryInfoListener(ILibraryInfoListener l);
+
+	public void removeLibraryInfoListener(ILibraryInfoListener l);
+
 }
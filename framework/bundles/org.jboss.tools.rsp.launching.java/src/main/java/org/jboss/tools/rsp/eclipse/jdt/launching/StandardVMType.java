@@ -15,8 +15,10 @@ package org.jboss.tools.rsp.eclipse.jdt.launching;
 
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -25,6 +27,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Properties;
 
 import org.jboss.tools.rsp.eclipse.core.runtime.IPath;
 import org.jboss.tools.rsp.eclipse.core.runtime.IStatus;
@@ -104,6 +107,11 @@ public class StandardVMType extends AbstractVMInstallType {
 	 * VM install locations, relative to the VM install location.
 	 */
 	private static final String[] fgCandidateJavaFiles = {"javaw", "javaw.exe", "java", "java.exe", "j9w", "j9w.exe", "j9", "j9.exe"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$
+	/**
+	 * The file in a VM install location that states the version of the VM
+	 */
+	private static final String RELEASE_FILE = "release"; //$NON-NLS-1$
+	private static final String RELEASE_JAVA_VERSION = "JAVA_VERSION"; //$NON-NLS-1$
 	private static final String[] fgCandidateJavaLocations = {"bin" + File.separatorChar, JRE + File.separatorChar + "bin" + File.separatorChar}; //$NON-NLS-1$ //$NON-NLS-2$
 
 //	private static ILibraryLocationResolver[] fgLibraryLocationResolvers = null;
@@ -129,6 +137,35 @@ public class StandardVMType extends AbstractVMInstallType {
 		return null;
 	}
 
+	/**
+	 * Returns the java version stated in the release file of the given
+	 * VM install location, or <code>null</code> if there is no such file or it
+	 * states no version. This spares launching the VM to find out its version.
+	 * @param vmInstallLocation the {@link File} location to look in
+	 * @return the java version or <code>null</code>
+	 */
+	public static String getReleaseVersion(File vmInstallLocation) {
+		File release = new File(vmInstallLocation, RELEASE_FILE);
+		if (!release.isFile()) {
+			return null;
+		}
+		Properties props = new Properties();
+		try (InputStream in = new FileInputStream(release)) {
+			props.load(in);
+		} catch (IOException | IllegalArgumentException e) {
+			return null;
+		}
+		String version = props.getProperty(RELEASE_JAVA_VERSION);
+		if (version == null) {
+			return null;
+		}
+		version = version.trim();
+		if (version.length() > 1 && version.startsWith("\"") && version.endsWith("\"")) { //$NON-NLS-1$ //$NON-NLS-2$
+			version = version.substring(1, version.length() - 1);
+		}
+		return version.isEmpty() ? null : version;
+	}
+
 //	/**
 //	 * Returns the listing of {@link ILibraryLocationResolver}s
 //	 *
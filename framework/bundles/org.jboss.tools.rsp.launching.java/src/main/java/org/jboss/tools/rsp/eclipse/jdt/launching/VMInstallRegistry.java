@@ -16,10 +16,19 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.jboss.tools.rsp.internal.launching.java.LibraryInfoCache;
 import org.jboss.tools.rsp.launching.memento.IMemento;
 import org.jboss.tools.rsp.launching.memento.JSONMemento;
 import org.jboss.tools.rsp.launching.memento.XMLMemento;
@@ -36,10 +45,29 @@ public class VMInstallRegistry implements IVMInstallRegistry {
 
 	private final Map<String, IVMInstall> vms;
 	private final List<IVMInstallChangedListener> listeners;
+	/**
+	 * The vm installs by their major java version
+	 */
+	private final NavigableMap<Integer, Set<IVMInstall>> byMajorVersion;
+	/**
+	 * The vm installs whose java version was not determined yet. 
+	 * They are indexed in the background, since this may launch them.
+	 */
+	private final Set<IVMInstall> unindexed;
+	private final ExecutorService indexer;
+	private final AtomicBoolean indexScheduled = new AtomicBoolean();
+	private final Object indexLock = new Object();
 
 	public VMInstallRegistry() {
-		this.vms = new HashMap<>();
+		this.vms = new ConcurrentHashMap<>();
 		this.listeners = new ArrayList<>();
+		this.byMajorVersion = new ConcurrentSkipListMap<>();
+		this.unindexed = ConcurrentHashMap.newKeySet();
+		this.indexer = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+			Thread t = new Thread(r, "VMInstallRegistry Indexer"); //$NON-NLS-1$
+			t.setDaemon(true);
+			return t;
+		});
 	}
 
 	public void addActiveVM() {
@@ -68,6 +96,8 @@ public class VMInstallRegistry implements IVMInstallRegistry {
 			((AbstractVMInstall) vm).setRegistry(this);
 		}
 		vms.put(id, vm);
+		unindexed.add(vm);
+		indexInBackground();
 		fireVMAdded(vm);
 	}
 
@@ -99,6 +129,7 @@ public class VMInstallRegistry implements IVMInstallRegistry {
 		IVMInstall vm = vms.get(vmId);
 		if (vm != null) {
 			vms.remove(vmId);
+			unindex(vm);
 			fireVMRemoved(vm);
 		}
 	}
@@ -112,9 +143,102 @@ public class VMInstallRegistry implements IVMInstallRegistry {
 	}
 
 	public void fireVMChanged(PropertyChangeEvent event) {
+		Object source = event.getSource();
+		if (source instanceof IVMInstall 
+				&& vms.get(((IVMInstall) source).getId()) == source) {
+			// the install location may have changed
+			reindex((IVMInstall) source);
+			indexInBackground();
+		}
 		listeners.forEach(listener -> listener.vmChanged(event));
 	}
 
+	@Override
+	public IVMInstall[] findVMInstalls(int minMajorVersion, int maxMajorVersion) {
+		if (minMajorVersion > maxMajorVersion) {
+			return new IVMInstall[0];
+		}
+		return byMajorVersion.subMap(minMajorVersion, true, maxMajorVersion, true).values().stream()
+			.flatMap(Set::stream)
+			.sorted((o1, o2) -> o1.getId().compareTo(o2.getId()))
+			.toArray(IVMInstall[]::new);
+	}
+
+	private void indexInBackground() {
+		if (indexScheduled.compareAndSet(false, true)) {
+			indexer.execute(() -> {
+				// vm installs that are added while indexing schedule another run
+				indexScheduled.set(false);
+				indexVMInstalls();
+			});
+		}
+	}
+
+	/**
+	 * Determining the java version may launch a vm. The registry is thus only
+	 * locked to take the vm installs to index and to publish their version,
+	 * so that adding or removing vm installs does not wait for a launch.
+	 * Indexing runs one at a time, so that this returns once 
+	 * the vm installs that a background run took are indexed.
+	 */
+	@Override
+	public void indexVMInstalls() {
+		synchronized (indexLock) {
+			List<IVMInstall> toIndex;
+			synchronized (this) {
+				toIndex = new ArrayList<>(unindexed);
+				unindexed.removeAll(toIndex);
+			}
+			for (IVMInstall vm : toIndex) {
+				int major = getMajorVersion(vm.getJavaVersion());
+				if (major > 0) {
+					publish(vm, major);
+				}
+			}
+		}
+	}
+
+	private synchronized void publish(IVMInstall vm, int major) {
+		// skip vm installs that were removed or changed meanwhile
+		if (vms.get(vm.getId()) == vm
+				&& !unindexed.contains(vm)) {
+			byMajorVersion.computeIfAbsent(major, k -> ConcurrentHashMap.newKeySet()).add(vm);
+		}
+	}
+
+	private synchronized void unindex(IVMInstall vm) {
+		unindexed.remove(vm);
+		byMajorVersion.values().forEach(bucket -> bucket.remove(vm));
+	}
+
+	private synchronized void reindex(IVMInstall vm) {
+		unindex(vm);
+		unindexed.add(vm);
+	}
+
+	/**
+	 * Returns the major version of the given java version, 
+	 * ie. 8 for 1.8.0 and 11 for 11.0.2, or -1 if it cannot be determined.
+	 * 
+	 * @param javaVersion the java version
+	 * @return the major version or -1
+	 */
+	public static int getMajorVersion(String javaVersion) {
+		if (javaVersion == null) {
+			return -1;
+		}
+		String[] segments = javaVersion.trim().split("[._\\-+]");
+		try {
+			int major = Integer.parseInt(segments[0]);
+			if (major == 1 && segments.length > 1) {
+				major = Integer.parseInt(segments[1]);
+			}
+			return major;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
 	public IVMInstall getDefaultVMInstall() {
 		return findVMInstall(RUNNING_VM_ID);
 	}
@@ -146,6 +270,26 @@ public class VMInstallRegistry implements IVMInstallRegistry {
 		Files.write(vmsFile.toPath(), bytes);
 	}
 	
+	@Override
+	public void setLibraryInfoFile(File f) {
+		LibraryInfoCache.getDefault().setCacheFile(f);
+	}
+
+	@Override
+	public void saveLibraryInfo(File f) throws IOException {
+		LibraryInfoCache.getDefault().save(f);
+	}
+
+	@Override
+	public void addLibraryInfoListener(ILibraryInfoListener l) {
+		LibraryInfoCache.getDefault().addListener(l);
+	}
+
+	@Override
+	public void removeLibraryInfoListener(ILibraryInfoListener l) {
+		LibraryInfoCache.getDefault().removeListener(l);
+	}
+
 	public void load(File vmsFile) throws InstantiationException, IllegalAccessException, ClassNotFoundException, FileNotFoundException {
 		if (!vmsFile.exists()) {
 			return;
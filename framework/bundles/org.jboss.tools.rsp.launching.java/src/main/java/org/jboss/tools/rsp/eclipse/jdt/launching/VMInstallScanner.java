@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.eclipse.jdt.launching;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.tools.rsp.eclipse.core.runtime.IProgressMonitor;
+import org.jboss.tools.rsp.eclipse.core.runtime.IStatus;
+import org.jboss.tools.rsp.eclipse.core.runtime.Status;
+import org.jboss.tools.rsp.launching.java.JavaLaunchingActivator;
+import org.jboss.tools.rsp.launching.utils.IStatusRunnableWithProgress;
+import org.jboss.tools.rsp.launching.utils.OSUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Looks for java installations in the folders that they are usually
+ * installed to and adds the ones that are not known yet to the registry.
+ *
+ * The candidate folders are checked in parallel. The java version of a
+ * candidate is read from its release file, it is only launched
+ * if it has none.
+ */
+public class VMInstallScanner implements IStatusRunnableWithProgress {
+	private static final Logger LOG = LoggerFactory.getLogger(VMInstallScanner.class);
+
+	private static final String MAC_HOME = "Contents/Home"; //$NON-NLS-1$
+
+	private final IVMInstallRegistry registry;
+	private final List<File> roots;
+	private final int parallelism;
+	private final List<IVMInstall> added = Collections.synchronizedList(new ArrayList<>());
+	/**
+	 * The ids of the candidates that are being checked, guarded by the registry
+	 */
+	private final Set<String> reserved = new HashSet<>();
+
+	/**
+	 * Creates a scanner that looks in the usual java installation folders
+	 *
+	 * @param registry the registry to add the java installations to
+	 */
+	public VMInstallScanner(IVMInstallRegistry registry) {
+		this(registry, getDefaultRoots(), Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param registry the registry to add the java installations to
+	 * @param roots the folders whose children are checked
+	 * @param parallelism how many folders are checked at the same time
+	 */
+	public VMInstallScanner(IVMInstallRegistry registry, List<File> roots, int parallelism) {
+		this.registry = registry;
+		this.roots = roots;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Returns the folders that java installations are usually installed to
+	 */
+	public static List<File> getDefaultRoots() {
+		List<File> ret = new ArrayList<>();
+		String userHome = System.getProperty("user.home"); //$NON-NLS-1$
+		if (OSUtils.isWindows()) {
+			for (String programFiles : new String[] { System.getenv("ProgramFiles"), System.getenv("ProgramW6432") }) { //$NON-NLS-1$ //$NON-NLS-2$
+				if (programFiles != null) {
+					for (String vendor : new String[] { "Java", "AdoptOpenJDK", "Eclipse Adoptium", "Zulu", "Amazon Corretto" }) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+						ret.add(new File(programFiles, vendor));
+					}
+				}
+			}
+		} else if (OSUtils.isMac()) {
+			ret.add(new File("/Library/Java/JavaVirtualMachines")); //$NON-NLS-1$
+			ret.add(new File(userHome, "Library/Java/JavaVirtualMachines")); //$NON-NLS-1$
+		} else {
+			ret.add(new File("/usr/lib/jvm")); //$NON-NLS-1$
+			ret.add(new File("/usr/java")); //$NON-NLS-1$
+			ret.add(new File("/opt/java")); //$NON-NLS-1$
+			ret.add(new File("/opt")); //$NON-NLS-1$
+		}
+		ret.add(new File(userHome, ".sdkman/candidates/java")); //$NON-NLS-1$
+		ret.add(new File(userHome, ".jdks")); //$NON-NLS-1$
+		ret.add(new File(userHome, ".jabba/jdk")); //$NON-NLS-1$
+		String javaHome = System.getenv("JAVA_HOME"); //$NON-NLS-1$
+		if (javaHome != null && !javaHome.trim().isEmpty()) {
+			ret.add(new File(javaHome.trim()).getParentFile());
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the vm installs that were added to the registry
+	 */
+	public List<IVMInstall> getAdded() {
+		synchronized (added) {
+			return new ArrayList<>(added);
+		}
+	}
+
+	@Override
+	public IStatus run(IProgressMonitor monitor) {
+		Map<String, File> candidates = getCandidates();
+		candidates.keySet().removeAll(getKnownLocations());
+		monitor.beginTask("Searching for java installations", candidates.size());
+		if (!candidates.isEmpty()) {
+			AtomicInteger count = new AtomicInteger();
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, candidates.size()), r -> {
+				Thread t = new Thread(r, "VMInstallScanner Worker " + count.incrementAndGet()); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			});
+			try {
+				CompletableFuture<?>[] all = candidates.values().stream()
+					.map(home -> CompletableFuture.runAsync(() -> check(home, monitor), executor))
+					.toArray(CompletableFuture[]::new);
+				CompletableFuture.allOf(all).join();
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		if (!monitor.isCanceled()) {
+			// we are in the background, the registry may launch vms to index them
+			registry.indexVMInstalls();
+		}
+		monitor.done();
+		if (monitor.isCanceled()) {
+			return Status.CANCEL_STATUS;
+		}
+		return new Status(IStatus.OK, JavaLaunchingActivator.BUNDLE_ID,
+				"Found " + added.size() + " new java installations in " + candidates.size() + " unknown folders");
+	}
+
+	/**
+	 * Returns the folders below the roots that may be java installations,
+	 * by their canonical path
+	 */
+	private Map<String, File> getCandidates() {
+		Map<String, File> ret = new LinkedHashMap<>();
+		for (File root : new LinkedHashSet<>(roots)) {
+			File[] children = root == null ? null : root.listFiles(File::isDirectory);
+			if (children == null) {
+				continue;
+			}
+			Arrays.sort(children);
+			for (File child : children) {
+				File home = new File(child, MAC_HOME).isDirectory() ? new File(child, MAC_HOME) : child;
+				ret.putIfAbsent(getCanonicalPath(home), home);
+			}
+		}
+		return ret;
+	}
+
+	private Set<String> getKnownLocations() {
+		Set<String> ret = new HashSet<>();
+		for (IVMInstall vm : registry.getVMs()) {
+			if (vm.getInstallLocation() != null) {
+				ret.add(getCanonicalPath(vm.getInstallLocation()));
+			}
+		}
+		return ret;
+	}
+
+	private static String getCanonicalPath(File file) {
+		try {
+			return file.getCanonicalPath();
+		} catch (IOException e) {
+			return file.getAbsolutePath();
+		}
+	}
+
+	private void check(File home, IProgressMonitor monitor) {
+		String id = null;
+		try {
+			if (monitor.isCanceled()
+					|| StandardVMType.findJavaExecutable(home) == null) {
+				return;
+			}
+			id = reserveId(getName(home));
+			IVMInstall candidate = StandardVMType.getDefault().createVMInstall(id);
+			candidate.setInstallLocation(home);
+			if (candidate.getJavaVersion() == null) {
+				return;
+			}
+			add(candidate);
+		} catch (RuntimeException re) {
+			LOG.warn("Unable to check whether {} is a java installation", home, re);
+		} finally {
+			if (id != null) {
+				release(id);
+			}
+			synchronized (monitor) {
+				monitor.worked(1);
+			}
+		}
+	}
+
+	/**
+	 * Registers the candidate that was checked, unless its 
+	 * installation folder was added meanwhile.
+	 */
+	private void add(IVMInstall candidate) {
+		synchronized (registry) {
+			if (registry.findVMInstall(candidate.getInstallLocation()) != null) {
+				return;
+			}
+			registry.addVMInstall(candidate);
+			added.add(candidate);
+		}
+	}
+
+	/**
+	 * Returns an id that neither the registry nor another 
+	 * candidate that is being checked uses.
+	 */
+	private String reserveId(String base) {
+		synchronized (registry) {
+			String id = base;
+			for (int i = 1; registry.findVMInstall(id) != null || reserved.contains(id); i++) {
+				id = base + " (" + i + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			reserved.add(id);
+			return id;
+		}
+	}
+
+	private void release(String id) {
+		synchronized (registry) {
+			reserved.remove(id);
+		}
+	}
+
+	/**
+	 * Returns the name of the installation folder, 
+	 * ie. jdk-11.jdk for jdk-11.jdk/Contents/Home on mac
+	 */
+	private static String getName(File home) {
+		if (home.getPath().endsWith(MAC_HOME.replace('/', File.separatorChar))) {
+			return home.getParentFile().getParentFile().getName();
+		}
+		return home.getName();
+	}
+}
@@ -9,13 +9,43 @@
 package org.jboss.tools.rsp.internal.launching.java;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.tools.rsp.eclipse.jdt.internal.launching.LibraryInfo;
+import org.jboss.tools.rsp.eclipse.jdt.launching.ILibraryInfoListener;
+import org.jboss.tools.rsp.eclipse.jdt.launching.StandardVMType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 
 public class LibraryInfoCache {
+	private static final Logger LOG = LoggerFactory.getLogger(LibraryInfoCache.class);
+
+	private static final int VERSION = 1;
+	private static final String RELEASE_FILE = "release";
 
 	/**
 	 * Mapping of top-level VM installation directories to library info for that
@@ -43,13 +73,57 @@ public class LibraryInfoCache {
 	 */
 	private Object installLock = new Object();	
 
+	/**
+	 * Mapping of VM installation directories to the fingerprint of the
+	 * java executable and release file the library info was created for.
+	 */
+	private Map<String, Fingerprint> fingerprints = new HashMap<>();
+	/**
+	 * Install locations that were read from the cache file and were not
+	 * checked against their fingerprint yet
+	 */
+	private Set<String> unverified = new HashSet<>();
+	private File cacheFile;
+	private boolean loaded;
+	private final List<ILibraryInfoListener> listeners = new CopyOnWriteArrayList<>();
+
 	private static LibraryInfoCache instance = new LibraryInfoCache();
 
 	public static LibraryInfoCache getDefault() {
 		return instance;
 	}
 	
-	private LibraryInfoCache() {
+	LibraryInfoCache() {
+	}
+
+	/**
+	 * Sets the file that the library infos are read from.
+	 * The file is read once the first library info is asked for, 
+	 * the entries read from it are then checked in the background.
+	 * The cache does not write the file, listeners are told about
+	 * changes and can {@link #save(File)} it.
+	 * 
+	 * @param file the file to read the library infos from, or <code>null</code>
+	 */
+	public void setCacheFile(File file) {
+		synchronized (this) {
+			this.cacheFile = file;
+			this.loaded = false;
+		}
+	}
+
+	public void addListener(ILibraryInfoListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(ILibraryInfoListener listener) {
+		listeners.remove(listener);
+	}
+
+	private void fireChanged() {
+		for (ILibraryInfoListener listener : listeners) {
+			listener.libraryInfoChanged();
+		}
 	}
 
 	/**
@@ -61,7 +135,11 @@ public class LibraryInfoCache {
 	 * path, or <code>null</code> if none
 	 */
 	public LibraryInfo get(String javaInstallPath) {
-		return fgLibraryInfoMap.get(javaInstallPath);
+		ensureLoaded();
+		verify(javaInstallPath);
+		synchronized (this) {
+			return fgLibraryInfoMap.get(javaInstallPath);
+		}
 	}
 
 	/**
@@ -106,13 +184,218 @@ public class LibraryInfoCache {
 	 * @param info the library information, or <code>null</code> to remove
 	 */
 	public void put(String javaInstallPath, LibraryInfo info) {
-		if (info == null) {
-			fgLibraryInfoMap.remove(javaInstallPath);
-			fgInstallTimeMap.remove(javaInstallPath);
-		} else {
-			fgLibraryInfoMap.put(javaInstallPath, info);
+		ensureLoaded();
+		synchronized (this) {
+			if (info == null) {
+				fgLibraryInfoMap.remove(javaInstallPath);
+				fingerprints.remove(javaInstallPath);
+				synchronized (installLock) {
+					fgInstallTimeMap.remove(javaInstallPath);
+				}
+			} else {
+				fgLibraryInfoMap.put(javaInstallPath, info);
+				fingerprints.put(javaInstallPath, Fingerprint.of(javaInstallPath));
+			}
+			unverified.remove(javaInstallPath);
 		}
 		//once the library info has been set we can forget it has changed
-		fgHasChanged.remove(javaInstallPath);
+		synchronized (installLock) {
+			fgHasChanged.remove(javaInstallPath);
+		}
+		fireChanged();
+	}
+
+	private void ensureLoaded() {
+		List<String> toVerify;
+		synchronized (this) {
+			if (loaded || cacheFile == null) {
+				return;
+			}
+			loaded = true;
+			toVerify = load(cacheFile);
+		}
+		if (!toVerify.isEmpty()) {
+			verifyInBackground(toVerify);
+		}
+	}
+
+	/**
+	 * Reads the cache file, keeping the entries that are already known.
+	 * Returns the install locations that were read.
+	 */
+	private List<String> load(File file) {
+		List<String> ret = new ArrayList<>();
+		if (!file.isFile()) {
+			return ret;
+		}
+		CacheFile contents;
+		try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			contents = new Gson().fromJson(reader, CacheFile.class);
+		} catch (IOException | JsonParseException e) {
+			LOG.warn("Ignoring library info cache {} that cannot be read", file, e);
+			return ret;
+		}
+		if (contents == null || contents.version != VERSION || contents.entries == null) {
+			return ret;
+		}
+		for (CacheEntry e : contents.entries) {
+			if (e == null || e.path == null || e.fingerprint == null 
+					|| fgLibraryInfoMap.containsKey(e.path)) {
+				continue;
+			}
+			fgLibraryInfoMap.put(e.path, 
+					new LibraryInfo(e.version, e.bootpath, e.extensionDirs, e.endorsedDirs));
+			fingerprints.put(e.path, e.fingerprint);
+			unverified.add(e.path);
+			ret.add(e.path);
+		}
+		return ret;
+	}
+
+	private void verifyInBackground(List<String> paths) {
+		int threads = Math.min(paths.size(), Math.max(1, Runtime.getRuntime().availableProcessors()));
+		AtomicInteger count = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "LibraryInfoCache Verifier " + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		CompletableFuture<?>[] all = paths.stream()
+				.map(path -> CompletableFuture.runAsync(() -> verify(path), executor))
+				.toArray(CompletableFuture[]::new);
+		CompletableFuture.allOf(all).whenComplete((v, t) -> executor.shutdown());
+	}
+
+	/**
+	 * Checks an entry read from the cache file against the java executable 
+	 * and release file it was created for. Entries that do not match are dropped,
+	 * entries that do are trusted as if their library info was just created.
+	 */
+	private void verify(String javaInstallPath) {
+		Fingerprint expected;
+		synchronized (this) {
+			if (!unverified.contains(javaInstallPath)) {
+				return;
+			}
+			expected = fingerprints.get(javaInstallPath);
+		}
+		// checked outside of the lock, a concurrent check yields the same result
+		boolean valid = Objects.equals(expected, Fingerprint.of(javaInstallPath));
+		synchronized (this) {
+			if (!unverified.remove(javaInstallPath)) {
+				return;
+			}
+			if (valid) {
+				synchronized (installLock) {
+					fgInstallTimeMap.put(javaInstallPath, new File(javaInstallPath).lastModified());
+				}
+				return;
+			}
+			fgLibraryInfoMap.remove(javaInstallPath);
+			fingerprints.remove(javaInstallPath);
+		}
+		fireChanged();
+	}
+
+	/**
+	 * Writes the library infos to the given file.
+	 */
+	public void save(File file) throws IOException {
+		CacheFile contents = new CacheFile();
+		synchronized (this) {
+			for (Map.Entry<String, LibraryInfo> e : fgLibraryInfoMap.entrySet()) {
+				Fingerprint fingerprint = fingerprints.get(e.getKey());
+				if (fingerprint != null) {
+					contents.entries.add(new CacheEntry(e.getKey(), e.getValue(), fingerprint));
+				}
+			}
+		}
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			new Gson().toJson(contents, writer);
+		}
+	}
+
+	private static class CacheFile {
+		private int version = VERSION;
+		private List<CacheEntry> entries = new ArrayList<>();
+	}
+
+	private static class CacheEntry {
+		private String path;
+		private String version;
+		private String[] bootpath;
+		private String[] extensionDirs;
+		private String[] endorsedDirs;
+		private Fingerprint fingerprint;
+
+		private CacheEntry(String path, LibraryInfo info, Fingerprint fingerprint) {
+			this.path = path;
+			this.version = info.getVersion();
+			this.bootpath = info.getBootpath();
+			this.extensionDirs = info.getExtensionDirs();
+			this.endorsedDirs = info.getEndorsedDirs();
+			this.fingerprint = fingerprint;
+		}
+	}
+
+	/**
+	 * The modification time and size of the java executable and 
+	 * the hash of the release file of a VM install
+	 */
+	private static class Fingerprint {
+		private String executable;
+		private long modified;
+		private long size;
+		private String release;
+
+		private static Fingerprint of(String javaInstallPath) {
+			Fingerprint ret = new Fingerprint();
+			File home = new File(javaInstallPath);
+			File java = StandardVMType.findJavaExecutable(home);
+			if (java != null) {
+				ret.executable = java.getAbsolutePath();
+				try {
+					BasicFileAttributes attributes = Files.readAttributes(java.toPath(), BasicFileAttributes.class);
+					ret.modified = attributes.lastModifiedTime().toMillis();
+					ret.size = attributes.size();
+				} catch (IOException | InvalidPathException e) {
+					// not readable, the fingerprint will not match
+				}
+			}
+			ret.release = hash(new File(home, RELEASE_FILE));
+			return ret;
+		}
+
+		private static String hash(File file) {
+			if (!file.isFile()) {
+				return null;
+			}
+			try {
+				byte[] digest = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file.toPath()));
+				return Base64.getEncoder().encodeToString(digest);
+			} catch (IOException | InvalidPathException | NoSuchAlgorithmException e) {
+				return null;
+			}
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Fingerprint)) {
+				return false;
+			}
+			Fingerprint other = (Fingerprint) obj;
+			return modified == other.modified
+					&& size == other.size
+					&& Objects.equals(executable, other.executable)
+					&& Objects.equals(release, other.release);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(executable, modified, size, release);
+		}
 	}
 }
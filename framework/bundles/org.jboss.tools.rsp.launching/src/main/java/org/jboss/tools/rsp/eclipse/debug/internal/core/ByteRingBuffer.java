@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.eclipse.debug.internal.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A fixed size buffer that keeps the most recent bytes written to it,
+ * dropping the oldest ones once it is full.
+ *
+ * The bytes are held either on the heap or in a memory-mapped
+ * temporary file, which keeps large buffers off the heap.
+ *
+ * This class is not thread safe.
+ */
+public class ByteRingBuffer {
+
+	private final ByteBuffer buffer;
+	private final int capacity;
+	private int start = 0;
+	private int size = 0;
+	private long dropped = 0;
+
+	/**
+	 * Creates a buffer of the given capacity on the heap.
+	 */
+	public ByteRingBuffer(int capacity) {
+		this(ByteBuffer.allocate(capacity));
+	}
+
+	private ByteRingBuffer(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.capacity = buffer.capacity();
+	}
+
+	/**
+	 * Creates a buffer of the given capacity that is backed by a
+	 * memory-mapped temporary file rather than the heap.
+	 */
+	public static ByteRingBuffer createMapped(int capacity) throws IOException {
+		File file = File.createTempFile("rsp-console", ".buffer");
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			ByteBuffer mapped = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+			return new ByteRingBuffer(mapped);
+		} finally {
+			// the mapping outlives the file on unix, elsewhere it goes on exit
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of bytes currently held.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns how many bytes were dropped because the buffer was full.
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	public void write(byte[] bytes, int offset, int length) {
+		if (capacity == 0) {
+			dropped += length;
+			return;
+		}
+		if (length >= capacity) {
+			// only the tail fits
+			dropped += size + length - capacity;
+			offset += length - capacity;
+			length = capacity;
+			start = 0;
+			size = 0;
+		}
+		int overflow = size + length - capacity;
+		if (overflow > 0) {
+			start = (start + overflow) % capacity;
+			size -= overflow;
+			dropped += overflow;
+		}
+		int end = (start + size) % capacity;
+		int first = Math.min(length, capacity - end);
+		put(end, bytes, offset, first);
+		put(0, bytes, offset + first, length - first);
+		size += length;
+	}
+
+	private void put(int position, byte[] bytes, int offset, int length) {
+		if (length > 0) {
+			ByteBuffer target = buffer.duplicate();
+			target.position(position);
+			target.put(bytes, offset, length);
+		}
+	}
+
+	/**
+	 * Returns the bytes currently held, oldest first.
+	 */
+	public byte[] toByteArray() {
+		byte[] result = new byte[size];
+		int first = Math.min(size, capacity - start);
+		ByteBuffer source = buffer.duplicate();
+		source.position(start);
+		source.get(result, 0, first);
+		if (first < size) {
+			source.position(0);
+			source.get(result, first, size - first);
+		}
+		return result;
+	}
+
+	public void clear() {
+		start = 0;
+		size = 0;
+	}
+}
@@ -14,6 +14,12 @@ package org.jboss.tools.rsp.eclipse.debug.internal.core;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 
 import org.jboss.tools.rsp.eclipse.core.runtime.ISafeRunnable;
 import org.jboss.tools.rsp.eclipse.core.runtime.ListenerList;
@@ -29,10 +35,19 @@ import org.slf4j.LoggerFactory;
  *
  * The output stream monitor reads system out (or err) via
  * and input stream.
+ *
+ * Only the most recent output is buffered for {@link #getContents()}, 
+ * in a ring buffer of {@value #DEFAULT_BUFFER_SIZE} bytes by default.
+ * The size is set with the {@value #SYSPROP_BUFFER_SIZE} system property,
+ * and the {@value #SYSPROP_BUFFER_MAPPED} system property moves the 
+ * buffer off the heap into a memory-mapped file.
  */
 public class OutputStreamMonitor implements IFlushableStreamMonitor {
 	private static final Logger LOG = LoggerFactory.getLogger(OutputStreamMonitor.class);
 
+	public static final String SYSPROP_BUFFER_SIZE = "rsp.console.buffer.size";
+	public static final String SYSPROP_BUFFER_MAPPED = "rsp.console.buffer.mapped";
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
 	
 	/**
 	 * The stream being monitored (connected system out or err).
@@ -50,9 +65,9 @@ public class OutputStreamMonitor implements IFlushableStreamMonitor {
 	private boolean fBuffered = true;
 
 	/**
-	 * The local copy of the stream contents
+	 * The local copy of the most recent stream contents
 	 */
-	private StringBuffer fContents;
+	private ByteRingBuffer fContents;
 
 	/**
 	 * The thread which reads from the stream
@@ -73,7 +88,7 @@ public class OutputStreamMonitor implements IFlushableStreamMonitor {
 
     private long lastSleep;
 
-	private String fEncoding;
+	private Charset fCharset;
 
 	/**
 	 * Creates an output stream monitor on the
@@ -83,9 +98,44 @@ public class OutputStreamMonitor implements IFlushableStreamMonitor {
 	 * @param encoding stream encoding or <code>null</code> for system default
 	 */
 	public OutputStreamMonitor(InputStream stream, String encoding) {
+		this(stream, encoding, createContentsBuffer());
+	}
+
+	/**
+	 * Creates an output stream monitor on the given stream 
+	 * that buffers contents in the given buffer.
+	 *
+	 * @param stream input stream to read from
+	 * @param encoding stream encoding or <code>null</code> for system default
+	 * @param contents the buffer for the stream contents
+	 */
+	public OutputStreamMonitor(InputStream stream, String encoding, ByteRingBuffer contents) {
         fStream = new BufferedInputStream(stream, 8192);
-        fEncoding = encoding;
-		fContents= new StringBuffer();
+        fCharset = getCharset(encoding);
+		fContents= contents;
+	}
+
+	private static Charset getCharset(String encoding) {
+		if (encoding != null) {
+			try {
+				return Charset.forName(encoding);
+			} catch (IllegalArgumentException iae) {
+				LOG.error("Unsupported encoding " + encoding + ", using the default", iae);
+			}
+		}
+		return Charset.defaultCharset();
+	}
+
+	private static ByteRingBuffer createContentsBuffer() {
+		int size = Math.max(0, Integer.getInteger(SYSPROP_BUFFER_SIZE, DEFAULT_BUFFER_SIZE));
+		if (Boolean.getBoolean(SYSPROP_BUFFER_MAPPED) && size > 0) {
+			try {
+				return ByteRingBuffer.createMapped(size);
+			} catch (IOException ioe) {
+				LOG.error("Could not map console buffer, buffering on the heap instead", ioe);
+			}
+		}
+		return new ByteRingBuffer(size);
 	}
 
 	/* (non-Javadoc)
@@ -126,8 +176,19 @@ public class OutputStreamMonitor implements IFlushableStreamMonitor {
 	 * @see org.eclipse.debug.core.model.IStreamMonitor#getContents()
 	 */
 	@Override
-	public synchronized String getContents() {
-		return fContents.toString();
+	public String getContents() {
+		byte[] bytes;
+		int skip = 0;
+		synchronized (this) {
+			bytes = fContents.toByteArray();
+			if (fContents.getDropped() > 0 && StandardCharsets.UTF_8.equals(fCharset)) {
+				// the oldest character may have been cut in half
+				while (skip < bytes.length && skip < 3 && (bytes[skip] & 0xC0) == 0x80) {
+					skip++;
+				}
+			}
+		}
+		return new String(bytes, skip, bytes.length - skip, fCharset);
 	}
 
 	/**
@@ -141,27 +202,31 @@ public class OutputStreamMonitor implements IFlushableStreamMonitor {
 	private void read() {
         lastSleep = System.currentTimeMillis();
         long currentTime = lastSleep;
-		byte[] bytes= new byte[BUFFER_SIZE];
+		CharsetDecoder decoder = fCharset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		// bytes of a character split across reads are kept for the next one
+		ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+		CharBuffer chars = CharBuffer.allocate((int)Math.ceil(BUFFER_SIZE * decoder.maxCharsPerByte()));
 		int read = 0;
 		while (read >= 0) {
 			try {
 				if (fKilled) {
 					break;
 				}
-				read= fStream.read(bytes);
+				int position = bytes.position();
+				read= fStream.read(bytes.array(), position, bytes.remaining());
 				if (read > 0) {
-					String text;
-					if (fEncoding != null) {
-						text = new String(bytes, 0, read, fEncoding);
-					} else {
-						text = new String(bytes, 0, read);
-					}
 					synchronized (this) {
 						if (isBuffered()) {
-							fContents.append(text);
+							fContents.write(bytes.array(), position, read);
 						}
-						fireStreamAppended(text);
 					}
+					bytes.position(position + read);
+					bytes.flip();
+					decoder.decode(bytes, chars, false);
+					bytes.compact();
+					fireStreamAppended(drain(chars));
 				}
 			} catch (IOException ioe) {
 				if (!fKilled) {
@@ -186,6 +251,10 @@ public class OutputStreamMonitor implements IFlushableStreamMonitor {
                 }
             }
 		}
+		bytes.flip();
+		decoder.decode(bytes, chars, true);
+		decoder.flush(chars);
+		fireStreamAppended(drain(chars));
 		try {
 			fStream.close();
 		} catch (IOException e) {
@@ -193,6 +262,13 @@ public class OutputStreamMonitor implements IFlushableStreamMonitor {
 		}
 	}
 
+	private String drain(CharBuffer chars) {
+		chars.flip();
+		String text = chars.length() == 0 ? null : chars.toString();
+		chars.clear();
+		return text;
+	}
+
 	protected void kill() {
 		fKilled= true;
 	}
@@ -235,7 +311,7 @@ public class OutputStreamMonitor implements IFlushableStreamMonitor {
 	 */
 	@Override
 	public synchronized void flushContents() {
-		fContents.setLength(0);
+		fContents.clear();
 	}
 
 	/**
@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 import org.jboss.tools.rsp.eclipse.core.runtime.CoreException;
 import org.jboss.tools.rsp.eclipse.core.runtime.IProgressMonitor;
@@ -25,6 +26,7 @@ import org.jboss.tools.rsp.eclipse.core.runtime.Status;
 import org.jboss.tools.rsp.eclipse.core.runtime.SubProgressMonitor;
 import org.jboss.tools.rsp.eclipse.osgi.util.NLS;
 import org.jboss.tools.rsp.foundation.core.tasks.TaskModel;
+import org.jboss.tools.rsp.foundation.core.transport.ResumableDownload;
 import org.jboss.tools.rsp.foundation.core.transport.URLTransportCache;
 import org.jboss.tools.rsp.runtime.core.RuntimeCoreActivator;
 import org.jboss.tools.rsp.runtime.core.extract.ExtractUtility;
@@ -203,10 +205,10 @@ public class DownloadRuntimeOperationUtility {
 
 			IStatus result = Status.OK_STATUS;
 			if (download) {
-				result = downloadFileFromRemoteUrl(file, new URL(urlString), urlModified, user, pass, new SubProgressMonitor(monitor, 900));
+				result = downloadFileFromRemoteUrl(file, new URL(urlString), urlModified, user, pass, !deleteOnExit, new SubProgressMonitor(monitor, 900));
 			}
 			if (monitor.isCanceled()) {
-				Files.delete(file.toPath());
+				Files.deleteIfExists(file.toPath());
 				throw new CoreException(cancel(file));
 			}
 			if( !result.isOK())
@@ -263,27 +265,36 @@ public class DownloadRuntimeOperationUtility {
 		}
 	}
 	
-	private IStatus downloadFileFromRemoteUrl(File toFile, URL url, long remoteUrlModified, String user, String pass, IProgressMonitor monitor) throws IOException {
-		try (FileOutputStream out = new FileOutputStream(toFile)) {
-			IStatus result = null;
-			InputStream override = createDownloadInputStream(url, user, pass);
-			if( override == null ) {
-				result = getCache().download(toFile.getName(), url.toExternalForm(), user, pass, out, -1, monitor);
-			} else {
+	private IStatus downloadFileFromRemoteUrl(File toFile, URL url, long remoteUrlModified, String user, String pass, 
+			boolean resumable, IProgressMonitor monitor) throws IOException {
+		IStatus result = null;
+		InputStream override = createDownloadInputStream(url, user, pass);
+		if( override == null ) {
+			// download next to the destination first, a download that breaks off is resumed next time
+			File partial = new File(toFile.getParentFile(), toFile.getName() + ".tmp");
+			result = getCache().download(toFile.getName(), url.toExternalForm(), user, pass, partial, -1, null, monitor);
+			if( result.isOK()) {
+				Files.move(partial.toPath(), toFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} else if( !resumable ) {
+				Files.deleteIfExists(partial.toPath());
+				Files.deleteIfExists(new File(partial.getParentFile(), partial.getName() + ResumableDownload.STATE_SUFFIX).toPath());
+			}
+		} else {
+			try (FileOutputStream out = new FileOutputStream(toFile)) {
 				long cLength = getContentLength(url, user, pass);
 				result = getCache().download(toFile.getName(), override, out, -1, cLength, monitor);
+				out.flush();
 			}
-			out.flush();
-			if (remoteUrlModified > 0) {
-				if( !toFile.setLastModified(remoteUrlModified)) {
-					LOG.debug("Unable to set timestamp for " + toFile.getAbsolutePath());
-				}
-			}
-			if( result.isOK()) {
-				getCache().addToCache(url.toString(), toFile);
+		}
+		if (remoteUrlModified > 0 && toFile.exists()) {
+			if( !toFile.setLastModified(remoteUrlModified)) {
+				LOG.debug("Unable to set timestamp for " + toFile.getAbsolutePath());
 			}
-			return result;
 		}
+		if( result.isOK()) {
+			getCache().addToCache(url.toString(), toFile);
+		}
+		return result;
 	}
 
 	// Provide an opportunity to override the default input stream connection
@@ -17,6 +17,7 @@ import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
 import java.security.Security;
+import java.util.Arrays;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -36,6 +37,12 @@ public class CryptoUtils {
 	
 	private String algo;
 	private String transformation;
+	
+	// creating ciphers and keys is expensive, reuse them as long as the key stays the same
+	private Cipher cipher;
+	private byte[] cachedKey;
+	private Key cachedSecretKey;
+	
 	public CryptoUtils(String algo, String transformation) {
 		this.algo = algo;
 		this.transformation = transformation;
@@ -106,11 +113,16 @@ public class CryptoUtils {
 		}
 	}
 
-	private byte[] doCrypto(int cipherMode, byte[] key, byte[] inputBytes) throws CryptoException {
+	private synchronized byte[] doCrypto(int cipherMode, byte[] key, byte[] inputBytes) throws CryptoException {
 		try {
-			Key secretKey = new SecretKeySpec(key, algo);
-			Cipher cipher = Cipher.getInstance(transformation);
-			cipher.init(cipherMode, secretKey);
+			if (cipher == null) {
+				cipher = Cipher.getInstance(transformation);
+			}
+			if (cachedSecretKey == null || !Arrays.equals(key, cachedKey)) {
+				cachedSecretKey = new SecretKeySpec(key, algo);
+				cachedKey = key.clone();
+			}
+			cipher.init(cipherMode, cachedSecretKey);
 
 			byte[] outputBytes = cipher.doFinal(inputBytes);
 			return outputBytes;
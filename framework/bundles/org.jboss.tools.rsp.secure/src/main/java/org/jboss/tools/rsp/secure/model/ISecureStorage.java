@@ -35,6 +35,15 @@ public interface ISecureStorage {
 	 */
 	public void save() throws IOException, CryptoException;
 
+	/**
+	 * Run the given property writes as one batch. Rather than saving the
+	 * secure storage after every write, it is saved once, after the last of them.
+	 * 
+	 * @param writes
+	 * @throws CryptoException if the storage could not be saved
+	 */
+	public void runInBatch(Runnable writes) throws CryptoException;
+
 	/**
 	 * Get an object representing a given property domain. This node will be able to
 	 * give access to child nodes, or set properties directly for this node.
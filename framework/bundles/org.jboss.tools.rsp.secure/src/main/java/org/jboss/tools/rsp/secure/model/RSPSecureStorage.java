@@ -12,13 +12,24 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.jboss.tools.rsp.secure.crypto.CryptoException;
 import org.jboss.tools.rsp.secure.crypto.CryptoUtils;
 import org.jboss.tools.rsp.secure.crypto.NotInitializedCryptoException;
 
+/**
+ * A secure storage that is kept decrypted in memory once loaded,
+ * and is encrypted and written to disk as a whole whenever a property changes.
+ * Writes that are run in a batch are saved together.
+ */
 public class RSPSecureStorage implements ISecureStorage {
 	private static final String ALGORITHM = "AES";
 	private static final String TRANSFORMATION = "AES";
@@ -32,6 +43,12 @@ public class RSPSecureStorage implements ISecureStorage {
 	private Properties secretData;
 	private CryptoUtils util;
 
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	// guarded by the write lock, which is held for the whole batch
+	private int batchDepth = 0;
+	private boolean dirty = false;
+	private final AtomicLong saveCount = new AtomicLong();
+
 	public RSPSecureStorage(File file, byte[] key) {
 		this(file, key, ALGORITHM, TRANSFORMATION);
 	}
@@ -43,29 +60,40 @@ public class RSPSecureStorage implements ISecureStorage {
 	}
 
 	public void setKey(byte[] key) {
-		this.key = key;
-		this.secretData = null;
+		lock.writeLock().lock();
+		try {
+			this.key = key;
+			this.secretData = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
 	}
 
 	public void load() throws CryptoException {
-		Properties tmp = new Properties();
-		if (backingFile != null && backingFile.exists()) {
-			try {
-				byte[] encrypted = util.getBytesFromFile(backingFile);
-				byte[] decrypted = util.decrypt(key, encrypted);
-				byte[] magicBytes = HASH_COMMENT.getBytes();
-				if (!startsWith(decrypted, magicBytes)) {
-					throw new CryptoException("Invalid key", null);
+		lock.writeLock().lock();
+		try {
+			Properties tmp = new Properties();
+			if (backingFile != null && backingFile.exists()) {
+				try {
+					byte[] encrypted = util.getBytesFromFile(backingFile);
+					byte[] decrypted = util.decrypt(key, encrypted);
+					byte[] magicBytes = HASH_COMMENT.getBytes();
+					if (!startsWith(decrypted, magicBytes)) {
+						throw new CryptoException("Invalid key", null);
+					}
+					tmp.load(new ByteArrayInputStream(decrypted));
+					Arrays.fill(decrypted, (byte) 0);
+					this.secretData = tmp;
+				} catch (IOException | CryptoException e) {
+					throw new CryptoException("Unable to decrypt secure storage", e);
 				}
-				tmp.load(new ByteArrayInputStream(decrypted));
-				Arrays.fill(decrypted, (byte) 0);
+			} else if (backingFile == null || !backingFile.exists()) {
+				// new file, it's ok to create
 				this.secretData = tmp;
-			} catch (IOException | CryptoException e) {
-				throw new CryptoException("Unable to decrypt secure storage", e);
 			}
-		} else if (backingFile == null || !backingFile.exists()) {
-			// new file, it's ok to create
-			this.secretData = tmp;
+			this.dirty = false;
+		} finally {
+			lock.writeLock().unlock();
 		}
 	}
 
@@ -86,6 +114,7 @@ public class RSPSecureStorage implements ISecureStorage {
 	}
 
 	public void save() throws CryptoException {
+		lock.writeLock().lock();
 		try {
 			if (backingFile != null && isInitialized()) {
 				backingFile.getParentFile().mkdirs();
@@ -93,12 +122,85 @@ public class RSPSecureStorage implements ISecureStorage {
 				this.secretData.store(sw, COMMENT);
 				byte[] raw = sw.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
 				byte[] encrypted = util.encrypt(key, raw);
-				util.writeBytesToFile(backingFile, encrypted);
+				Arrays.fill(raw, (byte) 0);
+				writeAtomically(encrypted);
+				this.dirty = false;
+				saveCount.incrementAndGet();
 			} else if (!isInitialized()) {
 				throw new NotInitializedCryptoException("Secure storage not initialized", null);
 			}
 		} catch (IOException ioe) {
 			throw new CryptoException("Secure storage not initialized", ioe);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/*
+	 * Write to a temporary file that then replaces the backing file,
+	 * a crash while writing must not lose all secrets
+	 */
+	private void writeAtomically(byte[] encrypted) throws IOException {
+		Path target = backingFile.toPath();
+		Path tmp = target.resolveSibling("." + target.getFileName() + ".tmp");
+		try {
+			util.writeBytesToFile(tmp.toFile(), encrypted);
+			try {
+				Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	@Override
+	public void runInBatch(Runnable writes) throws CryptoException {
+		lock.writeLock().lock();
+		try {
+			batchDepth++;
+			try {
+				writes.run();
+			} finally {
+				batchDepth--;
+			}
+			if (batchDepth == 0 && dirty) {
+				save();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns how often the storage was encrypted and written to disk
+	 */
+	public long getSaveCount() {
+		return saveCount.get();
+	}
+
+	private String getProperty(String key) {
+		lock.readLock().lock();
+		try {
+			return secretData.getProperty(key);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void setProperty(String key, String val) {
+		lock.writeLock().lock();
+		try {
+			secretData.setProperty(key, val);
+			dirty = true;
+			if (batchDepth == 0) {
+				save();
+			}
+		} catch (CryptoException ce) {
+			// TODO log it
+		} finally {
+			lock.writeLock().unlock();
 		}
 	}
 
@@ -137,21 +239,16 @@ public class RSPSecureStorage implements ISecureStorage {
 		}
 
 		public boolean propertyExists(String property) {
-			return secretData.containsKey(append(property));
+			return getProperty(append(property)) != null;
 		}
 
 		public String getStringProperty(String prop, String defaultValue) {
-			String ret = secretData.getProperty(append(prop));
+			String ret = getProperty(append(prop));
 			return ret == null ? defaultValue : ret;
 		}
 
 		public void setStringProperty(String prop, String val) {
-			secretData.setProperty(append(prop), val);
-			try {
-				save();
-			} catch (CryptoException ce) {
-				// TODO log it
-			}
+			setProperty(append(prop), val);
 		}
 
 		public int getIntegerProperty(String prop, int defaultValue) {
@@ -166,7 +263,7 @@ public class RSPSecureStorage implements ISecureStorage {
 		}
 
 		public void setIntegerProperty(String prop, int val) {
-			secretData.setProperty(append(prop), Integer.toString(val));
+			setProperty(append(prop), Integer.toString(val));
 		}
 
 		public boolean getBooleanProperty(String prop, boolean defaultValue) {
@@ -177,7 +274,7 @@ public class RSPSecureStorage implements ISecureStorage {
 		}
 
 		public void setBooleanProperty(String prop, boolean val) {
-			secretData.setProperty(append(prop), Boolean.toString(val));
+			setProperty(append(prop), Boolean.toString(val));
 		}
 	}
 }
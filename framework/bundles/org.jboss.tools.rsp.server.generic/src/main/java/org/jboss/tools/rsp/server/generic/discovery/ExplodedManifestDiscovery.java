@@ -9,6 +9,7 @@
 package org.jboss.tools.rsp.server.generic.discovery;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -126,6 +127,35 @@ public class ExplodedManifestDiscovery extends ServerBeanType {
 	public String getServerAdapterTypeId(String version) {
 		return serverAdapterTypeId;
 	}
+
+	@Override
+	public File[] getConsultedFiles(File root) {
+		List<File> files = new ArrayList<>();
+		files.add(root);
+		addConsultedFiles(root, nameFileString, nameFileStringIsPattern, files);
+		addConsultedFiles(root, versionFileString, versionFileStringIsPattern, files);
+		return files.toArray(new File[files.size()]);
+	}
+
+	private void addConsultedFiles(File root, String fileString, boolean isPattern, List<File> files) {
+		if( fileString == null )
+			return;
+		if( !isPattern ) {
+			files.add(new File(root, fileString));
+			return;
+		}
+		List<String> includes = Arrays.asList(new String[]{fileString});
+		GlobScanner gs = new GlobScanner(root,includes, Collections.EMPTY_LIST, true);
+		List<String> results = gs.matches();
+		if( results != null ) {
+			for( String s : results ) {
+				File f = new File(root, s);
+				// the folder changes when a matching file is replaced by one with another name
+				files.add(f.getParentFile());
+				files.add(f);
+			}
+		}
+	}
 	
 	
 }
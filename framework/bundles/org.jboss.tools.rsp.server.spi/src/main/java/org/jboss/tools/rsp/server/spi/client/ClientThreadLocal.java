@@ -49,4 +49,12 @@ public class ClientThreadLocal {
 	 public synchronized static void setActiveClient(RSPClient client) {
 		 getStore().setContext(new MessageContext<RSPClient>(client));
 	 }
+
+	 /**
+	  * Forgets the client of the current thread, 
+	  * to be called once a request is done so the thread can be reused.
+	  */
+	 public synchronized static void clear() {
+		 getStore().clear();
+	 }
 }
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.spi.discovery;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jboss.tools.rsp.api.dao.ServerBean;
+
+/**
+ * The server beans found in folders so far, along with the 
+ * files that were looked at to recognize them. 
+ */
+public interface IDiscoveryIndex {
+
+	public void addListener(IDiscoveryIndexListener l);
+
+	public void removeListener(IDiscoveryIndexListener l);
+
+	/**
+	 * Return the server bean for the given folder. The bean in the index 
+	 * is returned if none of the files consulted to recognize it changed, 
+	 * otherwise the folder is analyzed again.
+	 * 
+	 * @param root
+	 * @return
+	 */
+	public ServerBean getServerBean(File root);
+
+	/**
+	 * Forget what is known about the given folder and the folders below it.
+	 * @param path
+	 */
+	public void invalidate(File path);
+
+	public void loadIndex(File data) throws IOException;
+
+	public void saveIndex(File data) throws IOException;
+}
@@ -115,6 +115,21 @@ public abstract class ServerBeanType {
 		return root.getName();
 	}
 
+	/**
+	 * Get the files and folders this type looks at to recognize 
+	 * the server at the given root. A server bean that was found earlier
+	 * is reused as long as none of these files changed. 
+	 * The default implementation returns only the root, 
+	 * whose modification time changes when files are added to or removed from it.
+	 * Subclasses that look further down should return what they looked at. 
+	 * 
+	 * @param root
+	 * @return
+	 */
+	public File[] getConsultedFiles(File root) {
+		return new File[] { root };
+	}
+
 	public ServerBean createServerBean(File rootLocation) {
 		String version = getFullVersion(rootLocation);
 		ServerBean server = new ServerBean(
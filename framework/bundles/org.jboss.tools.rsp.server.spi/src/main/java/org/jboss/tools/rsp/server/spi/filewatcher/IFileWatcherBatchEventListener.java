@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ * 
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.spi.filewatcher;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A listener that prefers to receive file watcher events in batches.
+ * 
+ * Events for the same path that arrive within the file watcher service's
+ * batching window are coalesced into a single event before delivery.
+ */
+public interface IFileWatcherBatchEventListener extends IFileWatcherEventListener {
+
+	/**
+	 * Called with a batch of coalesced events, in the order 
+	 * in which each path was first changed.
+	 * 
+	 * @param events the events, never empty
+	 */
+	public void filesChanged(List<FileWatcherEvent> events);
+
+	@Override
+	public default void fileChanged(FileWatcherEvent event) {
+		filesChanged(Collections.singletonList(event));
+	}
+}
@@ -19,5 +19,27 @@ public interface IFileWatcherService {
 	public void addFileWatcherListener(Path path, 
 			IFileWatcherEventListener listener, boolean recursive);
 	
+	/**
+	 * Add a listener, asking for a specific backend to watch the path with.
+	 * Services that only have a single backend ignore the request.
+	 * 
+	 * @param backend the requested backend, or null for the service default
+	 * @param watchBudget the maximum number of native watches the hybrid 
+	 * 		backend may use, or a negative value for the service default
+	 */
+	public default void addFileWatcherListener(Path path, 
+			IFileWatcherEventListener listener, boolean recursive, 
+			String backend, int watchBudget) {
+		addFileWatcherListener(path, listener, recursive);
+	}
+	
 	public void removeFileWatcherListener(Path path, IFileWatcherEventListener listener);
+
+	/**
+	 * @return the name of the backend watching the given registered path, 
+	 * 		or null if the path is not registered or the service does not say
+	 */
+	public default String getBackend(Path path) {
+		return null;
+	}
 }
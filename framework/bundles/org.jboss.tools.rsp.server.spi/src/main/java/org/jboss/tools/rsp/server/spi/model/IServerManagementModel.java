@@ -12,6 +12,7 @@ import org.jboss.tools.rsp.api.RSPClient;
 import org.jboss.tools.rsp.eclipse.jdt.launching.IVMInstallRegistry;
 import org.jboss.tools.rsp.runtime.core.model.IDownloadRuntimesModel;
 import org.jboss.tools.rsp.secure.model.ISecureStorageProvider;
+import org.jboss.tools.rsp.server.spi.discovery.IDiscoveryIndex;
 import org.jboss.tools.rsp.server.spi.discovery.IDiscoveryPathModel;
 import org.jboss.tools.rsp.server.spi.discovery.IServerBeanTypeManager;
 import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherService;
@@ -48,6 +49,12 @@ public interface IServerManagementModel {
 	 */
 	public IDiscoveryPathModel getDiscoveryPathModel();
 	
+	/**
+	 * Get the index of server beans found in folders
+	 * @return
+	 */
+	public IDiscoveryIndex getDiscoveryIndex();
+	
 	/**
 	 * Get the sub-model for VMs
 	 * @return
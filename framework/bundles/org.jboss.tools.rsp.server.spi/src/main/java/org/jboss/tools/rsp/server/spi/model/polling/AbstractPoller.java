@@ -11,48 +11,145 @@ package org.jboss.tools.rsp.server.spi.model.polling;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 
 import org.jboss.tools.rsp.server.spi.servertype.IServer;
 
 public abstract class AbstractPoller implements IServerStatePoller {
 
 	private static final long POLLING_DELAY = 200;
+	private static final long MAX_POLLING_DELAY = 2000;
 
 	private IServer server;
 	private boolean canceled; 
 	private boolean done;
 	private SERVER_STATE state;
 	private SERVER_STATE expectedState;
-	private ExecutorService executor = Executors.newSingleThreadExecutor(
-			(Runnable runnable) -> new Thread(runnable, getThreadName()));
+	private int attempts;
+	private ScheduledFuture<?> nextPing;
+	private CompletableFuture<SERVER_STATE> currentPing;
 	
 	public void beginPolling(IServer server, SERVER_STATE expectedState) {
-		this.server = server;
-		this.canceled = done = false;
-		this.expectedState = expectedState;
-		this.state = SERVER_STATE.UNKNOWN;
+		synchronized (this) {
+			this.server = server;
+			this.canceled = done = false;
+			this.expectedState = expectedState;
+			this.state = SERVER_STATE.UNKNOWN;
+			this.attempts = 0;
+		}
 		launchThread();
 	}
 
 	protected void launchThread() {
-		executor.execute(() -> pollerRun());
+		schedulePing(0);
+	}
+
+	private synchronized void schedulePing(long delay) {
+		if (canceled || done) {
+			return;
+		}
+		try {
+			this.nextPing = getScheduler().schedule(this::pollerRun, delay);
+		} catch(RejectedExecutionException e) {
+			this.canceled = true;
+			this.state = null;
+		}
 	}
 
+	/**
+	 * Pings once and schedules the next ping if the expected state was not reached.
+	 * Pings are spaced by {@link #getPollInterval()}, backing off towards
+	 * {@link #getMaxPollInterval()} the longer the server takes.
+	 */
 	private void pollerRun() {
-		setStateInternal(false, state);
-		while (!canceled && !done) {
-			SERVER_STATE stat = onePing(server);
+		if (isCanceledOrDone()) {
+			return;
+		}
+		CompletableFuture<SERVER_STATE> ping;
+		try {
+			ping = onePingAsync(server);
+		} catch(RuntimeException e) {
+			ping = new CompletableFuture<>();
+			ping.completeExceptionally(e);
+		}
+		synchronized (this) {
+			this.currentPing = ping;
+		}
+		ping.whenComplete((stat, error) -> pingFinished(error == null ? stat : null));
+	}
+
+	private void pingFinished(SERVER_STATE stat) {
+		synchronized (this) {
+			this.currentPing = null;
+			if (canceled) {
+				return;
+			}
 			if (expectedState == stat) {
 				setStateInternal(true, stat);
+				return;
 			}
+		}
+		schedulePing(PollingScheduler.getBackoffDelay(
+				getPollInterval(), getMaxPollInterval(), nextAttempt()));
+	}
+
+	/**
+	 * Pings the server without blocking. The default runs
+	 * {@link #onePing(IServer)} on the ping executor of the scheduler so
+	 * that a slow ping only holds up this poller. Canceling the returned
+	 * future interrupts the ping if it is running. Subclasses that can
+	 * ping without blocking should override this.
+	 */
+	protected CompletableFuture<SERVER_STATE> onePingAsync(IServer server) {
+		CompletableFuture<SERVER_STATE> result = new CompletableFuture<>();
+		FutureTask<Void> task = new FutureTask<>(() -> {
+			Thread current = Thread.currentThread();
+			String name = current.getName();
+			current.setName(getThreadName());
 			try {
-				Thread.sleep(POLLING_DELAY);
-			} catch (InterruptedException e) {
-				cancel(CANCELATION_CAUSE.CANCEL);
+				result.complete(onePing(server));
+			} catch(RuntimeException e) {
+				result.completeExceptionally(e);
+			} finally {
+				current.setName(name);
 			}
-		}
+		}, null);
+		result.whenComplete((stat, error) -> {
+			if (result.isCancelled()) {
+				task.cancel(true);
+			}
+		});
+		getScheduler().getPingExecutor().execute(task);
+		return result;
+	}
+
+	private synchronized boolean isCanceledOrDone() {
+		return canceled || done;
+	}
+
+	private synchronized int nextAttempt() {
+		return attempts++;
+	}
+
+	protected PollingScheduler getScheduler() {
+		return PollingScheduler.getDefault();
+	}
+
+	/**
+	 * The delay between the first pings, in milliseconds.
+	 */
+	protected long getPollInterval() {
+		return POLLING_DELAY;
+	}
+
+	/**
+	 * The longest the delay between pings may grow to, in milliseconds.
+	 */
+	protected long getMaxPollInterval() {
+		return MAX_POLLING_DELAY;
 	}
 
 	protected abstract SERVER_STATE onePing(IServer server);
@@ -80,8 +177,17 @@ public abstract class AbstractPoller implements IServerStatePoller {
 	}
 	
 	@Override
-	public void cleanup() {
-		executor.shutdownNow();
+	public synchronized void cleanup() {
+		// no more pings after this
+		this.canceled = true;
+		if (nextPing != null) {
+			nextPing.cancel(true);
+			this.nextPing = null;
+		}
+		if (currentPing != null) {
+			currentPing.cancel(true);
+			this.currentPing = null;
+		}
 	}
 
 	@Override
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.spi.model.polling;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A single http health check: what to request, how long to wait
+ * and which responses count as the server being up.
+ *
+ * By default any http response at all is a success,
+ * which matches how servers were always polled.
+ */
+public class HttpProbe {
+
+	public static final String GET = "GET";
+	public static final String HEAD = "HEAD";
+
+	public static final int DEFAULT_CONNECT_TIMEOUT = 2000;
+	public static final int DEFAULT_READ_TIMEOUT = 3000;
+
+	private final URI uri;
+	private String method = GET;
+	private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+	private int readTimeout = DEFAULT_READ_TIMEOUT;
+	private final List<int[]> statusRanges = new ArrayList<>();
+	private Pattern bodyPattern;
+
+	public HttpProbe(String url) {
+		this(URI.create(url));
+	}
+
+	public HttpProbe(URI uri) {
+		this.uri = uri;
+	}
+
+	public URI getURI() {
+		return uri;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * Sets the request method, {@link #GET} or {@link #HEAD}.
+	 */
+	public HttpProbe setMethod(String method) {
+		this.method = method;
+		return this;
+	}
+
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	public HttpProbe setConnectTimeout(int millis) {
+		this.connectTimeout = millis;
+		return this;
+	}
+
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	public HttpProbe setReadTimeout(int millis) {
+		this.readTimeout = millis;
+		return this;
+	}
+
+	/**
+	 * Accepts responses with a status within the given inclusive range.
+	 * Once a range is added, responses outside of all ranges fail the probe.
+	 */
+	public HttpProbe addStatusRange(int min, int max) {
+		statusRanges.add(new int[] { min, max });
+		return this;
+	}
+
+	public Pattern getBodyPattern() {
+		return bodyPattern;
+	}
+
+	/**
+	 * Requires the response body to contain a match for the given pattern.
+	 * This forces the probe to use {@link #GET}.
+	 */
+	public HttpProbe setBodyPattern(Pattern pattern) {
+		this.bodyPattern = pattern;
+		return this;
+	}
+
+	/**
+	 * Returns the method that is actually sent.
+	 */
+	protected String getEffectiveMethod() {
+		return bodyPattern == null ? method : GET;
+	}
+
+	/**
+	 * Returns {@code true} if the body of responses is needed to
+	 * decide whether the probe succeeded.
+	 */
+	public boolean requiresBody() {
+		return bodyPattern != null;
+	}
+
+	public boolean isSuccess(int status, String body) {
+		if (!isAcceptedStatus(status)) {
+			return false;
+		}
+		return bodyPattern == null
+				|| (body != null && bodyPattern.matcher(body).find());
+	}
+
+	private boolean isAcceptedStatus(int status) {
+		if (status < 0) {
+			return false;
+		}
+		if (statusRanges.isEmpty()) {
+			return true;
+		}
+		for (int[] range : statusRanges) {
+			if (range[0] <= status && status <= range[1]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return getEffectiveMethod() + " " + uri;
+	}
+}
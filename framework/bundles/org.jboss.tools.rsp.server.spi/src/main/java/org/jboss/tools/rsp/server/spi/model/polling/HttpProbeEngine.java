@@ -0,0 +1,781 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.spi.model.polling;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs {@link HttpProbe}s without blocking the caller.
+ *
+ * Plain http probes are all driven by a single selector thread,
+ * so that any number of servers can be probed at the same time.
+ * Connections are kept alive and reused by later probes to the same
+ * address. Other schemes (https) are handed to
+ * {@link HttpURLConnection} on a small pool of threads.
+ */
+public class HttpProbeEngine {
+
+	private static final Logger LOG = LoggerFactory.getLogger(HttpProbeEngine.class);
+
+	private static final int MAX_IDLE_PER_ADDRESS = 2;
+	private static final long IDLE_TIMEOUT = TimeUnit.SECONDS.toNanos(15);
+	private static final int MAX_HEADER_BYTES = 64 * 1024;
+	private static final int MAX_BODY_BYTES = 1024 * 1024;
+	private static final int FALLBACK_THREADS = 4;
+	private static final int RESOLVER_THREADS = 2;
+
+	private static HttpProbeEngine instance;
+
+	public static synchronized HttpProbeEngine getDefault() {
+		if (instance == null) {
+			instance = new HttpProbeEngine();
+		}
+		return instance;
+	}
+
+	private final Queue<Exchange> pending = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger connectionsOpened = new AtomicInteger();
+	// only accessed from the selector thread
+	private final Set<Exchange> active = new HashSet<>();
+	private final Map<InetSocketAddress, Deque<IdleConnection>> idle = new HashMap<>();
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(16 * 1024);
+
+	private Selector selector;
+	private Thread selectorThread;
+	private ExecutorService fallbackExecutor;
+	private ExecutorService resolverExecutor;
+	private volatile boolean shutdown;
+
+	/**
+	 * Sends the given probe. The returned future always completes
+	 * with a result, failures and timeouts included.
+	 */
+	public CompletableFuture<HttpProbeResult> probe(HttpProbe probe) {
+		CompletableFuture<HttpProbeResult> future = new CompletableFuture<>();
+		long start = System.nanoTime();
+		URI uri = probe.getURI();
+		if (!"http".equalsIgnoreCase(uri.getScheme())) {
+			try {
+				getFallbackExecutor().execute(() -> future.complete(probeBlocking(probe, start)));
+			} catch(RejectedExecutionException e) {
+				future.complete(failure(start, false, e));
+			}
+			return future;
+		}
+		try {
+			// resolving may query dns, which is not to block the caller nor the selector
+			getResolverExecutor().execute(() -> resolve(probe, future, start));
+		} catch(RejectedExecutionException e) {
+			future.complete(failure(start, false, e));
+		}
+		return future;
+	}
+
+	private void resolve(HttpProbe probe, CompletableFuture<HttpProbeResult> future, long start) {
+		URI uri = probe.getURI();
+		try {
+			InetSocketAddress address = new InetSocketAddress(uri.getHost(),
+					uri.getPort() == -1 ? 80 : uri.getPort());
+			if (address.isUnresolved()) {
+				throw new UnknownHostException(uri.getHost());
+			}
+			pending.add(new Exchange(probe, address, future, start));
+			getSelector().wakeup();
+		} catch(IOException | RuntimeException e) {
+			future.complete(failure(start, false, e));
+		}
+	}
+
+	/**
+	 * Returns how many connections were opened so far by the selector thread.
+	 */
+	public int getConnectionsOpened() {
+		return connectionsOpened.get();
+	}
+
+	/**
+	 * Stops the selector thread and closes all connections.
+	 * Probes that are still running fail.
+	 */
+	public synchronized void shutdown() {
+		this.shutdown = true;
+		if (selector != null) {
+			selector.wakeup();
+		}
+		if (fallbackExecutor != null) {
+			fallbackExecutor.shutdownNow();
+		}
+		if (resolverExecutor != null) {
+			// lets the queued probes run, they fail once they find the selector shut down
+			resolverExecutor.shutdown();
+		}
+	}
+
+	private synchronized Selector getSelector() throws IOException {
+		if (shutdown) {
+			throw new IOException("Http probing was shut down");
+		}
+		if (selector == null) {
+			this.selector = Selector.open();
+			this.selectorThread = new Thread(this::run, "RSP Http Probe");
+			selectorThread.setDaemon(true);
+			selectorThread.start();
+		}
+		return selector;
+	}
+
+	private synchronized ExecutorService getFallbackExecutor() {
+		if (fallbackExecutor == null) {
+			AtomicInteger count = new AtomicInteger();
+			this.fallbackExecutor = Executors.newFixedThreadPool(FALLBACK_THREADS, (Runnable r) -> {
+				Thread t = new Thread(r, "RSP Http Probe " + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return fallbackExecutor;
+	}
+
+	private synchronized ExecutorService getResolverExecutor() {
+		if (shutdown) {
+			throw new RejectedExecutionException("Http probing was shut down");
+		}
+		if (resolverExecutor == null) {
+			AtomicInteger count = new AtomicInteger();
+			this.resolverExecutor = Executors.newFixedThreadPool(RESOLVER_THREADS, (Runnable r) -> {
+				Thread t = new Thread(r, "RSP Http Probe Resolver " + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return resolverExecutor;
+	}
+
+	private void run() {
+		while (!shutdown) {
+			try {
+				selector.select(getSelectTimeout(System.nanoTime()));
+				long now = System.nanoTime();
+				openPending(now);
+				Set<SelectionKey> keys = selector.selectedKeys();
+				for (SelectionKey key : keys) {
+					handle(key, now);
+				}
+				keys.clear();
+				expire(System.nanoTime());
+			} catch(IOException | RuntimeException e) {
+				LOG.error("Error while probing servers", e);
+			}
+		}
+		closeAll();
+	}
+
+	private long getSelectTimeout(long now) {
+		long next = Long.MAX_VALUE;
+		for (Exchange e : active) {
+			next = Math.min(next, e.deadline);
+		}
+		for (Deque<IdleConnection> connections : idle.values()) {
+			for (IdleConnection c : connections) {
+				next = Math.min(next, c.expiry);
+			}
+		}
+		if (next == Long.MAX_VALUE) {
+			// block until there is something to do
+			return 0;
+		}
+		return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next - now) + 1);
+	}
+
+	private void openPending(long now) {
+		Exchange e;
+		while ((e = pending.poll()) != null) {
+			if (!e.future.isDone()) {
+				open(e, now);
+			}
+		}
+	}
+
+	private void open(Exchange e, long now) {
+		active.add(e);
+		e.request = null;
+		e.response = null;
+		IdleConnection connection = takeIdle(e.address);
+		try {
+			if (connection != null) {
+				e.channel = connection.channel;
+				e.key = connection.key;
+				e.key.attach(e);
+				e.reused = true;
+				startRequest(e, now);
+				return;
+			}
+			e.reused = false;
+			e.channel = SocketChannel.open();
+			connectionsOpened.incrementAndGet();
+			e.channel.configureBlocking(false);
+			e.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			e.deadline = now + TimeUnit.MILLISECONDS.toNanos(e.probe.getConnectTimeout());
+			if (e.channel.connect(e.address)) {
+				e.key = e.channel.register(selector, 0, e);
+				startRequest(e, now);
+			} else {
+				e.key = e.channel.register(selector, SelectionKey.OP_CONNECT, e);
+			}
+		} catch(IOException | RuntimeException ex) {
+			fail(e, ex, true);
+		}
+	}
+
+	private void startRequest(Exchange e, long now) {
+		e.request = ByteBuffer.wrap(createRequest(e.probe));
+		e.response = new ResponseParser(HttpProbe.HEAD.equals(e.probe.getEffectiveMethod()),
+				e.probe.requiresBody());
+		e.deadline = now + TimeUnit.MILLISECONDS.toNanos(e.probe.getReadTimeout());
+		e.key.interestOps(SelectionKey.OP_WRITE);
+	}
+
+	private byte[] createRequest(HttpProbe probe) {
+		URI uri = probe.getURI();
+		String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+		if (uri.getRawQuery() != null) {
+			path += "?" + uri.getRawQuery();
+		}
+		String host = uri.getHost() + (uri.getPort() == -1 ? "" : ":" + uri.getPort());
+		String request = probe.getEffectiveMethod() + " " + path + " HTTP/1.1\r\n"
+				+ "Host: " + host + "\r\n"
+				+ "User-Agent: rsp-http-probe\r\n"
+				+ "Accept: */*\r\n"
+				+ "Connection: keep-alive\r\n"
+				+ "\r\n";
+		return request.getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	private void handle(SelectionKey key, long now) {
+		Object attachment = key.attachment();
+		if (attachment instanceof IdleConnection) {
+			// an idle connection was closed by the server
+			closeIdle((IdleConnection)attachment);
+			return;
+		}
+		Exchange e = (Exchange)attachment;
+		if (e == null || !active.contains(e)) {
+			return;
+		}
+		try {
+			if (key.isConnectable()) {
+				if (e.channel.finishConnect()) {
+					startRequest(e, now);
+				}
+				return;
+			}
+			if (key.isWritable()) {
+				e.channel.write(e.request);
+				if (!e.request.hasRemaining()) {
+					key.interestOps(SelectionKey.OP_READ);
+				}
+			} else if (key.isReadable()) {
+				read(e, now);
+			}
+		} catch(IOException | RuntimeException ex) {
+			fail(e, ex, true);
+		}
+	}
+
+	private void read(Exchange e, long now) throws IOException {
+		readBuffer.clear();
+		int read = e.channel.read(readBuffer);
+		if (read < 0) {
+			if (e.response.endOfStream()) {
+				finish(e, now);
+			} else {
+				fail(e, new EOFException("Connection closed before the response was complete"), true);
+			}
+			return;
+		}
+		readBuffer.flip();
+		e.deadline = now + TimeUnit.MILLISECONDS.toNanos(e.probe.getReadTimeout());
+		if (e.response.feed(readBuffer)) {
+			finish(e, now);
+		}
+	}
+
+	private void finish(Exchange e, long now) {
+		ResponseParser response = e.response;
+		boolean success = e.probe.isSuccess(response.status, response.getBody());
+		HttpProbeResult result = new HttpProbeResult(success, response.status,
+				now - e.start, e.reused, null);
+		if (response.keepAlive && !shutdown) {
+			release(e, now);
+		} else {
+			close(e);
+		}
+		complete(e, result);
+	}
+
+	private void fail(Exchange e, Throwable t, boolean mayRetry) {
+		close(e);
+		if (mayRetry && e.reused && !e.retried
+				&& (e.response == null || !e.response.received)) {
+			// the server may have dropped the kept-alive connection, try a new one
+			e.retried = true;
+			open(e, System.nanoTime());
+			return;
+		}
+		complete(e, failure(e.start, e.reused, t));
+	}
+
+	private void complete(Exchange e, HttpProbeResult result) {
+		active.remove(e);
+		e.future.complete(result);
+	}
+
+	private void expire(long now) {
+		for (Exchange e : new ArrayList<>(active)) {
+			if (e.future.isDone()) {
+				// cancelled by the caller
+				close(e);
+				active.remove(e);
+			} else if (now - e.deadline >= 0) {
+				fail(e, new SocketTimeoutException(e.request == null ?
+						"Connect timed out" : "Read timed out"), false);
+			}
+		}
+		for (Iterator<Deque<IdleConnection>> it = idle.values().iterator(); it.hasNext(); ) {
+			Deque<IdleConnection> connections = it.next();
+			for (Iterator<IdleConnection> it2 = connections.iterator(); it2.hasNext(); ) {
+				IdleConnection c = it2.next();
+				if (now - c.expiry >= 0) {
+					it2.remove();
+					closeQuietly(c.key, c.channel);
+				}
+			}
+			if (connections.isEmpty()) {
+				it.remove();
+			}
+		}
+	}
+
+	private void release(Exchange e, long now) {
+		Deque<IdleConnection> connections = idle.computeIfAbsent(e.address, a -> new ArrayDeque<>());
+		if (connections.size() >= MAX_IDLE_PER_ADDRESS) {
+			close(e);
+			return;
+		}
+		IdleConnection c = new IdleConnection(e.address, e.channel, e.key, now + IDLE_TIMEOUT);
+		// any data or end of stream on an idle connection means it cannot be reused
+		e.key.interestOps(SelectionKey.OP_READ);
+		e.key.attach(c);
+		connections.push(c);
+	}
+
+	private IdleConnection takeIdle(InetSocketAddress address) {
+		Deque<IdleConnection> connections = idle.get(address);
+		while (connections != null && !connections.isEmpty()) {
+			IdleConnection c = connections.pop();
+			if (c.channel.isOpen() && c.key.isValid()) {
+				return c;
+			}
+		}
+		return null;
+	}
+
+	private void closeIdle(IdleConnection c) {
+		Deque<IdleConnection> connections = idle.get(c.address);
+		if (connections != null) {
+			connections.remove(c);
+		}
+		closeQuietly(c.key, c.channel);
+	}
+
+	private void close(Exchange e) {
+		closeQuietly(e.key, e.channel);
+	}
+
+	private void closeQuietly(SelectionKey key, SocketChannel channel) {
+		if (key != null) {
+			key.cancel();
+		}
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch(IOException ioe) {
+				// ignore
+			}
+		}
+	}
+
+	private void closeAll() {
+		IOException e = new IOException("Http probing was shut down");
+		for (Exchange exchange : new ArrayList<>(active)) {
+			fail(exchange, e, false);
+		}
+		Exchange exchange;
+		while ((exchange = pending.poll()) != null) {
+			complete(exchange, failure(exchange.start, false, e));
+		}
+		for (Deque<IdleConnection> connections : idle.values()) {
+			for (IdleConnection c : connections) {
+				closeQuietly(c.key, c.channel);
+			}
+		}
+		idle.clear();
+		try {
+			selector.close();
+		} catch(IOException ioe) {
+			// ignore
+		}
+	}
+
+	private static HttpProbeResult failure(long start, boolean reused, Throwable t) {
+		return new HttpProbeResult(false, -1, System.nanoTime() - start, reused, t);
+	}
+
+	/**
+	 * Probes with {@link HttpURLConnection}. The response is read
+	 * fully and the connection is not disconnected, so that the
+	 * jdk can keep it alive.
+	 */
+	private static HttpProbeResult probeBlocking(HttpProbe probe, long start) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection)probe.getURI().toURL().openConnection();
+			connection.setConnectTimeout(probe.getConnectTimeout());
+			connection.setReadTimeout(probe.getReadTimeout());
+			connection.setRequestMethod(probe.getEffectiveMethod());
+			connection.setInstanceFollowRedirects(false);
+			int status = connection.getResponseCode();
+			String body = null;
+			InputStream is = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+			if (is != null) {
+				try {
+					byte[] bytes = readAtMost(is, MAX_BODY_BYTES);
+					if (probe.requiresBody()) {
+						body = new String(bytes, StandardCharsets.UTF_8);
+					}
+				} finally {
+					is.close();
+				}
+			}
+			return new HttpProbeResult(probe.isSuccess(status, body), status,
+					System.nanoTime() - start, false, null);
+		} catch(IOException | RuntimeException e) {
+			return failure(start, false, e);
+		}
+	}
+
+	private static byte[] readAtMost(InputStream is, int max) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while (out.size() < max && (read = is.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	private static class Exchange {
+		private final HttpProbe probe;
+		private final InetSocketAddress address;
+		private final CompletableFuture<HttpProbeResult> future;
+		private final long start;
+		private SocketChannel channel;
+		private SelectionKey key;
+		private boolean reused;
+		private boolean retried;
+		private long deadline;
+		private ByteBuffer request;
+		private ResponseParser response;
+
+		private Exchange(HttpProbe probe, InetSocketAddress address,
+				CompletableFuture<HttpProbeResult> future, long start) {
+			this.probe = probe;
+			this.address = address;
+			this.future = future;
+			this.start = start;
+		}
+	}
+
+	private static class IdleConnection {
+		private final InetSocketAddress address;
+		private final SocketChannel channel;
+		private final SelectionKey key;
+		private final long expiry;
+
+		private IdleConnection(InetSocketAddress address, SocketChannel channel,
+				SelectionKey key, long expiry) {
+			this.address = address;
+			this.channel = channel;
+			this.key = key;
+			this.expiry = expiry;
+		}
+	}
+
+	/**
+	 * Incrementally parses an http/1.x response: the status line,
+	 * the headers that matter for framing, and the body as far as
+	 * it is needed, so that the connection can be reused afterwards.
+	 */
+	static class ResponseParser {
+		private static final int CHUNK_SIZE = 0;
+		private static final int CHUNK_DATA = 1;
+		private static final int CHUNK_DATA_END = 2;
+		private static final int CHUNK_TRAILER = 3;
+
+		private static final int BODY_NONE = 0;
+		private static final int BODY_LENGTH = 1;
+		private static final int BODY_CHUNKED = 2;
+		private static final int BODY_UNTIL_CLOSE = 3;
+
+		private final boolean head;
+		private final boolean keepBody;
+		private final ByteArrayOutputStream header = new ByteArrayOutputStream();
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		private final StringBuilder line = new StringBuilder();
+		private int lastBytes;
+		private boolean headerDone;
+		private int bodyMode;
+		private int chunkState;
+		private long remaining;
+		private long bodyBytes;
+		private boolean received;
+		private boolean complete;
+		int status = -1;
+		boolean keepAlive;
+
+		ResponseParser(boolean head, boolean keepBody) {
+			this.head = head;
+			this.keepBody = keepBody;
+		}
+
+		/**
+		 * Consumes the given bytes and returns {@code true} once the response is complete.
+		 */
+		boolean feed(ByteBuffer buffer) throws IOException {
+			received |= buffer.hasRemaining();
+			while (buffer.hasRemaining() && !complete) {
+				if (!headerDone) {
+					readHeader(buffer.get());
+				} else if (bodyMode == BODY_CHUNKED) {
+					readChunked(buffer);
+				} else {
+					int length = buffer.remaining();
+					if (bodyMode == BODY_LENGTH) {
+						length = (int)Math.min(length, remaining);
+						remaining -= length;
+					}
+					readBody(buffer, length);
+					if (bodyMode == BODY_LENGTH && remaining == 0) {
+						complete = true;
+					}
+				}
+			}
+			return complete;
+		}
+
+		/**
+		 * Returns {@code true} if the end of stream completes the response.
+		 */
+		boolean endOfStream() {
+			if (headerDone && bodyMode == BODY_UNTIL_CLOSE) {
+				complete = true;
+				keepAlive = false;
+			}
+			return complete;
+		}
+
+		String getBody() {
+			if (!keepBody) {
+				return null;
+			}
+			return new String(body.toByteArray(), StandardCharsets.UTF_8);
+		}
+
+		private void readHeader(byte b) throws IOException {
+			header.write(b);
+			if (header.size() > MAX_HEADER_BYTES) {
+				throw new IOException("Response headers are too large");
+			}
+			lastBytes = (lastBytes << 8) | (b & 0xff);
+			if (lastBytes == 0x0d0a0d0a) {
+				parseHeader(new String(header.toByteArray(), StandardCharsets.ISO_8859_1));
+			}
+		}
+
+		private void parseHeader(String text) throws IOException {
+			String[] lines = text.split("\r\n");
+			String[] statusLine = lines[0].split(" ");
+			if (statusLine.length < 2 || !statusLine[0].startsWith("HTTP/")) {
+				throw new IOException("Invalid status line: " + lines[0]);
+			}
+			try {
+				this.status = Integer.parseInt(statusLine[1]);
+			} catch(NumberFormatException nfe) {
+				throw new IOException("Invalid status line: " + lines[0]);
+			}
+			if (status >= 100 && status < 200 && status != 101) {
+				// interim response, the real one follows
+				header.reset();
+				lastBytes = 0;
+				return;
+			}
+			long contentLength = -1;
+			boolean chunked = false;
+			String connection = null;
+			for (int i = 1; i < lines.length; i++) {
+				int colon = lines[i].indexOf(':');
+				if (colon <= 0) {
+					continue;
+				}
+				String name = lines[i].substring(0, colon).trim();
+				String value = lines[i].substring(colon + 1).trim();
+				if ("Content-Length".equalsIgnoreCase(name)) {
+					try {
+						contentLength = Long.parseLong(value);
+					} catch(NumberFormatException nfe) {
+						throw new IOException("Invalid content length: " + value);
+					}
+				} else if ("Transfer-Encoding".equalsIgnoreCase(name)) {
+					chunked = value.toLowerCase().contains("chunked");
+				} else if ("Connection".equalsIgnoreCase(name)) {
+					connection = value;
+				}
+			}
+			this.headerDone = true;
+			this.keepAlive = statusLine[0].equals("HTTP/1.1") ?
+					!"close".equalsIgnoreCase(connection)
+					: "keep-alive".equalsIgnoreCase(connection);
+			if (head || status == 204 || status == 304) {
+				this.bodyMode = BODY_NONE;
+				this.complete = true;
+			} else if (chunked) {
+				this.bodyMode = BODY_CHUNKED;
+				this.chunkState = CHUNK_SIZE;
+			} else if (contentLength >= 0) {
+				this.bodyMode = BODY_LENGTH;
+				this.remaining = contentLength;
+				this.complete = contentLength == 0;
+				if (contentLength > MAX_BODY_BYTES && !keepBody) {
+					// not worth reading just to reuse the connection
+					this.complete = true;
+					this.keepAlive = false;
+				}
+			} else {
+				this.bodyMode = BODY_UNTIL_CLOSE;
+				this.keepAlive = false;
+				if (!keepBody) {
+					this.complete = true;
+				}
+			}
+		}
+
+		private void readChunked(ByteBuffer buffer) throws IOException {
+			switch (chunkState) {
+			case CHUNK_DATA:
+				int length = (int)Math.min(buffer.remaining(), remaining);
+				remaining -= length;
+				readBody(buffer, length);
+				if (remaining == 0) {
+					chunkState = CHUNK_DATA_END;
+				}
+				return;
+			case CHUNK_SIZE:
+				if (readLine(buffer)) {
+					String size = line.toString();
+					int extension = size.indexOf(';');
+					if (extension >= 0) {
+						size = size.substring(0, extension);
+					}
+					try {
+						remaining = Long.parseLong(size.trim(), 16);
+					} catch(NumberFormatException nfe) {
+						throw new IOException("Invalid chunk size: " + size);
+					}
+					chunkState = remaining == 0 ? CHUNK_TRAILER : CHUNK_DATA;
+					line.setLength(0);
+				}
+				return;
+			case CHUNK_DATA_END:
+				if (readLine(buffer)) {
+					chunkState = CHUNK_SIZE;
+					line.setLength(0);
+				}
+				return;
+			case CHUNK_TRAILER:
+			default:
+				if (readLine(buffer)) {
+					complete = line.length() == 0;
+					line.setLength(0);
+				}
+				return;
+			}
+		}
+
+		/**
+		 * Reads up to the end of the current line, returns {@code true} if it was reached.
+		 */
+		private boolean readLine(ByteBuffer buffer) {
+			while (buffer.hasRemaining()) {
+				char c = (char)(buffer.get() & 0xff);
+				if (c == '\n') {
+					return true;
+				}
+				if (c != '\r') {
+					line.append(c);
+				}
+			}
+			return false;
+		}
+
+		private void readBody(ByteBuffer buffer, int length) {
+			if (keepBody && body.size() < MAX_BODY_BYTES) {
+				body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+			}
+			buffer.position(buffer.position() + length);
+			bodyBytes += length;
+			if (bodyBytes > MAX_BODY_BYTES) {
+				// enough to decide, but too much to reuse the connection
+				complete = true;
+				keepAlive = false;
+			}
+		}
+	}
+}
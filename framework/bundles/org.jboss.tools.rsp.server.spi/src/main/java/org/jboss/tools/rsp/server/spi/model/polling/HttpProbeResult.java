@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.spi.model.polling;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of an {@link HttpProbe}.
+ */
+public class HttpProbeResult {
+
+	private final boolean success;
+	private final int status;
+	private final long latencyNanos;
+	private final boolean reusedConnection;
+	private final Throwable error;
+
+	public HttpProbeResult(boolean success, int status, long latencyNanos,
+			boolean reusedConnection, Throwable error) {
+		this.success = success;
+		this.status = status;
+		this.latencyNanos = latencyNanos;
+		this.reusedConnection = reusedConnection;
+		this.error = error;
+	}
+
+	/**
+	 * Returns {@code true} if the response met the success criteria of the probe.
+	 */
+	public boolean isSuccess() {
+		return success;
+	}
+
+	/**
+	 * Returns the http status of the response, or -1 if there was none.
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	public long getLatencyMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+	}
+
+	public long getLatencyNanos() {
+		return latencyNanos;
+	}
+
+	/**
+	 * Returns {@code true} if the probe was sent on a kept-alive connection.
+	 */
+	public boolean isReusedConnection() {
+		return reusedConnection;
+	}
+
+	/**
+	 * Returns the reason there was no response, or {@code null}.
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return (success ? "success" : "failure")
+				+ (status < 0 ? "" : ", status " + status)
+				+ (error == null ? "" : ", " + error)
+				+ ", " + getLatencyMillis() + "ms";
+	}
+}
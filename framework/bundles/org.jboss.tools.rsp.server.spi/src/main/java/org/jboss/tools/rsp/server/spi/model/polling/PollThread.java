@@ -8,6 +8,11 @@
  ******************************************************************************/
 package org.jboss.tools.rsp.server.spi.model.polling;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
 import org.jboss.tools.rsp.eclipse.osgi.util.NLS;
 import org.jboss.tools.rsp.server.spi.model.polling.IServerStatePoller.CANCELATION_CAUSE;
 import org.jboss.tools.rsp.server.spi.model.polling.IServerStatePoller.SERVER_STATE;
@@ -17,15 +22,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Polls a server until the poller has an answer, the server reaches
+ * a final state or the timeout is reached. Despite its name this does
+ * not occupy a thread of its own: the checks run as a periodic task on
+ * the shared {@link PollingScheduler}.
  * 
  * @author rob.stryker@jboss.com
  */
-public class PollThread extends Thread {
+public class PollThread {
 
 	private static final Logger LOG = LoggerFactory.getLogger(PollThread.class);
 
 	private static final int POLL_DELAY = 100;
 	
+	private final String name;
 	private boolean aborted;
 	private SERVER_STATE expectedState;
 	private IServerStatePoller poller;
@@ -33,9 +43,13 @@ public class PollThread extends Thread {
 	private IServer server;
 	private int timeout;
 	private boolean listenerAlerted = false;
+	private boolean started = false;
+	private long startTime;
+	private ScheduledFuture<?> checks;
+	private final CountDownLatch finished = new CountDownLatch(1);
 
 	public PollThread(SERVER_STATE expectedState, IServerStatePoller poller, IPollResultListener listener, IServer server, int timeout) {
-		super(NLS.bind("{0} - Server Poller", server.getName()));
+		this.name = NLS.bind("{0} - Server Poller", server.getName());
 		this.expectedState = expectedState;
 		this.poller = poller;
 		this.server = server;
@@ -44,59 +58,162 @@ public class PollThread extends Thread {
 		this.timeout = timeout;
 	}
 
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Begins polling. Calling this more than once has no effect.
+	 */
+	public void start() {
+		synchronized (this) {
+			if (started) {
+				return;
+			}
+			this.started = true;
+		}
+		try {
+			getScheduler().schedule(this::begin, 0);
+		} catch(RejectedExecutionException e) {
+			abort(e);
+		}
+	}
+
+	/**
+	 * Returns {@code true} if polling was started and has not finished yet.
+	 */
+	public synchronized boolean isAlive() {
+		return started && finished.getCount() > 0;
+	}
+
+	/**
+	 * Waits until polling has finished. Returns immediately if it was never started.
+	 */
+	public void join() throws InterruptedException {
+		if (isStarted()) {
+			finished.await();
+		}
+	}
+
+	/**
+	 * Waits at most the given milliseconds for polling to finish.
+	 */
+	public void join(long millis) throws InterruptedException {
+		if (isStarted()) {
+			finished.await(millis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private synchronized boolean isStarted() {
+		return started;
+	}
+
+	protected PollingScheduler getScheduler() {
+		return PollingScheduler.getDefault();
+	}
+
+	/**
+	 * Stops the periodic checks and releases the threads that wait in {@link #join()}.
+	 */
+	private synchronized void finish() {
+		if (checks != null) {
+			checks.cancel(false);
+		}
+		finished.countDown();
+	}
+
+	private synchronized boolean isFinished() {
+		return finished.getCount() == 0;
+	}
+
+	private void abort(Exception e) {
+		LOG.error("Could not schedule polling, aborting.", e);
+		cancel(e.getMessage(), CANCELATION_CAUSE.FAILED);
+		finish();
+	}
 
-	@Override
-	public void run() {
+	private void begin() {
+		if (isAborted()) {
+			finish();
+			return;
+		}
 		// Poller not found. Abort
 		if (poller == null) {
 			LOG.error("No poller defined, aborting polling.");
 			alertListener(getOpposite(expectedState));
+			finish();
 			return;
 		}
 
-		int maxWait = getTimeout();
-
-		long startTime = System.currentTimeMillis();
-		boolean done = false;
-		boolean serverStartedOrStopped = false;
+		this.startTime = System.currentTimeMillis();
 		try {
 			poller.beginPolling(getServer(), expectedState);
-	
-			// begin the loop; ask the poller every so often
-			while (!serverStartedOrStopped
-					&& !isAborted()
-					&& !done
-					&& !timeoutReached(startTime, maxWait)) {
-				try {
-					Thread.sleep(POLL_DELAY);
-					done = poller.isComplete();
-				} catch (PollingException | InterruptedException e) {
-					// abort and put the message in event log
-					cancel(e.getMessage(), CANCELATION_CAUSE.FAILED);
-					return;
-				} catch (RequiresInfoException rie) {
-					// This way each request for new info is checked only once.
-					if (!rie.getChecked()) {
-						rie.setChecked();
-						fireRequestCredentials(expectedState, poller);
-					}
+		} catch(Exception e) {
+			LOG.error("Error occurred while polling, aborting.", e);
+			cancel(e.getMessage(), CANCELATION_CAUSE.FAILED);
+			finish();
+			return;
+		}
+		try {
+			synchronized (this) {
+				if (!isFinished()) {
+					this.checks = getScheduler().scheduleWithFixedDelay(this::check, POLL_DELAY);
+				}
+			}
+		} catch(RejectedExecutionException e) {
+			abort(e);
+		}
+	}
+
+	/**
+	 * Asks the poller once and reports the outcome if there is one.
+	 * Runs every {@link #POLL_DELAY} until polling is finished.
+	 */
+	private void check() {
+		if (isFinished()) {
+			return;
+		}
+		try {
+			if (isAborted()) {
+				finish();
+				return;
+			}
+			boolean done = false;
+			try {
+				done = poller.isComplete();
+			} catch (PollingException e) {
+				// abort and put the message in event log
+				cancel(e.getMessage(), CANCELATION_CAUSE.FAILED);
+				finish();
+				return;
+			} catch (RequiresInfoException rie) {
+				// This way each request for new info is checked only once.
+				if (!rie.getChecked()) {
+					rie.setChecked();
+					fireRequestCredentials(expectedState, poller);
 				}
-				serverStartedOrStopped = isStartedOrStopped(server.getDelegate());
 			}
+			boolean serverStartedOrStopped = isStartedOrStopped(server.getDelegate());
 			if (serverStartedOrStopped) {
 				// we stopped. Did we abort?
 				handleUncertainTermination();
 			} else if (done) {
 				// the poller has an answer
 				handlePollerHasAnswer();
-			} else {
+			} else if (isAborted()) {
+				// canceled while we were asking
+			} else if (timeoutReached(startTime, getTimeout())) {
 				// we timed out. get response from preferences
 				handleTimeoutTermination();
+			} else {
+				// ask again with the next run
+				return;
 			}
 		} catch(Exception e) {
 			LOG.error("Error occurred while polling, aborting.", e);
 			cancel(e.getMessage(), CANCELATION_CAUSE.FAILED);
 		}
+		finish();
 	}
 
 	private SERVER_STATE getOpposite(SERVER_STATE state) {
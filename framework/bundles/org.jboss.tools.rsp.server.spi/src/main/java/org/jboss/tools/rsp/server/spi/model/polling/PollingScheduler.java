@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.spi.model.polling;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The executor every {@link AbstractPoller} and {@link PollThread} runs on.
+ *
+ * Pollers spend nearly all of their time waiting, so rather than
+ * each of them owning a thread that sleeps, they schedule their
+ * next check on this shared, bounded pool. Idle threads are released.
+ *
+ * Pings that block (ie. launch a process and wait for it) must not run
+ * on the shared pool, a few slow servers would otherwise delay the
+ * state detection of all others. They run on {@link #getPingExecutor()}
+ * instead, a pool of its own with a bounded number of workers and a
+ * bounded queue. Pings that do not fit in the queue are rejected and
+ * retried by their poller after the next backoff delay.
+ */
+public class PollingScheduler {
+
+	private static final long KEEP_ALIVE_SECONDS = 30;
+	private static final double BACKOFF_MULTIPLIER = 1.5;
+	private static final double JITTER = 0.1;
+	private static final int PING_QUEUE_SIZE = 128;
+
+	private static PollingScheduler instance;
+
+	public static synchronized PollingScheduler getDefault() {
+		if( instance == null ) {
+			int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+			instance = new PollingScheduler(threads, 2 * threads);
+		}
+		return instance;
+	}
+
+	private final ScheduledThreadPoolExecutor executor;
+	private final ExecutorService pingExecutor;
+
+	public PollingScheduler(int threads) {
+		this(threads, threads);
+	}
+
+	/**
+	 * @param threads the most threads that time the pollers
+	 * @param pingThreads the most threads that blocking pings run on
+	 */
+	public PollingScheduler(int threads, int pingThreads) {
+		AtomicInteger count = new AtomicInteger();
+		this.executor = new ScheduledThreadPoolExecutor(threads, (Runnable runnable) -> {
+			Thread t = new Thread(runnable, "RSP Server Poller " + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		executor.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+		executor.allowCoreThreadTimeOut(true);
+		executor.setRemoveOnCancelPolicy(true);
+		AtomicInteger pingCount = new AtomicInteger();
+		ThreadPoolExecutor pings = new ThreadPoolExecutor(pingThreads, pingThreads,
+				KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(PING_QUEUE_SIZE), (Runnable runnable) -> {
+			Thread t = new Thread(runnable, "RSP Server Ping " + pingCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		pings.allowCoreThreadTimeOut(true);
+		this.pingExecutor = pings;
+	}
+
+	public ScheduledFuture<?> schedule(Runnable runnable, long delayMillis) {
+		return executor.schedule(runnable, delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Runs the given task every {@code delayMillis} until the returned future is canceled.
+	 * The delay is measured from the end of one run to the start of the next.
+	 */
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable runnable, long delayMillis) {
+		return executor.scheduleWithFixedDelay(runnable, delayMillis, delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	protected ScheduledExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * The executor that blocking pings run on, 
+	 * see {@link AbstractPoller#onePingAsync(org.jboss.tools.rsp.server.spi.servertype.IServer)}
+	 */
+	public Executor getPingExecutor() {
+		return pingExecutor;
+	}
+
+	/**
+	 * The delay before the given attempt: the interval grows
+	 * exponentially from {@code interval} up to {@code maxInterval},
+	 * and is spread by a small random jitter so that pollers started
+	 * at the same time do not keep firing together.
+	 *
+	 * @param attempt the number of attempts made so far, starting at 0
+	 */
+	public static long getBackoffDelay(long interval, long maxInterval, int attempt) {
+		double delay = interval * Math.pow(BACKOFF_MULTIPLIER, Math.min(attempt, 32));
+		delay = Math.min(delay, Math.max(interval, maxInterval));
+		double jitter = delay * JITTER * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+		return Math.max(1, Math.round(delay + jitter));
+	}
+}
@@ -8,55 +8,117 @@
  ******************************************************************************/
 package org.jboss.tools.rsp.server.spi.model.polling;
 
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLConnection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
+import org.jboss.tools.rsp.eclipse.osgi.util.NLS;
 import org.jboss.tools.rsp.server.spi.servertype.IServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Polls a server by probing one of its http urls.
+ * Probes are sent through the shared {@link HttpProbeEngine},
+ * so that waiting for a response does not hold a thread.
+ */
 public abstract class WebPortPoller extends AbstractPoller implements IServerStatePoller {
 
+	private static final Logger LOG = LoggerFactory.getLogger(WebPortPoller.class);
+
 	private String name;
+	private SERVER_STATE expectedState;
+	private long pollingStart;
+	private int probeCount;
+	private HttpProbeResult lastResult;
 
 	public WebPortPoller(String string) {
 		super();
 		this.name = string;
 	}
 
+	@Override
+	public void beginPolling(IServer server, SERVER_STATE expectedState) {
+		synchronized (this) {
+			this.expectedState = expectedState;
+			this.pollingStart = System.nanoTime();
+			this.probeCount = 0;
+			this.lastResult = null;
+		}
+		super.beginPolling(server, expectedState);
+	}
+
 	@Override
 	protected SERVER_STATE onePing(IServer server) {
-		return onePing(getURL(server));
+		try {
+			return onePingAsync(server).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			// Does not need to be logged
+		}
+		return SERVER_STATE.DOWN;
 	}
-	
-	protected abstract String getURL(IServer server);
-	
-	private SERVER_STATE onePing(String url) {
-		URLConnection conn = null;
+
+	@Override
+	protected CompletableFuture<SERVER_STATE> onePingAsync(IServer server) {
+		HttpProbe probe = null;
 		try {
-			URL pingUrl = new URL(url);
-			conn = pingUrl.openConnection();
-			((HttpURLConnection)conn).getResponseCode();
-			return SERVER_STATE.UP;
-		} catch( FileNotFoundException fnfe ) {
-			return SERVER_STATE.UP;
-		} catch (MalformedURLException e) {
+			probe = createProbe(getURL(server));
+		} catch (RuntimeException e) {
 			// Should NEVER happen since the URL's are hand-crafted, but whatever
-//			Status s = new Status(IStatus.ERROR, JBossServerCorePlugin.PLUGIN_ID, e.getMessage(), e);
-//			JBossServerCorePlugin.log(s);
-		} catch (IOException e) {
-			// Does not need to be logged
-			return SERVER_STATE.DOWN;
-		} finally {
-			if( conn != null ) {
-				((HttpURLConnection)conn).disconnect();
+		}
+		if (probe == null) {
+			return CompletableFuture.completedFuture(SERVER_STATE.DOWN);
+		}
+		return getProbeEngine().probe(probe).thenApply(this::probeFinished);
+	}
+
+	protected abstract String getURL(IServer server);
+
+	/**
+	 * Returns the probe to send to the given url. Subclasses may
+	 * customize the method, timeouts and what counts as a success.
+	 */
+	protected HttpProbe createProbe(String url) {
+		return new HttpProbe(url);
+	}
+
+	protected HttpProbeEngine getProbeEngine() {
+		return HttpProbeEngine.getDefault();
+	}
+
+	private SERVER_STATE probeFinished(HttpProbeResult result) {
+		SERVER_STATE state = result.isSuccess() ? SERVER_STATE.UP : SERVER_STATE.DOWN;
+		long elapsed;
+		int count;
+		synchronized (this) {
+			this.lastResult = result;
+			count = ++probeCount;
+			elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pollingStart);
+			if (state != expectedState) {
+				return state;
 			}
 		}
-		return SERVER_STATE.DOWN;
+		LOG.info(NLS.bind("{0}: server is {1} after {2}ms and {3} probes, the last probe took {4}ms",
+				new Object[] { name, state, elapsed, count, result.getLatencyMillis() }));
+		return state;
+	}
+
+	/**
+	 * Returns the result of the latest probe, or {@code null}.
+	 */
+	public synchronized HttpProbeResult getLastProbeResult() {
+		return lastResult;
 	}
-	
+
+	/**
+	 * Returns how many probes were sent since polling began.
+	 */
+	public synchronized int getProbeCount() {
+		return probeCount;
+	}
+
 	@Override
 	protected String getThreadName() {
 		return "Web Poller: " + name;
@@ -10,21 +10,28 @@ package org.jboss.tools.rsp.server.spi.publishing;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
+import org.jboss.tools.rsp.api.DefaultServerAttributes;
 import org.jboss.tools.rsp.api.ServerManagementAPIConstants;
 import org.jboss.tools.rsp.api.dao.DeployableReference;
 import org.jboss.tools.rsp.eclipse.core.runtime.CoreException;
@@ -43,8 +50,19 @@ public abstract class AbstractFilesystemPublishController implements IPublishCon
 
 	private static final Logger LOG = LoggerFactory.getLogger(AbstractFilesystemPublishController.class);
 	
+	private static final String PUBLISH_MANIFEST_DIRECTORY = "publish-manifests";
+	private static final String PUBLISH_MANIFEST_SUFFIX = ".manifest";
+	// The key a zipped deployment is stored under in its manifest
+	private static final String ARCHIVE_KEY = "";
+	
 	private IServer server;
 	private IServerDelegate delegate;
+	
+	// destination path -> manifest of what was last published there
+	private final Map<Path, PublishManifest> manifests = new ConcurrentHashMap<>();
+	// deployable label -> statistics of its most recent publish
+	private final Map<String, PublishCopyStatistics> statistics = new ConcurrentHashMap<>();
+	
 	public AbstractFilesystemPublishController(IServer server, IServerDelegate delegate) {
 		this.server = server;
 		this.delegate = delegate;
@@ -246,10 +264,18 @@ public abstract class AbstractFilesystemPublishController implements IPublishCon
 	}
 	
 	protected int fullPublishCopyZippedModule(DeployableReference opts, int publishType, int modulePublishType) throws CoreException {
-		File dest = getDestinationPath(opts).toFile();
+		Path dest = getDestinationPath(opts);
 		Path src = new File(opts.getPath()).toPath();
+		PublishManifest manifest = getPublishManifest(opts);
+		PublishCopyStatistics stats = new PublishCopyStatistics();
 		try {
-			Files.copy(src, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			if( publishType == ServerManagementAPIConstants.PUBLISH_CLEAN ) {
+				manifest.clear();
+			}
+			copyIfChanged(src, dest, ARCHIVE_KEY, manifest, stats);
+			manifest.retainAll(Collections.singleton(ARCHIVE_KEY));
+			savePublishManifest(manifest);
+			publishCopyFinished(opts, stats);
 			return ServerManagementAPIConstants.PUBLISH_STATE_NONE;
 		} catch(IOException ioe) {
 			String errMsg = NLS.bind("Error publishing module {0} to server {1}", opts.getLabel(), getServer().getName());
@@ -258,13 +284,28 @@ public abstract class AbstractFilesystemPublishController implements IPublishCon
 		}
 	}
 
+	/*
+	 * Only files whose content differs from what the manifest says was 
+	 * last published are copied, and only files no longer in the source 
+	 * are deleted. A clean publish still wipes the destination. 
+	 */
 	protected int fullPublishCopyExplodedModule(DeployableReference opts, int publishType, int modulePublishType) throws CoreException {
-		File dest = getDestinationPath(opts).toFile();
+		Path dest = getDestinationPath(opts);
 		Path src = new File(opts.getPath()).toPath();
+		PublishManifest manifest = getPublishManifest(opts);
+		PublishCopyStatistics stats = new PublishCopyStatistics();
 		try {
-			completeDelete(dest.toPath());
-			dest.mkdirs();
-			Files.walkFileTree(src, new CopyFileVisitor(dest.toPath()));
+			if( publishType == ServerManagementAPIConstants.PUBLISH_CLEAN || !Files.isDirectory(dest)) {
+				completeDelete(dest);
+				manifest.clear();
+			}
+			Files.createDirectories(dest);
+			SyncFileVisitor visitor = new SyncFileVisitor(src, dest, manifest, stats);
+			Files.walkFileTree(src, visitor);
+			deleteOrphans(dest, visitor.getPublishedKeys(), stats);
+			manifest.retainAll(visitor.getPublishedKeys());
+			savePublishManifest(manifest);
+			publishCopyFinished(opts, stats);
 			return ServerManagementAPIConstants.PUBLISH_STATE_NONE;
 		} catch(IOException ioe) {
 			String errMsg = NLS.bind("Error publishing module {0} to server {1}", opts.getLabel(), getServer().getName());
@@ -278,58 +319,78 @@ public abstract class AbstractFilesystemPublishController implements IPublishCon
 		File dest = getDestinationPath(opts).toFile();
 		Path src = new File(opts.getPath()).toPath();
 		
+		PublishManifest manifest = getPublishManifest(opts);
+		PublishCopyStatistics stats = new PublishCopyStatistics();
 		List<String> errors = new ArrayList<>();
 		Map<Path, Integer> deltaVals = delta.getResourceDeltaMap();
 		for( Map.Entry<Path, Integer> entry : deltaVals.entrySet()) {
 			int change = entry.getValue();
 			Path fileSrc = src.resolve(entry.getKey());
 			Path fileDest = dest.toPath().resolve(entry.getKey());
+			String key = toManifestKey(entry.getKey());
 
 			if( change == IDeployableResourceDelta.DELETED) {
+				manifest.removeTree(key);
 				if( !fileDest.toFile().delete() ) {
 					LOG.debug("Error: Cannot delete file " + fileDest.toFile().getAbsolutePath());
+				} else {
+					stats.deleted();
 				}
 			} else if( change == IDeployableResourceDelta.CREATED || 
 					change == IDeployableResourceDelta.MODIFIED) {
-				incrementalPublishCopySingleFile(fileSrc, fileDest, errors);
+				incrementalPublishCopySingleFile(fileSrc, fileDest, key, manifest, stats, errors);
 			}
 		}
-
+		try {
+			savePublishManifest(manifest);
+		} catch(IOException ioe) {
+			LOG.debug("Unable to save publish manifest for " + opts.getLabel(), ioe);
+		}
+		publishCopyFinished(opts, stats);
 		return incrementalExplodedPublishResult(opts, errors);
 	}
 	
 	private int zipAndCopyExplodedModule(DeployableReference opts) {
-		File dest = getDestinationPath(opts).toFile();
+		Path dest = getDestinationPath(opts);
 		Path src = new File(opts.getPath()).toPath();
+		Path tmp = null;
 		try {
-			completeDelete(dest.toPath());
-			pack(src.toString(), dest.getAbsolutePath());
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			if( Files.isDirectory(dest)) {
+				completeDelete(dest);
+			}
+			tmp = createTempSibling(dest);
+			ParallelZipArchiver.Result result = pack(src, tmp);
+			moveAtomically(tmp, dest);
+			LOG.info(NLS.bind("Published {0} to server {1}: {2}", 
+					new Object[] {opts.getLabel(), getServer().getName(), result}));
+			return ServerManagementAPIConstants.PUBLISH_STATE_NONE;
+		} catch(IOException ioe) {
+			String errMsg = NLS.bind("Error publishing module {0} to server {1}", opts.getLabel(), getServer().getName());
+			LOG.error(errMsg, ioe);
+			deleteQuietly(tmp);
+			return delegate.getServerPublishModel().getDeployableState(opts).getPublishState();
 		}
-		return ServerManagementAPIConstants.PUBLISH_STATE_NONE;
 	}
-	private static void pack(String sourceDirPath, String zipFilePath) throws IOException {
-	    Path p = Files.createFile(Paths.get(zipFilePath));
-	    try (ZipOutputStream zs = new ZipOutputStream(Files.newOutputStream(p))) {
-	        Path pp = Paths.get(sourceDirPath);
-	        Files.walk(pp)
-	          .filter(path -> !Files.isDirectory(path))
-	          .forEach(path -> {
-	              ZipEntry zipEntry = new ZipEntry(pp.relativize(path).toString());
-	              try {
-	                  zs.putNextEntry(zipEntry);
-	                  Files.copy(path, zs);
-	                  zs.closeEntry();
-	            } catch (IOException e) {
-	                System.err.println(e);
-	            }
-	          });
-	    }
+
+	/**
+	 * Pack the given folder into an archive
+	 */
+	protected ParallelZipArchiver.Result pack(Path sourceDir, Path zipFile) throws IOException {
+		return new ParallelZipArchiver(getPackCompressionLevel(), 
+				Runtime.getRuntime().availableProcessors()).pack(sourceDir, zipFile);
+	}
+
+	/**
+	 * @return the compression level for archives packed from 
+	 * exploded deployables, {@link ParallelZipArchiver#STORED} to not compress
+	 */
+	protected int getPackCompressionLevel() {
+		return getServer().getAttribute(DefaultServerAttributes.PUBLISH_COMPRESSION_LEVEL, 
+				DefaultServerAttributes.PUBLISH_COMPRESSION_LEVEL_DEFAULT);
 	}
 
-	private void incrementalPublishCopySingleFile(Path fileSrc, Path fileDest, List<String> errors) {
+	private void incrementalPublishCopySingleFile(Path fileSrc, Path fileDest, String key,
+			PublishManifest manifest, PublishCopyStatistics stats, List<String> errors) {
 		if( !fileSrc.toFile().exists()) {
 			errors.add("Source path does not exist: " + fileSrc.toString());
 			return;
@@ -345,7 +406,7 @@ public abstract class AbstractFilesystemPublishController implements IPublishCon
 		}
 		if( fileSrc.toFile().isFile()) {
 			try {
-				Files.copy(fileSrc, fileDest, StandardCopyOption.REPLACE_EXISTING);
+				copyIfChanged(fileSrc, fileDest, key, manifest, stats);
 			} catch(IOException ioe) {
 				errors.add("Unable to copy " + fileSrc.toString() + " to " + fileDest.toString());
 			}
@@ -402,6 +463,7 @@ public abstract class AbstractFilesystemPublishController implements IPublishCon
 		if( dest == null ) {
 			return getServerPublishModel().getDeployableState(reference).getPublishState();
 		}
+		deletePublishManifest(reference);
 		if( !dest.exists())
 			return ServerManagementAPIConstants.PUBLISH_STATE_NONE;
 		
@@ -416,6 +478,232 @@ public abstract class AbstractFilesystemPublishController implements IPublishCon
 		return delegate.getServerPublishModel();
 	}
 	
+	/*
+	 * Copy the source file unless the manifest shows the destination 
+	 * already has the same content. Hashes are only computed when 
+	 * the size matches but the modification time does not. Copied files 
+	 * are not hashed, the destination then holds their content and is 
+	 * hashed if the check ever needs it. 
+	 */
+	protected void copyIfChanged(Path src, Path dest, String key, 
+			PublishManifest manifest, PublishCopyStatistics stats) throws IOException {
+		BasicFileAttributes attrs = Files.readAttributes(src, BasicFileAttributes.class);
+		long size = attrs.size();
+		long lastModified = attrs.lastModifiedTime().toMillis();
+		PublishManifest.Entry previous = manifest.get(key);
+		if( previous != null && previous.getSize() == size && destinationMatches(dest, size)) {
+			if( previous.getLastModified() == lastModified ) {
+				stats.skipped(size);
+				return;
+			}
+			long hash = PublishManifest.hash(src);
+			long previousHash = previous.getHash();
+			if( previousHash == PublishManifest.UNKNOWN_HASH ) {
+				previousHash = PublishManifest.hash(dest);
+			}
+			if( hash == previousHash ) {
+				manifest.put(key, new PublishManifest.Entry(size, lastModified, hash));
+				stats.skipped(size);
+				return;
+			}
+		}
+		transferFile(src, dest);
+		manifest.put(key, new PublishManifest.Entry(size, lastModified, PublishManifest.UNKNOWN_HASH));
+		stats.copied(size);
+	}
+	
+	private boolean destinationMatches(Path dest, long size) throws IOException {
+		return Files.isRegularFile(dest) && Files.size(dest) == size;
+	}
+	
+	/**
+	 * Copy the file into a temporary file next to the destination, 
+	 * and rename it over the destination once it is complete, so the 
+	 * server never sees a partially written file. The copy is done 
+	 * by the operating system where possible. 
+	 * 
+	 * @throws IOException if the source shrank while it was copied
+	 */
+	protected void transferFile(Path src, Path dest) throws IOException {
+		Path tmp = createTempSibling(dest);
+		try {
+			try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+					FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE, 
+							StandardOpenOption.TRUNCATE_EXISTING)) {
+				long size = in.size();
+				long position = 0;
+				while( position < size ) {
+					long transferred = in.transferTo(position, size - position, out);
+					if( transferred <= 0 ) {
+						break;
+					}
+					position += transferred;
+				}
+				if( position < size ) {
+					throw new IOException(NLS.bind("Only {0} of {1} bytes of {2} could be copied", 
+							new Object[] {position, size, src}));
+				}
+			}
+			moveAtomically(tmp, dest);
+		} catch(IOException ioe) {
+			deleteQuietly(tmp);
+			throw ioe;
+		}
+	}
+	
+	/*
+	 * Application servers ignore hidden files with unknown suffixes 
+	 * in their deployment folders. The file is created with the default 
+	 * permissions since it replaces the destination once it is complete.
+	 */
+	private Path createTempSibling(Path dest) throws IOException {
+		while( true ) {
+			Path tmp = dest.resolveSibling("." + dest.getFileName() + "." 
+					+ Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+			try {
+				return Files.createFile(tmp);
+			} catch(FileAlreadyExistsException faee) {
+				// try another name
+			}
+		}
+	}
+	
+	private void moveAtomically(Path tmp, Path dest) throws IOException {
+		try {
+			Files.move(tmp, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(AtomicMoveNotSupportedException amnse) {
+			Files.move(tmp, dest, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
+	private void deleteQuietly(Path p) {
+		if( p == null )
+			return;
+		try {
+			Files.deleteIfExists(p);
+		} catch(IOException ioe) {
+			LOG.debug("Unable to delete " + p, ioe);
+		}
+	}
+	
+	/*
+	 * Delete everything in the destination that was not part of this publish
+	 */
+	private void deleteOrphans(Path dest, Set<String> published, PublishCopyStatistics stats) throws IOException {
+		List<Path> orphans = new ArrayList<>();
+		try (Stream<Path> paths = Files.walk(dest)) {
+			paths.filter(p -> !p.equals(dest))
+				.filter(p -> !published.contains(toManifestKey(dest.relativize(p))))
+				.forEach(orphans::add);
+		}
+		orphans.sort(Comparator.reverseOrder());
+		for( Path orphan : orphans ) {
+			if( orphan.toFile().delete()) {
+				stats.deleted();
+			}
+		}
+	}
+	
+	private static String toManifestKey(Path relative) {
+		return relative.toString().replace(File.separatorChar, '/');
+	}
+	
+	/**
+	 * @return where the manifest of the given deployment is stored, 
+	 * or null if manifests should only be kept in memory
+	 */
+	protected Path getPublishManifestPath(DeployableReference reference) {
+		if( server == null || server.getServerManagementModel() == null 
+				|| server.getServerManagementModel().getDataStoreModel() == null )
+			return null;
+		File data = server.getServerManagementModel().getDataStoreModel().getDataLocation();
+		if( data == null )
+			return null;
+		return data.toPath().resolve(PUBLISH_MANIFEST_DIRECTORY).resolve(server.getId())
+				.resolve(getDestinationPath(reference).getFileName() + PUBLISH_MANIFEST_SUFFIX);
+	}
+	
+	protected PublishManifest getPublishManifest(DeployableReference reference) {
+		return manifests.computeIfAbsent(getDestinationPath(reference), 
+				k -> PublishManifest.load(getPublishManifestPath(reference)));
+	}
+	
+	private void savePublishManifest(PublishManifest manifest) throws IOException {
+		manifest.save();
+	}
+	
+	private void deletePublishManifest(DeployableReference reference) {
+		PublishManifest manifest = manifests.remove(getDestinationPath(reference));
+		if( manifest == null ) 
+			manifest = new PublishManifest(getPublishManifestPath(reference));
+		try {
+			manifest.delete();
+		} catch(IOException ioe) {
+			LOG.debug("Unable to delete publish manifest for " + reference.getLabel(), ioe);
+		}
+	}
+	
+	private void publishCopyFinished(DeployableReference reference, PublishCopyStatistics stats) {
+		statistics.put(reference.getLabel(), stats);
+		LOG.info(NLS.bind("Published {0} to server {1}: {2}", 
+				new Object[] {reference.getLabel(), getServer().getName(), stats}));
+	}
+	
+	/**
+	 * @return how much was copied and skipped during the most recent 
+	 * publish of the given deployable, or null if it has not been published
+	 */
+	public PublishCopyStatistics getPublishCopyStatistics(DeployableReference reference) {
+		return statistics.get(reference.getLabel());
+	}
+	
+	/*
+	 * Walks the source of an exploded deployment and copies every 
+	 * changed file, recording the key of everything it visits. 
+	 */
+	private class SyncFileVisitor extends SimpleFileVisitor<Path> {
+		private final Path sourcePath;
+		private final Path targetPath;
+		private final PublishManifest manifest;
+		private final PublishCopyStatistics stats;
+		private final Set<String> published = new HashSet<>();
+
+		public SyncFileVisitor(Path sourcePath, Path targetPath, 
+				PublishManifest manifest, PublishCopyStatistics stats) {
+			this.sourcePath = sourcePath;
+			this.targetPath = targetPath;
+			this.manifest = manifest;
+			this.stats = stats;
+		}
+
+		public Set<String> getPublishedKeys() {
+			return published;
+		}
+
+		@Override
+		public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+			if( !dir.equals(sourcePath)) {
+				Path relative = sourcePath.relativize(dir);
+				Path target = targetPath.resolve(relative);
+				if( !Files.isDirectory(target)) {
+					Files.deleteIfExists(target);
+					Files.createDirectories(target);
+				}
+				published.add(toManifestKey(relative));
+			}
+			return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+			Path relative = sourcePath.relativize(file);
+			String key = toManifestKey(relative);
+			copyIfChanged(file, targetPath.resolve(relative), key, manifest, stats);
+			published.add(key);
+			return FileVisitResult.CONTINUE;
+		}
+	}
+	
 	public class CopyFileVisitor extends SimpleFileVisitor<Path> {
 	    private final Path targetPath;
 	    private Path sourcePath = null;
@@ -0,0 +1,431 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.spi.publishing;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Packs a folder into a zip archive, compressing several entries
+ * at the same time.
+ *
+ * Small entries are compressed into memory by a pool of workers and
+ * written to the archive in order. Entries larger than
+ * {@link #LARGE_ENTRY_SIZE} are streamed directly to the archive so
+ * that they are never held in memory.
+ *
+ * Archives that would need zip64 extensions are written by a
+ * single {@link ZipOutputStream} instead.
+ */
+public class ParallelZipArchiver {
+	/**
+	 * Compression level that stores entries without compressing them
+	 */
+	public static final int STORED = Deflater.NO_COMPRESSION;
+
+	private static final long LARGE_ENTRY_SIZE = 8 * 1024 * 1024;
+	private static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+	private static final int ZIP32_MAX_ENTRIES = 0xFFFF;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int LOCAL_HEADER = 0x04034b50;
+	private static final int DATA_DESCRIPTOR = 0x08074b50;
+	private static final int CENTRAL_HEADER = 0x02014b50;
+	private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+	private static final int FLAG_UTF8 = 0x0800;
+	private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+	private static final int VERSION = 20;
+
+	public static class Result {
+		private final int entries;
+		private final long bytesIn;
+		private final long bytesOut;
+		private final long millis;
+
+		public Result(int entries, long bytesIn, long bytesOut, long millis) {
+			this.entries = entries;
+			this.bytesIn = bytesIn;
+			this.bytesOut = bytesOut;
+			this.millis = millis;
+		}
+
+		public int getEntries() {
+			return entries;
+		}
+
+		public long getBytesIn() {
+			return bytesIn;
+		}
+
+		public long getBytesOut() {
+			return bytesOut;
+		}
+
+		public long getMillis() {
+			return millis;
+		}
+
+		/**
+		 * @return uncompressed megabytes packed per second
+		 */
+		public double getThroughput() {
+			return (bytesIn / (1024.0 * 1024.0)) / (Math.max(1, millis) / 1000.0);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("packed %d entries, %d bytes into %d bytes in %dms (%.1f MB/s)",
+					entries, bytesIn, bytesOut, millis, getThroughput());
+		}
+	}
+
+	private final int level;
+	private final int threads;
+
+	/**
+	 * @param level a {@link Deflater} compression level; {@link #STORED}
+	 * 		does not compress, {@link Deflater#DEFAULT_COMPRESSION} uses the default
+	 * @param threads the number of entries to compress at the same time
+	 */
+	public ParallelZipArchiver(int level, int threads) {
+		this.level = level;
+		this.threads = Math.max(1, threads);
+	}
+
+	public Result pack(Path sourceDir, Path zipFile) throws IOException {
+		long start = System.currentTimeMillis();
+		List<Path> files;
+		try (Stream<Path> paths = Files.walk(sourceDir)) {
+			files = paths.filter(p -> !Files.isDirectory(p)).sorted().collect(Collectors.toList());
+		}
+		long totalSize = 0;
+		for( Path f : files ) {
+			totalSize += Files.size(f);
+		}
+		long written;
+		if( files.size() > ZIP32_MAX_ENTRIES || totalSize >= ZIP32_LIMIT ) {
+			written = packSequential(sourceDir, files, zipFile);
+		} else {
+			written = packParallel(sourceDir, files, zipFile);
+		}
+		return new Result(files.size(), totalSize, written, System.currentTimeMillis() - start);
+	}
+
+	private long packSequential(Path sourceDir, List<Path> files, Path zipFile) throws IOException {
+		try (ZipOutputStream zs = new ZipOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(zipFile), BUFFER_SIZE))) {
+			zs.setLevel(level);
+			for( Path f : files ) {
+				zs.putNextEntry(new ZipEntry(entryName(sourceDir, f)));
+				Files.copy(f, zs);
+				zs.closeEntry();
+			}
+		}
+		return Files.size(zipFile);
+	}
+
+	private long packParallel(Path sourceDir, List<Path> files, Path zipFile) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads, (Runnable runnable) -> {
+			Thread t = new Thread(runnable, "RSP Zip Archiver");
+			t.setDaemon(true);
+			return t;
+		});
+		List<Entry> written = new ArrayList<>(files.size());
+		try (CountingOutputStream out = new CountingOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(zipFile), BUFFER_SIZE))) {
+			// Bound the number of compressed entries waiting in memory
+			int window = threads * 4;
+			Deque<Future<Entry>> pending = new ArrayDeque<>();
+			for( Path f : files ) {
+				String name = entryName(sourceDir, f);
+				if( Files.size(f) > LARGE_ENTRY_SIZE ) {
+					while( !pending.isEmpty())
+						written.add(writeEntry(out, await(pending.removeFirst())));
+					written.add(writeStreamedEntry(out, f, name));
+				} else {
+					pending.addLast(pool.submit(() -> compress(f, name)));
+					if( pending.size() >= window )
+						written.add(writeEntry(out, await(pending.removeFirst())));
+				}
+			}
+			while( !pending.isEmpty())
+				written.add(writeEntry(out, await(pending.removeFirst())));
+			writeCentralDirectory(out, written);
+			out.flush();
+			return out.getCount();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static Entry await(Future<Entry> f) throws IOException {
+		try {
+			return f.get();
+		} catch(InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while packing archive", ie);
+		} catch(ExecutionException ee) {
+			if( ee.getCause() instanceof IOException )
+				throw (IOException)ee.getCause();
+			throw new IOException(ee.getCause());
+		}
+	}
+
+	private static String entryName(Path sourceDir, Path file) {
+		return sourceDir.relativize(file).toString().replace('\\', '/');
+	}
+
+	/*
+	 * Compress a small entry into memory. Runs on the worker pool.
+	 */
+	private Entry compress(Path file, String name) throws IOException {
+		byte[] content = Files.readAllBytes(file);
+		CRC32 crc = new CRC32();
+		crc.update(content, 0, content.length);
+		Entry e = new Entry(name, dosTime(Files.getLastModifiedTime(file).toMillis()));
+		e.crc = crc.getValue();
+		e.size = content.length;
+		if( level != STORED ) {
+			Deflater deflater = new Deflater(level, true);
+			try {
+				deflater.setInput(content);
+				deflater.finish();
+				ByteArrayOutputStream baos = new ByteArrayOutputStream(Math.max(64, content.length / 2));
+				byte[] buffer = new byte[BUFFER_SIZE];
+				while( !deflater.finished()) {
+					int n = deflater.deflate(buffer);
+					baos.write(buffer, 0, n);
+				}
+				// Store anything that does not get smaller
+				if( baos.size() < content.length ) {
+					e.method = ZipEntry.DEFLATED;
+					e.data = baos.toByteArray();
+					e.compressedSize = e.data.length;
+					return e;
+				}
+			} finally {
+				deflater.end();
+			}
+		}
+		e.method = ZipEntry.STORED;
+		e.data = content;
+		e.compressedSize = content.length;
+		return e;
+	}
+
+	private Entry writeEntry(CountingOutputStream out, Entry e) throws IOException {
+		e.offset = out.getCount();
+		writeLocalHeader(out, e, 0);
+		out.write(e.data);
+		e.data = null;
+		return e;
+	}
+
+	/*
+	 * Write a large entry straight from the file to the archive
+	 */
+	private Entry writeStreamedEntry(CountingOutputStream out, Path file, String name) throws IOException {
+		Entry e = new Entry(name, dosTime(Files.getLastModifiedTime(file).toMillis()));
+		e.offset = out.getCount();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		CRC32 crc = new CRC32();
+		if( level == STORED ) {
+			// Stored entries need their sizes up front
+			try (InputStream is = Files.newInputStream(file)) {
+				int n;
+				while((n = is.read(buffer)) != -1)
+					crc.update(buffer, 0, n);
+			}
+			e.method = ZipEntry.STORED;
+			e.crc = crc.getValue();
+			e.size = e.compressedSize = Files.size(file);
+			writeLocalHeader(out, e, 0);
+			Files.copy(file, out);
+			return e;
+		}
+		e.method = ZipEntry.DEFLATED;
+		writeLocalHeader(out, e, FLAG_DATA_DESCRIPTOR);
+		long dataStart = out.getCount();
+		Deflater deflater = new Deflater(level, true);
+		try (InputStream is = Files.newInputStream(file)) {
+			DeflaterOutputStream dos = new DeflaterOutputStream(new NonClosingOutputStream(out), deflater, BUFFER_SIZE);
+			int n;
+			long size = 0;
+			while((n = is.read(buffer)) != -1) {
+				crc.update(buffer, 0, n);
+				dos.write(buffer, 0, n);
+				size += n;
+			}
+			dos.finish();
+			e.size = size;
+		} finally {
+			deflater.end();
+		}
+		e.crc = crc.getValue();
+		e.compressedSize = out.getCount() - dataStart;
+		e.flags |= FLAG_DATA_DESCRIPTOR;
+		writeInt(out, DATA_DESCRIPTOR);
+		writeInt(out, e.crc);
+		writeInt(out, e.compressedSize);
+		writeInt(out, e.size);
+		return e;
+	}
+
+	private void writeLocalHeader(OutputStream out, Entry e, int extraFlags) throws IOException {
+		boolean descriptor = (extraFlags & FLAG_DATA_DESCRIPTOR) != 0;
+		writeInt(out, LOCAL_HEADER);
+		writeShort(out, VERSION);
+		writeShort(out, FLAG_UTF8 | extraFlags);
+		writeShort(out, e.method);
+		writeInt(out, e.dosTime);
+		writeInt(out, descriptor ? 0 : e.crc);
+		writeInt(out, descriptor ? 0 : e.compressedSize);
+		writeInt(out, descriptor ? 0 : e.size);
+		writeShort(out, e.name.length);
+		writeShort(out, 0);
+		out.write(e.name);
+	}
+
+	private void writeCentralDirectory(CountingOutputStream out, List<Entry> entries) throws IOException {
+		long start = out.getCount();
+		for( Entry e : entries ) {
+			writeInt(out, CENTRAL_HEADER);
+			writeShort(out, VERSION);
+			writeShort(out, VERSION);
+			writeShort(out, FLAG_UTF8 | e.flags);
+			writeShort(out, e.method);
+			writeInt(out, e.dosTime);
+			writeInt(out, e.crc);
+			writeInt(out, e.compressedSize);
+			writeInt(out, e.size);
+			writeShort(out, e.name.length);
+			writeShort(out, 0); // extra
+			writeShort(out, 0); // comment
+			writeShort(out, 0); // disk
+			writeShort(out, 0); // internal attributes
+			writeInt(out, 0); // external attributes
+			writeInt(out, e.offset);
+			out.write(e.name);
+		}
+		long size = out.getCount() - start;
+		if( start >= ZIP32_LIMIT || size >= ZIP32_LIMIT )
+			throw new IOException("Archive is too large to be written without zip64 extensions");
+		writeInt(out, END_OF_CENTRAL_DIRECTORY);
+		writeShort(out, 0);
+		writeShort(out, 0);
+		writeShort(out, entries.size());
+		writeShort(out, entries.size());
+		writeInt(out, size);
+		writeInt(out, start);
+		writeShort(out, 0);
+	}
+
+	private static long dosTime(long millis) {
+		LocalDateTime t = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+		if( t.getYear() < 1980 )
+			return (1 << 21) | (1 << 16);
+		return ((long)(t.getYear() - 1980) << 25) | ((long)t.getMonthValue() << 21)
+				| ((long)t.getDayOfMonth() << 16) | ((long)t.getHour() << 11)
+				| ((long)t.getMinute() << 5) | (t.getSecond() >> 1);
+	}
+
+	private static void writeShort(OutputStream out, int v) throws IOException {
+		out.write(v & 0xff);
+		out.write((v >>> 8) & 0xff);
+	}
+
+	private static void writeInt(OutputStream out, long v) throws IOException {
+		out.write((int)(v & 0xff));
+		out.write((int)((v >>> 8) & 0xff));
+		out.write((int)((v >>> 16) & 0xff));
+		out.write((int)((v >>> 24) & 0xff));
+	}
+
+	private static class Entry {
+		private final byte[] name;
+		private final long dosTime;
+		private int method;
+		private int flags = 0;
+		private long crc;
+		private long size;
+		private long compressedSize;
+		private long offset;
+		private byte[] data;
+
+		public Entry(String name, long dosTime) {
+			this.name = name.getBytes(StandardCharsets.UTF_8);
+			this.dosTime = dosTime;
+		}
+	}
+
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count = 0;
+
+		public CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		public long getCount() {
+			return count;
+		}
+	}
+
+	private static class NonClosingOutputStream extends FilterOutputStream {
+		public NonClosingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+}
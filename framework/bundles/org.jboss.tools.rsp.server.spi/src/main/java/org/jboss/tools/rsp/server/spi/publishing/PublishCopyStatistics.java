@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.spi.publishing;
+
+/**
+ * How much of a deployment was copied, skipped because it was
+ * unchanged, or deleted during a single publish.
+ */
+public class PublishCopyStatistics {
+	private long bytesCopied = 0;
+	private long bytesSkipped = 0;
+	private int filesCopied = 0;
+	private int filesSkipped = 0;
+	private int filesDeleted = 0;
+
+	public synchronized void copied(long bytes) {
+		bytesCopied += bytes;
+		filesCopied++;
+	}
+
+	public synchronized void skipped(long bytes) {
+		bytesSkipped += bytes;
+		filesSkipped++;
+	}
+
+	public synchronized void deleted() {
+		filesDeleted++;
+	}
+
+	public synchronized long getBytesCopied() {
+		return bytesCopied;
+	}
+
+	public synchronized long getBytesSkipped() {
+		return bytesSkipped;
+	}
+
+	public synchronized int getFilesCopied() {
+		return filesCopied;
+	}
+
+	public synchronized int getFilesSkipped() {
+		return filesSkipped;
+	}
+
+	public synchronized int getFilesDeleted() {
+		return filesDeleted;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "copied " + filesCopied + " files (" + bytesCopied + " bytes), skipped "
+				+ filesSkipped + " unchanged files (" + bytesSkipped + " bytes), deleted "
+				+ filesDeleted + " files";
+	}
+}
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.spi.publishing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Remembers the size, modification time and content hash of every
+ * file that was last published for a single deployment, so that
+ * later publishes only copy what actually changed.
+ *
+ * Keys are paths relative to the root of the deployment, using '/'
+ * as the separator. A zipped deployment is stored under the empty key.
+ *
+ * The manifest is written to disk as one line per file:
+ * hash, size, modification time and path, separated by tabs.
+ */
+public class PublishManifest {
+	private static final String HEADER = "# rsp publish manifest 1";
+	private static final int BUFFER_SIZE = 64 * 1024;
+	/**
+	 * The hash of an entry whose content was not hashed yet.
+	 * Content hashes are never negative.
+	 */
+	public static final long UNKNOWN_HASH = -1;
+
+	public static class Entry {
+		private final long size;
+		private final long lastModified;
+		private final long hash;
+
+		public Entry(long size, long lastModified, long hash) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hash = hash;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public long getHash() {
+			return hash;
+		}
+	}
+
+	private final Path location;
+	private final Map<String, Entry> entries = new HashMap<>();
+	private boolean dirty = false;
+
+	/**
+	 * @param location where the manifest is stored, or null to keep it in memory only
+	 */
+	public PublishManifest(Path location) {
+		this.location = location;
+	}
+
+	/**
+	 * Load the manifest stored at the given location.
+	 * A missing or unreadable file results in an empty manifest.
+	 */
+	public static PublishManifest load(Path location) {
+		PublishManifest ret = new PublishManifest(location);
+		if( location == null || !Files.isRegularFile(location))
+			return ret;
+		try (BufferedReader reader = Files.newBufferedReader(location, StandardCharsets.UTF_8)) {
+			String line = reader.readLine();
+			if( !HEADER.equals(line))
+				return ret;
+			while((line = reader.readLine()) != null) {
+				String[] segments = line.split("\t", 4);
+				if( segments.length == 4 ) {
+					ret.entries.put(segments[3], new Entry(Long.parseLong(segments[1]),
+							Long.parseLong(segments[2]), Long.parseUnsignedLong(segments[0], 16)));
+				}
+			}
+		} catch(IOException | NumberFormatException e) {
+			// A corrupt manifest only means everything is copied again
+			ret.entries.clear();
+		}
+		return ret;
+	}
+
+	public synchronized Entry get(String key) {
+		return entries.get(key);
+	}
+
+	public synchronized void put(String key, Entry entry) {
+		entries.put(key, entry);
+		dirty = true;
+	}
+
+	/**
+	 * Remove the given key, and every key below it
+	 */
+	public synchronized void removeTree(String key) {
+		String prefix = key + "/";
+		Iterator<String> it = entries.keySet().iterator();
+		while(it.hasNext()) {
+			String k = it.next();
+			if( k.equals(key) || k.startsWith(prefix)) {
+				it.remove();
+				dirty = true;
+			}
+		}
+	}
+
+	/**
+	 * Remove every key not contained in the given collection
+	 */
+	public synchronized void retainAll(Collection<String> keys) {
+		if( entries.keySet().retainAll(keys))
+			dirty = true;
+	}
+
+	public synchronized void clear() {
+		if( !entries.isEmpty()) {
+			entries.clear();
+			dirty = true;
+		}
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Write the manifest to its location if it has changed since it was loaded
+	 */
+	public synchronized void save() throws IOException {
+		if( location == null || !dirty )
+			return;
+		Files.createDirectories(location.getParent());
+		Path tmp = location.resolveSibling(location.getFileName() + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+			writer.write(HEADER);
+			writer.newLine();
+			for( Map.Entry<String, Entry> e : entries.entrySet()) {
+				Entry v = e.getValue();
+				writer.write(Long.toHexString(v.getHash()) + "\t" + v.getSize() + "\t"
+						+ v.getLastModified() + "\t" + e.getKey());
+				writer.newLine();
+			}
+		}
+		try {
+			Files.move(tmp, location, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(AtomicMoveNotSupportedException amnse) {
+			Files.move(tmp, location, StandardCopyOption.REPLACE_EXISTING);
+		}
+		dirty = false;
+	}
+
+	/**
+	 * Forget every entry and remove the manifest from disk
+	 */
+	public synchronized void delete() throws IOException {
+		entries.clear();
+		dirty = false;
+		if( location != null )
+			Files.deleteIfExists(location);
+	}
+
+	/**
+	 * Compute the content hash used by the manifest.
+	 */
+	public static long hash(Path file) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream is = Files.newInputStream(file)) {
+			int read;
+			while((read = is.read(buffer)) != -1) {
+				crc.update(buffer, 0, read);
+			}
+		}
+		return crc.getValue();
+	}
+}
@@ -8,6 +8,7 @@
  ******************************************************************************/
 package org.jboss.tools.rsp.server;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -16,6 +17,7 @@ import org.jboss.tools.rsp.api.RSPClient;
 import org.jboss.tools.rsp.api.dao.ClientCapabilitiesRequest;
 import org.jboss.tools.rsp.eclipse.core.runtime.IStatus;
 import org.jboss.tools.rsp.eclipse.core.runtime.Status;
+import org.jboss.tools.rsp.server.model.ProcessOutputAggregator;
 import org.jboss.tools.rsp.server.spi.model.ICapabilityManagement;
 
 public class CapabilityManagement implements ICapabilityManagement, ICapabilityKeys {
@@ -24,7 +26,7 @@ public class CapabilityManagement implements ICapabilityManagement, ICapabilityK
 	private Map<RSPClient, Capabilities> capabilities;
 	
 	public CapabilityManagement() {
-		this.capabilities = new HashMap<RSPClient, Capabilities>();
+		this.capabilities = Collections.synchronizedMap(new HashMap<RSPClient, Capabilities>());
 	}
 	
 	public void clientAdded(RSPClient client) {
@@ -87,6 +89,8 @@ public class CapabilityManagement implements ICapabilityManagement, ICapabilityK
         ret.put(ICapabilityKeys.BOOLEAN_STRING_PROMPT, Boolean.toString(true));
         ret.put(ICapabilityKeys.BOOLEAN_PUBLISH_ARCHIVE, Boolean.toString(true));
         ret.put(ICapabilityKeys.BOOLEAN_MESSAGEBOX, Boolean.toString(true));
+        ret.put(ICapabilityKeys.STRING_PROCESS_OUTPUT_FLUSH_WINDOW, Integer.toString(ProcessOutputAggregator.DEFAULT_FLUSH_WINDOW));
+        ret.put(ICapabilityKeys.STRING_PROCESS_OUTPUT_MAX_RATE, Integer.toString(0));
         return ret;
 	}
 }
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Writes traced messages to a file, one json object per line, so that
+ * a session can be looked at or replayed later. ie.
+ * <pre>
+ * {"time":1589371200000,"client":"localhost:40112","direction":"in","message":{...}}
+ * </pre>
+ * Once the file reaches its maximum size it is rolled over to
+ * <code>file.1</code>, <code>file.1</code> to <code>file.2</code> and so on.
+ */
+public class MessageCaptureFile {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MessageCaptureFile.class);
+
+	private final File file;
+	private final long maxSize;
+	private final int maxBackups;
+	private Writer writer;
+	private long size;
+	private boolean failed = false;
+
+	public MessageCaptureFile(File file, long maxSize, int maxBackups) {
+		this.file = file;
+		this.maxSize = Math.max(1, maxSize);
+		this.maxBackups = Math.max(0, maxBackups);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public synchronized void write(String client, String direction, String json) {
+		if( failed ) {
+			return;
+		}
+		StringBuilder line = new StringBuilder(json.length() + 100)
+				.append("{\"time\":").append(System.currentTimeMillis())
+				.append(",\"client\":").append(new JsonPrimitive(client))
+				.append(",\"direction\":\"").append(direction)
+				.append("\",\"message\":").append(json)
+				.append("}\n");
+		try {
+			if( writer == null ) {
+				open();
+			} else if( size > 0 && size + line.length() > maxSize ) {
+				roll();
+			}
+			writer.write(line.toString());
+			writer.flush();
+			size += line.length();
+		} catch(IOException ioe) {
+			failed = true;
+			LOG.error("Could not write messages to " + file.getAbsolutePath() + ", capture stopped", ioe);
+		}
+	}
+
+	private void open() throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if( parent != null ) {
+			Files.createDirectories(parent.toPath());
+		}
+		writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		size = file.length();
+	}
+
+	private void roll() throws IOException {
+		writer.close();
+		writer = null;
+		if( maxBackups == 0 ) {
+			Files.delete(file.toPath());
+		} else {
+			for( int i = maxBackups - 1; i >= 1; i-- ) {
+				File from = getBackup(i);
+				if( from.exists()) {
+					Files.move(from.toPath(), getBackup(i + 1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			Files.move(file.toPath(), getBackup(1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		open();
+	}
+
+	/**
+	 * Returns the given rolled over file, 1 being the most recent.
+	 */
+	public File getBackup(int index) {
+		return new File(file.getPath() + "." + index);
+	}
+
+	public synchronized void close() {
+		if( writer != null ) {
+			try {
+				writer.close();
+			} catch(IOException ioe) {
+				// ignore
+			}
+			writer = null;
+		}
+	}
+}
@@ -8,6 +8,7 @@
  ******************************************************************************/
 package org.jboss.tools.rsp.server;
 
+import org.jboss.tools.rsp.api.DefaultServerAttributes;
 import org.jboss.tools.rsp.logging.LoggingConstants;
 import org.jboss.tools.rsp.server.persistence.DataLocationCore;
 
@@ -20,11 +21,211 @@ public class RSPFlags {
 	public static final String LOG_LEVEL_FLAG = LoggingConstants.SYSPROP_LOG_LEVEL_FLAG;
 	public static final String SYSPROP_SERVER_PORT = "rsp.server.port";
 	public static final int DEFAULT_PORT = 27511;
+	/**
+	 * How clients are served: socket, with threads reading each client's socket,
+	 * or nio, with a single thread selecting the clients that sent something.
+	 */
+	public static final String SYSPROP_SERVER_TRANSPORT = "rsp.server.transport";
+	public static final String TRANSPORT_SOCKET = "socket";
+	public static final String TRANSPORT_NIO = "nio";
+	public static final String DEFAULT_SERVER_TRANSPORT = TRANSPORT_SOCKET;
+	/**
+	 * Milliseconds during which file watcher events for the same path
+	 * are coalesced before being delivered to listeners. 
+	 * A negative value delivers every event immediately on the watcher thread.
+	 */
+	public static final String SYSPROP_FILEWATCHER_BATCH_WINDOW = "rsp.filewatcher.batch.window";
+	public static final int DEFAULT_FILEWATCHER_BATCH_WINDOW = 100;
+	/**
+	 * The number of paths the file watcher keeps per listener until it is 
+	 * delivered. Beyond that, the pending paths are collapsed into 
+	 * events for their parent directories.
+	 */
+	public static final String SYSPROP_FILEWATCHER_BATCH_MAX_PENDING = "rsp.filewatcher.batch.max.pending";
+	public static final int DEFAULT_FILEWATCHER_BATCH_MAX_PENDING = 1000;
+	/**
+	 * The file watcher backend used for servers that do not choose one:
+	 * nio, polling or hybrid.
+	 */
+	public static final String SYSPROP_FILEWATCHER_BACKEND = "rsp.filewatcher.backend";
+	public static final String DEFAULT_FILEWATCHER_BACKEND = DefaultServerAttributes.FILE_WATCHER_BACKEND_NIO;
+	/**
+	 * The number of native watches the hybrid file watcher backend 
+	 * may use before it falls back to polling.
+	 */
+	public static final String SYSPROP_FILEWATCHER_WATCH_BUDGET = "rsp.filewatcher.watch.budget";
+	public static final int DEFAULT_FILEWATCHER_WATCH_BUDGET = DefaultServerAttributes.FILE_WATCHER_WATCH_BUDGET_DEFAULT;
+	/**
+	 * Milliseconds between two scans of the polling file watcher backend.
+	 */
+	public static final String SYSPROP_FILEWATCHER_POLL_INTERVAL = "rsp.filewatcher.poll.interval";
+	public static final int DEFAULT_FILEWATCHER_POLL_INTERVAL = 2000;
+	/**
+	 * The number of notifications that may wait to be sent to a client
+	 * before process output and job progress start being dropped.
+	 */
+	public static final String SYSPROP_CLIENT_QUEUE_CAPACITY = "rsp.client.queue.capacity";
+	public static final int DEFAULT_CLIENT_QUEUE_CAPACITY = 2000;
+	/**
+	 * The number of threads that run quick requests that only read the model.
+	 */
+	public static final String SYSPROP_REQUEST_THREADS_FAST = "rsp.request.threads.fast";
+	public static final int DEFAULT_REQUEST_THREADS_FAST = Math.max(2, Runtime.getRuntime().availableProcessors());
+	/**
+	 * The number of threads that run requests which may block, 
+	 * ie. starting servers, publishing or downloading runtimes.
+	 */
+	public static final String SYSPROP_REQUEST_THREADS_SLOW = "rsp.request.threads.slow";
+	public static final int DEFAULT_REQUEST_THREADS_SLOW = 16;
+	/**
+	 * The number of requests that may wait for a thread in each lane 
+	 * before further requests are rejected.
+	 */
+	public static final String SYSPROP_REQUEST_QUEUE_CAPACITY = "rsp.request.queue.capacity";
+	public static final int DEFAULT_REQUEST_QUEUE_CAPACITY = 1000;
+	/**
+	 * Whether to trace the messages exchanged with clients. 
+	 * If not set, messages are traced while debug logging is on.
+	 */
+	public static final String SYSPROP_TRACE_MESSAGES = "rsp.trace.messages";
+	/**
+	 * A file to write the traced messages to, one json object per line.
+	 */
+	public static final String SYSPROP_TRACE_CAPTURE_FILE = "rsp.trace.capture.file";
+	/**
+	 * The size in bytes at which the capture file is rolled over.
+	 */
+	public static final String SYSPROP_TRACE_CAPTURE_SIZE = "rsp.trace.capture.size";
+	public static final int DEFAULT_TRACE_CAPTURE_SIZE = 10 * 1024 * 1024;
+	/**
+	 * The number of rolled over capture files to keep.
+	 */
+	public static final String SYSPROP_TRACE_CAPTURE_BACKUPS = "rsp.trace.capture.backups";
+	public static final int DEFAULT_TRACE_CAPTURE_BACKUPS = 3;
+	/**
+	 * Milliseconds to wait for further changes to discovery paths or vms
+	 * before they are written to disk.
+	 */
+	public static final String SYSPROP_PERSISTENCE_WRITE_DELAY = "rsp.persistence.write.delay";
+	public static final int DEFAULT_PERSISTENCE_WRITE_DELAY = 500;
+	/**
+	 * The number of threads that read the server files on startup.
+	 */
+	public static final String SYSPROP_PERSISTENCE_LOAD_THREADS = "rsp.persistence.load.threads";
+	public static final int DEFAULT_PERSISTENCE_LOAD_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+	/**
+	 * Whether the folders that java is usually installed to are searched
+	 * for java installations on startup. Enabled unless set to false.
+	 */
+	public static final String SYSPROP_VM_AUTODETECT = "rsp.vm.autodetect";
+	/**
+	 * Whether the discovery paths are watched for changes, so that the server beans
+	 * found in them are trusted without checking the files they were recognized by.
+	 * This costs native file watches for every folder below the discovery paths.
+	 */
+	public static final String SYSPROP_DISCOVERY_INDEX_WATCH = "rsp.discovery.index.watch";
+	/**
+	 * How many levels of folders below the given path a recursive 
+	 * server search descends, if the client does not ask for a depth.
+	 */
+	public static final String SYSPROP_DISCOVERY_SEARCH_DEPTH = "rsp.discovery.search.depth";
+	public static final int DEFAULT_DISCOVERY_SEARCH_DEPTH = 4;
+	/**
+	 * The number of folders a recursive server search checks at the same time.
+	 * Checking a folder mostly waits for the disk, so this exceeds the number of cpus.
+	 */
+	public static final String SYSPROP_DISCOVERY_SEARCH_THREADS = "rsp.discovery.search.threads";
+	public static final int DEFAULT_DISCOVERY_SEARCH_THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
 	
 	public static int getServerPort() {
 		return getIntSysprop(SYSPROP_SERVER_PORT, DEFAULT_PORT);
 	}
 
+	public static String getServerTransport() {
+		return System.getProperty(SYSPROP_SERVER_TRANSPORT, DEFAULT_SERVER_TRANSPORT);
+	}
+
+	public static int getFileWatcherBatchWindow() {
+		return getIntSysprop(SYSPROP_FILEWATCHER_BATCH_WINDOW, DEFAULT_FILEWATCHER_BATCH_WINDOW);
+	}
+
+	public static int getFileWatcherBatchMaxPending() {
+		return getIntSysprop(SYSPROP_FILEWATCHER_BATCH_MAX_PENDING, DEFAULT_FILEWATCHER_BATCH_MAX_PENDING);
+	}
+
+	public static String getFileWatcherBackend() {
+		return System.getProperty(SYSPROP_FILEWATCHER_BACKEND, DEFAULT_FILEWATCHER_BACKEND);
+	}
+
+	public static int getFileWatcherWatchBudget() {
+		return getIntSysprop(SYSPROP_FILEWATCHER_WATCH_BUDGET, DEFAULT_FILEWATCHER_WATCH_BUDGET);
+	}
+
+	public static int getFileWatcherPollInterval() {
+		return getIntSysprop(SYSPROP_FILEWATCHER_POLL_INTERVAL, DEFAULT_FILEWATCHER_POLL_INTERVAL);
+	}
+
+	public static int getClientQueueCapacity() {
+		return getIntSysprop(SYSPROP_CLIENT_QUEUE_CAPACITY, DEFAULT_CLIENT_QUEUE_CAPACITY);
+	}
+
+	public static int getRequestThreadsFast() {
+		return getIntSysprop(SYSPROP_REQUEST_THREADS_FAST, DEFAULT_REQUEST_THREADS_FAST);
+	}
+
+	public static int getRequestThreadsSlow() {
+		return getIntSysprop(SYSPROP_REQUEST_THREADS_SLOW, DEFAULT_REQUEST_THREADS_SLOW);
+	}
+
+	public static int getRequestQueueCapacity() {
+		return getIntSysprop(SYSPROP_REQUEST_QUEUE_CAPACITY, DEFAULT_REQUEST_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Returns whether messages should be traced, 
+	 * or <code>null</code> if this depends on the log level.
+	 */
+	public static Boolean getTraceMessages() {
+		String value = System.getProperty(SYSPROP_TRACE_MESSAGES);
+		return value == null ? null : Boolean.valueOf(value);
+	}
+
+	public static String getTraceCaptureFile() {
+		return System.getProperty(SYSPROP_TRACE_CAPTURE_FILE);
+	}
+
+	public static int getTraceCaptureSize() {
+		return getIntSysprop(SYSPROP_TRACE_CAPTURE_SIZE, DEFAULT_TRACE_CAPTURE_SIZE);
+	}
+
+	public static int getTraceCaptureBackups() {
+		return getIntSysprop(SYSPROP_TRACE_CAPTURE_BACKUPS, DEFAULT_TRACE_CAPTURE_BACKUPS);
+	}
+
+	public static int getPersistenceWriteDelay() {
+		return getIntSysprop(SYSPROP_PERSISTENCE_WRITE_DELAY, DEFAULT_PERSISTENCE_WRITE_DELAY);
+	}
+
+	public static int getPersistenceLoadThreads() {
+		return getIntSysprop(SYSPROP_PERSISTENCE_LOAD_THREADS, DEFAULT_PERSISTENCE_LOAD_THREADS);
+	}
+
+	public static boolean isVMAutodetect() {
+		return !"false".equalsIgnoreCase(System.getProperty(SYSPROP_VM_AUTODETECT));
+	}
+
+	public static boolean isDiscoveryIndexWatched() {
+		return Boolean.getBoolean(SYSPROP_DISCOVERY_INDEX_WATCH);
+	}
+
+	public static int getDiscoverySearchDepth() {
+		return getIntSysprop(SYSPROP_DISCOVERY_SEARCH_DEPTH, DEFAULT_DISCOVERY_SEARCH_DEPTH);
+	}
+
+	public static int getDiscoverySearchThreads() {
+		return getIntSysprop(SYSPROP_DISCOVERY_SEARCH_THREADS, DEFAULT_DISCOVERY_SEARCH_THREADS);
+	}
+
 	public static int getIntSysprop(String key, int def) {
 		int logLevel = def;
 		String logLevelTmp = System.getProperty(key);
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.lsp4j.jsonrpc.MessageConsumer;
+import org.eclipse.lsp4j.jsonrpc.json.MessageJsonHandler;
+import org.eclipse.lsp4j.jsonrpc.json.StreamMessageConsumer;
+import org.eclipse.lsp4j.jsonrpc.messages.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Traces the json-rpc messages exchanged with one client.
+ *
+ * Messages are only serialized while tracing is enabled, which it is
+ * when debug logging is on unless it was switched for the client.
+ * Traced messages are logged and, if a capture file is given,
+ * written to it.
+ */
+public class RSPMessageTracer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RSPMessageTracer.class);
+	private static final MessageJsonHandler JSON = new MessageJsonHandler(Collections.emptyMap());
+
+	public static final String DIRECTION_IN = "in";
+	public static final String DIRECTION_OUT = "out";
+
+	private final String client;
+	private final MessageCaptureFile capture;
+	private volatile Boolean enabled;
+	private final AtomicLong traced = new AtomicLong();
+
+	/**
+	 * @param client  a name for the client in the trace
+	 * @param enabled whether to trace, or <code>null</code> to trace while debug logging is on
+	 * @param capture the file to write traced messages to, or <code>null</code>
+	 */
+	public RSPMessageTracer(String client, Boolean enabled, MessageCaptureFile capture) {
+		this.client = client;
+		this.enabled = enabled;
+		this.capture = capture;
+	}
+
+	/**
+	 * Switches tracing on or off, or back to following
+	 * the log level if <code>null</code> is given.
+	 */
+	public void setEnabled(Boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		Boolean e = enabled;
+		return e == null ? LOG.isDebugEnabled() : e.booleanValue();
+	}
+
+	/**
+	 * Returns the number of messages traced so far.
+	 */
+	public long getTracedCount() {
+		return traced.get();
+	}
+
+	/**
+	 * Wraps the given consumer so that the messages it consumes are traced.
+	 * To be passed to {@link org.eclipse.lsp4j.jsonrpc.Launcher.Builder#wrapMessages}.
+	 */
+	public MessageConsumer wrap(MessageConsumer consumer) {
+		// lsp4j wraps the consumer writing to the socket and the one handling what was read
+		String direction = consumer instanceof StreamMessageConsumer ? DIRECTION_OUT : DIRECTION_IN;
+		return message -> {
+			if( isEnabled()) {
+				trace(direction, message);
+			}
+			consumer.consume(message);
+		};
+	}
+
+	private void trace(String direction, Message message) {
+		try {
+			String json = JSON.serialize(message);
+			traced.incrementAndGet();
+			LOG.debug("{} {}: {}", client, direction, json);
+			if( capture != null ) {
+				capture.write(client, direction, json);
+			}
+		} catch(RuntimeException re) {
+			LOG.debug("Could not trace message to " + client, re);
+		}
+	}
+}
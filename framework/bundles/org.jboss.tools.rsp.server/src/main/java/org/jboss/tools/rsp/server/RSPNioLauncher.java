@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.lsp4j.jsonrpc.Launcher;
+import org.eclipse.lsp4j.jsonrpc.MessageConsumer;
+import org.eclipse.lsp4j.jsonrpc.MessageIssueException;
+import org.eclipse.lsp4j.jsonrpc.MessageProducer;
+import org.eclipse.lsp4j.jsonrpc.json.ConcurrentMessageProcessor;
+import org.eclipse.lsp4j.jsonrpc.json.MessageJsonHandler;
+import org.eclipse.lsp4j.jsonrpc.messages.Message;
+import org.jboss.tools.rsp.api.SocketLauncher;
+import org.jboss.tools.rsp.server.spi.client.MessageContextStore;
+import org.jboss.tools.rsp.server.spi.client.MessageContextStore.MessageContext;
+import org.jboss.tools.rsp.server.transport.NioConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonParseException;
+
+/**
+ * A launcher for a client connected to the {@link org.jboss.tools.rsp.server.transport.NioTransport}.
+ *
+ * lsp4j writes to the connection as usual, but rather than having lsp4j
+ * read from a stream on a thread of its own, the messages read by the
+ * transport are handed to the remote endpoint.
+ */
+class RSPNioLauncher<T> extends SocketLauncher<T> {
+	private static final Logger LOG = LoggerFactory.getLogger(RSPNioLauncher.class);
+
+	private final NioConnection connection;
+	private final RSPMessageTracer tracer;
+
+	public static <T> RSPNioLauncher<T> create(Object localService, Class<T> remoteInterface,
+			NioConnection connection, MessageContextStore<T> contextStore, RSPMessageTracer tracer) {
+		NioBuilder<T> builder = new NioBuilder<>();
+		builder.setLocalService(localService)
+				.setRemoteInterface(remoteInterface)
+				.setInput(new ByteArrayInputStream(new byte[0]))
+				.setOutput(connection.getOutputStream());
+		if( tracer != null ) {
+			builder.wrapMessages(tracer::wrap);
+		}
+		Launcher<T> launcher = builder.create();
+		connection.setMessageHandler(json -> builder.handle(json, contextStore));
+		return new RSPNioLauncher<>(launcher, connection, tracer);
+	}
+
+	private RSPNioLauncher(Launcher<T> launcher, NioConnection connection, RSPMessageTracer tracer) {
+		super(launcher, null);
+		this.connection = connection;
+		this.tracer = tracer;
+	}
+
+	public RSPMessageTracer getTracer() {
+		return tracer;
+	}
+
+	@Override
+	public CompletableFuture<Void> startListening() {
+		return connection.startReading();
+	}
+
+	@Override
+	public void close() {
+		connection.close();
+	}
+
+	private static class NioBuilder<T> extends Builder<T> {
+		private MessageJsonHandler jsonHandler;
+		private MessageConsumer incoming;
+		private T remoteProxy;
+
+		@Override
+		protected MessageJsonHandler createJsonHandler() {
+			this.jsonHandler = super.createJsonHandler();
+			return jsonHandler;
+		}
+
+		@Override
+		protected ConcurrentMessageProcessor createMessageProcessor(MessageProducer reader,
+				MessageConsumer messageConsumer, T remoteProxy) {
+			// the processor is never started, the transport reads the messages
+			this.incoming = messageConsumer;
+			this.remoteProxy = remoteProxy;
+			return super.createMessageProcessor(reader, messageConsumer, remoteProxy);
+		}
+
+		private void handle(String json, MessageContextStore<T> store) {
+			Message message;
+			try {
+				message = jsonHandler.parseMessage(json);
+			} catch(JsonParseException | MessageIssueException e) {
+				LOG.error("Ignoring invalid message " + json, e);
+				return;
+			}
+			if( store != null ) {
+				store.setContext(new MessageContext<T>(remoteProxy));
+			}
+			try {
+				incoming.consume(message);
+			} catch(MessageIssueException mie) {
+				LOG.error("Ignoring invalid message " + json, mie);
+			} finally {
+				if( store != null ) {
+					store.clear();
+				}
+			}
+		}
+	}
+}
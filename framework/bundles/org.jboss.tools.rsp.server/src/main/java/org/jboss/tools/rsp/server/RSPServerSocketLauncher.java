@@ -9,7 +9,6 @@
 package org.jboss.tools.rsp.server;
 
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.Socket;
 
 import org.eclipse.lsp4j.jsonrpc.MessageConsumer;
@@ -20,20 +19,32 @@ import org.jboss.tools.rsp.server.spi.client.MessageContextStore;
 import org.jboss.tools.rsp.server.spi.client.MessageContextStore.MessageContext;
 
 class RSPServerSocketLauncher<T> extends SocketLauncher<T> {
+	private final RSPMessageTracer tracer;
+
 	public RSPServerSocketLauncher(Object localService, 
 			Class<T> remoteInterface, Socket socket,
 			MessageContextStore<T> contextStore,
-			PrintWriter tracing) throws IOException {
-		super(localService, remoteInterface, socket, createBuilder(contextStore), tracing);
+			RSPMessageTracer tracer) throws IOException {
+		// messages are traced by the tracer, lsp4j's tracing would serialize every one of them
+		super(localService, remoteInterface, socket, createBuilder(contextStore, tracer), null);
+		this.tracer = tracer;
+	}
+
+	public RSPMessageTracer getTracer() {
+		return tracer;
 	}
 
-	static <T> Builder<T> createBuilder(MessageContextStore<T> store) {
-		return new Builder<T>() {
+	static <T> Builder<T> createBuilder(MessageContextStore<T> store, RSPMessageTracer tracer) {
+		Builder<T> builder = new Builder<T>() {
 			protected ConcurrentMessageProcessor createMessageProcessor(MessageProducer reader, 
 					MessageConsumer messageConsumer, T remoteProxy) {
 				return new CustomConcurrentMessageProcessor<T>(reader, messageConsumer, remoteProxy, store);
 			}
 		};
+		if( tracer != null ) {
+			builder.wrapMessages(tracer::wrap);
+		}
+		return builder;
 	}
 
 	/*
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.jboss.tools.rsp.api.RSPClient;
+import org.jboss.tools.rsp.server.spi.client.ClientThreadLocal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the requests of the clients on bounded pools of threads.
+ *
+ * Requests that only read the model are quick and run in the fast lane.
+ * Requests that may block for a while, ie. on the file system, the network
+ * or a server, run in the slow lane so that they cannot hold up quick ones.
+ * The client that made a request is available through {@link ClientThreadLocal}
+ * while it runs.
+ */
+public class RequestExecutor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RequestExecutor.class);
+
+	public enum Lane {
+		FAST, SLOW
+	}
+
+	private final ThreadPoolExecutor fast;
+	private final ThreadPoolExecutor slow;
+	private final Map<String, MethodStats> stats = new ConcurrentHashMap<>();
+
+	public RequestExecutor() {
+		this(RSPFlags.getRequestThreadsFast(), RSPFlags.getRequestThreadsSlow(),
+				RSPFlags.getRequestQueueCapacity());
+	}
+
+	public RequestExecutor(int fastThreads, int slowThreads, int queueCapacity) {
+		this.fast = createPool("RSP Request", Math.max(1, fastThreads), queueCapacity);
+		this.slow = createPool("RSP Blocking Request", Math.max(1, slowThreads), queueCapacity);
+	}
+
+	private static ThreadPoolExecutor createPool(String name, int threads, int queueCapacity) {
+		AtomicInteger count = new AtomicInteger();
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+				30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(Math.max(1, queueCapacity)),
+				(Runnable r) -> {
+					Thread t = new Thread(r, name + " " + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	/**
+	 * Runs the given request in the given lane,
+	 * on behalf of the client that is active on the calling thread.
+	 *
+	 * The returned future completes exceptionally if the request throws
+	 * or there are too many requests waiting already.
+	 */
+	public <T> CompletableFuture<T> submit(String method, Lane lane, Supplier<T> supplier) {
+		final RSPClient rspc = ClientThreadLocal.getActiveClient();
+		final long queued = System.nanoTime();
+		final MethodStats methodStats = getStats(method);
+		CompletableFuture<T> completableFuture = new CompletableFuture<>();
+		try {
+			getPool(lane).execute(() -> {
+				long started = System.nanoTime();
+				ClientThreadLocal.setActiveClient(rspc);
+				boolean failed = true;
+				try {
+					completableFuture.complete(supplier.get());
+					failed = false;
+				} catch(RuntimeException | Error e) {
+					LOG.error("Request " + method + " failed", e);
+					completableFuture.completeExceptionally(e);
+				} finally {
+					ClientThreadLocal.clear();
+					methodStats.record(started - queued, System.nanoTime() - started, failed);
+				}
+			});
+		} catch(RejectedExecutionException ree) {
+			methodStats.rejected();
+			LOG.warn("Too many requests waiting, rejecting {}", method);
+			completableFuture.completeExceptionally(ree);
+		}
+		return completableFuture;
+	}
+
+	private ThreadPoolExecutor getPool(Lane lane) {
+		return lane == Lane.SLOW ? slow : fast;
+	}
+
+	private MethodStats getStats(String method) {
+		return stats.computeIfAbsent(method, m -> new MethodStats());
+	}
+
+	/**
+	 * Returns the number of requests waiting to run in the given lane.
+	 */
+	public int getQueueDepth(Lane lane) {
+		return getPool(lane).getQueue().size();
+	}
+
+	/**
+	 * Returns the number of requests running in the given lane.
+	 */
+	public int getActiveCount(Lane lane) {
+		return getPool(lane).getActiveCount();
+	}
+
+	/**
+	 * Returns the statistics of every method that was requested so far, by method name.
+	 */
+	public Map<String, MethodStats> getStats() {
+		return new TreeMap<>(stats);
+	}
+
+	public void shutdown() {
+		if( LOG.isDebugEnabled()) {
+			for( Map.Entry<String, MethodStats> e : getStats().entrySet()) {
+				LOG.debug("{}: {}", e.getKey(), e.getValue());
+			}
+		}
+		fast.shutdownNow();
+		slow.shutdownNow();
+	}
+
+	/**
+	 * How often a method was requested and how long it took.
+	 */
+	public static class MethodStats {
+		private long count;
+		private long failed;
+		private long rejected;
+		private long totalWait;
+		private long totalRun;
+		private long maxRun;
+
+		private synchronized void record(long waitNanos, long runNanos, boolean failure) {
+			count++;
+			if( failure ) {
+				failed++;
+			}
+			totalWait += waitNanos;
+			totalRun += runNanos;
+			maxRun = Math.max(maxRun, runNanos);
+		}
+
+		private synchronized void rejected() {
+			rejected++;
+		}
+
+		public synchronized long getCount() {
+			return count;
+		}
+
+		public synchronized long getFailedCount() {
+			return failed;
+		}
+
+		public synchronized long getRejectedCount() {
+			return rejected;
+		}
+
+		/**
+		 * Returns the average milliseconds a request waited before it ran.
+		 */
+		public synchronized double getAverageWaitMillis() {
+			return count == 0 ? 0 : totalWait / 1e6 / count;
+		}
+
+		public synchronized double getAverageRunMillis() {
+			return count == 0 ? 0 : totalRun / 1e6 / count;
+		}
+
+		public synchronized double getMaxRunMillis() {
+			return maxRun / 1e6;
+		}
+
+		@Override
+		public synchronized String toString() {
+			return String.format("%d requests, %d failed, %d rejected, waited %.1fms, ran %.1fms on average and %.1fms at most",
+					count, failed, rejected, getAverageWaitMillis(), getAverageRunMillis(), getMaxRunMillis());
+		}
+	}
+}
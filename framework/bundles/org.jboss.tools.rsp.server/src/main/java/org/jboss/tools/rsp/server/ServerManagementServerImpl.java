@@ -12,6 +12,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -19,6 +20,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import org.jboss.tools.rsp.api.ICapabilityKeys;
 import org.jboss.tools.rsp.api.RSPClient;
 import org.jboss.tools.rsp.api.RSPServer;
 import org.jboss.tools.rsp.api.ServerManagementAPIConstants;
@@ -30,6 +32,7 @@ import org.jboss.tools.rsp.api.dao.CreateServerResponse;
 import org.jboss.tools.rsp.api.dao.DiscoveryPath;
 import org.jboss.tools.rsp.api.dao.DownloadRuntimeDescription;
 import org.jboss.tools.rsp.api.dao.DownloadSingleRuntimeRequest;
+import org.jboss.tools.rsp.api.dao.FindServerBeansRequest;
 import org.jboss.tools.rsp.api.dao.GetServerJsonResponse;
 import org.jboss.tools.rsp.api.dao.JobHandle;
 import org.jboss.tools.rsp.api.dao.JobProgress;
@@ -68,8 +71,12 @@ import org.jboss.tools.rsp.runtime.core.model.IDownloadRuntimeRunner;
 import org.jboss.tools.rsp.runtime.core.model.IDownloadRuntimesProvider;
 import org.jboss.tools.rsp.server.core.internal.ServerStringConstants;
 import org.jboss.tools.rsp.server.discovery.serverbeans.ServerBeanLoader;
+import org.jboss.tools.rsp.server.discovery.serverbeans.ServerBeanTreeScanner;
+import org.jboss.tools.rsp.server.RequestExecutor.Lane;
+import org.jboss.tools.rsp.server.model.ProcessOutputAggregator;
 import org.jboss.tools.rsp.server.model.RemoteEventManager;
 import org.jboss.tools.rsp.server.spi.client.ClientThreadLocal;
+import org.jboss.tools.rsp.server.spi.discovery.IDiscoveryIndex;
 import org.jboss.tools.rsp.server.spi.jobs.IJob;
 import org.jboss.tools.rsp.server.spi.model.IServerManagementModel;
 import org.jboss.tools.rsp.server.spi.servertype.IServer;
@@ -85,6 +92,7 @@ public class ServerManagementServerImpl implements RSPServer {
 	
 	private final IServerManagementModel managementModel;
 	private final RemoteEventManager remoteEventManager;
+	private final RequestExecutor requestExecutor = new RequestExecutor();
 	private ServerManagementServerLauncher launcher;
 	
 	public ServerManagementServerImpl(ServerManagementServerLauncher launcher, 
@@ -119,6 +127,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	public void clientAdded(SocketLauncher<RSPClient> launcher) {
 		this.managementModel.clientAdded(launcher.getRemoteProxy());
+		this.remoteEventManager.clientAdded(launcher.getRemoteProxy());
 		this.remoteEventManager.initClientWithServerStates(launcher.getRemoteProxy());
 	}
 	
@@ -126,12 +135,19 @@ public class ServerManagementServerImpl implements RSPServer {
 		this.launchers.remove(launcher);
 		this.managementModel.clientRemoved(launcher.getRemoteProxy());
 		this.clients.remove(launcher.getRemoteProxy());
+		if( this.remoteEventManager != null ) {
+			this.remoteEventManager.clientRemoved(launcher.getRemoteProxy());
+		}
 	}
 	
 	public List<SocketLauncher<RSPClient>> getActiveLaunchers() {
 		return new ArrayList<>(launchers);
 	}
 	
+	public RequestExecutor getRequestExecutor() {
+		return requestExecutor;
+	}
+
 	public IServerManagementModel getModel() {
 		return managementModel;
 	}
@@ -149,7 +165,7 @@ public class ServerManagementServerImpl implements RSPServer {
 	 */
 	@Override
 	public CompletableFuture<Status> addDiscoveryPath(DiscoveryPath path) {
-		return createCompletableFuture(() -> addDiscoveryPathSync(path));
+		return createCompletableFuture("addDiscoveryPath", Lane.SLOW, () -> addDiscoveryPathSync(path));
 	}
 	
 	private Status addDiscoveryPathSync(DiscoveryPath path) {
@@ -166,7 +182,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<Status> removeDiscoveryPath(DiscoveryPath path) {
-		return createCompletableFuture(() -> removeDiscoveryPathSync(path));
+		return createCompletableFuture("removeDiscoveryPath", Lane.SLOW, () -> removeDiscoveryPathSync(path));
 	}
 	
 	public Status removeDiscoveryPathSync(DiscoveryPath path) {
@@ -187,7 +203,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<List<ServerBean>> findServerBeans(DiscoveryPath path) {
-		return createCompletableFuture(() -> findServerBeansSync(path));
+		return createCompletableFuture("findServerBeans", Lane.SLOW, () -> findServerBeansSync(path));
 	}
 
 	private List<ServerBean> findServerBeansSync(DiscoveryPath path) {
@@ -202,13 +218,53 @@ public class ServerManagementServerImpl implements RSPServer {
 			return ret;
 		}
 
-		ServerBeanLoader loader = new ServerBeanLoader(new File(path.getFilepath()), managementModel);
-		ServerBean bean = loader.getServerBean();
+		File root = new File(path.getFilepath());
+		IDiscoveryIndex index = managementModel.getDiscoveryIndex();
+		ServerBean bean = index == null ? 
+				new ServerBeanLoader(root, managementModel).getServerBean() : index.getServerBean(root);
 		if( bean != null )
 			ret.add(bean);
 		return ret;	
 	}
 
+	@Override
+	public CompletableFuture<JobHandle> findServerBeansRecursive(FindServerBeansRequest request) {
+		return createCompletableFuture("findServerBeansRecursive", Lane.FAST, () -> findServerBeansRecursiveSync(request));
+	}
+
+	private JobHandle findServerBeansRecursiveSync(FindServerBeansRequest request) {
+		if( request == null || isEmpty(request.getFilepath())) {
+			return null;
+		}
+		IPath ipath = new Path(request.getFilepath());
+		if( !ipath.isAbsolute()) {
+			return null;
+		}
+		
+		RSPClient client = ClientThreadLocal.getActiveClient();
+		int depth = request.getDepth() > 0 ? request.getDepth() : RSPFlags.getDiscoverySearchDepth();
+		// the beans found are only sent once the handle of the job is known
+		CompletableFuture<JobHandle> handle = new CompletableFuture<>();
+		ServerBeanTreeScanner scanner = new ServerBeanTreeScanner(
+				new File(request.getFilepath()), depth, request.getExcludes(), 
+				RSPFlags.getDiscoverySearchThreads(), managementModel,
+				bean -> handle.thenAccept(jh -> serverBeanFound(client, jh, bean)));
+		IJob job = managementModel.getJobManager().scheduleJob(
+				"Searching " + request.getFilepath() + " for servers", scanner);
+		if( job == null ) {
+			return null;
+		}
+		JobHandle jh = new JobHandle(job.getName(), job.getId());
+		handle.complete(jh);
+		return jh;
+	}
+
+	private void serverBeanFound(RSPClient client, JobHandle job, ServerBean bean) {
+		if( remoteEventManager != null ) {
+			remoteEventManager.serverBeanFound(client, job, bean);
+		}
+	}
+
 	@Override
 	public void shutdown() {
 		final RSPClient rspc = ClientThreadLocal.getActiveClient();
@@ -216,8 +272,11 @@ public class ServerManagementServerImpl implements RSPServer {
 			@Override
 			public void run() {
 				ClientThreadLocal.setActiveClient(rspc);
-				shutdownSync();
-				ClientThreadLocal.setActiveClient(null);
+				try {
+					shutdownSync();
+				} finally {
+					ClientThreadLocal.clear();
+				}
 			}
 		}.start();
 	}
@@ -233,8 +292,11 @@ public class ServerManagementServerImpl implements RSPServer {
 					Thread.sleep(200);
 				} catch(InterruptedException ie) {
 				}
-				launcher.closeConnection(rspc);
-				ClientThreadLocal.setActiveClient(null);
+				try {
+					launcher.closeConnection(rspc);
+				} finally {
+					ClientThreadLocal.clear();
+				}
 			}
 		}.start();
 	}
@@ -242,11 +304,12 @@ public class ServerManagementServerImpl implements RSPServer {
 	private void shutdownSync() {
 		managementModel.dispose();
 		launcher.shutdown();
+		requestExecutor.shutdown();
 	}
 	
 	@Override
 	public CompletableFuture<List<ServerHandle>> getServerHandles() {
-		return createCompletableFuture(() -> getServerHandlesSync());
+		return createCompletableFuture("getServerHandles", Lane.FAST, () -> getServerHandlesSync());
 	}
 	
 	private List<ServerHandle> getServerHandlesSync() {
@@ -256,7 +319,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<Status> deleteServer(ServerHandle handle) {
-		return createCompletableFuture(() -> deleteServerSync(handle));
+		return createCompletableFuture("deleteServer", Lane.SLOW, () -> deleteServerSync(handle));
 	}
 	
 	private Status deleteServerSync(ServerHandle handle) {
@@ -279,7 +342,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<Attributes> getRequiredAttributes(ServerType type) {
-		return createCompletableFuture(() -> getRequiredAttributesSync(type));
+		return createCompletableFuture("getRequiredAttributes", Lane.FAST, () -> getRequiredAttributesSync(type));
 	}
 	
 	private Attributes getRequiredAttributesSync(ServerType type) {
@@ -293,7 +356,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<Attributes> getOptionalAttributes(ServerType type) {
-		return createCompletableFuture(() -> getOptionalAttributesSync(type));
+		return createCompletableFuture("getOptionalAttributes", Lane.FAST, () -> getOptionalAttributesSync(type));
 	}
 
 	private Attributes getOptionalAttributesSync(ServerType type) {
@@ -306,7 +369,7 @@ public class ServerManagementServerImpl implements RSPServer {
 	
 	@Override
 	public CompletableFuture<List<ServerLaunchMode>> getLaunchModes(ServerType type) {
-		return createCompletableFuture(() -> getLaunchModesSync(type));
+		return createCompletableFuture("getLaunchModes", Lane.FAST, () -> getLaunchModesSync(type));
 	}
 
 	private List<ServerLaunchMode> getLaunchModesSync(ServerType type) {
@@ -321,7 +384,7 @@ public class ServerManagementServerImpl implements RSPServer {
 	
 	@Override
 	public CompletableFuture<Attributes> getRequiredLaunchAttributes(LaunchAttributesRequest req) {
-		return createCompletableFuture(() -> getRequiredLaunchAttributesSync(req));
+		return createCompletableFuture("getRequiredLaunchAttributes", Lane.FAST, () -> getRequiredLaunchAttributesSync(req));
 	}
 	private Attributes getRequiredLaunchAttributesSync(LaunchAttributesRequest req) {
 		if( req == null || isEmpty(req.getServerTypeId()) || isEmpty(req.getMode())) {
@@ -334,7 +397,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<Attributes> getOptionalLaunchAttributes(LaunchAttributesRequest req) {
-		return createCompletableFuture(() -> getOptionalLaunchAttributesSync(req));
+		return createCompletableFuture("getOptionalLaunchAttributes", Lane.FAST, () -> getOptionalLaunchAttributesSync(req));
 	}
 
 	private Attributes getOptionalLaunchAttributesSync(LaunchAttributesRequest req) {
@@ -348,7 +411,7 @@ public class ServerManagementServerImpl implements RSPServer {
 	
 	@Override
 	public CompletableFuture<CreateServerResponse> createServer(ServerAttributes attr) {
-		return createCompletableFuture(() -> createServerSync(attr));
+		return createCompletableFuture("createServer", Lane.SLOW, () -> createServerSync(attr));
 	}
 
 	private CreateServerResponse createServerSync(ServerAttributes attr) {
@@ -367,7 +430,7 @@ public class ServerManagementServerImpl implements RSPServer {
 	
 	@Override
 	public CompletableFuture<GetServerJsonResponse> getServerAsJson(ServerHandle sh) {
-		return createCompletableFuture(() -> getServerAsJsonSync(sh));
+		return createCompletableFuture("getServerAsJson", Lane.SLOW, () -> getServerAsJsonSync(sh));
 	}
 
 	private GetServerJsonResponse getServerAsJsonSync(ServerHandle sh) {
@@ -393,7 +456,7 @@ public class ServerManagementServerImpl implements RSPServer {
 	
 	@Override
 	public CompletableFuture<UpdateServerResponse> updateServer(UpdateServerRequest req) {
-		return createCompletableFuture(() -> updateServerSync(req));
+		return createCompletableFuture("updateServer", Lane.SLOW, () -> updateServerSync(req));
 	}
 
 	private UpdateServerResponse updateServerSync(UpdateServerRequest req) {
@@ -407,7 +470,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<List<ServerType>> getServerTypes() {
-		return createCompletableFuture(() -> getServerTypesSync());
+		return createCompletableFuture("getServerTypes", Lane.FAST, () -> getServerTypesSync());
 	}
 
 	private List<ServerType> getServerTypesSync() {
@@ -418,7 +481,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<StartServerResponse> startServerAsync(LaunchParameters attr) {
-		return createCompletableFuture(() -> startServerImpl(attr));
+		return createCompletableFuture("startServerAsync", Lane.SLOW, () -> startServerImpl(attr));
 	}
 
 	private StartServerResponse startServerImpl(LaunchParameters attr) {
@@ -444,7 +507,7 @@ public class ServerManagementServerImpl implements RSPServer {
 	
 	@Override
 	public CompletableFuture<Status> stopServerAsync(StopServerAttributes attr) {
-		return createCompletableFuture(() -> stopServerImpl(attr));
+		return createCompletableFuture("stopServerAsync", Lane.SLOW, () -> stopServerImpl(attr));
 	}
 
 	private Status stopServerImpl(StopServerAttributes attr) {
@@ -477,7 +540,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<CommandLineDetails> getLaunchCommand(LaunchParameters req) {
-		return createCompletableFuture(() -> getLaunchCommandSync(req));
+		return createCompletableFuture("getLaunchCommand", Lane.SLOW, () -> getLaunchCommandSync(req));
 	}
 
 	private CommandLineDetails getLaunchCommandSync(LaunchParameters req) {
@@ -501,7 +564,7 @@ public class ServerManagementServerImpl implements RSPServer {
 	
 	@Override
 	public CompletableFuture<ServerState> getServerState(ServerHandle handle) {
-		return createCompletableFuture(() -> getServerStateSync(handle));
+		return createCompletableFuture("getServerState", Lane.FAST, () -> getServerStateSync(handle));
 	}
 
 	public ServerState getServerStateSync(ServerHandle handle) {
@@ -511,7 +574,7 @@ public class ServerManagementServerImpl implements RSPServer {
 	
 	@Override
 	public CompletableFuture<Status> serverStartingByClient(ServerStartingAttributes attr) {
-		return createCompletableFuture(() -> serverStartingByClientSync(attr));
+		return createCompletableFuture("serverStartingByClient", Lane.SLOW, () -> serverStartingByClientSync(attr));
 	}
 
 	private Status serverStartingByClientSync(ServerStartingAttributes attr) {
@@ -538,7 +601,7 @@ public class ServerManagementServerImpl implements RSPServer {
 	
 	@Override
 	public CompletableFuture<Status> serverStartedByClient(LaunchParameters attr) {
-		return createCompletableFuture(() -> serverStartedByClientSync(attr));
+		return createCompletableFuture("serverStartedByClient", Lane.SLOW, () -> serverStartedByClientSync(attr));
 	}
 
 	private Status serverStartedByClientSync(LaunchParameters attr) {
@@ -569,7 +632,15 @@ public class ServerManagementServerImpl implements RSPServer {
 		RSPClient rspc = ClientThreadLocal.getActiveClient();
 		IStatus s = managementModel.getCapabilityManagement().registerClientCapabilities(rspc, request);
 		Status st = StatusConverter.convert(s);
-		Map<String,String> resp2 = managementModel.getCapabilityManagement().getServerCapabilities();
+		Map<String,String> resp2 = new HashMap<>(managementModel.getCapabilityManagement().getServerCapabilities());
+		if( remoteEventManager != null ) {
+			// tell the client which output settings it actually got
+			ProcessOutputAggregator aggregator = remoteEventManager.clientCapabilitiesChanged(rspc);
+			if( aggregator != null ) {
+				resp2.put(ICapabilityKeys.STRING_PROCESS_OUTPUT_FLUSH_WINDOW, Integer.toString(aggregator.getFlushWindow()));
+				resp2.put(ICapabilityKeys.STRING_PROCESS_OUTPUT_MAX_RATE, Integer.toString(aggregator.getMaxRate()));
+			}
+		}
 		ServerCapabilitiesResponse resp = new ServerCapabilitiesResponse(st, resp2);
 		return CompletableFuture.completedFuture(resp);
 	}
@@ -600,7 +671,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<ListDeployablesResponse> getDeployables(ServerHandle handle) {
-		return createCompletableFuture(() -> getDeployablesSync(handle));
+		return createCompletableFuture("getDeployables", Lane.FAST, () -> getDeployablesSync(handle));
 	}
 
 	// This API has no way to return an error. Should be changed
@@ -624,7 +695,7 @@ public class ServerManagementServerImpl implements RSPServer {
 	}
 	
 	public CompletableFuture<ListDeploymentOptionsResponse> listDeploymentOptions(ServerHandle handle) {
-		return createCompletableFuture(() -> listDeploymentOptionsSync(handle));
+		return createCompletableFuture("listDeploymentOptions", Lane.FAST, () -> listDeploymentOptionsSync(handle));
 	}
 	
 	// This API has no way to return an error. Should be changed
@@ -648,7 +719,7 @@ public class ServerManagementServerImpl implements RSPServer {
 	}
 	
 	public CompletableFuture<Status> addDeployable(ServerDeployableReference request) {
-		return createCompletableFuture(() -> addDeployableSync(request));
+		return createCompletableFuture("addDeployable", Lane.SLOW, () -> addDeployableSync(request));
 	}
 
 	public Status addDeployableSync(ServerDeployableReference req) {
@@ -665,7 +736,7 @@ public class ServerManagementServerImpl implements RSPServer {
 	}
 	
 	public CompletableFuture<Status> removeDeployable(ServerDeployableReference request) {
-		return createCompletableFuture(() -> removeDeployableSync(request));
+		return createCompletableFuture("removeDeployable", Lane.SLOW, () -> removeDeployableSync(request));
 	}
 
 	public Status removeDeployableSync(ServerDeployableReference reference) {
@@ -684,7 +755,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<Status> publish(PublishServerRequest request) {
-		return createCompletableFuture(() -> publishSync(request));
+		return createCompletableFuture("publish", Lane.SLOW, () -> publishSync(request));
 	}
 
 	private Status checkPublishRequestError(PublishServerRequest request) {
@@ -713,7 +784,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<Status> publishAsync(PublishServerRequest request) {
-		return createCompletableFuture(() -> publishAsyncInternal(request));
+		return createCompletableFuture("publishAsync", Lane.SLOW, () -> publishAsyncInternal(request));
 	}
 
 	private Status publishAsyncInternal(PublishServerRequest request) {
@@ -731,7 +802,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<ListDownloadRuntimeResponse> listDownloadableRuntimes() {
-		return createCompletableFuture(() -> listDownloadableRuntimesInternal());
+		return createCompletableFuture("listDownloadableRuntimes", Lane.SLOW, () -> listDownloadableRuntimesInternal());
 	}
 
 	private ListDownloadRuntimeResponse listDownloadableRuntimesInternal() {
@@ -749,7 +820,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<WorkflowResponse> downloadRuntime(DownloadSingleRuntimeRequest req) {
-		return createCompletableFuture(() -> downloadRuntimeInternal(req));
+		return createCompletableFuture("downloadRuntime", Lane.SLOW, () -> downloadRuntimeInternal(req));
 	}
 
 	private WorkflowResponse downloadRuntimeInternal(DownloadSingleRuntimeRequest req) {
@@ -777,7 +848,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<List<JobProgress>> getJobs() {
-		return createCompletableFuture(() -> getJobsSync());
+		return createCompletableFuture("getJobs", Lane.FAST, () -> getJobsSync());
 	}
 	
 	protected List<JobProgress> getJobsSync() {
@@ -793,7 +864,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<Status> cancelJob(JobHandle job) {
-		return createCompletableFuture(() -> cancelJobSync(job));
+		return createCompletableFuture("cancelJob", Lane.FAST, () -> cancelJobSync(job));
 	}
 	
 	protected Status cancelJobSync(JobHandle job) {
@@ -813,7 +884,7 @@ public class ServerManagementServerImpl implements RSPServer {
 	 */
 	@Override
 	public CompletableFuture<ListServerActionResponse> listServerActions(ServerHandle handle) {
-		return createCompletableFuture(() -> listServerActionsSync(handle));
+		return createCompletableFuture("listServerActions", Lane.FAST, () -> listServerActionsSync(handle));
 	}
 	private ListServerActionResponse listServerActionsSync(ServerHandle handle) {
 		ListServerActionResponse resp = new ListServerActionResponse();
@@ -834,7 +905,7 @@ public class ServerManagementServerImpl implements RSPServer {
 
 	@Override
 	public CompletableFuture<WorkflowResponse> executeServerAction(ServerActionRequest req) {
-		return createCompletableFuture(() -> executeServerActionSync(req));
+		return createCompletableFuture("executeServerAction", Lane.SLOW, () -> executeServerActionSync(req));
 	}
 	
 	private WorkflowResponse executeServerActionSync(ServerActionRequest req) {
@@ -907,15 +978,8 @@ public class ServerManagementServerImpl implements RSPServer {
 		return StatusConverter.convert(is);
 	}
 
-	private static <T> CompletableFuture<T> createCompletableFuture(Supplier<T> supplier) {
-		final RSPClient rspc = ClientThreadLocal.getActiveClient();
-		CompletableFuture<T> completableFuture = new CompletableFuture<>();
-		CompletableFuture.runAsync(() -> {
-			ClientThreadLocal.setActiveClient(rspc);
-			completableFuture.complete(supplier.get());
-			ClientThreadLocal.setActiveClient(null);
-		});
-		return completableFuture;
+	private <T> CompletableFuture<T> createCompletableFuture(String method, Lane lane, Supplier<T> supplier) {
+		return requestExecutor.submit(method, lane, supplier);
 	}
 
 }
@@ -8,9 +8,9 @@
  ******************************************************************************/
 package org.jboss.tools.rsp.server;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.List;
@@ -19,11 +19,14 @@ import java.util.concurrent.Executors;
 
 import org.jboss.tools.rsp.api.RSPClient;
 import org.jboss.tools.rsp.api.SocketLauncher;
+import org.jboss.tools.rsp.eclipse.jdt.launching.VMInstallScanner;
 import org.jboss.tools.rsp.server.model.ServerManagementModel;
 import org.jboss.tools.rsp.server.model.ServerPersistenceManager;
 import org.jboss.tools.rsp.server.persistence.DataLocationCore;
 import org.jboss.tools.rsp.server.spi.client.ClientThreadLocal;
 import org.jboss.tools.rsp.server.spi.model.IServerManagementModel;
+import org.jboss.tools.rsp.server.transport.NioConnection;
+import org.jboss.tools.rsp.server.transport.NioTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,6 +60,8 @@ public class ServerManagementServerLauncher {
 	protected ServerManagementServerImpl serverImpl;
 	private ListenOnSocketRunnable socketRunnable;
 	private ServerSocket serverSocket;
+	private NioTransport nioTransport;
+	private MessageCaptureFile messageCaptureFile;
 	protected String portString;
 	public ServerManagementServerLauncher(String portString) {
 		this.portString = portString;
@@ -91,11 +96,19 @@ public class ServerManagementServerLauncher {
 
 	public void launch(int port) throws Exception {
 		persistenceEventManager.loadState();
+		if( RSPFlags.isVMAutodetect()) {
+			getModel().getJobManager().scheduleJob("Detecting java installations", 
+					new VMInstallScanner(getModel().getVMInstallModel()));
+		}
 		// create the chat server
 		startListening(port, serverImpl);
 	}
 	
 	protected void startListening(int port, ServerManagementServerImpl server) throws IOException {
+		if( RSPFlags.TRANSPORT_NIO.equals(RSPFlags.getServerTransport())) {
+			startNioTransport(port, server);
+			return;
+		}
 		ExecutorService threadPool = Executors.newCachedThreadPool();
 		serverSocket = new ServerSocket(port);
 		// create the socket server
@@ -109,6 +122,31 @@ public class ServerManagementServerLauncher {
 		}
 	}
 	
+	private void startNioTransport(int port, ServerManagementServerImpl server) throws IOException {
+		nioTransport = new NioTransport();
+		try {
+			nioTransport.bind(new InetSocketAddress(port), connection -> oneConnection(connection, server));
+		} catch(IOException ioe) {
+			nioTransport.stop();
+			LOG.error(ioe.getMessage(), ioe);
+			throw ioe;
+		}
+		nioTransport.start();
+		System.out.println("The server management server is running on port " + port);
+	}
+
+	private void oneConnection(NioConnection connection, ServerManagementServerImpl server) {
+		String client = String.valueOf(connection.getRemoteAddress());
+		RSPNioLauncher<RSPClient> launcher = RSPNioLauncher.create(server, RSPClient.class, connection, 
+				ClientThreadLocal.getStore(), 
+				new RSPMessageTracer(client, RSPFlags.getTraceMessages(), getMessageCaptureFile()));
+		// same order as for sockets, see oneSocket
+		Runnable removeClient = server.addClient(launcher);
+		launcher.startListening().thenRun(removeClient);
+		server.clientAdded(launcher);
+		LOG.info("Client " + client + " is connected");
+	}
+
 	private class ListenOnSocketRunnable implements Runnable {
 		private ServerSocket serverSocket;
 		private ServerManagementServerImpl server;
@@ -143,7 +181,7 @@ public class ServerManagementServerLauncher {
 			Socket socket = serverSocket.accept();
 			// create a JSON-RPC connection for the accepted socket
 			RSPServerSocketLauncher<RSPClient> launcher = createSocketLauncher(server,
-					RSPClient.class, socket, createLoggingPrintWriter());
+					RSPClient.class, socket, createMessageTracer(socket));
 
 			// Alert the models a new client has been added before they start making requests
 			Runnable removeClient = server.addClient(launcher);
@@ -170,43 +208,43 @@ public class ServerManagementServerLauncher {
 	protected RSPServerSocketLauncher<RSPClient> createSocketLauncher(
 			ServerManagementServerImpl server, Class<RSPClient> class1, 
 			Socket socket,
-			LoggingPrintWriter loggingPrintWriter) throws IOException {
+			RSPMessageTracer tracer) throws IOException {
 		 return new RSPServerSocketLauncher<RSPClient>(server,
 					RSPClient.class, socket, ClientThreadLocal.getStore(), 
-					createLoggingPrintWriter());
+					tracer);
 	}
-	
 
-	private LoggingPrintWriter createLoggingPrintWriter() {
-		LoggingStringWriter sw = new LoggingStringWriter();
-		LoggingPrintWriter writer = new LoggingPrintWriter(sw);
-		return writer;
+	protected RSPMessageTracer createMessageTracer(Socket socket) {
+		String client = socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
+		return new RSPMessageTracer(client, RSPFlags.getTraceMessages(), getMessageCaptureFile());
 	}
 
-	private class LoggingStringWriter extends StringWriter {
-		@Override
-		public void flush() {
-			String val = null;
-			synchronized (this) {
-				val = getBuffer().toString();
-				getBuffer().setLength(0);
+	private synchronized MessageCaptureFile getMessageCaptureFile() {
+		if( messageCaptureFile == null ) {
+			String path = RSPFlags.getTraceCaptureFile();
+			if( path != null && !path.isEmpty()) {
+				messageCaptureFile = new MessageCaptureFile(new File(path), 
+						RSPFlags.getTraceCaptureSize(), RSPFlags.getTraceCaptureBackups());
 			}
-			if (val != null)
-				LOG.debug(val);
 		}
+		return messageCaptureFile;
 	}
-	
-	private static class LoggingPrintWriter extends PrintWriter {
-		public LoggingPrintWriter(LoggingStringWriter writer) {
-			super(writer);
-		}
-		@Override
-		public synchronized void print(String val) {
-			super.print(val);
-		}
-		@Override
-		public synchronized void flush() {
-			super.flush();
+
+	/**
+	 * Switches tracing the messages exchanged with the given client on or off, 
+	 * or back to tracing while debug logging is on if <code>null</code> is given.
+	 */
+	public void setMessageTracing(RSPClient client, Boolean enabled) {
+		for( SocketLauncher<RSPClient> i : serverImpl.getActiveLaunchers()) {
+			RSPMessageTracer tracer = null;
+			if( i instanceof RSPServerSocketLauncher ) {
+				tracer = ((RSPServerSocketLauncher<RSPClient>)i).getTracer();
+			} else if( i instanceof RSPNioLauncher ) {
+				tracer = ((RSPNioLauncher<RSPClient>)i).getTracer();
+			}
+			if( i.getRemoteProxy() == client && tracer != null ) {
+				tracer.setEnabled(enabled);
+			}
 		}
 	}
 	
@@ -215,6 +253,8 @@ public class ServerManagementServerLauncher {
 		if( socketRunnable != null )
 			socketRunnable.stopListening();
 		closeAllConnections();
+		if( nioTransport != null )
+			nioTransport.stop();
 		try {
 			if( serverSocket != null )
 				serverSocket.close();
@@ -226,6 +266,11 @@ public class ServerManagementServerLauncher {
 			
 		}
 		ShutdownExecutor.getExecutor().shutdown();
+		synchronized(this) {
+			if( messageCaptureFile != null ) {
+				messageCaptureFile.close();
+			}
+		}
 	}
 	
 
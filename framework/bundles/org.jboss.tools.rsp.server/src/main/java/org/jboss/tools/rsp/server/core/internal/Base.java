@@ -19,12 +19,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jboss.tools.rsp.eclipse.core.runtime.CoreException;
 import org.jboss.tools.rsp.eclipse.core.runtime.IPath;
@@ -35,6 +37,7 @@ import org.jboss.tools.rsp.eclipse.osgi.util.NLS;
 import org.jboss.tools.rsp.launching.memento.IMemento;
 import org.jboss.tools.rsp.launching.memento.JSONMemento;
 import org.jboss.tools.rsp.server.ServerCoreActivator;
+import org.jboss.tools.rsp.server.persistence.PersistenceJournal;
 
 /**
  * Helper class for storing runtime and server attributes.
@@ -54,6 +57,9 @@ public abstract class Base {
 	protected Map<String, Object> map = new HashMap<>();
 	protected File file;
 	private transient List<PropertyChangeListener> propertyListeners;
+	private final Map<String, ParsedAttribute> parsedAttributes = new ConcurrentHashMap<>();
+	// digest of the content last read from or written to the file
+	private transient byte[] fileDigest;
 	/**
 	 * Create a new object.
 	 * 
@@ -121,27 +127,61 @@ public abstract class Base {
 	}
 
 	public int getAttribute(String attributeName, int defaultValue) {
-		try {
-			Object obj = map.get(attributeName);
-			if (obj == null)
-				return defaultValue;
-			return Integer.parseInt((String) obj);
-		} catch (Exception e) {
-			// ignore
-		}
-		return defaultValue;
+		ParsedAttribute parsed = getParsedAttribute(attributeName);
+		if (parsed == null || !parsed.isInt)
+			return defaultValue;
+		return parsed.intValue;
 	}
 
 	public boolean getAttribute(String attributeName, boolean defaultValue) {
-		try {
-			Object obj = map.get(attributeName);
-			if (obj == null)
-				return defaultValue;
-			return Boolean.parseBoolean((String) obj);
-		} catch (Exception e) {
-			// ignore
+		ParsedAttribute parsed = getParsedAttribute(attributeName);
+		if (parsed == null || !parsed.isBoolean)
+			return defaultValue;
+		return parsed.booleanValue;
+	}
+
+	/*
+	 * Int and boolean attributes are read on every poll and file change, 
+	 * so their values are parsed once rather than on every read. 
+	 * A parsed value is used for as long as the map holds the very string it was parsed from.
+	 */
+	private ParsedAttribute getParsedAttribute(String attributeName) {
+		Map<String, Object> current = map;
+		Object raw = (current == null || attributeName == null ? null : current.get(attributeName));
+		if (raw == null) 
+			return null;
+		ParsedAttribute parsed = parsedAttributes.get(attributeName);
+		if (parsed == null || parsed.raw != raw) {
+			parsed = new ParsedAttribute(raw);
+			parsedAttributes.put(attributeName, parsed);
+		}
+		return parsed;
+	}
+
+	private static class ParsedAttribute {
+		private final Object raw;
+		private final boolean isInt;
+		private final int intValue;
+		private final boolean isBoolean;
+		private final boolean booleanValue;
+
+		private ParsedAttribute(Object raw) {
+			this.raw = raw;
+			this.isBoolean = raw instanceof String;
+			this.booleanValue = isBoolean && Boolean.parseBoolean((String) raw);
+			int parsedInt = 0;
+			boolean parsedIsInt = false;
+			if (raw instanceof String) {
+				try {
+					parsedInt = Integer.parseInt((String) raw);
+					parsedIsInt = true;
+				} catch (NumberFormatException nfe) {
+					// not an int
+				}
+			}
+			this.isInt = parsedIsInt;
+			this.intValue = parsedInt;
 		}
-		return defaultValue;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -306,10 +346,12 @@ public abstract class Base {
 	protected void saveToFile(IProgressMonitor monitor) throws CoreException {
 		try {
 			byte[] bytes = saveToBytes(monitor);
-			if (file.exists()) {
-				Files.delete(file.toPath());
+			byte[] digest = PersistenceJournal.digest(bytes);
+			if (file.exists() && Arrays.equals(digest, fileDigest)) {
+				return;
 			}
-			Files.write(file.toPath(), bytes);
+			PersistenceJournal.writeAtomically(file.toPath(), bytes);
+			fileDigest = digest;
 		} catch (Exception e) {
 			throw new CoreException(new Status(IStatus.ERROR, ServerCoreActivator.BUNDLE_ID, 0, 
 					NLS.bind("Could not save server to file {0}", file.getAbsolutePath()), e));
@@ -461,9 +503,11 @@ public abstract class Base {
 	}
 
 	protected void loadFromFile(IProgressMonitor monitor) throws CoreException {
-		try(InputStream in = new ByteArrayInputStream(Files.readAllBytes(file.toPath()))) {
-			IMemento memento = loadMemento(in); 
+		try {
+			byte[] bytes = Files.readAllBytes(file.toPath());
+			IMemento memento = loadMemento(new ByteArrayInputStream(bytes)); 
 			load(memento);
+			fileDigest = PersistenceJournal.digest(bytes);
 		} catch (Exception e) {
 			throw new CoreException(new Status(IStatus.ERROR, ServerCoreActivator.BUNDLE_ID, 0, 
 					NLS.bind("Could not load server from file {0}", file.getAbsolutePath()), e));
@@ -9,19 +9,25 @@
 package org.jboss.tools.rsp.server.core.internal;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 import org.jboss.tools.rsp.secure.crypto.CryptoException;
+import org.jboss.tools.rsp.secure.model.ISecureStorage;
 import org.jboss.tools.rsp.secure.model.ISecureStorageProvider;
 import org.jboss.tools.rsp.server.ServerCoreActivator;
 import org.jboss.tools.rsp.server.spi.model.IServerModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
 /**
  * Helper class for storing runtime and server attributes.
  */
 public abstract class SecuredBase extends Base {
+	private static final Logger LOG = LoggerFactory.getLogger(SecuredBase.class);
+
 	private ISecureStorageProvider secureStorage = null;
 	
 	/**
@@ -254,6 +260,31 @@ public abstract class SecuredBase extends Base {
 	}
 	
 	
+	/**
+	 * Runs the given attribute writes such that the secure attributes 
+	 * among the given keys are saved to the secure storage once, 
+	 * rather than once per attribute.
+	 * 
+	 * @param keys the attributes that are about to be written
+	 * @param writes 
+	 */
+	protected void setAttributesInBatch(Collection<String> keys, Runnable writes) {
+		boolean hasSecureKey = keys.stream().anyMatch(this::isSecureKey);
+		ISecureStorage storage = null;
+		if( hasSecureKey && canAccessSecureStorage() ) {
+			storage = secureStorage.getSecureStorage();
+		}
+		if( storage == null ) {
+			writes.run();
+			return;
+		}
+		try {
+			storage.runInBatch(writes);
+		} catch(CryptoException ce) {
+			LOG.error("Could not save the secure attributes of {}", getId(), ce);
+		}
+	}
+	
 	private String getSecuredKey() {
 		return ServerCoreActivator.BUNDLE_ID + "/servers/" + getId() + "/"; 
 	}
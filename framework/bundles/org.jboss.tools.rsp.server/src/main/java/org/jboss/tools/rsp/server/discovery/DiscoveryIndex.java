@@ -0,0 +1,359 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.discovery;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.tools.rsp.api.dao.DiscoveryPath;
+import org.jboss.tools.rsp.api.dao.ServerBean;
+import org.jboss.tools.rsp.server.discovery.serverbeans.ServerBeanLoader;
+import org.jboss.tools.rsp.server.discovery.serverbeans.ServerBeanTypeUnknown;
+import org.jboss.tools.rsp.server.spi.discovery.IDiscoveryIndex;
+import org.jboss.tools.rsp.server.spi.discovery.IDiscoveryIndexListener;
+import org.jboss.tools.rsp.server.spi.discovery.IDiscoveryPathListener;
+import org.jboss.tools.rsp.server.spi.discovery.ServerBeanType;
+import org.jboss.tools.rsp.server.spi.filewatcher.FileWatcherEvent;
+import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherEventListener;
+import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherService;
+import org.jboss.tools.rsp.server.spi.model.IServerManagementModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Remembers the server beans found in folders, along with a fingerprint
+ * of the files the server bean types looked at to recognize them:
+ * their modification times and sizes.
+ *
+ * A folder is only analyzed again once its fingerprint changed.
+ * If asked to watch the discovery paths, entries below a discovery path
+ * are trusted without even checking their fingerprint until the file watcher
+ * reports a change below them.
+ */
+public class DiscoveryIndex implements IDiscoveryIndex, IDiscoveryPathListener, IFileWatcherEventListener {
+	private static final Logger LOG = LoggerFactory.getLogger(DiscoveryIndex.class);
+
+	private static final int VERSION = 1;
+	private static final int MAX_ENTRIES = 1000;
+
+	private final IServerManagementModel model;
+	private final Map<String, IndexEntry> entries = new LinkedHashMap<String, IndexEntry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, IndexEntry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+	private final List<IDiscoveryIndexListener> listeners = new CopyOnWriteArrayList<>();
+	private final Set<Path> watchedRoots = new CopyOnWriteArraySet<>();
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger analyzed = new AtomicInteger();
+	private final AtomicLong changes = new AtomicLong();
+	private IFileWatcherService watcher;
+
+	public DiscoveryIndex(IServerManagementModel model) {
+		this.model = model;
+	}
+
+	/**
+	 * Watch the discovery paths of the model for changes,
+	 * so that the entries below them do not need to be checked
+	 * as long as nothing changes.
+	 */
+	public void watch(IFileWatcherService watcher) {
+		this.watcher = watcher;
+		for( DiscoveryPath path : model.getDiscoveryPathModel().getPaths()) {
+			discoveryPathAdded(path);
+		}
+		model.getDiscoveryPathModel().addListener(this);
+	}
+
+	@Override
+	public void addListener(IDiscoveryIndexListener l) {
+		listeners.add(l);
+	}
+
+	@Override
+	public void removeListener(IDiscoveryIndexListener l) {
+		listeners.remove(l);
+	}
+
+	/**
+	 * Returns how many server beans were answered from the index
+	 */
+	public int getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns how many times a folder was analyzed
+	 */
+	public int getAnalyzedCount() {
+		return analyzed.get();
+	}
+
+	@Override
+	public ServerBean getServerBean(File root) {
+		String key = root.getAbsolutePath();
+		IndexEntry entry;
+		synchronized(entries) {
+			entry = entries.get(key);
+		}
+		if( entry != null && (entry.watched || entry.isUpToDate())) {
+			hits.incrementAndGet();
+			return entry.bean;
+		}
+		long before = changes.get();
+		entry = analyze(root);
+		synchronized(entries) {
+			entries.put(key, entry);
+		}
+		if( changes.get() != before ) {
+			// something changed while the folder was analyzed
+			entry.watched = false;
+		}
+		fireIndexChanged();
+		return entry.bean;
+	}
+
+	private IndexEntry analyze(File root) {
+		analyzed.incrementAndGet();
+		ServerBeanLoader loader = new ServerBeanLoader(root, model);
+		ServerBean bean = loader.getServerBean();
+		ServerBeanType type = loader.getServerBeanType();
+		Set<File> consulted = new LinkedHashSet<>();
+		if( type != null && !(type instanceof ServerBeanTypeUnknown)) {
+			addAll(consulted, type.getConsultedFiles(root));
+		} else {
+			// none recognized it, so it may become a server for any of them
+			for( ServerBeanType t : model.getServerBeanTypeManager().getAllRegisteredTypes()) {
+				addAll(consulted, t.getConsultedFiles(root));
+			}
+		}
+		IndexEntry entry = new IndexEntry(root.getAbsolutePath(), bean);
+		for( File f : consulted ) {
+			entry.files.add(new Fingerprint(f));
+		}
+		entry.watched = isWatched(root);
+		return entry;
+	}
+
+	private static void addAll(Set<File> set, File[] files) {
+		if( files != null ) {
+			for( File f : files ) {
+				set.add(f);
+			}
+		}
+	}
+
+	@Override
+	public void invalidate(File path) {
+		String prefix = path.getAbsolutePath();
+		boolean removed;
+		synchronized(entries) {
+			removed = entries.keySet().removeIf(k -> isSameOrBelow(k, prefix));
+		}
+		if( removed ) {
+			fireIndexChanged();
+		}
+	}
+
+	private static boolean isSameOrBelow(String path, String parent) {
+		return path.equals(parent)
+				|| (path.startsWith(parent) && path.charAt(parent.length()) == File.separatorChar);
+	}
+
+	private void fireIndexChanged() {
+		for( IDiscoveryIndexListener l : listeners ) {
+			l.indexChanged(this);
+		}
+	}
+
+	/*
+	 * Watching
+	 */
+
+	@Override
+	public void discoveryPathAdded(DiscoveryPath path) {
+		Path p = toPath(path);
+		if( watcher != null && p != null && watchedRoots.add(p)) {
+			watcher.addFileWatcherListener(p, this, true);
+		}
+	}
+
+	@Override
+	public void discoveryPathRemoved(DiscoveryPath path) {
+		Path p = toPath(path);
+		if( watcher != null && p != null && watchedRoots.remove(p)) {
+			watcher.removeFileWatcherListener(p, this);
+			distrust(p);
+		}
+	}
+
+	private static Path toPath(DiscoveryPath path) {
+		try {
+			return path.getFilepath() == null ? null : Paths.get(path.getFilepath()).toAbsolutePath();
+		} catch(InvalidPathException ipe) {
+			return null;
+		}
+	}
+
+	private boolean isWatched(File root) {
+		Path p = root.toPath().toAbsolutePath();
+		for( Path watched : watchedRoots ) {
+			if( p.startsWith(watched)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void fileChanged(FileWatcherEvent event) {
+		distrust(event.getPath());
+	}
+
+	/**
+	 * The entries whose folder contains the changed path, or lies below it,
+	 * need to check their fingerprint again
+	 */
+	private void distrust(Path changed) {
+		changes.incrementAndGet();
+		String path = changed.toAbsolutePath().toString();
+		synchronized(entries) {
+			for( IndexEntry e : entries.values()) {
+				if( isSameOrBelow(path, e.path) || isSameOrBelow(e.path, path)) {
+					e.watched = false;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Persistence
+	 */
+
+	@Override
+	public void loadIndex(File data) throws IOException {
+		if( !data.exists()) {
+			return;
+		}
+		IndexFile index;
+		try (Reader reader = Files.newBufferedReader(data.toPath(), StandardCharsets.UTF_8)) {
+			index = new Gson().fromJson(reader, IndexFile.class);
+		} catch(JsonParseException jpe) {
+			LOG.warn("Ignoring discovery index {} that cannot be read", data, jpe);
+			return;
+		}
+		if( index == null || index.version != VERSION || index.entries == null ) {
+			return;
+		}
+		synchronized(entries) {
+			for( IndexEntry e : index.entries ) {
+				if( e != null && e.path != null && e.files != null ) {
+					// checked against its fingerprint before it is trusted
+					e.watched = false;
+					entries.put(e.path, e);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void saveIndex(File data) throws IOException {
+		IndexFile index = new IndexFile();
+		synchronized(entries) {
+			index.entries = new ArrayList<>(entries.values());
+		}
+		try (Writer writer = Files.newBufferedWriter(data.toPath(), StandardCharsets.UTF_8)) {
+			new Gson().toJson(index, writer);
+		}
+	}
+
+	private static class IndexFile {
+		private int version = VERSION;
+		private List<IndexEntry> entries;
+	}
+
+	private static class IndexEntry {
+		private final String path;
+		private final ServerBean bean;
+		private final List<Fingerprint> files = new ArrayList<>();
+		private transient volatile boolean watched;
+
+		private IndexEntry(String path, ServerBean bean) {
+			this.path = path;
+			this.bean = bean;
+		}
+
+		private boolean isUpToDate() {
+			for( Fingerprint f : files ) {
+				if( !f.isUpToDate()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static class Fingerprint {
+		private final String path;
+		private final long modified;
+		private final long length;
+
+		private Fingerprint(File file) {
+			long[] stat = stat(file);
+			this.path = file.getAbsolutePath();
+			this.modified = stat[0];
+			this.length = stat[1];
+		}
+
+		private boolean isUpToDate() {
+			long[] stat = stat(new File(path));
+			return stat[0] == modified && stat[1] == length;
+		}
+
+		/**
+		 * Returns the modification time and the size of the given file,
+		 * 0 for files that do not exist and a size of 0 for folders
+		 */
+		private static long[] stat(File file) {
+			try {
+				BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+				return new long[] { 
+						attributes.lastModifiedTime().toMillis(), 
+						attributes.isRegularFile() ? attributes.size() : 0 };
+			} catch(IOException | InvalidPathException e) {
+				return new long[] { 0, 0 };
+			}
+		}
+	}
+}
@@ -15,6 +15,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.jboss.tools.rsp.api.dao.DiscoveryPath;
 import org.jboss.tools.rsp.server.spi.discovery.IDiscoveryPathListener;
@@ -25,7 +26,8 @@ public class DiscoveryPathModel implements IDiscoveryPathModel {
 	private List<IDiscoveryPathListener> listeners;
 
 	public DiscoveryPathModel() {
-		paths = new ArrayList<DiscoveryPath>();
+		// written to disk by the persistence journal's thread
+		paths = new CopyOnWriteArrayList<DiscoveryPath>();
 		listeners = new ArrayList<IDiscoveryPathListener>();
 	}
 	
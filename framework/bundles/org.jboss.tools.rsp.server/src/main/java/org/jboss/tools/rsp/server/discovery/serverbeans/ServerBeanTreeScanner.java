@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.discovery.serverbeans;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.jboss.tools.rsp.api.dao.ServerBean;
+import org.jboss.tools.rsp.eclipse.core.runtime.IProgressMonitor;
+import org.jboss.tools.rsp.eclipse.core.runtime.IStatus;
+import org.jboss.tools.rsp.eclipse.core.runtime.Status;
+import org.jboss.tools.rsp.launching.utils.IStatusRunnableWithProgress;
+import org.jboss.tools.rsp.server.ServerCoreActivator;
+import org.jboss.tools.rsp.server.spi.discovery.ServerBeanType;
+import org.jboss.tools.rsp.server.spi.model.IServerManagementModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Searches a directory tree for server runtime installations.
+ *
+ * The folders are checked in parallel on a fork-join pool, up to a given depth
+ * below the root. Folders that match one of the exclude globs, folders
+ * that are known not to contain servers and symbolic links are skipped,
+ * as are the folders below a recognized server.
+ * Each server bean is handed to the listener as soon as it is found.
+ */
+public class ServerBeanTreeScanner implements IStatusRunnableWithProgress {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ServerBeanTreeScanner.class);
+
+	/**
+	 * Names of folders that never contain a server
+	 */
+	private static final Set<String> PRUNED_NAMES = new HashSet<>(Arrays.asList(
+			".git", ".svn", ".hg", ".m2", ".gradle", ".npm", ".cache", "node_modules"));
+
+	/**
+	 * Absolute paths of folders that never contain a server
+	 */
+	private static final Set<String> PRUNED_PATHS = new HashSet<>(Arrays.asList(
+			"/proc", "/sys", "/dev", "/run"));
+
+	private final File root;
+	private final int depth;
+	private final List<PathMatcher> excludes;
+	private final int parallelism;
+	private final IServerManagementModel model;
+	private final Consumer<ServerBean> listener;
+	private final List<ServerBean> found = Collections.synchronizedList(new ArrayList<>());
+	private final AtomicInteger scanned = new AtomicInteger();
+
+	/**
+	 * @param root the folder to search
+	 * @param depth how many levels of folders below the root are searched
+	 * @param excludes globs matching the absolute paths or the names of folders to skip,
+	 * 		  may be <code>null</code>
+	 * @param parallelism how many folders are checked at the same time
+	 * @param model the model providing the server bean types
+	 * @param listener notified of each server bean found, may be <code>null</code>
+	 */
+	public ServerBeanTreeScanner(File root, int depth, List<String> excludes, int parallelism,
+			IServerManagementModel model, Consumer<ServerBean> listener) {
+		this.root = root;
+		this.depth = depth;
+		this.excludes = createMatchers(excludes);
+		this.parallelism = Math.max(1, parallelism);
+		this.model = model;
+		this.listener = listener;
+	}
+
+	private static List<PathMatcher> createMatchers(List<String> globs) {
+		List<PathMatcher> matchers = new ArrayList<>();
+		if( globs != null ) {
+			for( String glob : globs ) {
+				if( glob == null || glob.trim().isEmpty())
+					continue;
+				try {
+					matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob.trim()));
+				} catch(IllegalArgumentException iae) {
+					LOG.warn("Ignoring invalid exclude glob {}", glob);
+				}
+			}
+		}
+		return matchers;
+	}
+
+	/**
+	 * Returns the server beans found so far
+	 */
+	public List<ServerBean> getServerBeans() {
+		synchronized(found) {
+			return new ArrayList<>(found);
+		}
+	}
+
+	/**
+	 * Returns the number of folders that were checked so far
+	 */
+	public int getScannedCount() {
+		return scanned.get();
+	}
+
+	@Override
+	public IStatus run(IProgressMonitor monitor) {
+		List<File> children = depth > 0 ? listFolders(root) : Collections.emptyList();
+		monitor.beginTask("Searching " + root.getAbsolutePath() + " for servers", children.size() + 1);
+		if( check(root)) {
+			worked(monitor, children.size() + 1);
+		} else {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				pool.invoke(new ScanFolders(children, 1, monitor));
+			} finally {
+				pool.shutdownNow();
+			}
+			worked(monitor, 1);
+		}
+		monitor.done();
+		if( monitor.isCanceled()) {
+			return Status.CANCEL_STATUS;
+		}
+		return new Status(IStatus.OK, ServerCoreActivator.BUNDLE_ID,
+				"Found " + found.size() + " servers in " + scanned.get() + " folders below " + root.getAbsolutePath());
+	}
+
+	private static void worked(IProgressMonitor monitor, int work) {
+		synchronized(monitor) {
+			monitor.worked(work);
+		}
+	}
+
+	/**
+	 * Checks whether the given folder is a server,
+	 * and notifies the listener if it is.
+	 */
+	private boolean check(File folder) {
+		scanned.incrementAndGet();
+		try {
+			ServerBeanLoader loader = new ServerBeanLoader(folder, model);
+			ServerBeanType type = loader.getServerBeanType();
+			if( type == null || type instanceof ServerBeanTypeUnknown) {
+				return false;
+			}
+			ServerBean bean = loader.getServerBean();
+			found.add(bean);
+			if( listener != null ) {
+				listener.accept(bean);
+			}
+			return true;
+		} catch(RuntimeException re) {
+			LOG.warn("Unable to check whether {} is a server", folder, re);
+			return false;
+		}
+	}
+
+	private List<File> listFolders(File folder) {
+		File[] children = folder.listFiles(File::isDirectory);
+		if( children == null ) {
+			return Collections.emptyList();
+		}
+		List<File> ret = new ArrayList<>(children.length);
+		for( File child : children ) {
+			if( !isSkipped(child)) {
+				ret.add(child);
+			}
+		}
+		return ret;
+	}
+
+	private boolean isSkipped(File folder) {
+		if( PRUNED_NAMES.contains(folder.getName())
+				|| PRUNED_PATHS.contains(folder.getAbsolutePath())) {
+			return true;
+		}
+		Path path;
+		try {
+			path = folder.toPath().toAbsolutePath();
+		} catch(InvalidPathException ipe) {
+			return true;
+		}
+		if( Files.isSymbolicLink(path)) {
+			return true;
+		}
+		for( PathMatcher matcher : excludes ) {
+			if( matcher.matches(path) || matcher.matches(path.getFileName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private class ScanFolders extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final transient List<File> folders;
+		private final int level;
+		private final transient IProgressMonitor monitor;
+
+		private ScanFolders(List<File> folders, int level, IProgressMonitor monitor) {
+			this.folders = folders;
+			this.level = level;
+			this.monitor = monitor;
+		}
+
+		@Override
+		protected void compute() {
+			if( folders.size() == 1 ) {
+				scan(folders.get(0));
+				return;
+			}
+			List<ScanFolders> tasks = new ArrayList<>(folders.size());
+			for( File folder : folders ) {
+				tasks.add(new ScanFolders(Collections.singletonList(folder), level, monitor));
+			}
+			invokeAll(tasks);
+		}
+
+		private void scan(File folder) {
+			if( !monitor.isCanceled()
+					&& !check(folder)
+					&& level < depth ) {
+				List<File> children = listFolders(folder);
+				if( !children.isEmpty()) {
+					new ScanFolders(children, level + 1, monitor).compute();
+				}
+			}
+			if( level == 1 ) {
+				worked(monitor, 1);
+			}
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.filewatcher;
+
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.tools.rsp.server.RSPFlags;
+import org.jboss.tools.rsp.server.spi.filewatcher.FileWatcherEvent;
+import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherBatchEventListener;
+import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects file watcher events per listener, coalesces repeated
+ * events for the same path, and delivers them on a dedicated thread
+ * once the batching window has elapsed.
+ *
+ * This keeps slow listeners from blocking the thread that is
+ * draining the NIO watch service or scanning a polled tree.
+ *
+ * The paths kept per listener are bounded. A listener that reaches 
+ * the limit is delivered to right away. If more events arrive before
+ * that happened, its pending paths are collapsed into one
+ * {@link StandardWatchEventKinds#ENTRY_MODIFY} per parent directory, 
+ * and later events below a collapsed directory are absorbed by it.
+ */
+public class FileWatcherEventBatcher {
+	private static final Logger LOG = LoggerFactory.getLogger(FileWatcherEventBatcher.class);
+
+	private final long windowMillis;
+	private final int maxPending;
+	private ScheduledExecutorService executor;
+
+	// Insertion ordered, so listeners and paths are delivered in the order they were first seen
+	private Map<IFileWatcherEventListener, Pending> pending = new LinkedHashMap<>();
+	private boolean flushScheduled = false;
+	private boolean earlyFlushScheduled = false;
+
+	private long received = 0;
+	private long delivered = 0;
+
+	public FileWatcherEventBatcher(long windowMillis) {
+		this(windowMillis, RSPFlags.getFileWatcherBatchMaxPending());
+	}
+
+	/**
+	 * @param windowMillis the milliseconds events are collected before they are delivered
+	 * @param maxPending the most paths kept per listener
+	 */
+	public FileWatcherEventBatcher(long windowMillis, int maxPending) {
+		this.windowMillis = windowMillis;
+		this.maxPending = Math.max(1, maxPending);
+		this.executor = Executors.newSingleThreadScheduledExecutor(
+				(Runnable runnable) -> {
+					Thread t = new Thread(runnable, "RSP File Watcher Event Dispatch");
+					t.setDaemon(true);
+					return t;
+				});
+	}
+
+	public synchronized void enqueue(IFileWatcherEventListener listener, FileWatcherEvent event) {
+		if( executor == null )
+			return;
+		received++;
+		Pending forListener = pending.computeIfAbsent(listener, k -> new Pending());
+		forListener.add(event.getPath(), event.getKind());
+		if( forListener.events.size() >= maxPending ) {
+			if( !earlyFlushScheduled ) {
+				// don't wait for the window to close
+				earlyFlushScheduled = true;
+				executor.execute(this::flush);
+			} else if( forListener.events.size() > maxPending ) {
+				// the dispatch thread is behind, keep the memory bounded
+				forListener.collapse(Math.max(1, maxPending / 2));
+			}
+		}
+		if( !flushScheduled ) {
+			flushScheduled = true;
+			executor.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/*
+	 * Merge two events for the same path, the same way a deployable's
+	 * resource delta would. Returns null if the two events cancel
+	 * each other out.
+	 */
+	protected static WatchEvent.Kind<?> coalesce(WatchEvent.Kind<?> existing, WatchEvent.Kind<?> next) {
+		if( existing == StandardWatchEventKinds.ENTRY_DELETE && next != StandardWatchEventKinds.ENTRY_DELETE ) {
+			return StandardWatchEventKinds.ENTRY_MODIFY;
+		}
+		if( existing == StandardWatchEventKinds.ENTRY_CREATE && next == StandardWatchEventKinds.ENTRY_DELETE ) {
+			return null;
+		}
+		if( existing == StandardWatchEventKinds.ENTRY_MODIFY && next == StandardWatchEventKinds.ENTRY_DELETE ) {
+			return StandardWatchEventKinds.ENTRY_DELETE;
+		}
+		return existing;
+	}
+
+	/**
+	 * Deliver all pending events.
+	 * This is normally called on the dispatch thread when the batching window closes.
+	 */
+	public void flush() {
+		Map<IFileWatcherEventListener, Pending> toDeliver;
+		synchronized(this) {
+			toDeliver = pending;
+			pending = new LinkedHashMap<>();
+			flushScheduled = false;
+			earlyFlushScheduled = false;
+		}
+		for( Map.Entry<IFileWatcherEventListener, Pending> entry : toDeliver.entrySet()) {
+			List<FileWatcherEvent> events = new ArrayList<>(entry.getValue().events.size());
+			for( Map.Entry<Path, WatchEvent.Kind<?>> e : entry.getValue().events.entrySet()) {
+				events.add(new FileWatcherEvent(e.getKey(), e.getValue()));
+			}
+			if( !events.isEmpty()) {
+				deliver(entry.getKey(), events);
+			}
+		}
+	}
+
+	private void deliver(IFileWatcherEventListener listener, List<FileWatcherEvent> events) {
+		try {
+			if( listener instanceof IFileWatcherBatchEventListener ) {
+				((IFileWatcherBatchEventListener)listener).filesChanged(events);
+			} else {
+				for( FileWatcherEvent event : events ) {
+					listener.fileChanged(event);
+				}
+			}
+		} catch(RuntimeException re) {
+			LOG.error("File watcher listener failed to handle events", re);
+		}
+		synchronized(this) {
+			delivered += events.size();
+		}
+	}
+
+	/**
+	 * @return the number of raw events handed to this batcher
+	 */
+	public synchronized long getReceivedCount() {
+		return received;
+	}
+
+	/**
+	 * @return the number of coalesced events delivered to listeners
+	 */
+	public synchronized long getDeliveredCount() {
+		return delivered;
+	}
+
+	/*
+	 * The events pending for a single listener
+	 */
+	private static class Pending {
+		private LinkedHashMap<Path, WatchEvent.Kind<?>> events = new LinkedHashMap<>();
+		// the directories that stand for the events below them
+		private Set<Path> collapsed = new HashSet<>();
+
+		private void add(Path p, WatchEvent.Kind<?> kind) {
+			if( isBelowCollapsed(p))
+				return;
+			WatchEvent.Kind<?> existing = events.get(p);
+			if( existing == null ) {
+				events.put(p, kind);
+			} else {
+				WatchEvent.Kind<?> merged = coalesce(existing, kind);
+				if( merged == null ) {
+					events.remove(p);
+				} else {
+					events.put(p, merged);
+				}
+			}
+		}
+
+		private boolean isBelowCollapsed(Path p) {
+			if( collapsed.isEmpty())
+				return false;
+			for( Path parent = p.getParent(); parent != null; parent = parent.getParent()) {
+				if( collapsed.contains(parent))
+					return true;
+			}
+			return false;
+		}
+
+		/*
+		 * Replace the events by one modification of their parent directory,
+		 * moving up until no more than the given number of paths are left.
+		 */
+		private void collapse(int max) {
+			while( events.size() > max ) {
+				LinkedHashMap<Path, WatchEvent.Kind<?>> parents = new LinkedHashMap<>();
+				boolean movedUp = false;
+				for( Path p : events.keySet()) {
+					Path parent = p.getParent();
+					if( parent == null ) {
+						parent = p;
+					} else {
+						movedUp = true;
+					}
+					parents.put(parent, StandardWatchEventKinds.ENTRY_MODIFY);
+				}
+				this.events = parents;
+				this.collapsed = new HashSet<>(parents.keySet());
+				if( !movedUp )
+					return;
+			}
+		}
+	}
+
+	public synchronized void dispose() {
+		pending.clear();
+		if( executor != null ) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+}
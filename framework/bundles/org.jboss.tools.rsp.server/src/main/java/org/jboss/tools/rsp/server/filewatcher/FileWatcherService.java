@@ -8,17 +8,26 @@
  ******************************************************************************/
 package org.jboss.tools.rsp.server.filewatcher;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -27,9 +36,14 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
+import org.jboss.tools.rsp.api.DefaultServerAttributes;
+import org.jboss.tools.rsp.server.RSPFlags;
 import org.jboss.tools.rsp.server.spi.filewatcher.FileWatcherEvent;
 import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherEventListener;
 import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherService;
@@ -45,8 +59,11 @@ public class FileWatcherService implements IFileWatcherService {
 	 *  A map of paths and associated listeners that have been specifically
 	 *  requested by some client to be listened to.
 	 *  
+	 *  Stored as a trie so that questions about a path's ancestors
+	 *  or descendants are answered in time proportional to the 
+	 *  depth of the path, not the number of registrations. 
 	 */ 
-	private HashMap<Path, List<RegistrationRequest>> requests = new HashMap<>();
+	private PathTrie<List<RegistrationRequest>> requests = new PathTrie<>();
 	
 	/*
 	 * A map of path -> watch key, listing each and every folder 
@@ -55,13 +72,37 @@ public class FileWatcherService implements IFileWatcherService {
 	 * It will possibly contain recursive subscriptions, as well 
 	 * as parent subscriptions up to the root of the filesystem. 
 	 */
-	private Map<Path, WatchKey> subscriptions = new HashMap<>();
+	private PathTrie<WatchKey> subscriptions = new PathTrie<>();
 	
 	private boolean closing = false;
 	
 	private ExecutorService executor = null;
 	private Future<?> executorFuture = null;
+
+	// Folders this far below a newly created folder are walked in parallel
+	private static final int PARALLEL_WALK_DEPTH = 2;
+	private ForkJoinPool walkPool = null;
+
+	/*
+	 * Coalesces events and delivers them to listeners off the 
+	 * watcher thread. Null when events are delivered synchronously.
+	 */
+	private final long batchWindow;
+	private FileWatcherEventBatcher batcher = null;
 	
+	public FileWatcherService() {
+		this(RSPFlags.getFileWatcherBatchWindow());
+	}
+
+	/**
+	 * @param batchWindow the number of milliseconds to collect and coalesce 
+	 * events before delivering them to listeners, or a negative value 
+	 * to deliver each event immediately on the watcher thread
+	 */
+	public FileWatcherService(long batchWindow) {
+		this.batchWindow = batchWindow;
+	}
+
 	private String getThreadName() {
 		return "RSP File Watcher Service";
 	}
@@ -86,6 +127,12 @@ public class FileWatcherService implements IFileWatcherService {
 			log(e);
 			throw new IllegalStateException("Unable to create a filesystem watch service");
 		}
+		if( batchWindow >= 0 ) {
+			this.batcher = new FileWatcherEventBatcher(batchWindow);
+			// Listeners are only safe to call from several threads via the batcher
+			this.walkPool = new ForkJoinPool(
+					Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+		}
 		this.executor = Executors.newSingleThreadExecutor(
 				(Runnable runnable) -> new Thread(runnable, getThreadName()));
 		this.executorFuture = executor.submit(() -> runFileWatcher());
@@ -95,6 +142,7 @@ public class FileWatcherService implements IFileWatcherService {
 	public synchronized void stop() {
 		setClosing(true);
 		disposeExecutor();
+		disposeBatcher();
 		disposeModel();
 		disposeWatchService();
 	}
@@ -118,6 +166,17 @@ public class FileWatcherService implements IFileWatcherService {
 		this.executorFuture = null;
 	}
 	
+	private void disposeBatcher() {
+		if( walkPool != null ) {
+			walkPool.shutdownNow();
+			walkPool = null;
+		}
+		if( batcher != null ) {
+			batcher.dispose();
+			batcher = null;
+		}
+	}
+	
 	private synchronized void disposeModel() {
 		for( WatchKey key : subscriptions.values()) {
 			key.cancel();
@@ -159,10 +218,21 @@ public class FileWatcherService implements IFileWatcherService {
 	
 	private void ensureChildrenSubscribed(Path p) {
 		if( p.toFile().exists() && p.toFile().isDirectory()) {
-			subscribeSinglePath(p);
-			File[] kids = p.toFile().listFiles();
-			for( int i = 0; i < kids.length; i++ ) {
-				ensureChildrenSubscribed(kids[i].toPath());
+			try {
+				Files.walkFileTree(p, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 
+						Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+						subscribeSinglePath(dir);
+						return FileVisitResult.CONTINUE;
+					}
+					@Override
+					public FileVisitResult visitFileFailed(Path file, IOException exc) {
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			} catch(IOException ioe) {
+				log(ioe);
 			}
 		}
 	}
@@ -177,7 +247,11 @@ public class FileWatcherService implements IFileWatcherService {
 		}
 	}
 	
-	private void subscribeSinglePath(Path working) {
+	private synchronized void subscribeSinglePath(Path working) {
+		if( watchService == null || subscriptions == null ) {
+			// stopped
+			return;
+		}
 		try {
 			// The service should return the same watchkey for 
 			// the same path, assuming the folder hasn't been deleted
@@ -234,6 +308,19 @@ public class FileWatcherService implements IFileWatcherService {
 		}
 	}
 
+	@Override
+	public synchronized String getBackend(Path path) {
+		return requests.get(path) == null ? null : DefaultServerAttributes.FILE_WATCHER_BACKEND_NIO;
+	}
+
+	/**
+	 * @return the number of folders currently watched natively, 
+	 * 		including the parents of every registered path
+	 */
+	public synchronized int getSubscriptionCount() {
+		return subscriptions == null ? 0 : subscriptions.size();
+	}
+
 	private void updateSubscriptionsForRemovedRegistration(Path path) {
 		// If I'm not needed, unsubscribe
 		if( !pathShouldBeSubscribed(path)) {
@@ -272,21 +359,14 @@ public class FileWatcherService implements IFileWatcherService {
 	}
 	
 	private List<Path> findAllSubtreeSubscriptions(Path path) {
-		List<Path> nested = new ArrayList<Path>();
-		for( Path test : subscriptions.keySet()) {
-			if( test.startsWith(path)) {
-				nested.add(test);
-			}
-		}
-		return nested;
+		return subscriptions.getPathAndDescendants(path);
 	}
 	
 	private void removeSubscription(Path path) {
 		// Stop watching the given folder. 
-		WatchKey wk = subscriptions.get(path);
+		WatchKey wk = subscriptions.remove(path);
 		if( wk != null )
 			wk.cancel();
-		subscriptions.remove(path);
 	}
 
 
@@ -300,38 +380,12 @@ public class FileWatcherService implements IFileWatcherService {
 			return true;
 		
 		// A request for a subfolder (or lower) still exists, so I'm still needed
-		Set<Path> requestPaths = getRequestsKeySet();
-		for( Path testRequest : requestPaths) {
-			if( testRequest.startsWith(path))
-				return true;
-		}
-
-		// Nobody needs me
-		return false;
+		// Nobody needs me otherwise
+		return requests.containsPathOrDescendant(path);
 	}
 	
 	private boolean pathOrParentHasRecursiveRequest(Path p) {
-		Path working = p;
-		while(working != null ) {
-			if( singlePathHasRecursiveRequest(working)) {
-				return true;
-			}
-			working = working.getParent();
-		}
-		return false;
-	}
-	private boolean singlePathHasRecursiveRequest(Path p) {
-		List<RegistrationRequest> list = getRequestsForPath(p);
-		if( list == null ) 
-			return false;
-		Iterator<RegistrationRequest> rit = list.iterator();
-		RegistrationRequest r = null;
-		while(rit.hasNext()) {
-			r = rit.next();
-			if( r.isRecursive())
-				return true;
-		}
-		return false;
+		return recursiveRequestMatches(p);
 	}
 
 	public void runFileWatcher() {
@@ -391,7 +445,9 @@ public class FileWatcherService implements IFileWatcherService {
 				// or if any recursive requests match our parents
 				boolean recursive = recursiveRequestMatches(eventContext);
 				if( recursive ) {
-					ensureChildrenSubscribed(eventContext);
+					// Sub-folders are subscribed while walking the new 
+					// tree to fire synthetic events, outside of this lock
+					subscribeSinglePath(eventContext);
 				} else if( requestMatchesExact(eventContext) ) {
 					subscribeSinglePath(eventContext);
 				} else {
@@ -411,25 +467,21 @@ public class FileWatcherService implements IFileWatcherService {
 
 	
 	private List<Path> findAllChildRequestPaths(Path context) {
-		return getRequestsKeySet().stream().filter(x -> x.startsWith(context))
-				.collect(Collectors.toList());
+		return requests.getPathAndDescendants(context);
 	}
 	
-	private boolean requestMatchesExact(Path path) {
+	private synchronized boolean requestMatchesExact(Path path) {
 		List<RegistrationRequest> forPath = getRequestsForPath(path);
 		return forPath != null && !forPath.isEmpty();
 	}
 	
-	private boolean recursiveRequestMatches(Path path) {
-		Path working = path;
-		while( working != null ) {
-			List<RegistrationRequest> req = getRequestsForPath(working);
-			if( containsRecursiveRequest(req)) {
-				return true;
-			}
-			working = working.getParent();
-		}
-		return false;
+	private synchronized boolean recursiveRequestMatches(Path path) {
+		boolean[] found = new boolean[] {false};
+		requests.visitPathAndAncestors(path, (p, list) -> {
+			if( containsRecursiveRequest(list)) 
+				found[0] = true;
+		});
+		return found[0];
 	}
 	
 	private boolean containsRecursiveRequest(List<RegistrationRequest> list) {
@@ -444,15 +496,9 @@ public class FileWatcherService implements IFileWatcherService {
 
 	private void removeAllSubscriptionsRecursive(Path eventContext) {
 		Path absolute = eventContext.toAbsolutePath();
-		Iterator<Path> pit = new ArrayList<Path>(subscriptions.keySet()).iterator();
-		Path p1 = null;
-		while(pit.hasNext()) {
-			p1 = pit.next();
-			if( p1.startsWith(absolute)) {
-				WatchKey wk = subscriptions.get(p1);
-				wk.cancel();
-				subscriptions.remove(p1);
-			}
+		Map<Path, WatchKey> removed = subscriptions.removeSubtree(absolute);
+		for( WatchKey wk : removed.values()) {
+			wk.cancel();
 		}
 	}
 
@@ -464,7 +510,7 @@ public class FileWatcherService implements IFileWatcherService {
 		Set<IFileWatcherEventListener> nonRecursive = findListenersForExactPath(context, false);
 		// and fire their simple events
 		for(IFileWatcherEventListener one : nonRecursive  ) {
-			one.fileChanged(toFire);
+			dispatch(one, toFire);
 		}
 		
 		// Find all recursive listeners at level 'context' or above
@@ -474,7 +520,7 @@ public class FileWatcherService implements IFileWatcherService {
 		
 		// Now let's fire this item's event to all recursive listeners
 		for(IFileWatcherEventListener one : recursiveListeners  ) {
-			one.fileChanged(toFire);
+			dispatch(one, toFire);
 		}
 		
 		/* 
@@ -495,52 +541,174 @@ public class FileWatcherService implements IFileWatcherService {
 		 * inside of it. Because of this, we must now traverse the tree
 		 * and fire events at each step for every recursive listener. 
 		 * 
+		 * The same traversal subscribes each new folder that sits below 
+		 * a recursive request, before its contents are listed. 
 		 */
 		if( event.kind() == StandardWatchEventKinds.ENTRY_CREATE
 				&& context.toFile().isDirectory() && context.toFile().exists()) {
-			List<ListenerEvent> events = createRecursiveSyntheticCreationEvents(
-					context, recursiveListeners);
-			for( ListenerEvent e : events ) {
-				e.getListener().fileChanged(e.getEvent());
-			}
+			walkCreatedDirectory(context, recursiveListeners);
 		}
 		
 	}
 	
-	private List<ListenerEvent> createRecursiveSyntheticCreationEvents(
-			Path context, Set<IFileWatcherEventListener> recursiveListeners) {
-		File[] children = context.toFile().listFiles();
-		List<ListenerEvent> ret = new ArrayList<>();
-		if( children != null ) {
-			for( int i = 0; i < children.length; i++ ) {
-				Path child = children[i].toPath();
-				FileWatcherEvent toFire = new FileWatcherEvent(child, StandardWatchEventKinds.ENTRY_CREATE);
-				
-				// First handle existing recursive listeners
-				for( IFileWatcherEventListener listener : recursiveListeners) {
-					ret.add(new ListenerEvent(listener, toFire));
-				}
-				
-				// Now handle listeners for this child path specifically
-				Set<IFileWatcherEventListener> childPathListeners = 
-						findListenersForExactPath(child);
-				for( IFileWatcherEventListener listener : childPathListeners) {
-					ret.add(new ListenerEvent(listener, toFire));
-				}
-				
-				// Now recurse if this child is a directory
-				if( child.toFile().exists() && child.toFile().isDirectory()) {
-					Set<IFileWatcherEventListener> childRecurseListeners = new HashSet<>();
-					childRecurseListeners.addAll(recursiveListeners);
-					childRecurseListeners.addAll(findListenersForExactPath(child, true));
-					ret.addAll(createRecursiveSyntheticCreationEvents(child, childRecurseListeners));
-				}
+	/*
+	 * Hand the event to the batcher, or fire it immediately 
+	 * if batching is disabled
+	 */
+	protected void dispatch(IFileWatcherEventListener listener, FileWatcherEvent event) {
+		FileWatcherEventBatcher b = getBatcher();
+		if( b != null ) {
+			b.enqueue(listener, event);
+		} else {
+			listener.fileChanged(event);
+		}
+	}
+	
+	/*
+	 * Walk a newly created directory, firing a synthetic creation event
+	 * for everything below it and subscribing each folder that has a 
+	 * recursive listener at or above it. 
+	 * 
+	 * Events are fired as the walk proceeds rather than collected first,
+	 * so memory use depends on the depth of the tree and not its size. 
+	 * When events are delivered through the batcher, the top levels of 
+	 * the tree are walked in parallel. 
+	 */
+	protected void walkCreatedDirectory(Path dir, Set<IFileWatcherEventListener> recursiveListeners) {
+		ForkJoinPool pool = getWalkPool();
+		if( pool != null ) {
+			try {
+				pool.invoke(new CreatedDirectoryTask(dir, recursiveListeners, 0));
+				return;
+			} catch(RejectedExecutionException ree) {
+				// The service is being stopped. Fall through
 			}
 		}
+		walkCreatedDirectorySequential(dir, recursiveListeners);
+	}
+
+	private void walkCreatedDirectorySequential(Path dir, Set<IFileWatcherEventListener> recursiveListeners) {
+		try {
+			Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 
+					Integer.MAX_VALUE, new CreatedTreeVisitor(dir, recursiveListeners));
+		} catch(IOException ioe) {
+			log(ioe);
+		}
+	}
+
+	private void fireSyntheticCreation(Path child, Set<IFileWatcherEventListener> recursiveListeners) {
+		FileWatcherEvent toFire = new FileWatcherEvent(child, StandardWatchEventKinds.ENTRY_CREATE);
+		// First handle existing recursive listeners
+		for( IFileWatcherEventListener listener : recursiveListeners) {
+			dispatch(listener, toFire);
+		}
+		// Now handle listeners for this child path specifically
+		for( IFileWatcherEventListener listener : findListenersForExactPath(child)) {
+			dispatch(listener, toFire);
+		}
+	}
+
+	/*
+	 * The recursive listeners of a folder are those of its parent,
+	 * plus any recursive listeners registered for the folder itself
+	 */
+	private Set<IFileWatcherEventListener> getChildRecursiveListeners(Path child, 
+			Set<IFileWatcherEventListener> parentListeners) {
+		Set<IFileWatcherEventListener> own = findListenersForExactPath(child, true);
+		if( own.isEmpty())
+			return parentListeners;
+		Set<IFileWatcherEventListener> ret = new HashSet<>(parentListeners);
+		ret.addAll(own);
 		return ret;
 	}
 
-	protected Set<IFileWatcherEventListener> findListenersForExactPath(Path p, boolean recursive) {
+	private class CreatedTreeVisitor extends SimpleFileVisitor<Path> {
+		private final Path start;
+		private final Deque<Set<IFileWatcherEventListener>> listeners = new ArrayDeque<>();
+
+		public CreatedTreeVisitor(Path start, Set<IFileWatcherEventListener> startListeners) {
+			this.start = start;
+			this.listeners.push(startListeners);
+		}
+
+		@Override
+		public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+			if( !dir.equals(start)) {
+				Set<IFileWatcherEventListener> parentListeners = listeners.peek();
+				fireSyntheticCreation(dir, parentListeners);
+				listeners.push(getChildRecursiveListeners(dir, parentListeners));
+			}
+			if( !listeners.peek().isEmpty()) {
+				subscribeSinglePath(dir);
+			}
+			return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+			fireSyntheticCreation(file, listeners.peek());
+			return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFileFailed(Path file, IOException exc) {
+			// Deleted during the walk, or a symbolic link loop
+			return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+			if( !dir.equals(start)) {
+				listeners.pop();
+			}
+			return FileVisitResult.CONTINUE;
+		}
+	}
+
+	/*
+	 * Walks one folder, forking a task for each sub-folder until 
+	 * PARALLEL_WALK_DEPTH is reached. Deeper trees are walked sequentially
+	 * by whichever worker reaches them.
+	 */
+	private class CreatedDirectoryTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Path dir;
+		private final Set<IFileWatcherEventListener> listeners;
+		private final int depth;
+
+		public CreatedDirectoryTask(Path dir, Set<IFileWatcherEventListener> listeners, int depth) {
+			this.dir = dir;
+			this.listeners = listeners;
+			this.depth = depth;
+		}
+
+		@Override
+		protected void compute() {
+			if( depth >= PARALLEL_WALK_DEPTH ) {
+				walkCreatedDirectorySequential(dir, listeners);
+				return;
+			}
+			if( !listeners.isEmpty()) {
+				subscribeSinglePath(dir);
+			}
+			List<CreatedDirectoryTask> subtasks = new ArrayList<>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+				for( Path child : stream ) {
+					fireSyntheticCreation(child, listeners);
+					if( Files.isDirectory(child)) {
+						subtasks.add(new CreatedDirectoryTask(child, 
+								getChildRecursiveListeners(child, listeners), depth + 1));
+					}
+				}
+			} catch(IOException | DirectoryIteratorException e) {
+				// Deleted while we were walking it
+				LOG.debug("Unable to list " + dir, e);
+			}
+			invokeAll(subtasks);
+		}
+	}
+
+	protected synchronized Set<IFileWatcherEventListener> findListenersForExactPath(Path p, boolean recursive) {
 		List<RegistrationRequest> forPath = getRequestsForPath(p);
 		if( forPath != null ) {
 			return (forPath.stream().filter(x -> recursive == x.isRecursive())
@@ -549,7 +717,7 @@ public class FileWatcherService implements IFileWatcherService {
 		return Collections.emptySet();
 	}
 
-	protected Set<IFileWatcherEventListener> findListenersForExactPath(Path p) {
+	protected synchronized Set<IFileWatcherEventListener> findListenersForExactPath(Path p) {
 		List<RegistrationRequest> forPath = getRequestsForPath(p);
 		if( forPath != null ) {
 			return (forPath.stream().map(RegistrationRequest::getListener)
@@ -562,57 +730,23 @@ public class FileWatcherService implements IFileWatcherService {
 		return requests.get(p);
 	}
 	
-	protected synchronized Set<Path> getRequestsKeySet() {
-		return requests.keySet();
-	}
-	
 	/*
 	 * Get all recursive listeners registered for the given path, 
 	 * in addition to all recursive listeners registered for any 
 	 * parent path
 	 */
-	protected Set<IFileWatcherEventListener> 
+	protected synchronized Set<IFileWatcherEventListener> 
 				getRecursiveListenersForPathOrParent(Path target) {
-		Path[] all = getPathAndAncestors(target);
 		Set<IFileWatcherEventListener> ret = new HashSet<>();
-		for( Path p : all ) {
-			ret.addAll(findListenersForExactPath(p, true));
-		}
+		requests.visitPathAndAncestors(target, (p, list) -> {
+			for( RegistrationRequest rr : list ) {
+				if( rr.isRecursive())
+					ret.add(rr.getListener());
+			}
+		});
 		return ret;
 	}
 	
-	/*
-	 * Get an array of paths representing 
-	 * both the parameter and all of its parent directories
-	 */
-	private Path[] getPathAndAncestors(Path p) {
-		ArrayList<Path> ret = new ArrayList<>();
-		Path working = p;
-		while( working != null ) {
-			ret.add(working);
-			working = working.getParent();
-		}
-		return ret.toArray(new Path[ret.size()]);
-	}
-	
-	protected static class ListenerEvent {
-		private IFileWatcherEventListener listener;
-		private FileWatcherEvent event;
-
-		public ListenerEvent(IFileWatcherEventListener listener, FileWatcherEvent event) {
-			this.listener = listener;
-			this.event = event;
-		}
-
-		public IFileWatcherEventListener getListener() {
-			return listener;
-		}
-
-		public FileWatcherEvent getEvent() {
-			return event;
-		}
-	}
-	
 	protected static class RegistrationRequest {
 		private Path path;
 		private IFileWatcherEventListener listener;
@@ -649,11 +783,19 @@ public class FileWatcherService implements IFileWatcherService {
 		return executor;
 	}
 
-	protected HashMap<Path, List<RegistrationRequest>> getRequests() {
-		return requests;
+	protected synchronized FileWatcherEventBatcher getBatcher() {
+		return batcher;
+	}
+
+	protected synchronized ForkJoinPool getWalkPool() {
+		return walkPool;
+	}
+
+	protected synchronized HashMap<Path, List<RegistrationRequest>> getRequests() {
+		return requests.toMap();
 	}
 
-	protected Map<Path, WatchKey> getSubscriptions() {
-		return subscriptions;
+	protected synchronized Map<Path, WatchKey> getSubscriptions() {
+		return subscriptions == null ? null : subscriptions.toMap();
 	}
 }
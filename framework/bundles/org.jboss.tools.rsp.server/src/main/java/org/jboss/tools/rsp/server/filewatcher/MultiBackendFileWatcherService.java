@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.filewatcher;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jboss.tools.rsp.api.DefaultServerAttributes;
+import org.jboss.tools.rsp.server.RSPFlags;
+import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherEventListener;
+import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Routes each registration to one of several file watcher backends.
+ *
+ * <ul>
+ * <li>nio: native watches on every folder, see {@link FileWatcherService}</li>
+ * <li>polling: periodic snapshots, see {@link PollingFileWatcherService}</li>
+ * <li>hybrid: native watches for as long as the tree fits in the
+ * remaining watch budget, polling for anything larger</li>
+ * </ul>
+ */
+public class MultiBackendFileWatcherService implements IFileWatcherService {
+	private static final Logger LOG = LoggerFactory.getLogger(MultiBackendFileWatcherService.class);
+
+	private final FileWatcherService nio;
+	private final PollingFileWatcherService polling;
+	private final String defaultBackend;
+	private final int defaultWatchBudget;
+
+	// path -> listener -> the backend that listener was registered with
+	private final Map<Path, Map<IFileWatcherEventListener, String>> routes = new HashMap<>();
+
+	public MultiBackendFileWatcherService() {
+		this(new FileWatcherService(), new PollingFileWatcherService(),
+				RSPFlags.getFileWatcherBackend(), RSPFlags.getFileWatcherWatchBudget());
+	}
+
+	public MultiBackendFileWatcherService(FileWatcherService nio, PollingFileWatcherService polling,
+			String defaultBackend, int defaultWatchBudget) {
+		this.nio = nio;
+		this.polling = polling;
+		this.defaultBackend = defaultBackend;
+		this.defaultWatchBudget = defaultWatchBudget;
+	}
+
+	@Override
+	public void start() throws IllegalStateException {
+		nio.start();
+		// a listener may be watching paths with both backends
+		polling.start(nio.getBatcher());
+	}
+
+	@Override
+	public synchronized void stop() {
+		// the polling backend may be delivering through the native backend's batcher
+		polling.stop();
+		nio.stop();
+		routes.clear();
+	}
+
+	@Override
+	public void addFileWatcherListener(Path path, IFileWatcherEventListener listener, boolean recursive) {
+		addFileWatcherListener(path, listener, recursive, null, -1);
+	}
+
+	@Override
+	public void addFileWatcherListener(Path path, IFileWatcherEventListener listener, boolean recursive,
+			String backend, int watchBudget) {
+		String requested = (backend == null ? defaultBackend : backend);
+		int budget = (watchBudget < 0 ? defaultWatchBudget : watchBudget);
+		// Choose before locking; the hybrid backend may need to walk the tree
+		String chosen = chooseBackend(path, recursive, requested, budget);
+		synchronized(this) {
+			Map<IFileWatcherEventListener, String> forPath =
+					routes.computeIfAbsent(path, k -> new LinkedHashMap<>());
+			// Ignore a request for an identical listener
+			if( forPath.containsKey(listener))
+				return;
+			forPath.put(listener, chosen);
+			getService(chosen).addFileWatcherListener(path, listener, recursive);
+		}
+		LOG.debug("Watching {} with the {} file watcher backend", path, chosen);
+	}
+
+	@Override
+	public synchronized void removeFileWatcherListener(Path path, IFileWatcherEventListener listener) {
+		Map<IFileWatcherEventListener, String> forPath = routes.get(path);
+		if( forPath == null )
+			return;
+		String backend = forPath.remove(listener);
+		if( forPath.isEmpty())
+			routes.remove(path);
+		if( backend != null )
+			getService(backend).removeFileWatcherListener(path, listener);
+	}
+
+	/**
+	 * @return the backend used by the first listener registered for the path
+	 */
+	@Override
+	public synchronized String getBackend(Path path) {
+		Map<IFileWatcherEventListener, String> forPath = routes.get(path);
+		if( forPath == null || forPath.isEmpty())
+			return null;
+		return forPath.values().iterator().next();
+	}
+
+	/**
+	 * @return a snapshot of every registered path and the backend watching it
+	 */
+	public synchronized Map<Path, String> getBackends() {
+		Map<Path, String> ret = new HashMap<>();
+		for( Path p : routes.keySet()) {
+			ret.put(p, getBackend(p));
+		}
+		return ret;
+	}
+
+	private IFileWatcherService getService(String backend) {
+		return DefaultServerAttributes.FILE_WATCHER_BACKEND_POLLING.equals(backend) ? polling : nio;
+	}
+
+	protected String chooseBackend(Path path, boolean recursive, String requested, int budget) {
+		if( DefaultServerAttributes.FILE_WATCHER_BACKEND_POLLING.equals(requested))
+			return DefaultServerAttributes.FILE_WATCHER_BACKEND_POLLING;
+		if( !DefaultServerAttributes.FILE_WATCHER_BACKEND_HYBRID.equals(requested)) {
+			if( !DefaultServerAttributes.FILE_WATCHER_BACKEND_NIO.equals(requested))
+				LOG.warn("Unknown file watcher backend {}, using {}", requested,
+						DefaultServerAttributes.FILE_WATCHER_BACKEND_NIO);
+			return DefaultServerAttributes.FILE_WATCHER_BACKEND_NIO;
+		}
+		// A non-recursive registration only watches the path and its parents
+		if( !recursive )
+			return DefaultServerAttributes.FILE_WATCHER_BACKEND_NIO;
+		int available = budget - nio.getSubscriptionCount();
+		if( available > 0 && countFolders(path, available) <= available )
+			return DefaultServerAttributes.FILE_WATCHER_BACKEND_NIO;
+		LOG.info("{} has more folders than the remaining {} native watches; polling it instead",
+				path, Math.max(0, available));
+		return DefaultServerAttributes.FILE_WATCHER_BACKEND_POLLING;
+	}
+
+	/*
+	 * Count the folders in the tree, stopping as soon as there are more than the limit
+	 */
+	private int countFolders(Path root, int limit) {
+		if( !Files.isDirectory(root))
+			return 0;
+		int[] count = new int[] {0};
+		try {
+			Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+					Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					count[0]++;
+					return count[0] > limit ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+				}
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					return FileVisitResult.CONTINUE;
+				}
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException exc) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch(IOException ioe) {
+			LOG.debug("Unable to count folders in " + root, ioe);
+		}
+		return count[0];
+	}
+
+	/*
+	 * Getters for testing
+	 */
+	protected FileWatcherService getNioService() {
+		return nio;
+	}
+
+	protected PollingFileWatcherService getPollingService() {
+		return polling;
+	}
+}
@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.filewatcher;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * A map of {@link Path} to value, stored as a tree of path segments.
+ *
+ * Lookups for a path, its ancestors, or whether anything is stored at
+ * or below a path all cost time proportional to the depth of the path
+ * rather than to the number of entries in the map. Collecting a subtree
+ * costs time proportional to the size of that subtree.
+ *
+ * Nodes that no longer hold a value and have no children are pruned
+ * on removal, so the existence of a node means that at least one value
+ * is stored at or below it.
+ *
+ * This class is not thread-safe.
+ *
+ * @param <V> the type of the stored values
+ */
+public class PathTrie<V> {
+
+	private final Node<V> root = new Node<>(null, null, null);
+	private int size = 0;
+
+	private static class Node<V> {
+		private final Node<V> parent;
+		private final Path segment;
+		private final Path path;
+		private Map<Path, Node<V>> children;
+		private V value;
+
+		Node(Node<V> parent, Path segment, Path path) {
+			this.parent = parent;
+			this.segment = segment;
+			this.path = path;
+		}
+
+		Node<V> getChild(Path seg) {
+			return children == null ? null : children.get(seg);
+		}
+
+		Node<V> getOrCreateChild(Path seg) {
+			Node<V> child = getChild(seg);
+			if( child == null ) {
+				if( children == null )
+					children = new HashMap<>();
+				Path childPath = (path == null ? seg : path.resolve(seg));
+				child = new Node<>(this, seg, childPath);
+				children.put(seg, child);
+			}
+			return child;
+		}
+
+		boolean isEmpty() {
+			return value == null && (children == null || children.isEmpty());
+		}
+	}
+
+	/*
+	 * Split a path into its segments, including the root
+	 * component (ie '/' or 'C:\') if there is one
+	 */
+	private static List<Path> segments(Path p) {
+		List<Path> ret = new ArrayList<>(p.getNameCount() + 1);
+		Path pRoot = p.getRoot();
+		if( pRoot != null )
+			ret.add(pRoot);
+		for( int i = 0; i < p.getNameCount(); i++ ) {
+			ret.add(p.getName(i));
+		}
+		return ret;
+	}
+
+	private Node<V> findNode(Path p) {
+		Node<V> working = root;
+		for( Path seg : segments(p)) {
+			working = working.getChild(seg);
+			if( working == null )
+				return null;
+		}
+		return working;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public V get(Path p) {
+		Node<V> n = findNode(p);
+		return n == null ? null : n.value;
+	}
+
+	/**
+	 * Store a value for the given path.
+	 *
+	 * @param p the path
+	 * @param value the value, which may not be null
+	 * @return the previous value for the path, or null
+	 */
+	public V put(Path p, V value) {
+		if( value == null )
+			throw new IllegalArgumentException("Null values are not supported");
+		Node<V> working = root;
+		for( Path seg : segments(p)) {
+			working = working.getOrCreateChild(seg);
+		}
+		V previous = working.value;
+		working.value = value;
+		if( previous == null )
+			size++;
+		return previous;
+	}
+
+	/**
+	 * Remove the value stored for exactly the given path.
+	 * Values stored below the path are not affected.
+	 *
+	 * @param p the path
+	 * @return the removed value, or null
+	 */
+	public V remove(Path p) {
+		Node<V> n = findNode(p);
+		if( n == null || n.value == null )
+			return null;
+		V previous = n.value;
+		n.value = null;
+		size--;
+		prune(n);
+		return previous;
+	}
+
+	/**
+	 * Remove all values stored at or below the given path.
+	 *
+	 * @param p the path
+	 * @return a map of the removed paths and values
+	 */
+	public Map<Path, V> removeSubtree(Path p) {
+		Map<Path, V> ret = new HashMap<>();
+		Node<V> n = findNode(p);
+		if( n == null )
+			return ret;
+		collect(n, ret::put);
+		size -= ret.size();
+		if( n == root ) {
+			root.children = null;
+			root.value = null;
+		} else {
+			n.parent.children.remove(n.segment);
+			prune(n.parent);
+		}
+		return ret;
+	}
+
+	private void prune(Node<V> n) {
+		Node<V> working = n;
+		while( working != root && working.isEmpty()) {
+			working.parent.children.remove(working.segment);
+			working = working.parent;
+		}
+	}
+
+	/**
+	 * @param p the path
+	 * @return true if a value is stored at the given path or any path below it
+	 */
+	public boolean containsPathOrDescendant(Path p) {
+		return findNode(p) != null;
+	}
+
+	/**
+	 * Visit the values stored for the given path and each of its ancestors,
+	 * starting from the filesystem root.
+	 *
+	 * @param p the path
+	 * @param visitor receives the path and value of each entry found
+	 */
+	public void visitPathAndAncestors(Path p, BiConsumer<Path, V> visitor) {
+		Node<V> working = root;
+		for( Path seg : segments(p)) {
+			working = working.getChild(seg);
+			if( working == null )
+				return;
+			if( working.value != null )
+				visitor.accept(working.path, working.value);
+		}
+	}
+
+	/**
+	 * @param p the path
+	 * @return all paths with a value stored at or below the given path
+	 */
+	public List<Path> getPathAndDescendants(Path p) {
+		List<Path> ret = new ArrayList<>();
+		Node<V> n = findNode(p);
+		if( n != null ) {
+			collect(n, (path, value) -> ret.add(path));
+		}
+		return ret;
+	}
+
+	/*
+	 * Walk the subtree iteratively; paths may be far deeper than
+	 * we want to be recursing on the watcher thread
+	 */
+	private void collect(Node<V> start, BiConsumer<Path, V> visitor) {
+		Deque<Node<V>> toVisit = new ArrayDeque<>();
+		toVisit.push(start);
+		while( !toVisit.isEmpty()) {
+			Node<V> n = toVisit.pop();
+			if( n.value != null )
+				visitor.accept(n.path, n.value);
+			if( n.children != null ) {
+				for( Node<V> child : n.children.values()) {
+					toVisit.push(child);
+				}
+			}
+		}
+	}
+
+	public List<V> values() {
+		List<V> ret = new ArrayList<>(size);
+		collect(root, (path, value) -> ret.add(value));
+		return ret;
+	}
+
+	public HashMap<Path, V> toMap() {
+		HashMap<Path, V> ret = new HashMap<>();
+		collect(root, ret::put);
+		return ret;
+	}
+
+	public void clear() {
+		root.children = null;
+		root.value = null;
+		size = 0;
+	}
+}
@@ -0,0 +1,411 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.filewatcher;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.tools.rsp.api.DefaultServerAttributes;
+import org.jboss.tools.rsp.server.RSPFlags;
+import org.jboss.tools.rsp.server.spi.filewatcher.FileWatcherEvent;
+import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherBatchEventListener;
+import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherEventListener;
+import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A file watcher that does not use any native watches.
+ *
+ * Every registered path is scanned at a fixed interval, and the
+ * modification time and size of each file is compared with the
+ * previous scan. Different roots are scanned in parallel.
+ *
+ * This is slower to notice changes than {@link FileWatcherService},
+ * but works for trees that are too large for the operating system's
+ * watch limits, and on file systems that do not deliver native events.
+ *
+ * Like the native watcher, events are handed to a {@link FileWatcherEventBatcher}
+ * unless batching is disabled, so that a listener is never called
+ * by two scans of different roots at the same time.
+ */
+public class PollingFileWatcherService implements IFileWatcherService {
+	private static final Logger LOG = LoggerFactory.getLogger(PollingFileWatcherService.class);
+
+	private final long interval;
+	private final Map<Path, PolledRoot> roots = new HashMap<>();
+	private ScheduledExecutorService scheduler = null;
+	private ExecutorService scanPool = null;
+
+	private final long batchWindow;
+	private FileWatcherEventBatcher batcher = null;
+	// Whether the batcher is this service's own, rather than shared with another backend
+	private boolean ownBatcher = false;
+
+	public PollingFileWatcherService() {
+		this(RSPFlags.getFileWatcherPollInterval(), RSPFlags.getFileWatcherBatchWindow());
+	}
+
+	/**
+	 * @param interval the number of milliseconds between two scans,
+	 * or a value of zero or less to only scan when {@link #poll()} is called
+	 * @param batchWindow the number of milliseconds to collect and coalesce 
+	 * events before delivering them to listeners, or a negative value 
+	 * to deliver them immediately on the scanning threads
+	 */
+	public PollingFileWatcherService(long interval, long batchWindow) {
+		this.interval = interval;
+		this.batchWindow = batchWindow;
+	}
+
+	@Override
+	public synchronized void start() throws IllegalStateException {
+		start(null);
+	}
+
+	/*
+	 * Start, delivering events through the given batcher if there is one. 
+	 * Backends that share a batcher never call a listener concurrently.
+	 */
+	synchronized void start(FileWatcherEventBatcher shared) throws IllegalStateException {
+		if( shared != null ) {
+			this.batcher = shared;
+		} else if( batchWindow >= 0 ) {
+			this.batcher = new FileWatcherEventBatcher(batchWindow);
+			this.ownBatcher = true;
+		}
+		AtomicInteger count = new AtomicInteger();
+		this.scanPool = Executors.newFixedThreadPool(
+				Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())),
+				(Runnable runnable) -> {
+					Thread t = new Thread(runnable, "RSP File Watcher Poll Scan " + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(
+				(Runnable runnable) -> {
+					Thread t = new Thread(runnable, "RSP File Watcher Poll");
+					t.setDaemon(true);
+					return t;
+				});
+		if( interval > 0 ) {
+			scheduler.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public synchronized void stop() {
+		if( scheduler != null ) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+		if( scanPool != null ) {
+			scanPool.shutdownNow();
+			scanPool = null;
+		}
+		if( batcher != null && ownBatcher ) {
+			batcher.dispose();
+		}
+		batcher = null;
+		ownBatcher = false;
+		roots.clear();
+	}
+
+	@Override
+	public void addFileWatcherListener(Path path, IFileWatcherEventListener listener, boolean recursive) {
+		PolledRoot root;
+		synchronized(this) {
+			root = roots.computeIfAbsent(path, PolledRoot::new);
+			if( !root.addListener(listener, recursive))
+				return;
+		}
+		// Take the baseline outside of the service lock; large trees take a while
+		root.rebaseline();
+	}
+
+	@Override
+	public synchronized void removeFileWatcherListener(Path path, IFileWatcherEventListener listener) {
+		PolledRoot root = roots.get(path);
+		if( root != null ) {
+			root.removeListener(listener);
+			if( root.isEmpty()) {
+				roots.remove(path);
+			}
+		}
+	}
+
+	@Override
+	public synchronized String getBackend(Path path) {
+		return roots.containsKey(path) ? DefaultServerAttributes.FILE_WATCHER_BACKEND_POLLING : null;
+	}
+
+	/**
+	 * Scan every registered root once, in parallel, and notify
+	 * listeners of the differences since the previous scan.
+	 * Returns once every root has been scanned.
+	 */
+	public void poll() {
+		List<PolledRoot> toScan;
+		ExecutorService pool;
+		synchronized(this) {
+			toScan = new ArrayList<>(roots.values());
+			pool = scanPool;
+		}
+		if( pool == null || toScan.isEmpty())
+			return;
+		List<Callable<Object>> tasks = new ArrayList<>(toScan.size());
+		for( PolledRoot root : toScan ) {
+			tasks.add(Executors.callable(() -> scanAndNotify(root)));
+		}
+		try {
+			pool.invokeAll(tasks);
+		} catch(InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} catch(RejectedExecutionException ree) {
+			// Stopped while polling
+		}
+	}
+
+	private void scanAndNotify(PolledRoot root) {
+		List<FileWatcherEvent> events = root.scan();
+		if( events.isEmpty())
+			return;
+		FileWatcherEventBatcher b = getBatcher();
+		for( Registration reg : root.getListeners()) {
+			List<FileWatcherEvent> forListener = reg.recursive ? events : eventsForExactPath(events, root.path);
+			if( forListener.isEmpty())
+				continue;
+			if( b != null ) {
+				for( FileWatcherEvent event : forListener ) {
+					b.enqueue(reg.listener, event);
+				}
+			} else {
+				deliver(reg.listener, forListener);
+			}
+		}
+	}
+
+	private List<FileWatcherEvent> eventsForExactPath(List<FileWatcherEvent> events, Path path) {
+		List<FileWatcherEvent> ret = new ArrayList<>(1);
+		for( FileWatcherEvent e : events ) {
+			if( e.getPath().equals(path))
+				ret.add(e);
+		}
+		return ret;
+	}
+
+	private void deliver(IFileWatcherEventListener listener, List<FileWatcherEvent> events) {
+		try {
+			if( listener instanceof IFileWatcherBatchEventListener ) {
+				((IFileWatcherBatchEventListener)listener).filesChanged(events);
+			} else {
+				for( FileWatcherEvent event : events ) {
+					listener.fileChanged(event);
+				}
+			}
+		} catch(RuntimeException re) {
+			LOG.error("File watcher listener failed to handle events", re);
+		}
+	}
+
+	/*
+	 * Getters for testing
+	 */
+	protected synchronized int getRootCount() {
+		return roots.size();
+	}
+
+	protected synchronized FileWatcherEventBatcher getBatcher() {
+		return batcher;
+	}
+
+	private static class Registration {
+		private final IFileWatcherEventListener listener;
+		private final boolean recursive;
+
+		public Registration(IFileWatcherEventListener listener, boolean recursive) {
+			this.listener = listener;
+			this.recursive = recursive;
+		}
+	}
+
+	/*
+	 * The modification time, size and type of a path at the time of a scan
+	 */
+	private static class FileStamp {
+		private final long lastModified;
+		private final long size;
+		private final boolean directory;
+
+		public FileStamp(BasicFileAttributes attrs) {
+			this.lastModified = attrs.lastModifiedTime().toMillis();
+			this.size = attrs.size();
+			this.directory = attrs.isDirectory();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if( !(obj instanceof FileStamp))
+				return false;
+			FileStamp other = (FileStamp)obj;
+			return lastModified == other.lastModified && size == other.size
+					&& directory == other.directory;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(lastModified) * 31 + Long.hashCode(size);
+		}
+	}
+
+	private static class PolledRoot {
+		private final Path path;
+		private final List<Registration> listeners = new CopyOnWriteArrayList<>();
+		// Walk ordered, so parents come before their children
+		private LinkedHashMap<Path, FileStamp> snapshot = null;
+		private boolean snapshotRecursive = false;
+
+		public PolledRoot(Path path) {
+			this.path = path;
+		}
+
+		public boolean addListener(IFileWatcherEventListener listener, boolean recursive) {
+			for( Registration r : listeners ) {
+				if( r.listener == listener )
+					return false;
+			}
+			listeners.add(new Registration(listener, recursive));
+			return true;
+		}
+
+		public void removeListener(IFileWatcherEventListener listener) {
+			listeners.removeIf(r -> r.listener == listener);
+		}
+
+		public boolean isEmpty() {
+			return listeners.isEmpty();
+		}
+
+		public List<Registration> getListeners() {
+			return listeners;
+		}
+
+		private boolean isRecursive() {
+			for( Registration r : listeners ) {
+				if( r.recursive )
+					return true;
+			}
+			return false;
+		}
+
+		/*
+		 * Take a new snapshot without reporting any changes,
+		 * if none exists yet or the depth being watched has changed
+		 */
+		public synchronized void rebaseline() {
+			boolean recursive = isRecursive();
+			if( snapshot == null || snapshotRecursive != recursive ) {
+				snapshot = snapshot(recursive);
+				snapshotRecursive = recursive;
+			}
+		}
+
+		/*
+		 * Take a new snapshot and return the changes since the previous one
+		 */
+		public synchronized List<FileWatcherEvent> scan() {
+			if( snapshot == null || snapshotRecursive != isRecursive()) {
+				rebaseline();
+				return Collections.emptyList();
+			}
+			LinkedHashMap<Path, FileStamp> previous = snapshot;
+			LinkedHashMap<Path, FileStamp> current = snapshot(snapshotRecursive);
+			snapshot = current;
+			return diff(previous, current);
+		}
+
+		private List<FileWatcherEvent> diff(Map<Path, FileStamp> previous, Map<Path, FileStamp> current) {
+			List<FileWatcherEvent> events = new ArrayList<>();
+			for( Map.Entry<Path, FileStamp> entry : current.entrySet()) {
+				FileStamp old = previous.get(entry.getKey());
+				if( old == null ) {
+					events.add(new FileWatcherEvent(entry.getKey(), StandardWatchEventKinds.ENTRY_CREATE));
+				} else if( !old.equals(entry.getValue())) {
+					events.add(new FileWatcherEvent(entry.getKey(), StandardWatchEventKinds.ENTRY_MODIFY));
+				}
+			}
+			List<Path> deleted = new ArrayList<>();
+			for( Path p : previous.keySet()) {
+				if( !current.containsKey(p))
+					deleted.add(p);
+			}
+			// Children are deleted before their parents
+			Collections.reverse(deleted);
+			for( Path p : deleted ) {
+				events.add(new FileWatcherEvent(p, StandardWatchEventKinds.ENTRY_DELETE));
+			}
+			return events;
+		}
+
+		private LinkedHashMap<Path, FileStamp> snapshot(boolean recursive) {
+			LinkedHashMap<Path, FileStamp> ret = new LinkedHashMap<>();
+			if( !recursive ) {
+				try {
+					ret.put(path, new FileStamp(Files.readAttributes(path, BasicFileAttributes.class)));
+				} catch(IOException ioe) {
+					// Does not exist
+				}
+				return ret;
+			}
+			try {
+				Files.walkFileTree(path, EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+						Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+						ret.put(dir, new FileStamp(attrs));
+						return FileVisitResult.CONTINUE;
+					}
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+						ret.put(file, new FileStamp(attrs));
+						return FileVisitResult.CONTINUE;
+					}
+					@Override
+					public FileVisitResult visitFileFailed(Path file, IOException exc) {
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			} catch(IOException ioe) {
+				LOG.debug("Unable to scan " + path, ioe);
+			}
+			return ret;
+		}
+	}
+}
@@ -13,6 +13,11 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.tools.rsp.api.DefaultServerAttributes;
 import org.jboss.tools.rsp.api.ServerManagementAPIConstants;
@@ -453,14 +458,16 @@ public abstract class AbstractServerDelegate implements IServerDelegate, IDebugE
 		try {
 			publishStart(publishType);
 			List<DeployableState> list = getServerPublishModel().getDeployableStates();
-			for( DeployableState state : list ) {
-				try {
-					publish(publishType, state);
-				} catch(CoreException ce) {
-					String mod = state.getReference().getLabel();
-					String server = getServer().getName();
-					ms.add(new Status(IStatus.ERROR, ServerCoreActivator.BUNDLE_ID, 
-							NLS.bind("Error while publishing deployable {0} to server {1}", mod, server), ce)); 
+			int parallelism = Math.min(getPublishParallelism(), list.size());
+			if( parallelism > 1 ) {
+				publishInParallel(publishType, list, parallelism, ms);
+			} else {
+				for( DeployableState state : list ) {
+					try {
+						publish(publishType, state);
+					} catch(CoreException ce) {
+						ms.add(createPublishDeployableError(state, ce));
+					}
 				}
 			}
 		} catch(CoreException ce) {
@@ -478,6 +485,60 @@ public abstract class AbstractServerDelegate implements IServerDelegate, IDebugE
 		return ms;
 	}
 
+	/*
+	 * Publish every deployable on its own thread, and wait for all of 
+	 * them before returning, so that publishFinish still runs after 
+	 * every deployable has been copied. 
+	 */
+	private void publishInParallel(int publishType, List<DeployableState> list, 
+			int parallelism, MultiStatus ms) {
+		String serverName = getServer().getName();
+		AtomicInteger count = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, 
+				(Runnable runnable) -> {
+					Thread t = new Thread(runnable, "RSP Publish " + serverName + " " + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		try {
+			List<Future<?>> futures = new ArrayList<>(list.size());
+			for( DeployableState state : list ) {
+				futures.add(executor.submit(() -> {
+					publish(publishType, state);
+					return null;
+				}));
+			}
+			for( int i = 0; i < futures.size(); i++ ) {
+				try {
+					futures.get(i).get();
+				} catch(ExecutionException ee) {
+					ms.add(createPublishDeployableError(list.get(i), ee.getCause()));
+				} catch(InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					ms.add(createPublishDeployableError(list.get(i), ie));
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private IStatus createPublishDeployableError(DeployableState state, Throwable t) {
+		String mod = state.getReference().getLabel();
+		String server = getServer().getName();
+		return new Status(IStatus.ERROR, ServerCoreActivator.BUNDLE_ID, 
+				NLS.bind("Error while publishing deployable {0} to server {1}", mod, server), t); 
+	}
+
+	/**
+	 * The number of deployables to publish at the same time. 
+	 * A value of 1 or less publishes them one after another.
+	 */
+	protected int getPublishParallelism() {
+		return getServer().getAttribute(DefaultServerAttributes.PUBLISH_PARALLELISM, 
+				DefaultServerAttributes.PUBLISH_PARALLELISM_DEFAULT);
+	}
+
 	protected void publish(int publishRequestType, DeployableState state) throws CoreException {
 		int modulePublishState = state.getPublishState();
 		
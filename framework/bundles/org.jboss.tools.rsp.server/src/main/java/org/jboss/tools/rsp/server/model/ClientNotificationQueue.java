@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.model;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import org.jboss.tools.rsp.api.RSPClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The notifications waiting to be sent to one client.
+ *
+ * Notifications are queued by whichever thread raised them and sent
+ * in order by a single sender, so that a slow client only delays itself.
+ * Once the queue is full, the oldest notification that may be dropped
+ * makes room for the new one. Notifications that must not be dropped
+ * are always queued.
+ */
+public class ClientNotificationQueue {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ClientNotificationQueue.class);
+
+	public enum Policy {
+		/**
+		 * May be dropped in favor of newer notifications, ie. process output or job progress
+		 */
+		DROP_OLDEST,
+		/**
+		 * Is always delivered, ie. server state changes
+		 */
+		NEVER_DROP
+	}
+
+	private final RSPClient client;
+	private final int capacity;
+	private final Executor sender;
+	// both in the order they were queued, merged by sequence when sending
+	private final Deque<Notification> droppable = new ArrayDeque<>();
+	private final Deque<Notification> reliable = new ArrayDeque<>();
+	private long sequence = 0;
+	private boolean sending = false;
+	private boolean overflowing = false;
+	private boolean closed = false;
+	private long queuedCount = 0;
+	private long sentCount = 0;
+	private long droppedCount = 0;
+
+	public ClientNotificationQueue(RSPClient client, int capacity, Executor sender) {
+		this.client = client;
+		this.capacity = Math.max(1, capacity);
+		this.sender = sender;
+	}
+
+	public RSPClient getClient() {
+		return client;
+	}
+
+	/**
+	 * Queues the given notification for the client and returns immediately.
+	 */
+	public void send(Policy policy, Consumer<RSPClient> notification) {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			queuedCount++;
+			if (size() >= capacity) {
+				if (!droppable.isEmpty()) {
+					droppable.poll();
+					dropped();
+				} else if (policy == Policy.DROP_OLDEST) {
+					dropped();
+					return;
+				}
+			}
+			Notification n = new Notification(sequence++, notification);
+			if (policy == Policy.DROP_OLDEST) {
+				droppable.add(n);
+			} else {
+				reliable.add(n);
+			}
+			if (sending) {
+				return;
+			}
+			sending = true;
+		}
+		try {
+			sender.execute(this::sendQueued);
+		} catch (RejectedExecutionException ree) {
+			synchronized (this) {
+				sending = false;
+			}
+		}
+	}
+
+	private void dropped() {
+		droppedCount++;
+		if (!overflowing) {
+			overflowing = true;
+			LOG.warn("Client {} is not keeping up, dropping process output and job progress notifications", client);
+		}
+	}
+
+	private void sendQueued() {
+		while (true) {
+			Notification next;
+			synchronized (this) {
+				next = closed ? null : poll();
+				if (next == null) {
+					sending = false;
+					overflowing = false;
+					return;
+				}
+			}
+			try {
+				next.notification.accept(client);
+			} catch (RuntimeException re) {
+				LOG.error("Failed to notify client " + client, re);
+			}
+			synchronized (this) {
+				sentCount++;
+			}
+		}
+	}
+
+	private Notification poll() {
+		Notification first = droppable.peek();
+		Notification second = reliable.peek();
+		if (first == null || (second != null && second.sequence < first.sequence)) {
+			return reliable.poll();
+		}
+		return droppable.poll();
+	}
+
+	/**
+	 * Discards all queued notifications and stops sending.
+	 */
+	public synchronized void close() {
+		closed = true;
+		droppable.clear();
+		reliable.clear();
+	}
+
+	/**
+	 * Returns the number of notifications waiting to be sent.
+	 */
+	public synchronized int size() {
+		return droppable.size() + reliable.size();
+	}
+
+	/**
+	 * Returns the number of notifications queued so far, including dropped ones.
+	 */
+	public synchronized long getQueuedCount() {
+		return queuedCount;
+	}
+
+	public synchronized long getSentCount() {
+		return sentCount;
+	}
+
+	public synchronized long getDroppedCount() {
+		return droppedCount;
+	}
+
+	private static class Notification {
+		private final long sequence;
+		private final Consumer<RSPClient> notification;
+
+		private Notification(long sequence, Consumer<RSPClient> notification) {
+			this.sequence = sequence;
+			this.notification = notification;
+		}
+	}
+}
@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.tools.rsp.api.dao.ServerHandle;
+import org.jboss.tools.rsp.api.dao.ServerProcessOutput;
+import org.jboss.tools.rsp.server.model.ClientNotificationQueue.Policy;
+
+/**
+ * Collects the process output for one client and sends it in chunks.
+ *
+ * Output of each process and stream type is collected for a flush
+ * window and sent as a single notification, or earlier once a chunk
+ * is large enough. A client may also limit the rate it receives
+ * output at, in which case output waits for its turn, and the oldest
+ * output is dropped once too much of it is waiting.
+ *
+ * Sizes and rates are counted in characters, which for the mostly
+ * ascii console output of servers are also bytes.
+ */
+public class ProcessOutputAggregator {
+
+	public static final int DEFAULT_FLUSH_WINDOW = 50;
+	public static final int MAX_FLUSH_WINDOW = 2000;
+	public static final int MIN_RATE = 1024;
+	/**
+	 * Output waiting for longer than a window is sent once it reaches this size
+	 */
+	public static final int MAX_CHUNK = 64 * 1024;
+	/**
+	 * The most output of a single stream that may wait to be sent
+	 */
+	public static final int MAX_PENDING = 1024 * 1024;
+
+	private final ClientNotificationQueue queue;
+	private final ScheduledExecutorService scheduler;
+	private final Map<StreamKey, StringBuilder> pending = new LinkedHashMap<>();
+	private ScheduledFuture<?> scheduledFlush;
+	private int flushWindow = DEFAULT_FLUSH_WINDOW;
+	private int maxRate = 0;
+	private double allowance = 0;
+	private long lastRefill = System.nanoTime();
+	private long delayedFrom = 0;
+	private long charsReceived = 0;
+	private long charsSent = 0;
+	private long charsDelayed = 0;
+	private long charsDropped = 0;
+	private long chunksSent = 0;
+
+	public ProcessOutputAggregator(ClientNotificationQueue queue, ScheduledExecutorService scheduler) {
+		this.queue = queue;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Sets the milliseconds output is collected for, between 0 and {@link #MAX_FLUSH_WINDOW}.
+	 */
+	public synchronized void setFlushWindow(int millis) {
+		this.flushWindow = Math.max(0, Math.min(MAX_FLUSH_WINDOW, millis));
+	}
+
+	public synchronized int getFlushWindow() {
+		return flushWindow;
+	}
+
+	/**
+	 * Sets the most characters per second to send, 0 for no limit.
+	 * Limits below {@link #MIN_RATE} are raised to it.
+	 */
+	public synchronized void setMaxRate(int charsPerSecond) {
+		int rate = charsPerSecond <= 0 ? 0 : Math.max(MIN_RATE, charsPerSecond);
+		if (rate != maxRate) {
+			// a second worth of output may go out at once
+			this.maxRate = rate;
+			this.allowance = rate;
+			this.lastRefill = System.nanoTime();
+		}
+	}
+
+	public synchronized int getMaxRate() {
+		return maxRate;
+	}
+
+	public void append(ServerHandle server, String processId, int streamType, String text) {
+		if (text == null || text.isEmpty()) {
+			return;
+		}
+		synchronized (this) {
+			charsReceived += text.length();
+			if (flushWindow == 0 && maxRate == 0 && pending.isEmpty()) {
+				send(server, processId, streamType, text);
+				return;
+			}
+			StreamKey key = new StreamKey(server, processId, streamType);
+			StringBuilder sb = pending.computeIfAbsent(key, k -> new StringBuilder());
+			sb.append(text);
+			if (sb.length() > MAX_PENDING) {
+				int excess = sb.length() - MAX_PENDING;
+				sb.delete(0, excess);
+				charsDropped += excess;
+				delayedFrom = Math.max(0, delayedFrom - excess);
+			}
+			if (flushWindow == 0 || (sb.length() >= MAX_CHUNK && maxRate == 0)) {
+				flush(false);
+			} else {
+				scheduleFlush(flushWindow);
+			}
+		}
+	}
+
+	/**
+	 * Sends all collected output of the given process right away,
+	 * regardless of the rate limit.
+	 */
+	public synchronized void flushProcess(ServerHandle server, String processId) {
+		for (Iterator<Map.Entry<StreamKey, StringBuilder>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<StreamKey, StringBuilder> e = it.next();
+			if (e.getKey().matches(server, processId)) {
+				String text = e.getValue().toString();
+				send(e.getKey(), text);
+				it.remove();
+			}
+		}
+		if (pending.isEmpty()) {
+			delayedFrom = 0;
+		}
+	}
+
+	private void scheduleFlush(long delay) {
+		if (scheduledFlush != null) {
+			return;
+		}
+		try {
+			scheduledFlush = scheduler.schedule(() -> flush(true), delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException ree) {
+			// shutting down
+		}
+	}
+
+	private synchronized void flush(boolean scheduled) {
+		if (scheduled) {
+			scheduledFlush = null;
+		}
+		refill();
+		int left = 0;
+		List<StreamKey> sent = new ArrayList<>();
+		for (Map.Entry<StreamKey, StringBuilder> e : pending.entrySet()) {
+			StringBuilder sb = e.getValue();
+			int length = sb.length();
+			if (maxRate > 0) {
+				length = (int)Math.min(length, Math.floor(allowance));
+				if (length > 0 && length < sb.length() && Character.isHighSurrogate(sb.charAt(length - 1))) {
+					length--;
+				}
+			}
+			if (length > 0) {
+				send(e.getKey(), sb.substring(0, length));
+				sb.delete(0, length);
+				if (maxRate > 0) {
+					allowance -= length;
+				}
+			}
+			if (sb.length() == 0) {
+				sent.add(e.getKey());
+			}
+			left += sb.length();
+		}
+		pending.keySet().removeAll(sent);
+		// count every character that had to wait for the rate limit once
+		if (left > delayedFrom) {
+			charsDelayed += left - delayedFrom;
+		}
+		delayedFrom = left;
+		if (left > 0) {
+			scheduleFlush(Math.max(flushWindow, getRefillDelay(left)));
+		}
+	}
+
+	private void refill() {
+		long now = System.nanoTime();
+		if (maxRate > 0) {
+			double seconds = (now - lastRefill) / 1e9;
+			allowance = Math.min(maxRate, allowance + seconds * maxRate);
+		}
+		lastRefill = now;
+	}
+
+	private long getRefillDelay(int waiting) {
+		// until enough allowance for a chunk, but check at least every second
+		double needed = Math.min(waiting, MAX_CHUNK) - allowance;
+		return Math.max(1, Math.min(1000, (long)Math.ceil(needed * 1000 / maxRate)));
+	}
+
+	private void send(StreamKey key, String text) {
+		send(key.server, key.processId, key.streamType, text);
+	}
+
+	private void send(ServerHandle server, String processId, int streamType, String text) {
+		charsSent += text.length();
+		chunksSent++;
+		ServerProcessOutput output = new ServerProcessOutput(server, processId, streamType, text);
+		queue.send(Policy.DROP_OLDEST, c -> c.serverProcessOutputAppended(output));
+	}
+
+	/**
+	 * Stops sending, collected output is discarded.
+	 */
+	public synchronized void close() {
+		if (scheduledFlush != null) {
+			scheduledFlush.cancel(false);
+			scheduledFlush = null;
+		}
+		for (StringBuilder sb : pending.values()) {
+			charsDropped += sb.length();
+		}
+		pending.clear();
+	}
+
+	public synchronized long getCharsReceived() {
+		return charsReceived;
+	}
+
+	public synchronized long getCharsSent() {
+		return charsSent;
+	}
+
+	/**
+	 * Returns how many characters had to wait for the rate limit.
+	 */
+	public synchronized long getCharsDelayed() {
+		return charsDelayed;
+	}
+
+	/**
+	 * Returns how many characters were never sent because too much output was waiting.
+	 */
+	public synchronized long getCharsDropped() {
+		return charsDropped;
+	}
+
+	public synchronized long getChunksSent() {
+		return chunksSent;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "received " + charsReceived + " characters of output, sent " + charsSent
+				+ " in " + chunksSent + " chunks, delayed " + charsDelayed
+				+ ", dropped " + charsDropped;
+	}
+
+	private static class StreamKey {
+		private final ServerHandle server;
+		private final String processId;
+		private final int streamType;
+
+		private StreamKey(ServerHandle server, String processId, int streamType) {
+			this.server = server;
+			this.processId = processId;
+			this.streamType = streamType;
+		}
+
+		private boolean matches(ServerHandle server, String processId) {
+			return Objects.equals(getId(this.server), getId(server))
+					&& Objects.equals(this.processId, processId);
+		}
+
+		private static String getId(ServerHandle handle) {
+			return handle == null ? null : handle.getId();
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(getId(server), processId, streamType);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof StreamKey)) {
+				return false;
+			}
+			StreamKey other = (StreamKey) obj;
+			return streamType == other.streamType && matches(other.server, other.processId);
+		}
+	}
+}
@@ -11,22 +11,34 @@ package org.jboss.tools.rsp.server.model;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+import org.jboss.tools.rsp.api.ICapabilityKeys;
 import org.jboss.tools.rsp.api.RSPClient;
 import org.jboss.tools.rsp.api.dao.DiscoveryPath;
 import org.jboss.tools.rsp.api.dao.JobHandle;
 import org.jboss.tools.rsp.api.dao.JobProgress;
 import org.jboss.tools.rsp.api.dao.JobRemoved;
+import org.jboss.tools.rsp.api.dao.ServerBean;
+import org.jboss.tools.rsp.api.dao.ServerBeanFound;
 import org.jboss.tools.rsp.api.dao.ServerHandle;
 import org.jboss.tools.rsp.api.dao.ServerProcess;
-import org.jboss.tools.rsp.api.dao.ServerProcessOutput;
 import org.jboss.tools.rsp.api.dao.ServerState;
 import org.jboss.tools.rsp.api.dao.VMDescription;
 import org.jboss.tools.rsp.eclipse.core.runtime.IStatus;
 import org.jboss.tools.rsp.eclipse.jdt.launching.IVMInstall;
 import org.jboss.tools.rsp.eclipse.jdt.launching.IVMInstallChangedListener;
 import org.jboss.tools.rsp.eclipse.jdt.launching.PropertyChangeEvent;
+import org.jboss.tools.rsp.server.RSPFlags;
 import org.jboss.tools.rsp.server.ServerManagementServerImpl;
+import org.jboss.tools.rsp.server.model.ClientNotificationQueue.Policy;
 import org.jboss.tools.rsp.server.spi.discovery.IDiscoveryPathListener;
 import org.jboss.tools.rsp.server.spi.jobs.IJob;
 import org.jboss.tools.rsp.server.spi.jobs.IJobListener;
@@ -34,11 +46,20 @@ import org.jboss.tools.rsp.server.spi.model.IServerModel;
 import org.jboss.tools.rsp.server.spi.model.IServerModelListener;
 import org.jboss.tools.rsp.server.spi.servertype.IServer;
 import org.jboss.tools.rsp.server.spi.util.StatusConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class RemoteEventManager implements IDiscoveryPathListener, 
 	IVMInstallChangedListener, IServerModelListener, IJobListener {
 	
+	private static final Logger LOG = LoggerFactory.getLogger(RemoteEventManager.class);
+
 	private ServerManagementServerImpl server;
+	private final Map<RSPClient, ClientNotificationQueue> queues = new ConcurrentHashMap<>();
+	private final Map<RSPClient, ProcessOutputAggregator> aggregators = new ConcurrentHashMap<>();
+	private final ExecutorService sender = createSender();
+	private final ScheduledExecutorService outputFlusher = createOutputFlusher();
+
 	public RemoteEventManager(ServerManagementServerImpl serverManagementServerImpl) {
 		this.server = serverManagementServerImpl; 
 		serverManagementServerImpl.getModel().getDiscoveryPathModel().addListener(this);
@@ -47,33 +68,153 @@ public class RemoteEventManager implements IDiscoveryPathListener,
 		serverManagementServerImpl.getModel().getJobManager().addJobListener(this);
 	}
 	
+	private static ExecutorService createSender() {
+		AtomicInteger count = new AtomicInteger();
+		return Executors.newCachedThreadPool((Runnable r) -> {
+			Thread t = new Thread(r, "RSP Client Notifier " + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	private static ScheduledExecutorService createOutputFlusher() {
+		ScheduledThreadPoolExecutor flusher = new ScheduledThreadPoolExecutor(1, (Runnable r) -> {
+			Thread t = new Thread(r, "RSP Output Aggregator");
+			t.setDaemon(true);
+			return t;
+		});
+		flusher.setRemoveOnCancelPolicy(true);
+		return flusher;
+	}
+
+	/**
+	 * Creates the queue and the output aggregator for a client that connected.
+	 * Notifications are only sent to clients that were added.
+	 */
+	public void clientAdded(RSPClient client) {
+		ClientNotificationQueue queue = queues.computeIfAbsent(client, 
+				c -> new ClientNotificationQueue(c, RSPFlags.getClientQueueCapacity(), sender));
+		aggregators.computeIfAbsent(client, c -> {
+			ProcessOutputAggregator aggregator = new ProcessOutputAggregator(queue, outputFlusher);
+			configure(c, aggregator);
+			return aggregator;
+		});
+		if( !server.getClients().contains(client)) {
+			// disconnected while it was added
+			clientRemoved(client);
+		}
+	}
+
+	/**
+	 * Returns the queue of notifications waiting to be sent to the given client, 
+	 * or {@code null} if the client is not connected.
+	 */
+	public ClientNotificationQueue getQueue(RSPClient client) {
+		return queues.get(client);
+	}
+
+	/**
+	 * Returns the aggregator that collects the process output for the given client, 
+	 * or {@code null} if the client is not connected.
+	 */
+	public ProcessOutputAggregator getAggregator(RSPClient client) {
+		return aggregators.get(client);
+	}
+
+	/**
+	 * Applies the output flush window and rate the given client asked for.
+	 * 
+	 * @return the aggregator of the client or {@code null} if it is not connected
+	 */
+	public ProcessOutputAggregator clientCapabilitiesChanged(RSPClient client) {
+		ProcessOutputAggregator aggregator = getAggregator(client);
+		if( aggregator != null ) {
+			configure(client, aggregator);
+		}
+		return aggregator;
+	}
+
+	private void configure(RSPClient client, ProcessOutputAggregator aggregator) {
+		aggregator.setFlushWindow(getIntCapability(client, 
+				ICapabilityKeys.STRING_PROCESS_OUTPUT_FLUSH_WINDOW, ProcessOutputAggregator.DEFAULT_FLUSH_WINDOW));
+		aggregator.setMaxRate(getIntCapability(client, 
+				ICapabilityKeys.STRING_PROCESS_OUTPUT_MAX_RATE, 0));
+	}
+
+	private int getIntCapability(RSPClient client, String key, int defaultValue) {
+		String value = server.getModel().getCapabilityManagement().getCapabilityProperty(client, key);
+		if( value == null ) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch(NumberFormatException nfe) {
+			LOG.warn("Client {} requested an invalid value {} for {}", client, value, key);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Discards the notifications that were not sent to the given client yet.
+	 */
+	public void clientRemoved(RSPClient client) {
+		ProcessOutputAggregator aggregator = aggregators.remove(client);
+		if( aggregator != null ) {
+			aggregator.close();
+			if( aggregator.getCharsDropped() > 0 || aggregator.getCharsDelayed() > 0 ) {
+				LOG.info("Client {} {}", client, aggregator);
+			}
+		}
+		ClientNotificationQueue queue = queues.remove(client);
+		if( queue != null ) {
+			queue.close();
+		}
+	}
+
+	private void notifyClients(Policy policy, Consumer<RSPClient> notification) {
+		for( RSPClient c : server.getClients()) {
+			send(c, policy, notification);
+		}
+	}
+
+	/*
+	 * Clients that were removed while a notification was in flight are skipped
+	 */
+	private void send(RSPClient client, Policy policy, Consumer<RSPClient> notification) {
+		ClientNotificationQueue queue = getQueue(client);
+		if( queue != null ) {
+			queue.send(policy, notification);
+		}
+	}
+
 	@Override
 	public void discoveryPathAdded(DiscoveryPath path) {
-		List<RSPClient> l = server.getClients();
-		for( RSPClient c : l) {
-			c.discoveryPathAdded(path);
-		}
+		notifyClients(Policy.NEVER_DROP, c -> c.discoveryPathAdded(path));
 	}
 	@Override
 	public void discoveryPathRemoved(DiscoveryPath path) {
-		List<RSPClient> l = server.getClients();
-		for( RSPClient c : l) {
-			c.discoveryPathRemoved(path);
+		notifyClients(Policy.NEVER_DROP, c -> c.discoveryPathRemoved(path));
+	}
+
+	/**
+	 * Tells the client that asked for a recursive search about a server bean it found.
+	 * All clients are told if the search was not requested by a client.
+	 */
+	public void serverBeanFound(RSPClient client, JobHandle job, ServerBean bean) {
+		ServerBeanFound found = new ServerBeanFound(job, bean);
+		if( client == null ) {
+			notifyClients(Policy.NEVER_DROP, c -> c.serverBeanFound(found));
+		} else {
+			send(client, Policy.NEVER_DROP, c -> c.serverBeanFound(found));
 		}
 	}
 
 	public void serverAdded(ServerHandle server2) {
-		List<RSPClient> l = server.getClients();
-		for( RSPClient c : l) {
-			c.serverAdded(server2);
-		}
+		notifyClients(Policy.NEVER_DROP, c -> c.serverAdded(server2));
 	}
 	
 	public void serverRemoved(ServerHandle server2) {
-		List<RSPClient> l = server.getClients();
-		for( RSPClient c : l) {
-			c.serverRemoved(server2);
-		}
+		notifyClients(Policy.NEVER_DROP, c -> c.serverRemoved(server2));
 	}
 	
 	public void serverAttributesChanged(ServerHandle server) {
@@ -81,11 +222,8 @@ public class RemoteEventManager implements IDiscoveryPathListener,
 	}
 	
 	public void serverStateChanged(ServerHandle server, ServerState state) {
-		List<RSPClient> l = this.server.getClients();
 		if( this.server.getModel().getServerModel().getServer(server.getId()) != null ) {
-			for( RSPClient c : l) {
-				c.serverStateChanged(state);
-			}
+			notifyClients(Policy.NEVER_DROP, c -> c.serverStateChanged(state));
 		}
 	}
 	
@@ -95,32 +233,35 @@ public class RemoteEventManager implements IDiscoveryPathListener,
 	public void initClientWithServerStates(RSPClient client) {
 		IServerModel model = server.getModel().getServerModel();
 		List<IServer> all = new ArrayList<>(model.getServers().values());
-		ServerState state = null;
 		for( Iterator<IServer> it = all.iterator(); it.hasNext(); ) {
-			state = it.next().getDelegate().getServerState();
-			client.serverStateChanged(state);
+			ServerState state = it.next().getDelegate().getServerState();
+			send(client, Policy.NEVER_DROP, c -> c.serverStateChanged(state));
 		}
 	}
 	
 	public void serverProcessCreated(ServerHandle server, String processId) {
-		List<RSPClient> l = this.server.getClients();
-		for( RSPClient c : l) {
-			c.serverProcessCreated(new ServerProcess(server, processId));
-		}
+		ServerProcess process = new ServerProcess(server, processId);
+		notifyClients(Policy.NEVER_DROP, c -> c.serverProcessCreated(process));
 	}
 	
 	public void serverProcessTerminated(ServerHandle server, String processId) {
-		List<RSPClient> l = this.server.getClients();
-		for( RSPClient c : l) {
-			c.serverProcessTerminated(new ServerProcess(server, processId));
+		ServerProcess process = new ServerProcess(server, processId);
+		for( RSPClient c : this.server.getClients()) {
+			// the output that is still collected goes out before the process terminates
+			ProcessOutputAggregator aggregator = getAggregator(c);
+			if( aggregator != null ) {
+				aggregator.flushProcess(server, processId);
+			}
+			send(c, Policy.NEVER_DROP, client -> client.serverProcessTerminated(process));
 		}
 	}
 	
 	public void serverProcessOutputAppended(ServerHandle server, String processId, int streamType, String text) {
-		List<RSPClient> l = this.server.getClients();
-		for( RSPClient c : l) {
-			c.serverProcessOutputAppended(new ServerProcessOutput(
-					server, processId, streamType, text));
+		for( RSPClient c : this.server.getClients()) {
+			ProcessOutputAggregator aggregator = getAggregator(c);
+			if( aggregator != null ) {
+				aggregator.append(server, processId, streamType, text);
+			}
 		}
 	}
 	
@@ -163,26 +304,17 @@ public class RemoteEventManager implements IDiscoveryPathListener,
 	@Override
 	public void jobAdded(IJob job) {
 		JobHandle jh = new JobHandle(job.getName(), job.getId());
-		List<RSPClient> l = server.getClients();
-		for( RSPClient c : l) {
-			c.jobAdded(jh);
-		}
+		notifyClients(Policy.NEVER_DROP, c -> c.jobAdded(jh));
 	}
 	@Override
 	public void jobRemoved(IJob job, IStatus status) {
 		JobHandle jh = new JobHandle(job.getName(), job.getId());
 		JobRemoved rem = new JobRemoved(jh,  StatusConverter.convert(status));
-		List<RSPClient> l = server.getClients();
-		for( RSPClient c : l) {
-			c.jobRemoved(rem);
-		}
+		notifyClients(Policy.NEVER_DROP, c -> c.jobRemoved(rem));
 	}
 	@Override
 	public void progressChanged(IJob job, double work) {
 		JobProgress progress = new JobProgress(new JobHandle(job.getName(), job.getId()), work); 
-		List<RSPClient> l = server.getClients();
-		for( RSPClient c : l) {
-			c.jobChanged(progress);
-		}
+		notifyClients(Policy.DROP_OLDEST, c -> c.jobChanged(progress));
 	}
 }
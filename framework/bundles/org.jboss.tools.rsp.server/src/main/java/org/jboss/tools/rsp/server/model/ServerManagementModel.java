@@ -27,11 +27,14 @@ import org.jboss.tools.rsp.runtime.core.RuntimeCoreActivator;
 import org.jboss.tools.rsp.runtime.core.model.IDownloadRuntimesModel;
 import org.jboss.tools.rsp.secure.model.ISecureStorageProvider;
 import org.jboss.tools.rsp.server.CapabilityManagement;
+import org.jboss.tools.rsp.server.RSPFlags;
+import org.jboss.tools.rsp.server.discovery.DiscoveryIndex;
 import org.jboss.tools.rsp.server.discovery.DiscoveryPathModel;
 import org.jboss.tools.rsp.server.discovery.serverbeans.ServerBeanTypeManager;
-import org.jboss.tools.rsp.server.filewatcher.FileWatcherService;
+import org.jboss.tools.rsp.server.filewatcher.MultiBackendFileWatcherService;
 import org.jboss.tools.rsp.server.jobs.JobManager;
 import org.jboss.tools.rsp.server.secure.SecureStorageGuardian;
+import org.jboss.tools.rsp.server.spi.discovery.IDiscoveryIndex;
 import org.jboss.tools.rsp.server.spi.discovery.IDiscoveryPathModel;
 import org.jboss.tools.rsp.server.spi.discovery.IServerBeanTypeManager;
 import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherService;
@@ -56,6 +59,7 @@ public class ServerManagementModel implements IServerManagementModel {
 
 	private IDiscoveryPathModel rpm;
 	private IServerBeanTypeManager serverBeanTypeManager;
+	private IDiscoveryIndex discoveryIndex;
 	private IServerModel serverModel;
 	private IVMInstallRegistry vmModel;
 	private IFileWatcherService fileWatcherService;
@@ -77,6 +81,7 @@ public class ServerManagementModel implements IServerManagementModel {
 		this.fileWatcherService.start();
 		this.downloadRuntimeModel = createDownloadRuntimesModel();
 		this.jobManager = createJobManager();
+		this.discoveryIndex = createDiscoveryIndex();
 	}
 	
 	@Override
@@ -99,6 +104,11 @@ public class ServerManagementModel implements IServerManagementModel {
 		return serverBeanTypeManager;
 	}
 
+	@Override
+	public IDiscoveryIndex getDiscoveryIndex() {
+		return discoveryIndex;
+	}
+
 	@Override
 	public IServerModel getServerModel() {
 		return serverModel;
@@ -175,13 +185,21 @@ public class ServerManagementModel implements IServerManagementModel {
 	}
 
 	protected IFileWatcherService createFileWatcherService() {
-		return new FileWatcherService();
+		return new MultiBackendFileWatcherService();
 	}
 
 	protected IJobManager createJobManager() {
 		return new JobManager();
 	}
 
+	protected IDiscoveryIndex createDiscoveryIndex() {
+		DiscoveryIndex index = new DiscoveryIndex(this);
+		if( RSPFlags.isDiscoveryIndexWatched()) {
+			index.watch(fileWatcherService);
+		}
+		return index;
+	}
+
 	@Override
 	public void dispose() {
 		shutdownAllServers();
@@ -19,6 +19,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.jboss.tools.rsp.api.RSPClient;
@@ -43,10 +47,12 @@ import org.jboss.tools.rsp.eclipse.core.runtime.Status;
 import org.jboss.tools.rsp.eclipse.osgi.util.NLS;
 import org.jboss.tools.rsp.launching.utils.IStatusRunnableWithProgress;
 import org.jboss.tools.rsp.secure.model.ISecureStorageProvider;
+import org.jboss.tools.rsp.server.RSPFlags;
 import org.jboss.tools.rsp.server.ServerCoreActivator;
 import org.jboss.tools.rsp.server.model.internal.DaoUtilities;
 import org.jboss.tools.rsp.server.model.internal.DummyServer;
 import org.jboss.tools.rsp.server.model.internal.Server;
+import org.jboss.tools.rsp.server.persistence.PersistenceJournal;
 import org.jboss.tools.rsp.server.spi.client.ClientThreadLocal;
 import org.jboss.tools.rsp.server.spi.model.IServerManagementModel;
 import org.jboss.tools.rsp.server.spi.model.IServerModel;
@@ -190,13 +196,53 @@ public class ServerModel implements IServerModel {
 		if (!folder.exists()) {
 			return;
 		}
-		for (File serverFile: folder.listFiles()) {
-			Server server = loadServer(serverFile);
+		File[] files = folder.listFiles(f -> !PersistenceJournal.isTempFile(f));
+		if( files == null ) {
+			return;
+		}
+		// read and parse in parallel, but add the servers in the order of their files
+		for (Server server : loadServers(files)) {
 			if( server != null )
 				addServer(server, server.getDelegate());
 		}
 	}
 
+	private List<Server> loadServers(File[] files) {
+		int threads = Math.min(files.length, RSPFlags.getPersistenceLoadThreads());
+		if( threads <= 1 ) {
+			return Arrays.stream(files).map(this::loadServer).collect(Collectors.toList());
+		}
+		ExecutorService loader = Executors.newFixedThreadPool(threads, (Runnable r) -> {
+			Thread t = new Thread(r, "RSP Server Loader");
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			List<Future<Server>> futures = new ArrayList<>();
+			for (File serverFile : files) {
+				futures.add(loader.submit(() -> loadServer(serverFile)));
+			}
+			List<Server> loaded = new ArrayList<>();
+			for (Future<Server> future : futures) {
+				loaded.add(getLoaded(future));
+			}
+			return loaded;
+		} finally {
+			loader.shutdown();
+		}
+	}
+
+	private Server getLoaded(Future<Server> future) {
+		try {
+			return future.get();
+		} catch(InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} catch(ExecutionException ee) {
+			log(new Exception("Unable to load server", ee.getCause()));
+		}
+		return null;
+	}
+
 	private Server loadServer(File serverFile) {
 		Server server = new Server(serverFile, managementModel);
 		try {
@@ -216,13 +262,15 @@ public class ServerModel implements IServerModel {
 				} else if( createServerTypeDAO(typeId) == null ) {
 					logDebug(new Exception(
 							"Unable to load server from file " + serverFile.getAbsolutePath() + "; server type " + typeId + " is not found in model."));
-					List<File> failedType = failedServerLoads.get(typeId);
-					if( failedType == null ) {
-						failedType = new ArrayList<File>();
-						failedServerLoads.put(typeId,  failedType);
+					synchronized(failedServerLoads) {
+						List<File> failedType = failedServerLoads.get(typeId);
+						if( failedType == null ) {
+							failedType = new ArrayList<File>();
+							failedServerLoads.put(typeId,  failedType);
+						}
+						if( !failedType.contains(serverFile))
+							failedType.add(serverFile);
 					}
-					if( !failedType.contains(serverFile))
-						failedType.add(serverFile);
 				}
 				return null;
 			} else {
@@ -13,23 +13,36 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 
 import org.jboss.tools.rsp.api.dao.DiscoveryPath;
+import org.jboss.tools.rsp.eclipse.jdt.launching.ILibraryInfoListener;
 import org.jboss.tools.rsp.eclipse.jdt.launching.IVMInstall;
 import org.jboss.tools.rsp.eclipse.jdt.launching.IVMInstallChangedListener;
 import org.jboss.tools.rsp.eclipse.jdt.launching.PropertyChangeEvent;
+import org.jboss.tools.rsp.server.RSPFlags;
 import org.jboss.tools.rsp.server.ServerManagementServerLauncher;
+import org.jboss.tools.rsp.server.persistence.PersistenceJournal;
+import org.jboss.tools.rsp.server.spi.discovery.IDiscoveryIndex;
+import org.jboss.tools.rsp.server.spi.discovery.IDiscoveryIndexListener;
 import org.jboss.tools.rsp.server.spi.discovery.IDiscoveryPathListener;
 import org.jboss.tools.rsp.server.spi.discovery.IDiscoveryPathModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ServerPersistenceManager implements IDiscoveryPathListener, IVMInstallChangedListener {
+public class ServerPersistenceManager implements IDiscoveryPathListener, IVMInstallChangedListener, 
+	IDiscoveryIndexListener, ILibraryInfoListener {
 	private static final Logger LOG = LoggerFactory.getLogger(ServerPersistenceManager.class);
 
 	private ServerManagementServerLauncher serverLauncher;
+	private final PersistenceJournal journal;
 	public ServerPersistenceManager(ServerManagementServerLauncher serverLauncher) {
 		this.serverLauncher = serverLauncher; 
+		this.journal = new PersistenceJournal(RSPFlags.getPersistenceWriteDelay());
 		serverLauncher.getModel().getDiscoveryPathModel().addListener(this);
 		serverLauncher.getModel().getVMInstallModel().addListener(this);
+		serverLauncher.getModel().getVMInstallModel().addLibraryInfoListener(this);
+		IDiscoveryIndex index = serverLauncher.getModel().getDiscoveryIndex();
+		if( index != null ) {
+			index.addListener(this);
+		}
 	}
 	
 	@Override
@@ -57,37 +70,52 @@ public class ServerPersistenceManager implements IDiscoveryPathListener, IVMInst
 		persistVms();
 	}
 	
+	@Override
+	public void indexChanged(IDiscoveryIndex index) {
+		journal.markDirty(getDiscoveryIndexFile(), index::saveIndex);
+	}
+
+	@Override
+	public void libraryInfoChanged() {
+		journal.markDirty(getLibraryInfoFile(), serverLauncher.getModel().getVMInstallModel()::saveLibraryInfo);
+	}
+
 	private void persistVms() {
-		try {
-			saveVMs();
-		} catch (IOException e) {
-			LOG.error(e.getMessage(), e);
-		}
+		File vmsFile = getVMsFile();
+		journal.markDirty(vmsFile, serverLauncher.getModel().getVMInstallModel()::save);
 	}
 	
 	private void persisteDiscoveryPaths() {
-		try {
-			saveDiscoveryPaths();
-		} catch (IOException e) {
-			LOG.error(e.getMessage(), e);
-		}
+		File discoveryPathFile = getDiscoveryPathsFile();
+		journal.markDirty(discoveryPathFile, serverLauncher.getModel().getDiscoveryPathModel()::saveDiscoveryPaths);
 	}
 	
 
 	public void saveState() {
 		try {
-			saveDiscoveryPaths();
-			saveVMs();
+			persisteDiscoveryPaths();
+			persistVms();
+			IDiscoveryIndex index = serverLauncher.getModel().getDiscoveryIndex();
+			if( index != null ) {
+				indexChanged(index);
+			}
+			journal.close();
 			serverLauncher.getModel().getServerModel().saveServers();
 		} catch (Exception e) {
 			LOG.error(e.getMessage(), e);
 		}
 	}
 
+	public PersistenceJournal getJournal() {
+		return journal;
+	}
+
 	public void loadState() {
 		try {
+			serverLauncher.getModel().getVMInstallModel().setLibraryInfoFile(getLibraryInfoFile());
 			loadVMs();
 			loadDiscoveryPaths();
+			loadDiscoveryIndex();
 			serverLauncher.getModel().getServerModel().loadServers();
 		} catch (Exception e) {
 			LOG.error(e.getMessage(), e);
@@ -95,28 +123,47 @@ public class ServerPersistenceManager implements IDiscoveryPathListener, IVMInst
 	}
 	
 	private void loadDiscoveryPaths() throws IOException {
-		File dataLoc = serverLauncher.getModel().getDataStoreModel().getDataLocation();
-		File discoveryPathFile = new File(dataLoc, "discovery-paths");
 		IDiscoveryPathModel discoveryPathModel = serverLauncher.getModel().getDiscoveryPathModel();
-		discoveryPathModel.loadDiscoveryPaths(discoveryPathFile);
+		discoveryPathModel.loadDiscoveryPaths(getDiscoveryPathsFile());
+	}
+
+	private void loadDiscoveryIndex() throws IOException {
+		IDiscoveryIndex index = serverLauncher.getModel().getDiscoveryIndex();
+		if( index != null ) {
+			index.loadIndex(getDiscoveryIndexFile());
+		}
 	}
 
 	public void saveDiscoveryPaths() throws IOException {
-		File dataLoc = serverLauncher.getModel().getDataStoreModel().getDataLocation();
-		File discoveryPathFile = new File(dataLoc, "discovery-paths");
 		IDiscoveryPathModel discoveryPathModel = serverLauncher.getModel().getDiscoveryPathModel();
-		discoveryPathModel.saveDiscoveryPaths(discoveryPathFile);
+		journal.write(getDiscoveryPathsFile(), discoveryPathModel::saveDiscoveryPaths);
 	}
 	
 	public void saveVMs() throws IOException {
-		File dataLoc = serverLauncher.getModel().getDataStoreModel().getDataLocation();
-		File vmsFile = new File(dataLoc, "vms");
-		serverLauncher.getModel().getVMInstallModel().save(vmsFile);
+		journal.write(getVMsFile(), serverLauncher.getModel().getVMInstallModel()::save);
 	}
 	
 	public void loadVMs() throws InstantiationException, IllegalAccessException, ClassNotFoundException, FileNotFoundException {
+		serverLauncher.getModel().getVMInstallModel().load(getVMsFile());
+	}
+
+	private File getDiscoveryPathsFile() {
+		File dataLoc = serverLauncher.getModel().getDataStoreModel().getDataLocation();
+		return new File(dataLoc, "discovery-paths");
+	}
+
+	private File getDiscoveryIndexFile() {
+		File dataLoc = serverLauncher.getModel().getDataStoreModel().getDataLocation();
+		return new File(dataLoc, "discovery-index");
+	}
+
+	private File getLibraryInfoFile() {
+		File dataLoc = serverLauncher.getModel().getDataStoreModel().getDataLocation();
+		return new File(dataLoc, "library-info");
+	}
+
+	private File getVMsFile() {
 		File dataLoc = serverLauncher.getModel().getDataStoreModel().getDataLocation();
-		File vmsFile = new File(dataLoc, "vms");
-		serverLauncher.getModel().getVMInstallModel().load(vmsFile);
+		return new File(dataLoc, "vms");
 	}
 }
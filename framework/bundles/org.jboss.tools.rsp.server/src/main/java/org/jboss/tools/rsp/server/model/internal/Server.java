@@ -205,9 +205,11 @@ public class Server extends SecuredBase implements IServer, IServerWorkingCopy {
 
 	private void setAttributes(Map<String, Object> attributes) {
 		Set<String> keys = attributes.keySet();
-		for( String k : keys) {
-			setAttribute(k, attributes.get(k));
-		}
+		setAttributesInBatch(keys, () -> {
+			for( String k : keys) {
+				setAttribute(k, attributes.get(k));
+			}
+		});
 	}
 
 	protected void setAttribute(String k, Object val) {
@@ -233,10 +235,12 @@ public class Server extends SecuredBase implements IServer, IServerWorkingCopy {
 		List<String> list = newValues.keySet().stream().filter(
 				str -> str.startsWith(IServerModel.SECURE_ATTRIBUTE_PREFIX))
 				.collect(Collectors.toList());
-		for(String s : list ) {
-			setAttribute(s, newValues.get(s));
-			newValues.remove(s);
-		}
+		setAttributesInBatch(list, () -> {
+			for(String s : list ) {
+				setAttribute(s, newValues.get(s));
+				newValues.remove(s);
+			}
+		});
 		this.map = newValues;
 	}
 
@@ -11,6 +11,7 @@ package org.jboss.tools.rsp.server.model.internal.publishing;
 import java.io.File;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -27,7 +28,7 @@ import org.jboss.tools.rsp.eclipse.osgi.util.NLS;
 import org.jboss.tools.rsp.server.ServerCoreActivator;
 import org.jboss.tools.rsp.server.model.AbstractServerDelegate;
 import org.jboss.tools.rsp.server.spi.filewatcher.FileWatcherEvent;
-import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherEventListener;
+import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherBatchEventListener;
 import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherService;
 import org.jboss.tools.rsp.server.spi.publishing.IFullPublishRequiredCallback;
 import org.jboss.tools.rsp.server.spi.servertype.IDeployableResourceDelta;
@@ -35,7 +36,7 @@ import org.jboss.tools.rsp.server.spi.servertype.IServerPublishModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ServerPublishStateModel implements IServerPublishModel, IFileWatcherEventListener {
+public class ServerPublishStateModel implements IServerPublishModel, IFileWatcherBatchEventListener {
 	static final Logger LOG = LoggerFactory.getLogger(ServerPublishStateModel.class);
 
 	private final Map<String, DeployableState> states;
@@ -100,10 +101,32 @@ public class ServerPublishStateModel implements IServerPublishModel, IFileWatche
 			File f = new File(reference.getPath());
 			boolean recursive = f.exists() && f.isDirectory();
 			String path = reference.getPath();
-			fileWatcher.addFileWatcherListener(new File(path).toPath(), this, recursive);
+			String backend = getFileWatcherBackend();
+			if( backend == null ) {
+				fileWatcher.addFileWatcherListener(new File(path).toPath(), this, recursive);
+			} else {
+				fileWatcher.addFileWatcherListener(new File(path).toPath(), this, recursive, 
+						backend, getFileWatcherWatchBudget());
+			}
 		}
 	}
 
+	/*
+	 * The backend this server asked for, or null to use the file watcher's default
+	 */
+	protected String getFileWatcherBackend() {
+		if( delegate.getServer() == null )
+			return null;
+		return delegate.getServer().getAttribute(
+				DefaultServerAttributes.FILE_WATCHER_BACKEND, (String)null);
+	}
+
+	protected int getFileWatcherWatchBudget() {
+		return delegate.getServer().getAttribute(
+				DefaultServerAttributes.FILE_WATCHER_WATCH_BUDGET, 
+				DefaultServerAttributes.FILE_WATCHER_WATCH_BUDGET_DEFAULT);
+	}
+
 	/**
 	 * Adds the given deployable to this model.
 	 * 
@@ -271,25 +294,23 @@ public class ServerPublishStateModel implements IServerPublishModel, IFileWatche
 	 */
 	@Override
 	public synchronized void fileChanged(FileWatcherEvent event) {
-		Path affected = event.getPath();
+		filesChanged(Collections.singletonList(event));
+	}
+
+	/*
+	 * A batch of events is handled under a single lock, and the 
+	 * server publish state, state change event and autopublish thread
+	 * are only updated once for the whole batch. 
+	 */
+	@Override
+	public synchronized void filesChanged(List<FileWatcherEvent> events) {
 		List<DeployableState> ds = new ArrayList<>(getStates().values());
 		boolean changed = false;
 		for( DeployableState d : ds ) {
 			Path deploymentPath = new File(d.getReference().getPath()).toPath();
-			if( affected.startsWith(deploymentPath)) {
-				int currentPubState = d.getPublishState();
-				if( currentPubState == ServerManagementAPIConstants.PUBLISH_STATE_NONE
-						|| currentPubState == ServerManagementAPIConstants.PUBLISH_STATE_INCREMENTAL) {
-					int newState = getRequiredPublishStateOnFileChange(event);
-					if( newState > currentPubState ) {
-						d.setPublishState(newState);
-						changed = true;
-					}
-				}
-				if( currentPubState == ServerManagementAPIConstants.PUBLISH_STATE_NONE 
-						|| currentPubState == ServerManagementAPIConstants.PUBLISH_STATE_INCREMENTAL
-						|| currentPubState == ServerManagementAPIConstants.PUBLISH_STATE_FULL ) {
-					registerSingleDelta(event, d.getReference());
+			for( FileWatcherEvent event : events ) {
+				if( event.getPath().startsWith(deploymentPath)) {
+					changed |= deployableFileChanged(d, event);
 				}
 			}
 		}
@@ -299,6 +320,25 @@ public class ServerPublishStateModel implements IServerPublishModel, IFileWatche
 		launchOrUpdateAutopublishThread();
 	}
 
+	private boolean deployableFileChanged(DeployableState d, FileWatcherEvent event) {
+		boolean changed = false;
+		int currentPubState = d.getPublishState();
+		if( currentPubState == ServerManagementAPIConstants.PUBLISH_STATE_NONE
+				|| currentPubState == ServerManagementAPIConstants.PUBLISH_STATE_INCREMENTAL) {
+			int newState = getRequiredPublishStateOnFileChange(event);
+			if( newState > currentPubState ) {
+				d.setPublishState(newState);
+				changed = true;
+			}
+		}
+		if( currentPubState == ServerManagementAPIConstants.PUBLISH_STATE_NONE 
+				|| currentPubState == ServerManagementAPIConstants.PUBLISH_STATE_INCREMENTAL
+				|| currentPubState == ServerManagementAPIConstants.PUBLISH_STATE_FULL ) {
+			registerSingleDelta(event, d.getReference());
+		}
+		return changed;
+	}
+
 	protected int getRequiredPublishStateOnFileChange(FileWatcherEvent event) {
 		if( fullPublishRequired != null && 
 				fullPublishRequired.requiresFullPublish(event)) {
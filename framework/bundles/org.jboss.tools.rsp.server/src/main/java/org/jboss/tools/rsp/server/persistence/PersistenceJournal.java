@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes files behind the back of whoever changes them.
+ *
+ * Files are marked dirty, and written by a background thread once
+ * no further change came in for the write delay. A file that is marked
+ * dirty several times within the delay is written once. Under a steady
+ * stream of changes, dirty files are still written once the maximum
+ * delay passed since the first change that was not written.
+ * Files are written to a temporary file that is then renamed
+ * over the target, so that a crash never leaves a half written file.
+ * Content that did not change since it was last written is not written at all.
+ */
+public class PersistenceJournal {
+	private static final Logger LOG = LoggerFactory.getLogger(PersistenceJournal.class);
+
+	public static final String TEMP_FILE_PREFIX = ".";
+	public static final String TEMP_FILE_SUFFIX = ".tmp";
+
+	private static final int MAX_DELAY_FACTOR = 10;
+
+	/**
+	 * Writes the content of a dirty file.
+	 */
+	public interface IContentWriter {
+		void write(File file) throws IOException;
+	}
+
+	private final long writeDelay;
+	private final long maxDelay;
+	private final ScheduledExecutorService writer;
+	private final Map<File, IContentWriter> dirty = new LinkedHashMap<>();
+	private final Map<File, byte[]> digests = new HashMap<>();
+	private final Object writeLock = new Object();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+	private ScheduledFuture<?> scheduled;
+	// when the first change that was not written yet came in, in nanoseconds, or -1
+	private long dirtySince = -1;
+	private boolean closed = false;
+
+	/**
+	 * @param writeDelay the milliseconds to wait for further changes
+	 * before writing dirty files.
+	 */
+	public PersistenceJournal(long writeDelay) {
+		this(writeDelay, writeDelay * MAX_DELAY_FACTOR);
+	}
+
+	/**
+	 * @param writeDelay the milliseconds to wait for further changes
+	 * before writing dirty files.
+	 * @param maxDelay the most milliseconds that may pass between a change
+	 * and writing it, no matter how many changes follow it.
+	 */
+	public PersistenceJournal(long writeDelay, long maxDelay) {
+		this.writeDelay = Math.max(0, writeDelay);
+		this.maxDelay = Math.max(this.writeDelay, maxDelay);
+		this.writer = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+			Thread t = new Thread(r, "RSP Persistence Journal");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Marks the given file dirty. The writer is called on the journal's
+	 * thread once the write delay passed, and replaces any writer
+	 * the file was marked dirty with before.
+	 * Once the journal is closed, the file is written right away.
+	 */
+	public void markDirty(File file, IContentWriter contentWriter) {
+		synchronized (this) {
+			if (!closed) {
+				dirty.put(file, contentWriter);
+				long now = System.nanoTime();
+				if (dirtySince < 0) {
+					dirtySince = now;
+				}
+				// never push the write beyond the maximum delay
+				long left = maxDelay - TimeUnit.NANOSECONDS.toMillis(now - dirtySince);
+				if (scheduled != null) {
+					scheduled.cancel(false);
+				}
+				scheduled = writer.schedule(this::flush, Math.max(0, Math.min(writeDelay, left)), TimeUnit.MILLISECONDS);
+				return;
+			}
+		}
+		writeLogged(file, contentWriter);
+	}
+
+	/**
+	 * Writes all dirty files now.
+	 */
+	public void flush() {
+		Map<File, IContentWriter> batch;
+		synchronized (this) {
+			batch = new LinkedHashMap<>(dirty);
+			dirty.clear();
+			dirtySince = -1;
+			if (scheduled != null) {
+				scheduled.cancel(false);
+				scheduled = null;
+			}
+		}
+		for (Map.Entry<File, IContentWriter> entry : batch.entrySet()) {
+			writeLogged(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Writes all dirty files and stops the background writer.
+	 */
+	public void close() {
+		synchronized (this) {
+			closed = true;
+		}
+		flush();
+		writer.shutdown();
+	}
+
+	public synchronized int getDirtyCount() {
+		return dirty.size();
+	}
+
+	/**
+	 * Returns how many files were written
+	 */
+	public long getWrittenCount() {
+		return written.get();
+	}
+
+	/**
+	 * Returns how many files were not written because their content did not change
+	 */
+	public long getSkippedCount() {
+		return skipped.get();
+	}
+
+	private void writeLogged(File file, IContentWriter contentWriter) {
+		try {
+			write(file, contentWriter);
+		} catch (IOException | RuntimeException e) {
+			LOG.error("Could not save " + file.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * Writes the given file now, unless its content did not change
+	 * since it was last written by this journal.
+	 *
+	 * @return <code>true</code> if the file was written
+	 */
+	public boolean write(File file, IContentWriter contentWriter) throws IOException {
+		synchronized (writeLock) {
+			Path temp = getTempFile(file.toPath());
+			try {
+				contentWriter.write(temp.toFile());
+				byte[] digest = digest(Files.readAllBytes(temp));
+				if (file.exists() && Arrays.equals(digest, digests.get(file))) {
+					skipped.incrementAndGet();
+					return false;
+				}
+				force(temp);
+				move(temp, file.toPath());
+				digests.put(file, digest);
+				written.incrementAndGet();
+				return true;
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		}
+	}
+
+	/**
+	 * Writes the given bytes to a temporary file next to the given one,
+	 * and then renames it over the given file.
+	 */
+	public static void writeAtomically(Path file, byte[] bytes) throws IOException {
+		Path temp = getTempFile(file);
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = ByteBuffer.wrap(bytes);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(true);
+			}
+			move(temp, file);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Returns whether the given file is a temporary file written by the journal.
+	 * Such a file is left behind if the server crashed while writing, and is to be ignored.
+	 */
+	public static boolean isTempFile(File file) {
+		String name = file.getName();
+		return name.startsWith(TEMP_FILE_PREFIX) && name.endsWith(TEMP_FILE_SUFFIX);
+	}
+
+	public static byte[] digest(byte[] bytes) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(bytes);
+		} catch (NoSuchAlgorithmException e) {
+			// every jre has sha-256, fall back to the content itself
+			return bytes.clone();
+		}
+	}
+
+	private static Path getTempFile(Path file) {
+		return file.resolveSibling(TEMP_FILE_PREFIX + file.getFileName() + TEMP_FILE_SUFFIX);
+	}
+
+	private static void force(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+	}
+
+	private static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
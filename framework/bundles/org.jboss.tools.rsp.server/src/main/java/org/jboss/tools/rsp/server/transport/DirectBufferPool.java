@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.transport;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out direct buffers of a fixed size and takes them back,
+ * so that reading and writing sockets does not allocate
+ * (and later free) native memory all the time.
+ */
+public class DirectBufferPool {
+
+	private final int bufferSize;
+	private final int maxPooled;
+	private final ConcurrentLinkedQueue<ByteBuffer> pooled = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pooledCount = new AtomicInteger();
+	private final AtomicInteger allocated = new AtomicInteger();
+
+	/**
+	 * @param bufferSize the size of each buffer
+	 * @param maxPooled  the most buffers kept for reuse, others are left to the garbage collector
+	 */
+	public DirectBufferPool(int bufferSize, int maxPooled) {
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Returns an empty buffer, ready to be written to.
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = pooled.poll();
+		if (buffer != null) {
+			pooledCount.decrementAndGet();
+			return buffer;
+		}
+		allocated.incrementAndGet();
+		return ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	/**
+	 * Gives back a buffer that was acquired from this pool.
+	 * It must not be used afterwards.
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer == null || buffer.capacity() != bufferSize) {
+			return;
+		}
+		buffer.clear();
+		if (pooledCount.incrementAndGet() <= maxPooled) {
+			pooled.offer(buffer);
+		} else {
+			pooledCount.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns the number of buffers that had to be allocated so far.
+	 */
+	public int getAllocatedCount() {
+		return allocated.get();
+	}
+
+	public int getPooledCount() {
+		return pooledCount.get();
+	}
+}
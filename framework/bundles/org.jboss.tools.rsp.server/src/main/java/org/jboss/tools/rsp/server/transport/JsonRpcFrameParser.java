@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Splits the bytes read from a client into json-rpc messages.
+ *
+ * Each message is preceded by headers, of which <code>Content-Length</code>
+ * is required, as written by lsp4j:
+ * <pre>
+ * Content-Length: 52\r\n
+ * \r\n
+ * {"jsonrpc":"2.0","id":"1","method":"server/getServerHandles"}
+ * </pre>
+ * Bytes may arrive in any portions, this class keeps the
+ * incomplete message until the rest of it was read.
+ */
+public class JsonRpcFrameParser {
+
+	public static final int MAX_HEADER_SIZE = 8 * 1024;
+	public static final int MAX_CONTENT_LENGTH = 64 * 1024 * 1024;
+
+	private static final String CONTENT_LENGTH = "content-length";
+	private static final String CONTENT_TYPE = "content-type";
+
+	private final Consumer<String> messages;
+	private byte[] header = new byte[256];
+	private int headerLength = 0;
+	private byte[] content;
+	private int contentRead = 0;
+	private Charset charset = StandardCharsets.UTF_8;
+
+	/**
+	 * @param messages is given every complete message
+	 */
+	public JsonRpcFrameParser(Consumer<String> messages) {
+		this.messages = messages;
+	}
+
+	/**
+	 * Reads all remaining bytes of the given buffer.
+	 *
+	 * @throws IOException if the bytes are not json-rpc messages
+	 */
+	public void feed(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (content == null) {
+				readHeader(buffer);
+			} else {
+				int n = Math.min(buffer.remaining(), content.length - contentRead);
+				buffer.get(content, contentRead, n);
+				contentRead += n;
+				if (contentRead == content.length) {
+					String message = new String(content, charset);
+					content = null;
+					contentRead = 0;
+					charset = StandardCharsets.UTF_8;
+					messages.accept(message);
+				}
+			}
+		}
+	}
+
+	private void readHeader(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (headerLength == header.length) {
+				if (header.length >= MAX_HEADER_SIZE) {
+					throw new IOException("Message headers are larger than " + MAX_HEADER_SIZE + " bytes");
+				}
+				byte[] larger = new byte[Math.min(MAX_HEADER_SIZE, header.length * 2)];
+				System.arraycopy(header, 0, larger, 0, headerLength);
+				header = larger;
+			}
+			header[headerLength++] = buffer.get();
+			if (headerLength >= 4 && header[headerLength - 1] == '\n' && header[headerLength - 2] == '\r'
+					&& header[headerLength - 3] == '\n' && header[headerLength - 4] == '\r') {
+				int length = parseHeaders(new String(header, 0, headerLength - 4, StandardCharsets.US_ASCII));
+				headerLength = 0;
+				content = new byte[length];
+				contentRead = 0;
+				if (length == 0) {
+					content = null;
+					messages.accept("");
+				}
+				return;
+			}
+		}
+	}
+
+	private int parseHeaders(String headers) throws IOException {
+		int length = -1;
+		for (String line : headers.split("\r\n")) {
+			int colon = line.indexOf(':');
+			if (colon < 0) {
+				continue;
+			}
+			String name = line.substring(0, colon).trim().toLowerCase(Locale.ENGLISH);
+			String value = line.substring(colon + 1).trim();
+			if (CONTENT_LENGTH.equals(name)) {
+				try {
+					length = Integer.parseInt(value);
+				} catch (NumberFormatException nfe) {
+					throw new IOException("Invalid Content-Length " + value);
+				}
+			} else if (CONTENT_TYPE.equals(name)) {
+				charset = getCharset(value);
+			}
+		}
+		if (length < 0 || length > MAX_CONTENT_LENGTH) {
+			throw new IOException("Missing or invalid Content-Length in message headers: " + headers);
+		}
+		return length;
+	}
+
+	private static Charset getCharset(String contentType) {
+		int index = contentType.toLowerCase(Locale.ENGLISH).indexOf("charset=");
+		if (index >= 0) {
+			String name = contentType.substring(index + "charset=".length()).split(";")[0].trim();
+			try {
+				return Charset.forName(name);
+			} catch (IllegalArgumentException iae) {
+				// fall back to the default
+			}
+		}
+		return StandardCharsets.UTF_8;
+	}
+}
@@ -0,0 +1,316 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.transport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A client connected to a {@link NioTransport}.
+ *
+ * Messages read from the client are handed to the message handler one
+ * after the other, on a thread of the transport's dispatcher. Bytes
+ * written to the output stream are sent once the stream is flushed.
+ * Writers wait while too much is waiting to be sent already.
+ */
+public class NioConnection {
+
+	private static final Logger LOG = LoggerFactory.getLogger(NioConnection.class);
+
+	/**
+	 * The most bytes that may wait to be sent before writers have to wait
+	 */
+	public static final int MAX_PENDING_BYTES = 8 * 1024 * 1024;
+
+	private final NioTransport transport;
+	private final SocketChannel channel;
+	private final DirectBufferPool buffers;
+	private final Executor dispatcher;
+	private final JsonRpcFrameParser parser;
+	private final SocketAddress remoteAddress;
+	private final CompletableFuture<Void> closed = new CompletableFuture<>();
+	private final ConcurrentLinkedQueue<String> inbound = new ConcurrentLinkedQueue<>();
+	private final Deque<ByteBuffer> outbound = new ArrayDeque<>();
+	private final List<ByteBuffer> staging = new ArrayList<>();
+	private final ConnectionOutputStream output = new ConnectionOutputStream();
+	private SelectionKey key;
+	private volatile Consumer<String> messageHandler;
+	private boolean dispatching = false;
+	private boolean reading = false;
+	private long pendingBytes = 0;
+
+	NioConnection(NioTransport transport, SocketChannel channel, DirectBufferPool buffers, Executor dispatcher) {
+		this.transport = transport;
+		this.channel = channel;
+		this.buffers = buffers;
+		this.dispatcher = dispatcher;
+		this.parser = new JsonRpcFrameParser(this::received);
+		this.remoteAddress = getRemoteAddress(channel);
+	}
+
+	private static SocketAddress getRemoteAddress(SocketChannel channel) {
+		try {
+			return channel.getRemoteAddress();
+		} catch(IOException ioe) {
+			return null;
+		}
+	}
+
+	void setKey(SelectionKey key) {
+		this.key = key;
+	}
+
+	public SocketAddress getRemoteAddress() {
+		return remoteAddress;
+	}
+
+	/**
+	 * Returns the stream to write messages to the client to.
+	 */
+	public OutputStream getOutputStream() {
+		return output;
+	}
+
+	/**
+	 * Sets the handler of the messages read from the client.
+	 */
+	public void setMessageHandler(Consumer<String> handler) {
+		this.messageHandler = handler;
+	}
+
+	/**
+	 * Starts reading from the client.
+	 * Returns a future that completes once the connection is closed.
+	 */
+	public CompletableFuture<Void> startReading() {
+		synchronized (this) {
+			reading = true;
+		}
+		transport.updateInterest(this);
+		return closed;
+	}
+
+	public boolean isClosed() {
+		return closed.isDone();
+	}
+
+	/*
+	 * Called by the selector thread once there is something to read
+	 */
+	void read() {
+		ByteBuffer buffer = buffers.acquire();
+		try {
+			while (true) {
+				int read = channel.read(buffer);
+				if (read < 0) {
+					close();
+					return;
+				}
+				if (read == 0) {
+					return;
+				}
+				buffer.flip();
+				parser.feed(buffer);
+				buffer.clear();
+			}
+		} catch(IOException ioe) {
+			LOG.debug("Closing connection to " + remoteAddress, ioe);
+			close();
+		} finally {
+			buffers.release(buffer);
+		}
+	}
+
+	private void received(String message) {
+		inbound.add(message);
+		synchronized (this) {
+			if (dispatching) {
+				return;
+			}
+			dispatching = true;
+		}
+		try {
+			dispatcher.execute(this::dispatch);
+		} catch(RejectedExecutionException ree) {
+			close();
+		}
+	}
+
+	private void dispatch() {
+		while (true) {
+			String message;
+			synchronized (this) {
+				message = isClosed() ? null : inbound.poll();
+				if (message == null) {
+					dispatching = false;
+					return;
+				}
+			}
+			Consumer<String> handler = messageHandler;
+			if (handler != null) {
+				try {
+					handler.accept(message);
+				} catch(RuntimeException re) {
+					LOG.error("Failed to handle message from " + remoteAddress, re);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Called by the selector thread once the client can be written to
+	 */
+	void write() {
+		synchronized (this) {
+			try {
+				while (!outbound.isEmpty()) {
+					ByteBuffer head = outbound.peek();
+					int written = channel.write(head);
+					pendingBytes -= written;
+					if (head.hasRemaining()) {
+						break;
+					}
+					buffers.release(outbound.poll());
+				}
+			} catch(IOException ioe) {
+				LOG.debug("Closing connection to " + remoteAddress, ioe);
+				close();
+			}
+			notifyAll();
+		}
+	}
+
+	/*
+	 * Called by the selector thread to update what it waits for
+	 */
+	synchronized int getInterestOps() {
+		int ops = reading ? SelectionKey.OP_READ : 0;
+		if (!outbound.isEmpty()) {
+			ops |= SelectionKey.OP_WRITE;
+		}
+		return ops;
+	}
+
+	SelectionKey getKey() {
+		return key;
+	}
+
+	/**
+	 * Closes the connection, messages waiting to be sent are discarded.
+	 */
+	public void close() {
+		synchronized (this) {
+			if (isClosed()) {
+				return;
+			}
+			closed.complete(null);
+			for (ByteBuffer b : outbound) {
+				buffers.release(b);
+			}
+			for (ByteBuffer b : staging) {
+				buffers.release(b);
+			}
+			outbound.clear();
+			staging.clear();
+			inbound.clear();
+			pendingBytes = 0;
+			notifyAll();
+		}
+		if (key != null) {
+			key.cancel();
+		}
+		try {
+			channel.close();
+		} catch(IOException ioe) {
+			// ignore
+		}
+		transport.connectionClosed(this);
+	}
+
+	private class ConnectionOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			synchronized (NioConnection.this) {
+				awaitRoom();
+				while (length > 0) {
+					ByteBuffer tail = staging.isEmpty() ? null : staging.get(staging.size() - 1);
+					if (tail == null || !tail.hasRemaining()) {
+						tail = buffers.acquire();
+						staging.add(tail);
+					}
+					int n = Math.min(length, tail.remaining());
+					tail.put(bytes, offset, n);
+					offset += n;
+					length -= n;
+					pendingBytes += n;
+				}
+			}
+		}
+
+		private void awaitRoom() throws IOException {
+			while (!isClosed() && pendingBytes > MAX_PENDING_BYTES) {
+				try {
+					NioConnection.this.wait(1000);
+				} catch(InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+			}
+			if (isClosed()) {
+				throw new IOException("Connection to " + remoteAddress + " is closed");
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			synchronized (NioConnection.this) {
+				if (isClosed()) {
+					throw new IOException("Connection to " + remoteAddress + " is closed");
+				}
+				if (staging.isEmpty()) {
+					return;
+				}
+				for (ByteBuffer b : staging) {
+					b.flip();
+					outbound.add(b);
+				}
+				staging.clear();
+			}
+			transport.updateInterest(NioConnection.this);
+		}
+
+		@Override
+		public void close() {
+			NioConnection.this.close();
+		}
+	}
+}
@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves any number of clients with a single thread that waits on a selector
+ * for connections to accept and connections to read from or write to.
+ *
+ * Complete messages are handed to a dispatcher, so that a client costs
+ * no thread while it is idle.
+ */
+public class NioTransport {
+
+	private static final Logger LOG = LoggerFactory.getLogger(NioTransport.class);
+
+	public static final int BUFFER_SIZE = 64 * 1024;
+	public static final int MAX_POOLED_BUFFERS = 64;
+
+	/**
+	 * Is told about every client that connects.
+	 */
+	public interface ConnectionHandler {
+		void connected(NioConnection connection) throws IOException;
+	}
+
+	private final Selector selector;
+	private final DirectBufferPool buffers;
+	private final ExecutorService dispatcher;
+	private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final Set<NioConnection> connections = ConcurrentHashMap.newKeySet();
+	private final List<ServerSocketChannel> servers = new ArrayList<>();
+	private Thread thread;
+	private volatile boolean running = false;
+
+	public NioTransport() throws IOException {
+		this(new DirectBufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS));
+	}
+
+	public NioTransport(DirectBufferPool buffers) throws IOException {
+		this.selector = Selector.open();
+		this.buffers = buffers;
+		this.dispatcher = createDispatcher();
+	}
+
+	private static ExecutorService createDispatcher() {
+		AtomicInteger count = new AtomicInteger();
+		return Executors.newCachedThreadPool((Runnable r) -> {
+			Thread t = new Thread(r, "RSP Message Dispatcher " + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Accepts clients on the given address, and tells the handler about them.
+	 * Returns the address that is listened on, ie. with the port that was picked
+	 * if port 0 was given.
+	 */
+	public SocketAddress bind(SocketAddress address, ConnectionHandler handler) throws IOException {
+		ServerSocketChannel server = ServerSocketChannel.open();
+		try {
+			server.bind(address);
+			server.configureBlocking(false);
+		} catch(IOException ioe) {
+			server.close();
+			throw ioe;
+		}
+		synchronized (servers) {
+			servers.add(server);
+		}
+		runInSelector(() -> {
+			try {
+				server.register(selector, SelectionKey.OP_ACCEPT, handler);
+			} catch(IOException ioe) {
+				LOG.error("Could not accept clients on " + address, ioe);
+			}
+		});
+		return server.getLocalAddress();
+	}
+
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		thread = new Thread(this::run, "RSP NIO Transport");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops accepting clients and closes all connections.
+	 */
+	public void stop() {
+		synchronized (this) {
+			running = false;
+		}
+		selector.wakeup();
+		synchronized (servers) {
+			for (ServerSocketChannel server : servers) {
+				try {
+					server.close();
+				} catch(IOException ioe) {
+					// ignore
+				}
+			}
+			servers.clear();
+		}
+		for (NioConnection connection : new ArrayList<>(connections)) {
+			connection.close();
+		}
+		dispatcher.shutdown();
+	}
+
+	/**
+	 * Returns the clients that are currently connected.
+	 */
+	public List<NioConnection> getConnections() {
+		return new ArrayList<>(connections);
+	}
+
+	public DirectBufferPool getBufferPool() {
+		return buffers;
+	}
+
+	private void run() {
+		try {
+			while (running) {
+				selector.select();
+				Runnable task;
+				while ((task = tasks.poll()) != null) {
+					task.run();
+				}
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+					handle(key);
+				}
+			}
+		} catch(IOException | RuntimeException e) {
+			LOG.error("Transport stopped unexpectedly", e);
+		} finally {
+			try {
+				selector.close();
+			} catch(IOException ioe) {
+				// ignore
+			}
+		}
+	}
+
+	private void handle(SelectionKey key) {
+		try {
+			if (!key.isValid()) {
+				return;
+			}
+			if (key.isAcceptable()) {
+				accept((ServerSocketChannel) key.channel(), (ConnectionHandler) key.attachment());
+				return;
+			}
+			NioConnection connection = (NioConnection) key.attachment();
+			if (key.isReadable()) {
+				connection.read();
+			}
+			if (key.isValid() && key.isWritable()) {
+				connection.write();
+			}
+			if (key.isValid()) {
+				key.interestOps(connection.getInterestOps());
+			}
+		} catch(CancelledKeyException cke) {
+			// closed in the meantime
+		}
+	}
+
+	private void accept(ServerSocketChannel server, ConnectionHandler handler) {
+		SocketChannel channel;
+		while ((channel = acceptOne(server)) != null) {
+			try {
+				channel.configureBlocking(false);
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				NioConnection connection = new NioConnection(this, channel, buffers, dispatcher);
+				connection.setKey(channel.register(selector, 0, connection));
+				connections.add(connection);
+				// creating the launcher may take a moment, keep selecting meanwhile
+				dispatcher.execute(() -> {
+					try {
+						handler.connected(connection);
+					} catch(IOException | RuntimeException e) {
+						LOG.error("Failed to set up connection to " + connection.getRemoteAddress(), e);
+						connection.close();
+					}
+				});
+			} catch(IOException | RejectedExecutionException e) {
+				LOG.error("Failed to accept connection", e);
+				try {
+					channel.close();
+				} catch(IOException ioe) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	private SocketChannel acceptOne(ServerSocketChannel server) {
+		try {
+			return server.accept();
+		} catch(IOException ioe) {
+			if (running) {
+				LOG.error("Failed to accept connection", ioe);
+			}
+			return null;
+		}
+	}
+
+	/*
+	 * Has the selector thread update what it waits for on the given connection
+	 */
+	void updateInterest(NioConnection connection) {
+		runInSelector(() -> {
+			SelectionKey key = connection.getKey();
+			if (key != null && key.isValid()) {
+				try {
+					key.interestOps(connection.getInterestOps());
+				} catch(CancelledKeyException cke) {
+					// closed in the meantime
+				}
+			}
+		});
+	}
+
+	void connectionClosed(NioConnection connection) {
+		connections.remove(connection);
+	}
+
+	private void runInSelector(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	/**
+	 * Returns the port the first server listens on, or -1.
+	 */
+	public int getLocalPort() {
+		synchronized (servers) {
+			for (ServerSocketChannel server : servers) {
+				try {
+					SocketAddress address = server.getLocalAddress();
+					if (address instanceof InetSocketAddress) {
+						return ((InetSocketAddress) address).getPort();
+					}
+				} catch(IOException ioe) {
+					// ignore
+				}
+			}
+		}
+		return -1;
+	}
+}
@@ -224,7 +224,7 @@ public class StacksManager {
 			return null;
 		
 		if( c.isCacheOutdated(url, monitor)) {
-			return c.downloadAndCache(url,jobName, 10000, true, monitor);
+			return c.downloadAndCache(url,jobName, 10000, false, monitor);
 		} else {
 			// Else use the local cache
 			return c.getCachedFile(url);
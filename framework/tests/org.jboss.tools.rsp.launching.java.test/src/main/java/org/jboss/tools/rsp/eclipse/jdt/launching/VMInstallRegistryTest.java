@@ -9,12 +9,18 @@
 package org.jboss.tools.rsp.eclipse.jdt.launching;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.jboss.tools.rsp.eclipse.jdt.launching.IVMInstall;
 import org.jboss.tools.rsp.eclipse.jdt.launching.IVMInstallChangedListener;
@@ -134,6 +140,125 @@ public class VMInstallRegistryTest {
 		assertThat(vms).contains(vm, vm2, vm3);
 	}
 	
+	@Test
+	public void shouldFindVmsByMajorVersion() {
+		// given
+		IVMInstall java8 = mockVMInstall("java8", null, "1.8.0");
+		IVMInstall java11 = mockVMInstall("java11", null, "11.0.8");
+		IVMInstall java14 = mockVMInstall("java14", null, "14");
+		IVMInstall unknown = mockVMInstall("unknown", null, null);
+		registry.addVMInstall(java8);
+		registry.addVMInstall(java11);
+		registry.addVMInstall(java14);
+		registry.addVMInstall(unknown);
+		// when
+		registry.indexVMInstalls();
+		// then
+		assertThat(registry.findVMInstalls(8, 8)).containsExactly(java8);
+		assertThat(registry.findVMInstalls(9, 14)).containsExactly(java11, java14);
+		assertThat(registry.findVMInstalls(0, Integer.MAX_VALUE)).containsExactly(java11, java14, java8);
+		assertThat(registry.findVMInstalls(15, 20)).isEmpty();
+		assertThat(registry.findVMInstalls(11, 8)).isEmpty();
+	}
+
+	@Test
+	public void shouldNotFindVmByMajorVersionAfterRemovingIt() {
+		// given
+		IVMInstall java11 = mockVMInstall("java11", null, "11.0.8");
+		registry.addVMInstall(java11);
+		registry.indexVMInstalls();
+		assertThat(registry.findVMInstalls(11, 11)).containsExactly(java11);
+		// when
+		registry.removeVMInstall(java11);
+		// then
+		assertThat(registry.findVMInstalls(11, 11)).isEmpty();
+	}
+
+	@Test
+	public void shouldReindexVmWhenItChanged() {
+		// given
+		IVMInstall vm = mockVMInstall("vm", null, "1.8.0");
+		registry.addVMInstall(vm);
+		registry.indexVMInstalls();
+		assertThat(registry.findVMInstalls(8, 8)).containsExactly(vm);
+		// when
+		doReturn("11.0.2").when(vm).getJavaVersion();
+		registry.fireVMChanged(new PropertyChangeEvent(vm, 
+				IVMInstallChangedListener.PROPERTY_INSTALL_LOCATION, null, null));
+		registry.indexVMInstalls();
+		// then
+		assertThat(registry.findVMInstalls(8, 8)).isEmpty();
+		assertThat(registry.findVMInstalls(11, 11)).containsExactly(vm);
+	}
+
+	@Test
+	public void shouldIndexAddedVmInBackground() throws InterruptedException {
+		// given
+		IVMInstall java11 = mockVMInstall("java11", null, "11.0.8");
+		// when
+		registry.addVMInstall(java11);
+		// then
+		for (int i = 0; i < 100 && registry.findVMInstalls(11, 11).length == 0; i++) {
+			Thread.sleep(50);
+		}
+		assertThat(registry.findVMInstalls(11, 11)).containsExactly(java11);
+	}
+
+	@Test
+	public void shouldNotBlockRemovalWhileDeterminingVersion() throws Exception {
+		// given
+		CountDownLatch launching = new CountDownLatch(1);
+		CountDownLatch launched = new CountDownLatch(1);
+		IVMInstall slow = mockVMInstall("slow", null);
+		doAnswer(invocation -> {
+			launching.countDown();
+			launched.await(10, TimeUnit.SECONDS);
+			return "11.0.8";
+		}).when(slow).getJavaVersion();
+		IVMInstall other = mockVMInstall("other", null, "1.8.0");
+		registry.addVMInstall(other);
+		registry.indexVMInstalls();
+		try {
+			registry.addVMInstall(slow);
+			assertThat(launching.await(5, TimeUnit.SECONDS)).isTrue();
+			// when
+			ExecutorService executor = Executors.newSingleThreadExecutor();
+			try {
+				Future<?> removal = executor.submit(() -> registry.removeVMInstall(slow));
+				// then
+				removal.get(2, TimeUnit.SECONDS);
+			} finally {
+				executor.shutdownNow();
+			}
+		} finally {
+			launched.countDown();
+		}
+		// the vm removed while its version was determined is not indexed
+		for (int i = 0; i < 10; i++) {
+			registry.indexVMInstalls();
+			Thread.sleep(20);
+		}
+		assertThat(registry.findVMInstalls(11, 11)).isEmpty();
+		assertThat(registry.findVMInstalls(8, 8)).containsExactly(other);
+	}
+
+	@Test
+	public void shouldParseMajorVersion() {
+		assertThat(VMInstallRegistry.getMajorVersion("1.8.0_252")).isEqualTo(8);
+		assertThat(VMInstallRegistry.getMajorVersion("1.8.")).isEqualTo(8);
+		assertThat(VMInstallRegistry.getMajorVersion("11.0.8")).isEqualTo(11);
+		assertThat(VMInstallRegistry.getMajorVersion("14")).isEqualTo(14);
+		assertThat(VMInstallRegistry.getMajorVersion("15-ea")).isEqualTo(15);
+		assertThat(VMInstallRegistry.getMajorVersion("smurf")).isEqualTo(-1);
+		assertThat(VMInstallRegistry.getMajorVersion(null)).isEqualTo(-1);
+	}
+
+	private IVMInstall mockVMInstall(String id, File installLocation, String javaVersion) {
+		IVMInstall vm = mockVMInstall(id, installLocation);
+		doReturn(javaVersion).when(vm).getJavaVersion();
+		return vm;
+	}
+
 	private IVMInstall mockVMInstall(String id, File installLocation) {
 		IVMInstall vm = mock(IVMInstall.class);
 		doReturn(id).when(vm).getId();
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.eclipse.jdt.launching;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jboss.tools.rsp.eclipse.core.runtime.IStatus;
+import org.jboss.tools.rsp.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VMInstallScannerTest {
+
+	private Path dir;
+	private VMInstallRegistry registry;
+
+	@Before
+	public void before() throws IOException {
+		this.dir = Files.createTempDirectory("rsp-vms");
+		this.registry = new VMInstallRegistry();
+	}
+
+	@After
+	public void after() throws IOException {
+		Files.walk(dir)
+			.sorted(Comparator.reverseOrder())
+			.forEach(p -> p.toFile().delete());
+	}
+
+	@Test
+	public void readsVersionFromReleaseFile() throws IOException {
+		File jdk = createJavaHome("usr/lib/jvm/jdk-11", "JAVA_VERSION=\"11.0.8\"");
+		assertThat(StandardVMType.getReleaseVersion(jdk)).isEqualTo("11.0.8");
+		File noVersion = createJavaHome("usr/lib/jvm/no-version", "IMPLEMENTOR=\"Smurfs\"");
+		assertThat(StandardVMType.getReleaseVersion(noVersion)).isNull();
+		assertThat(StandardVMType.getReleaseVersion(dir.toFile())).isNull();
+	}
+
+	@Test
+	public void findsJavaInstallations() throws IOException {
+		createJavaHome("usr/lib/jvm/java-8", "JAVA_VERSION=\"1.8.0_252\"");
+		createJavaHome("usr/lib/jvm/java-11", "JAVA_VERSION=\"11.0.8\"");
+		createJavaHome("sdkman/java/14.0.2-open", "JAVA_VERSION=\"14.0.2\"");
+		createJavaHome("mac/zulu-11.jdk/Contents/Home", "JAVA_VERSION=\"11.0.9\"");
+		dir.resolve("usr/lib/jvm/not-a-jdk").toFile().mkdirs();
+
+		VMInstallScanner scanner = createScanner("usr/lib/jvm", "sdkman/java", "mac", "does-not-exist");
+		IStatus status = scanner.run(new NullProgressMonitor());
+
+		assertThat(status.isOK()).isTrue();
+		assertThat(scanner.getAdded()).hasSize(4);
+		assertThat(names(registry.getVMs())).containsOnly("java-8", "java-11", "14.0.2-open", "zulu-11.jdk");
+		assertThat(names(registry.findVMInstalls(8, 8))).containsExactly("java-8");
+		assertThat(names(registry.findVMInstalls(11, 14))).containsExactly("14.0.2-open", "java-11", "zulu-11.jdk");
+	}
+
+	@Test
+	public void skipsKnownJavaInstallations() throws IOException {
+		File jdk = createJavaHome("usr/lib/jvm/java-11", "JAVA_VERSION=\"11.0.8\"");
+		IVMInstall known = StandardVMType.getDefault().createVMInstall("java-11");
+		known.setInstallLocation(jdk);
+		registry.addVMInstall(known);
+		createJavaHome("usr/lib/jvm/other/java-11", "JAVA_VERSION=\"11.0.2\"");
+
+		VMInstallScanner scanner = createScanner("usr/lib/jvm", "usr/lib/jvm/other");
+		scanner.run(new NullProgressMonitor());
+
+		assertThat(scanner.getAdded()).hasSize(1);
+		assertThat(names(registry.getVMs())).containsOnly("java-11", "java-11 (1)");
+
+		scanner = createScanner("usr/lib/jvm", "usr/lib/jvm/other");
+		scanner.run(new NullProgressMonitor());
+		assertThat(scanner.getAdded()).isEmpty();
+	}
+
+	@Test
+	public void canceled() throws IOException {
+		createJavaHome("usr/lib/jvm/java-11", "JAVA_VERSION=\"11.0.8\"");
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+
+		IStatus status = createScanner("usr/lib/jvm").run(monitor);
+
+		assertThat(status.getSeverity()).isEqualTo(IStatus.CANCEL);
+		assertThat(registry.getVMs()).isEmpty();
+	}
+
+	private VMInstallScanner createScanner(String... roots) {
+		return new VMInstallScanner(registry,
+				Stream.of(roots).map(r -> dir.resolve(r).toFile()).collect(Collectors.toList()), 4);
+	}
+
+	private File createJavaHome(String relative, String release) throws IOException {
+		File home = dir.resolve(relative).toFile();
+		File java = new File(home, "bin/java");
+		java.getParentFile().mkdirs();
+		Files.write(java.toPath(), Collections.singletonList("#!/bin/sh"));
+		Files.write(new File(home, "release").toPath(), Arrays.asList(release));
+		return home;
+	}
+
+	private static String[] names(IVMInstall[] vms) {
+		return Stream.of(vms).map(IVMInstall::getId).toArray(String[]::new);
+	}
+}
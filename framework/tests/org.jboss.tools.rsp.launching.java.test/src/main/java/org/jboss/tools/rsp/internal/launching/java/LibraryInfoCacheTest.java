@@ -13,8 +13,15 @@ import static org.mockito.Mockito.mock;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.tools.rsp.eclipse.jdt.internal.launching.LibraryInfo;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -23,12 +30,21 @@ public class LibraryInfoCacheTest {
 	private LibraryInfoCache cache;
 	private File javaInstallDirectory;
 	private String javaInstallPath;
+	private Path dir;
 
 	@Before
 	public void before() throws IOException {
 		this.cache = LibraryInfoCache.getDefault();
 		this.javaInstallDirectory = File.createTempFile(LibraryInfoCache.class.getSimpleName(), null);
 		this.javaInstallPath = javaInstallDirectory.getAbsolutePath();
+		this.dir = Files.createTempDirectory("rsp-libraryinfo");
+	}
+
+	@After
+	public void after() throws IOException {
+		Files.walk(dir)
+			.sorted(Comparator.reverseOrder())
+			.forEach(p -> p.toFile().delete());
 	}
 
 	@Test
@@ -136,8 +152,135 @@ public class LibraryInfoCacheTest {
 		assertThat(changed).isTrue();
 	}
 
+	@Test
+	public void persistedEntryIsReturnedAfterRestart() throws IOException {
+		// given
+		File cacheFile = dir.resolve("library-info").toFile();
+		String home = createJavaHome("jdk-11", "JAVA_VERSION=\"11.0.8\"");
+		LibraryInfoCache before = createCache(cacheFile);
+		before.put(home, libraryInfo("11.0.8"));
+		// when
+		LibraryInfoCache after = createCache(cacheFile);
+		LibraryInfo info = after.get(home);
+		// then
+		assertThat(info.getVersion()).isEqualTo("11.0.8");
+		assertThat(info.getBootpath()).containsExactly(dir.toString() + "/lib/rt.jar");
+		assertThat(after.isTimeStampChanged(home)).isFalse();
+	}
+
+	@Test
+	public void persistedEntryIsDroppedIfReleaseChanged() throws IOException {
+		// given
+		File cacheFile = dir.resolve("library-info").toFile();
+		String home = createJavaHome("jdk-11", "JAVA_VERSION=\"11.0.8\"");
+		createCache(cacheFile).put(home, libraryInfo("11.0.8"));
+		// when
+		Files.write(new File(home, "release").toPath(), Arrays.asList("JAVA_VERSION=\"11.0.9\""));
+		// then
+		assertThat(createCache(cacheFile).get(home)).isNull();
+	}
+
+	@Test
+	public void persistedEntryIsDroppedIfExecutableChanged() throws IOException {
+		// given
+		File cacheFile = dir.resolve("library-info").toFile();
+		String home = createJavaHome("jdk-11", "JAVA_VERSION=\"11.0.8\"");
+		createCache(cacheFile).put(home, libraryInfo("11.0.8"));
+		// when
+		File java = new File(home, "bin/java");
+		assertThat(java.setLastModified(java.lastModified() - 10000)).isTrue();
+		// then
+		assertThat(createCache(cacheFile).get(home)).isNull();
+	}
+
+	@Test
+	public void brokenCacheFileIsIgnored() throws IOException {
+		// given
+		File cacheFile = dir.resolve("library-info").toFile();
+		Files.write(cacheFile.toPath(), Arrays.asList("{ smurfs"));
+		String home = createJavaHome("jdk-11", "JAVA_VERSION=\"11.0.8\"");
+		LibraryInfoCache cache = createCache(cacheFile);
+		// when
+		LibraryInfo info = cache.get(home);
+		cache.put(home, libraryInfo("11.0.8"));
+		// then
+		assertThat(info).isNull();
+		assertThat(createCache(cacheFile).get(home).getVersion()).isEqualTo("11.0.8");
+	}
+
+	@Test
+	public void startupWithManyVMs() throws IOException {
+		// given
+		int vms = 20;
+		File cacheFile = dir.resolve("library-info").toFile();
+		String[] homes = new String[vms];
+		LibraryInfoCache before = createCache(cacheFile);
+		for (int i = 0; i < vms; i++) {
+			homes[i] = createJavaHome("jdk-" + i, "JAVA_VERSION=\"11.0." + i + "\"");
+			before.put(homes[i], libraryInfo("11.0." + i));
+		}
+		// when
+		long start = System.nanoTime();
+		LibraryInfoCache after = createCache(cacheFile);
+		int misses = 0;
+		for (String home : homes) {
+			if (after.get(home) == null || after.isTimeStampChanged(home)) {
+				misses++;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		// then
+		System.out.println(String.format("Library info of %d VMs read from the cache in %.2fms, %d VMs would have been launched",
+				vms, elapsed / 1000000d, misses));
+		assertThat(misses).isEqualTo(0);
+	}
+
+	@Test
+	public void changesAreReportedButNotWritten() throws IOException {
+		// given
+		File cacheFile = dir.resolve("library-info").toFile();
+		String home = createJavaHome("jdk-11", "JAVA_VERSION=\"11.0.8\"");
+		LibraryInfoCache cache = new LibraryInfoCache();
+		cache.setCacheFile(cacheFile);
+		AtomicInteger changes = new AtomicInteger();
+		cache.addListener(changes::incrementAndGet);
+		// when
+		cache.put(home, libraryInfo("11.0.8"));
+		cache.put(home, null);
+		// then
+		assertThat(changes.get()).isEqualTo(2);
+		assertThat(cacheFile).doesNotExist();
+	}
+
+	private LibraryInfoCache createCache(File cacheFile) {
+		LibraryInfoCache cache = new LibraryInfoCache();
+		cache.setCacheFile(cacheFile);
+		// saved right away rather than by the persistence journal of the server
+		cache.addListener(() -> {
+			try {
+				cache.save(cacheFile);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		return cache;
+	}
+
+	private String createJavaHome(String name, String release) throws IOException {
+		File home = dir.resolve(name).toFile();
+		File java = new File(home, "bin/java");
+		java.getParentFile().mkdirs();
+		Files.write(java.toPath(), Arrays.asList("#!/bin/sh"));
+		Files.write(new File(home, "release").toPath(), Arrays.asList(release));
+		return home.getAbsolutePath();
+	}
+
+	private LibraryInfo libraryInfo(String version) {
+		return new LibraryInfo(version, new String[] { dir.toString() + "/lib/rt.jar" }, new String[0], new String[0]);
+	}
+
 	private LibraryInfo mockLibraryInfo() {
 		return mock(LibraryInfo.class);
 	}
 
-}
\ No newline at end of file
+}
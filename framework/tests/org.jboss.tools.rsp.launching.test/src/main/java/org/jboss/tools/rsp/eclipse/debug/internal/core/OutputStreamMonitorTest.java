@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.eclipse.debug.internal.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class OutputStreamMonitorTest {
+
+	@Test
+	public void testRingBufferKeepsNewestBytes() {
+		ByteRingBuffer buffer = new ByteRingBuffer(8);
+		assertRingBuffer(buffer);
+	}
+
+	@Test
+	public void testMappedRingBufferKeepsNewestBytes() throws IOException {
+		assertRingBuffer(ByteRingBuffer.createMapped(8));
+	}
+
+	private void assertRingBuffer(ByteRingBuffer buffer) {
+		buffer.write(bytes("abcde"), 0, 5);
+		assertArrayEquals(bytes("abcde"), buffer.toByteArray());
+		buffer.write(bytes("fghij"), 0, 5);
+		assertArrayEquals(bytes("cdefghij"), buffer.toByteArray());
+		assertEquals(2, buffer.getDropped());
+		buffer.write(bytes("0123456789xy"), 1, 10);
+		assertArrayEquals(bytes("3456789x"), buffer.toByteArray());
+		buffer.clear();
+		assertEquals(0, buffer.size());
+		buffer.write(bytes("k"), 0, 1);
+		assertArrayEquals(bytes("k"), buffer.toByteArray());
+	}
+
+	@Test
+	public void testContentsAreBounded() throws InterruptedException {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			input.append("line ").append(i).append('\n');
+		}
+		TestMonitor monitor = new TestMonitor(new ByteArrayInputStream(bytes(input.toString())), 1000);
+		monitor.run();
+		String contents = monitor.getContents();
+		assertEquals(1000, contents.length());
+		assertTrue(input.toString().endsWith(contents));
+		monitor.flushContents();
+		assertEquals("", monitor.getContents());
+	}
+
+	@Test
+	public void testCharactersSplitAcrossReads() throws InterruptedException {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			input.append("\u00e9t\u00e9 \u20ac ");
+		}
+		byte[] bytes = input.toString().getBytes(StandardCharsets.UTF_8);
+		StringBuilder appended = new StringBuilder();
+		// 3 bytes at a time splits the 2 and 3 byte characters
+		TestMonitor monitor = new TestMonitor(new ChunkedInputStream(bytes, 3), 10);
+		monitor.addListener((text, m) -> appended.append(text));
+		monitor.run();
+		assertEquals(input.toString(), appended.toString());
+		// the oldest character in the buffer was cut, it is dropped
+		String contents = monitor.getContents();
+		assertTrue(contents.length() > 0);
+		assertTrue(input.toString().endsWith(contents));
+	}
+
+	@Test
+	public void testListenersAreNotifiedOutsideTheLock() throws InterruptedException {
+		AtomicBoolean otherThreadGotLock = new AtomicBoolean();
+		TestMonitor monitor = new TestMonitor(new ByteArrayInputStream(bytes("hello")), 100);
+		monitor.addListener((text, m) -> {
+			CountDownLatch latch = new CountDownLatch(1);
+			new Thread(() -> {
+				monitor.isBuffered();
+				latch.countDown();
+			}).start();
+			try {
+				otherThreadGotLock.set(latch.await(5, TimeUnit.SECONDS));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		monitor.run();
+		assertTrue(otherThreadGotLock.get());
+	}
+
+	/*
+	 * Sustained throughput of a chatty server console, with a listener
+	 * attached and the default buffer size.
+	 */
+	@Test
+	public void testSustainedThroughput() throws InterruptedException {
+		byte[] line = bytes("2020-01-01 10:00:00,000 DEBUG [org.jboss.as.server] (MSC service thread 1-1) "
+				+ "WFLYSRV0027: Starting deployment of \"app.war\" (runtime-name: \"app.war\")\n");
+		int lines = 32 * 1024 * 1024 / line.length;
+		AtomicLong chars = new AtomicLong();
+		TestMonitor monitor = new TestMonitor(new RepeatingInputStream(line, lines),
+				OutputStreamMonitor.DEFAULT_BUFFER_SIZE);
+		monitor.addListener((text, m) -> chars.addAndGet(text.length()));
+		long start = System.nanoTime();
+		monitor.run();
+		long nanos = System.nanoTime() - start;
+		assertEquals((long)line.length * lines, chars.get());
+		assertTrue(monitor.getContents().length() <= OutputStreamMonitor.DEFAULT_BUFFER_SIZE);
+		double mbPerSecond = (chars.get() / (1024d * 1024d)) / (nanos / 1e9);
+		assertTrue("Throughput was " + mbPerSecond + " MB/s", mbPerSecond > 1);
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static class TestMonitor extends OutputStreamMonitor {
+		private TestMonitor(InputStream stream, int bufferSize) {
+			super(stream, "UTF-8", new ByteRingBuffer(bufferSize));
+		}
+
+		private void run() {
+			startMonitoring();
+			close();
+		}
+	}
+
+	private static class ChunkedInputStream extends ByteArrayInputStream {
+		private final int chunk;
+
+		private ChunkedInputStream(byte[] bytes, int chunk) {
+			super(bytes);
+			this.chunk = chunk;
+		}
+
+		@Override
+		public synchronized int read(byte[] b, int off, int len) {
+			return super.read(b, off, Math.min(len, chunk));
+		}
+	}
+
+	private static class RepeatingInputStream extends InputStream {
+		private final byte[] line;
+		private int remaining;
+		private int position = 0;
+
+		private RepeatingInputStream(byte[] line, int times) {
+			this.line = line;
+			this.remaining = times;
+		}
+
+		@Override
+		public int read() {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0];
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (remaining == 0) {
+				return -1;
+			}
+			int read = 0;
+			while (read < len && remaining > 0) {
+				int n = Math.min(len - read, line.length - position);
+				System.arraycopy(line, position, b, off + read, n);
+				read += n;
+				position += n;
+				if (position == line.length) {
+					position = 0;
+					remaining--;
+				}
+			}
+			return read;
+		}
+	}
+}
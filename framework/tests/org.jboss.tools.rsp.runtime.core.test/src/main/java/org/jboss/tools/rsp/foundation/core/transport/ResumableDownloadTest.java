@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.foundation.core.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.jboss.tools.rsp.eclipse.core.runtime.IStatus;
+import org.jboss.tools.rsp.eclipse.core.runtime.NullProgressMonitor;
+import org.jboss.tools.rsp.foundation.core.digest.DigestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResumableDownloadTest {
+
+	private Path dir;
+	private File file;
+	private byte[] content;
+	private TestHttpServer server;
+
+	@Before
+	public void before() throws IOException {
+		this.dir = Files.createTempDirectory("rsp-download");
+		this.file = dir.resolve("runtime.zip").toFile();
+		this.content = new byte[64 * 1024];
+		new Random(42).nextBytes(content);
+		this.server = new TestHttpServer(path -> content);
+	}
+
+	@After
+	public void after() throws IOException {
+		server.close();
+		for (File f : dir.toFile().listFiles()) {
+			f.delete();
+		}
+		Files.delete(dir);
+	}
+
+	@Test
+	public void testSegmentedDownload() throws Exception {
+		ResumableDownload download = create().setSegments(4, 1024);
+		IStatus status = download.download("runtime.zip", new NullProgressMonitor());
+		assertThat(status.isOK()).isTrue();
+		assertThat(Files.readAllBytes(file.toPath())).isEqualTo(content);
+		assertThat(download.getSegmentCount()).isEqualTo(4);
+		assertThat(server.rangeRequests()).isEqualTo(4);
+		assertThat(new File(dir.toFile(), file.getName() + ResumableDownload.STATE_SUFFIX)).doesNotExist();
+	}
+
+	@Test
+	public void testResumeAfterConnectionDropped() throws Exception {
+		server.dropAfter = 10 * 1024;
+		IStatus status = create().setSegments(1, 1024).setRetries(0).download("runtime.zip", new NullProgressMonitor());
+		assertThat(status.isOK()).isFalse();
+		assertThat(file.length()).isGreaterThan(0);
+		assertThat(new File(dir.toFile(), file.getName() + ResumableDownload.STATE_SUFFIX)).exists();
+		// the state is renamed into place, no temporary file is left behind
+		assertThat(dir.toFile().list()).containsOnly(file.getName(), file.getName() + ResumableDownload.STATE_SUFFIX);
+
+		server.dropAfter = -1;
+		ResumableDownload resumed = create().setSegments(1, 1024);
+		status = resumed.download("runtime.zip", new NullProgressMonitor());
+		assertThat(status.isOK()).isTrue();
+		assertThat(resumed.getResumedBytes()).isEqualTo(10 * 1024);
+		assertThat(Files.readAllBytes(file.toPath())).isEqualTo(content);
+	}
+
+	@Test
+	public void testRetryAfterConnectionDropped() throws Exception {
+		server.dropAfter = 10 * 1024;
+		ResumableDownload download = create().setSegments(1, 1024);
+		IStatus status = download.download("runtime.zip", new NullProgressMonitor());
+		assertThat(status.isOK()).isTrue();
+		assertThat(Files.readAllBytes(file.toPath())).isEqualTo(content);
+	}
+
+	@Test
+	public void testWrongRangeFailsSegment() throws Exception {
+		server.rangeShift = 512;
+		IStatus status = create().setSegments(4, 1024).setRetries(1).download("runtime.zip", new NullProgressMonitor());
+		assertThat(status.isOK()).isFalse();
+		assertThat(status.getMessage()).contains("Expected bytes from");
+	}
+
+	@Test
+	public void testServerWithoutRanges() throws Exception {
+		server.acceptRanges = false;
+		ResumableDownload download = create().setSegments(4, 1024);
+		IStatus status = download.download("runtime.zip", new NullProgressMonitor());
+		assertThat(status.isOK()).isTrue();
+		assertThat(download.getSegmentCount()).isEqualTo(1);
+		assertThat(server.rangeRequests()).isEqualTo(0);
+		assertThat(Files.readAllBytes(file.toPath())).isEqualTo(content);
+	}
+
+	@Test
+	public void testServerIgnoringRangesIsDownloadedInOneGo() throws Exception {
+		server.ignoreRanges = true;
+		ResumableDownload download = create().setSegments(4, 1024);
+		IStatus status = download.download("runtime.zip", new NullProgressMonitor());
+		assertThat(status.isOK()).isTrue();
+		assertThat(download.getSegmentCount()).isEqualTo(1);
+		assertThat(Files.readAllBytes(file.toPath())).isEqualTo(content);
+		assertThat(new File(dir.toFile(), file.getName() + ResumableDownload.STATE_SUFFIX)).doesNotExist();
+		assertThat(server.lastRequest()).doesNotContain("Range:");
+	}
+
+	@Test
+	public void testWeakETagIsNotSentInIfRange() throws Exception {
+		server.etag = "W/\"v1\"";
+		server.lastModified = "Tue, 15 Nov 1994 12:45:26 GMT";
+		IStatus status = create().setSegments(4, 1024).download("runtime.zip", new NullProgressMonitor());
+		assertThat(status.isOK()).isTrue();
+		assertThat(server.rangeRequests()).isEqualTo(4);
+		for (String request : server.getRequests()) {
+			assertThat(request).doesNotContain("If-Range: W/");
+			if (request.startsWith("GET ")) {
+				assertThat(request).contains("If-Range: " + server.lastModified);
+			}
+		}
+	}
+
+	@Test
+	public void testChecksum() throws Exception {
+		Path expected = dir.resolve("expected");
+		Files.write(expected, content);
+		String sha256 = DigestUtils.sha256(expected.toFile());
+		Files.delete(expected);
+
+		IStatus status = create().setSha256(sha256).download("runtime.zip", new NullProgressMonitor());
+		assertThat(status.isOK()).isTrue();
+
+		status = create().setSha256("0123456789abcdef").download("runtime.zip", new NullProgressMonitor());
+		assertThat(status.isOK()).isFalse();
+		assertThat(status.getMessage()).contains("Checksum");
+		assertThat(file).doesNotExist();
+	}
+
+	@Test
+	public void testIdleTimeout() throws Exception {
+		server.stall = 10000;
+		long start = System.currentTimeMillis();
+		IStatus status = create().setIdleTimeout(300).download("runtime.zip", new NullProgressMonitor());
+		assertThat(status.isOK()).isFalse();
+		assertThat(status.getMessage()).contains("received nothing");
+		assertThat(System.currentTimeMillis() - start).isLessThan(5000);
+	}
+
+	private ResumableDownload create() throws IOException {
+		return new ResumableDownload(new URL(server.url("/runtime.zip")), file);
+	}
+}
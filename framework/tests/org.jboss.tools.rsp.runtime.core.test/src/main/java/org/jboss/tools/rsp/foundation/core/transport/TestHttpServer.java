@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.foundation.core.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A minimal http server for the download tests, one request per connection.
+ * Answers every path with the content the given function returns for it.
+ * Supports byte ranges and requests that are conditional on the ETag.
+ */
+class TestHttpServer {
+
+	private static final Pattern RANGE = Pattern.compile("Range: bytes=(\\d+)-(\\d+)", Pattern.CASE_INSENSITIVE);
+
+	private final ServerSocket socket;
+	private final Function<String, byte[]> content;
+	private final List<String> requests = new ArrayList<>();
+	volatile String etag = "\"v1\"";
+	volatile String cacheControl = null;
+	volatile boolean acceptRanges = true;
+	/** whether ranges are advertised but answered with the whole content */
+	volatile boolean ignoreRanges = false;
+	volatile String lastModified = null;
+	/** the bytes after which the next response is cut off, or -1 */
+	volatile int dropAfter = -1;
+	/** the bytes a range is answered before where it was asked to start */
+	volatile int rangeShift = 0;
+	/** the milliseconds a response waits before sending the content */
+	volatile long stall = 0;
+	volatile int notModified = 0;
+
+	TestHttpServer(Function<String, byte[]> content) throws IOException {
+		this.content = content;
+		this.socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread t = new Thread(this::accept);
+		t.setDaemon(true);
+		t.start();
+	}
+
+	String url(String path) {
+		// the address that was bound to, localhost may resolve to the other family
+		String host = socket.getInetAddress().getHostAddress();
+		if (host.contains(":")) {
+			host = "[" + host + "]";
+		}
+		return "http://" + host + ":" + socket.getLocalPort() + path;
+	}
+
+	List<String> getRequests() {
+		synchronized (requests) {
+			return new ArrayList<>(requests);
+		}
+	}
+
+	String lastRequest() {
+		synchronized (requests) {
+			return requests.get(requests.size() - 1);
+		}
+	}
+
+	int rangeRequests() {
+		return (int) getRequests().stream().filter(r -> RANGE.matcher(r).find()).count();
+	}
+
+	int countRequests(String method) {
+		return (int) getRequests().stream().filter(r -> r.startsWith(method + " ")).count();
+	}
+
+	private void accept() {
+		try {
+			while (true) {
+				Socket client = socket.accept();
+				Thread t = new Thread(() -> serve(client));
+				t.setDaemon(true);
+				t.start();
+			}
+		} catch(IOException e) {
+			// closed
+		}
+	}
+
+	private void serve(Socket client) {
+		try (Socket c = client) {
+			String request = readRequest(c.getInputStream());
+			if (request == null) {
+				return;
+			}
+			synchronized (requests) {
+				requests.add(request);
+			}
+			OutputStream out = c.getOutputStream();
+			if (request.contains("If-None-Match: " + etag)) {
+				notModified++;
+				out.write(("HTTP/1.1 304 Not Modified\r\n"
+						+ "ETag: " + etag + "\r\n"
+						+ "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+				out.flush();
+				return;
+			}
+			byte[] bytes = content.apply(request.split(" ")[1]);
+			int start = 0;
+			int end = bytes.length - 1;
+			Matcher m = RANGE.matcher(request);
+			boolean ranged = acceptRanges && !ignoreRanges && m.find();
+			if (ranged) {
+				start = Math.max(0, Integer.parseInt(m.group(1)) - rangeShift);
+				end = Math.min(end, Integer.parseInt(m.group(2)));
+			}
+			StringBuilder response = new StringBuilder(ranged ? "HTTP/1.1 206 Partial Content\r\n" : "HTTP/1.1 200 OK\r\n");
+			response.append("Content-Length: ").append(end - start + 1).append("\r\n");
+			response.append("ETag: ").append(etag).append("\r\n");
+			if (lastModified != null) {
+				response.append("Last-Modified: ").append(lastModified).append("\r\n");
+			}
+			if (cacheControl != null) {
+				response.append("Cache-Control: ").append(cacheControl).append("\r\n");
+			}
+			if (acceptRanges) {
+				response.append("Accept-Ranges: bytes\r\n");
+			}
+			if (ranged) {
+				response.append("Content-Range: bytes ").append(start).append('-').append(end)
+					.append('/').append(bytes.length).append("\r\n");
+			}
+			response.append("Connection: close\r\n\r\n");
+			out.write(response.toString().getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			if (request.startsWith("HEAD")) {
+				return;
+			}
+			if (stall > 0) {
+				Thread.sleep(stall);
+			}
+			int length = end - start + 1;
+			if (dropAfter >= 0 && dropAfter < length) {
+				length = dropAfter;
+				dropAfter = -1;
+			}
+			out.write(bytes, start, length);
+			out.flush();
+		} catch(IOException e) {
+			// client went away
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static String readRequest(InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != -1) {
+			bytes.write(b);
+			String s = new String(bytes.toByteArray(), StandardCharsets.US_ASCII);
+			if (s.endsWith("\r\n\r\n")) {
+				return s;
+			}
+		}
+		return null;
+	}
+
+	void close() throws IOException {
+		socket.close();
+	}
+}
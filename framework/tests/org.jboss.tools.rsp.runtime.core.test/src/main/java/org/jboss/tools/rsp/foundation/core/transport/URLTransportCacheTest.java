@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.foundation.core.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jboss.tools.rsp.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class URLTransportCacheTest {
+
+	private static final int SIZE = 1024;
+
+	private Path dir;
+	private TestHttpServer server;
+	private URLTransportCache cache;
+
+	@Before
+	public void before() throws IOException {
+		this.dir = Files.createTempDirectory("rsp-cache");
+		this.server = new TestHttpServer(path -> {
+			byte[] content = new byte[SIZE];
+			Arrays.fill(content, (byte) path.charAt(1));
+			return content;
+		});
+		this.cache = createCache();
+	}
+
+	@After
+	public void after() throws IOException {
+		server.close();
+		Files.walk(dir)
+			.sorted(Comparator.reverseOrder())
+			.forEach(p -> p.toFile().delete());
+	}
+
+	@Test
+	public void testNoNetworkWithinMaxAge() throws Exception {
+		cache.setDefaultMaxAge(60 * 1000);
+		String url = server.url("/stacks.yaml");
+		File f = cache.downloadAndCache(url, "stacks", new NullProgressMonitor());
+		assertThat(f).exists();
+		int requests = server.getRequests().size();
+		for (int i = 0; i < 3; i++) {
+			assertThat(cache.isCacheOutdated(url, new NullProgressMonitor())).isFalse();
+		}
+		assertThat(server.getRequests()).hasSize(requests);
+		assertThat(cache.getRevalidationCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void testConditionalRevalidation() throws Exception {
+		cache.setDefaultMaxAge(0);
+		String url = server.url("/stacks.yaml");
+		cache.downloadAndCache(url, "stacks", new NullProgressMonitor());
+		assertThat(cache.isCacheOutdated(url, new NullProgressMonitor())).isFalse();
+		assertThat(cache.getRevalidationCount()).isEqualTo(1);
+		assertThat(server.lastRequest()).contains("If-None-Match: \"v1\"");
+		assertThat(server.notModified).isEqualTo(1);
+
+		server.etag = "\"v2\"";
+		assertThat(cache.isCacheOutdated(url, new NullProgressMonitor())).isTrue();
+	}
+
+	@Test
+	public void testServerMaxAge() throws Exception {
+		cache.setDefaultMaxAge(0);
+		server.cacheControl = "max-age=3600";
+		String url = server.url("/stacks.yaml");
+		cache.downloadAndCache(url, "stacks", new NullProgressMonitor());
+		assertThat(cache.isCacheOutdated(url, new NullProgressMonitor())).isFalse();
+		assertThat(cache.getRevalidationCount()).isEqualTo(0);
+
+		cache.setDefaultMaxAge(60 * 1000);
+		server.cacheControl = "no-cache";
+		url = server.url("/other.yaml");
+		cache.downloadAndCache(url, "stacks", new NullProgressMonitor());
+		assertThat(cache.isCacheOutdated(url, new NullProgressMonitor())).isFalse();
+		assertThat(cache.getRevalidationCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() throws Exception {
+		cache.setMaxSize(SIZE * 2 + SIZE / 2);
+		File a = cache.downloadAndCache(server.url("/a"), "a", new NullProgressMonitor());
+		Thread.sleep(10);
+		File b = cache.downloadAndCache(server.url("/b"), "b", new NullProgressMonitor());
+		Thread.sleep(10);
+		assertThat(cache.getCachedFile(server.url("/a"))).isEqualTo(a);
+		Thread.sleep(10);
+		File c = cache.downloadAndCache(server.url("/c"), "c", new NullProgressMonitor());
+		assertThat(a).exists();
+		assertThat(b).doesNotExist();
+		assertThat(c).exists();
+		assertThat(cache.getCachedFile(server.url("/b"))).isNull();
+		assertThat(cache.getCachedFile(server.url("/c"))).isEqualTo(c);
+	}
+
+	@Test
+	public void testOrderOfUseSurvivesRestart() throws Exception {
+		File a = cache.downloadAndCache(server.url("/a"), "a", new NullProgressMonitor());
+		Thread.sleep(10);
+		File b = cache.downloadAndCache(server.url("/b"), "b", new NullProgressMonitor());
+		// the use of a cached file right after the index was saved is saved with the next change
+		Thread.sleep(1100);
+		assertThat(cache.getCachedFile(server.url("/a"))).isEqualTo(a);
+
+		URLTransportCache reloaded = createCache();
+		reloaded.setMaxSize(SIZE * 2 + SIZE / 2);
+		File c = reloaded.downloadAndCache(server.url("/c"), "c", new NullProgressMonitor());
+		assertThat(a).exists();
+		assertThat(b).doesNotExist();
+		assertThat(c).exists();
+	}
+
+	@Test
+	public void testStalePartialDownloadsAreEvicted() throws Exception {
+		server.acceptRanges = false;
+		server.dropAfter = SIZE / 2;
+		assertThat(cache.downloadAndCache(server.url("/x"), "x", new NullProgressMonitor())).isNull();
+		assertThat(dir.toFile().list((d, n) -> n.endsWith(".tmp"))).hasSize(1);
+
+		cache.setMaxSize(SIZE * 2);
+		File a = cache.downloadAndCache(server.url("/a"), "a", new NullProgressMonitor());
+		File b = cache.downloadAndCache(server.url("/b"), "b", new NullProgressMonitor());
+		assertThat(a).exists();
+		assertThat(b).exists();
+		assertThat(dir.toFile().list((d, n) -> n.endsWith(".tmp"))).containsOnly(a.getName(), b.getName());
+	}
+
+	@Test
+	public void testSameUrlIsDownloadedOnce() throws Exception {
+		server.stall = 300;
+		String url = server.url("/stacks.yaml");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<File>> futures = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				futures.add(executor.submit(() -> cache.downloadAndCache(url, "stacks", new NullProgressMonitor())));
+			}
+			File f = futures.get(0).get();
+			for (Future<File> future : futures) {
+				assertThat(future.get()).isEqualTo(f);
+			}
+			assertThat(Files.readAllBytes(f.toPath())).containsOnly((byte) 's').hasSize(SIZE);
+			assertThat(server.countRequests("GET")).isEqualTo(1);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testIndexIsReloaded() throws Exception {
+		cache.setDefaultMaxAge(0);
+		String url = server.url("/stacks.yaml");
+		File f = cache.downloadAndCache(url, "stacks", new NullProgressMonitor());
+
+		URLTransportCache reloaded = createCache();
+		reloaded.setDefaultMaxAge(0);
+		assertThat(reloaded.getCachedFile(url)).isEqualTo(f);
+		assertThat(reloaded.isCacheOutdated(url, new NullProgressMonitor())).isFalse();
+		assertThat(server.lastRequest()).contains("If-None-Match: \"v1\"");
+		assertThat(dir.toFile().list((d, n) -> n.endsWith(".properties")))
+			.containsExactly("URLTransportCache.index.properties");
+	}
+
+	private URLTransportCache createCache() {
+		// a new instance rather than the shared one for the folder
+		return new URLTransportCache(new org.jboss.tools.rsp.eclipse.core.runtime.Path(dir.toString())) {};
+	}
+}
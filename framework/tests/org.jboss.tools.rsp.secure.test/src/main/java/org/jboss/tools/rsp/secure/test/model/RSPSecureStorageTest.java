@@ -9,6 +9,7 @@
 package org.jboss.tools.rsp.secure.test.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -173,4 +174,71 @@ public class RSPSecureStorageTest {
 			// expected
 		}
 	}
+
+	@Test
+	public void testBatchSavesOnce() throws IOException, CryptoException {
+		File tmp = File.createTempFile("RSPSecureStorageTest", "4" + System.currentTimeMillis());
+		tmp.delete();
+		byte[] key = "reinventwheel".getBytes();
+		RSPSecureStorage store = new RSPSecureStorage(tmp, key);
+		store.load();
+		ISecureNode inner = store.getNode("testBundle").getChildNode("inner");
+
+		store.runInBatch(() -> {
+			inner.setBooleanProperty("keyB", true);
+			inner.setIntegerProperty("keyI", 5);
+			inner.setStringProperty("keyS", "persist-me");
+			assertFalse(tmp.exists());
+		});
+		assertEquals(1, store.getSaveCount());
+
+		// saved without an explicit save
+		RSPSecureStorage store2 = new RSPSecureStorage(tmp, key);
+		store2.load();
+		ISecureNode inner2 = store2.getNode("testBundle").getChildNode("inner");
+		assertEquals(true, inner2.getBooleanProperty("keyB", false));
+		assertEquals(5, inner2.getIntegerProperty("keyI", 1));
+		assertEquals("persist-me", inner2.getStringProperty("keyS", "wrong"));
+
+		// nothing written, nothing saved
+		store.runInBatch(() -> {});
+		assertEquals(1, store.getSaveCount());
+		tmp.delete();
+	}
+
+	@Test
+	public void testSecureAttributeWriteBenchmark() throws IOException, CryptoException {
+		int count = 1000;
+		File tmp = File.createTempFile("RSPSecureStorageTest", "5" + System.currentTimeMillis());
+		tmp.delete();
+		byte[] key = "reinventwheel".getBytes();
+		RSPSecureStorage store = new RSPSecureStorage(tmp, key);
+		store.load();
+		ISecureNode node = store.getNode("org.jboss.tools.rsp.server/servers/wildfly");
+
+		long start = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			node.setStringProperty("single" + i, "secret" + i);
+		}
+		long singleNanos = System.nanoTime() - start;
+		assertEquals(count, store.getSaveCount());
+
+		start = System.nanoTime();
+		store.runInBatch(() -> {
+			for (int i = 0; i < count; i++) {
+				node.setStringProperty("batched" + i, "secret" + i);
+			}
+		});
+		long batchedNanos = System.nanoTime() - start;
+		assertEquals(count + 1, store.getSaveCount());
+		System.out.println(String.format("RSPSecureStorage: %d secure attribute writes took %dms one by one, %dms in a batch",
+				count, singleNanos / 1000000, batchedNanos / 1000000));
+
+		RSPSecureStorage store2 = new RSPSecureStorage(tmp, key);
+		store2.load();
+		ISecureNode node2 = store2.getNode("org.jboss.tools.rsp.server/servers/wildfly");
+		assertEquals("secret999", node2.getStringProperty("single999", null));
+		assertEquals("secret999", node2.getStringProperty("batched999", null));
+		tmp.delete();
+	}
 }
@@ -10,15 +10,26 @@ package org.jboss.tools.rsp.server.spi.model.polling;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.tools.rsp.server.spi.model.polling.IServerStatePoller.CANCELATION_CAUSE;
 import org.jboss.tools.rsp.server.spi.model.polling.IServerStatePoller.SERVER_STATE;
+import org.jboss.tools.rsp.server.spi.servertype.IServer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -94,6 +105,175 @@ public class AbstractPollerTest {
 		assertThat(poller.getState()).isEqualTo(SERVER_STATE.UP);
 	}
 
+	@Test
+	public void pingsBackOffWhileStateIsNotReached() {
+		ManualScheduler scheduler = new ManualScheduler();
+		AtomicInteger pings = new AtomicInteger();
+		DelayableFixedResponsePoller poller = new DelayableFixedResponsePoller(SERVER_STATE.DOWN) {
+			@Override
+			protected SERVER_STATE onePing(IServer server) {
+				pings.incrementAndGet();
+				return super.onePing(server);
+			}
+
+			@Override
+			protected PollingScheduler getScheduler() {
+				return scheduler;
+			}
+
+			@Override
+			protected long getPollInterval() {
+				return 20;
+			}
+
+			@Override
+			protected long getMaxPollInterval() {
+				return 200;
+			}
+		};
+		poller.beginPolling(null, SERVER_STATE.UP);
+		for (int i = 0; i < 20; i++) {
+			assertThat(scheduler.runNext()).isTrue();
+		}
+		poller.cancel(CANCELATION_CAUSE.CANCEL);
+
+		assertThat(pings.get()).isEqualTo(20);
+		// the first ping is immediate, the ones after it back off from 20ms towards 200ms
+		List<Long> delays = scheduler.getDelays();
+		assertThat(delays).hasSize(21);
+		assertThat(delays.get(0)).isEqualTo(0);
+		assertThat(delays.get(1)).isBetween(18L, 22L);
+		for (int i = 2; i < delays.size(); i++) {
+			assertThat(delays.get(i)).isBetween(18L, 220L);
+			if (delays.get(i - 1) < 180) {
+				assertThat(delays.get(i)).isGreaterThan(delays.get(i - 1));
+			}
+		}
+		assertThat(delays.get(delays.size() - 1)).isBetween(180L, 220L);
+		// canceled pollers do not ping anymore
+		while (scheduler.runNext()) {
+		}
+		assertThat(pings.get()).isEqualTo(20);
+	}
+
+	@Test
+	public void blockingPingsDoNotDelayOtherPollers() throws PollingException, RequiresInfoException {
+		PollingScheduler scheduler = new PollingScheduler(1, 8);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger pings = new AtomicInteger();
+		List<AbstractPoller> blocked = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			AbstractPoller poller = new DelayableFixedResponsePoller(SERVER_STATE.DOWN) {
+				@Override
+				protected SERVER_STATE onePing(IServer server) {
+					pings.incrementAndGet();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return super.onePing(server);
+				}
+
+				@Override
+				protected PollingScheduler getScheduler() {
+					return scheduler;
+				}
+			};
+			poller.beginPolling(null, SERVER_STATE.UP);
+			blocked.add(poller);
+		}
+		AbstractPoller quick = new DelayableFixedResponsePoller(SERVER_STATE.UP) {
+			@Override
+			protected PollingScheduler getScheduler() {
+				return scheduler;
+			}
+		};
+		try {
+			quick.beginPolling(null, SERVER_STATE.UP);
+
+			assertThat(waitForComplete(quick)).isTrue();
+			for (AbstractPoller poller : blocked) {
+				assertThat(poller.isComplete()).isFalse();
+			}
+			// one ping in flight per blocked poller
+			assertThat(pings.get()).isEqualTo(blocked.size());
+		} finally {
+			release.countDown();
+			blocked.forEach(p -> p.cancel(CANCELATION_CAUSE.CANCEL));
+		}
+	}
+
+	@Test
+	public void blockingPingsRunOnBoundedWorkers() throws Exception {
+		PollingScheduler scheduler = new PollingScheduler(1, 2);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger running = new AtomicInteger();
+		Set<Thread> workers = ConcurrentHashMap.newKeySet();
+		List<AbstractPoller> pollers = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			AbstractPoller poller = new DelayableFixedResponsePoller(SERVER_STATE.DOWN) {
+				@Override
+				protected SERVER_STATE onePing(IServer server) {
+					workers.add(Thread.currentThread());
+					running.incrementAndGet();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return super.onePing(server);
+				}
+
+				@Override
+				protected PollingScheduler getScheduler() {
+					return scheduler;
+				}
+			};
+			poller.beginPolling(null, SERVER_STATE.UP);
+			pollers.add(poller);
+		}
+		try {
+			Thread.sleep(500);
+			// the other pings wait in the queue
+			assertThat(running.get()).isEqualTo(2);
+			assertThat(workers).hasSize(2);
+		} finally {
+			release.countDown();
+			pollers.forEach(p -> p.cancel(CANCELATION_CAUSE.CANCEL));
+		}
+	}
+
+	@Test
+	public void cleanupInterruptsRunningPing() throws Exception {
+		PollingScheduler scheduler = new PollingScheduler(1, 1);
+		CountDownLatch pinging = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		AbstractPoller poller = new DelayableFixedResponsePoller(SERVER_STATE.DOWN) {
+			@Override
+			protected SERVER_STATE onePing(IServer server) {
+				pinging.countDown();
+				try {
+					Thread.sleep(10000);
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+				}
+				return super.onePing(server);
+			}
+
+			@Override
+			protected PollingScheduler getScheduler() {
+				return scheduler;
+			}
+		};
+		poller.beginPolling(null, SERVER_STATE.UP);
+		assertThat(pinging.await(5, TimeUnit.SECONDS)).isTrue();
+
+		poller.cleanup();
+
+		assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+	}
+
 	private boolean waitForComplete(IServerStatePoller poller) {
 		Future<Boolean> isComplete = executor.submit(() -> {
 			while(!poller.isComplete()) {
@@ -109,7 +289,44 @@ public class AbstractPollerTest {
 		}
 	}
 
+	/**
+	 * Runs the scheduled tasks when asked to, and pings on the calling thread
+	 */
+	private static class ManualScheduler extends PollingScheduler {
 
-	
-}
+		private final List<Long> delays = new ArrayList<>();
+		private final Deque<Runnable> tasks = new ArrayDeque<>();
 
+		private ManualScheduler() {
+			super(1);
+		}
+
+		@Override
+		public synchronized ScheduledFuture<?> schedule(Runnable runnable, long delayMillis) {
+			delays.add(delayMillis);
+			tasks.add(runnable);
+			return null;
+		}
+
+		@Override
+		public Executor getPingExecutor() {
+			return Runnable::run;
+		}
+
+		private boolean runNext() {
+			Runnable task;
+			synchronized (this) {
+				task = tasks.poll();
+			}
+			if (task == null) {
+				return false;
+			}
+			task.run();
+			return true;
+		}
+
+		private synchronized List<Long> getDelays() {
+			return new ArrayList<>(delays);
+		}
+	}
+}
@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.spi.model.polling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.jboss.tools.rsp.server.spi.model.polling.IServerStatePoller.SERVER_STATE;
+import org.jboss.tools.rsp.server.spi.servertype.IServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HttpProbeEngineTest {
+
+	private HttpProbeEngine engine;
+	private TestServer server;
+
+	@Before
+	public void before() throws IOException {
+		this.engine = new HttpProbeEngine();
+		this.server = new TestServer();
+	}
+
+	@After
+	public void after() throws IOException {
+		engine.shutdown();
+		server.close();
+	}
+
+	@Test
+	public void testAnyResponseIsSuccessByDefault() throws Exception {
+		server.status = 404;
+		HttpProbeResult result = probe(new HttpProbe(server.url("/missing")));
+		assertThat(result.isSuccess()).isTrue();
+		assertThat(result.getStatus()).isEqualTo(404);
+		assertThat(server.requests.get(0)).startsWith("GET /missing HTTP/1.1");
+	}
+
+	@Test
+	public void testStatusRanges() throws Exception {
+		server.status = 503;
+		HttpProbe probe = new HttpProbe(server.url("/")).addStatusRange(200, 399);
+		assertThat(probe(probe).isSuccess()).isFalse();
+		server.status = 302;
+		assertThat(probe(probe).isSuccess()).isTrue();
+	}
+
+	@Test
+	public void testHeadAndBodyMatch() throws Exception {
+		server.body = "{\"outcome\":\"running\"}";
+		assertThat(probe(new HttpProbe(server.url("/")).setMethod(HttpProbe.HEAD)).isSuccess()).isTrue();
+		assertThat(server.requests.get(0)).startsWith("HEAD / HTTP/1.1");
+
+		assertThat(probe(new HttpProbe(server.url("/"))
+				.setBodyPattern(Pattern.compile("running"))).isSuccess()).isTrue();
+		assertThat(probe(new HttpProbe(server.url("/"))
+				.setBodyPattern(Pattern.compile("stopped"))).isSuccess()).isFalse();
+		server.chunked = true;
+		assertThat(probe(new HttpProbe(server.url("/"))
+				.setBodyPattern(Pattern.compile("running"))).isSuccess()).isTrue();
+	}
+
+	@Test
+	public void testConnectionIsReused() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			assertThat(probe(new HttpProbe(server.url("/"))).isSuccess()).isTrue();
+		}
+		server.chunked = true;
+		HttpProbeResult last = probe(new HttpProbe(server.url("/")));
+		assertThat(last.isSuccess()).isTrue();
+		assertThat(last.isReusedConnection()).isTrue();
+		assertThat(server.connections.get()).isEqualTo(1);
+		assertThat(engine.getConnectionsOpened()).isEqualTo(1);
+	}
+
+	@Test
+	public void testConnectionClosedByServer() throws Exception {
+		assertThat(probe(new HttpProbe(server.url("/"))).isSuccess()).isTrue();
+		server.closeAfterResponse = true;
+		// the connection is kept alive on our side, but the server closes it
+		assertThat(probe(new HttpProbe(server.url("/"))).isSuccess()).isTrue();
+		// whether or not the close was noticed yet, a new connection is used
+		assertThat(probe(new HttpProbe(server.url("/"))).isSuccess()).isTrue();
+		assertThat(server.connections.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void testReadTimeout() throws Exception {
+		server.delay = 5000;
+		long start = System.currentTimeMillis();
+		HttpProbeResult result = probe(new HttpProbe(server.url("/")).setReadTimeout(300));
+		assertThat(result.isSuccess()).isFalse();
+		assertThat(result.getError()).hasMessageContaining("timed out");
+		assertThat(System.currentTimeMillis() - start).isLessThan(3000);
+	}
+
+	@Test
+	public void testConnectionRefused() throws Exception {
+		String url = server.url("/");
+		server.close();
+		HttpProbeResult result = probe(new HttpProbe(url));
+		assertThat(result.isSuccess()).isFalse();
+		assertThat(result.getStatus()).isEqualTo(-1);
+	}
+
+	@Test
+	public void testUnknownHost() throws Exception {
+		HttpProbeResult result = probe(new HttpProbe("http://rsp-probe-test.invalid/"));
+		assertThat(result.isSuccess()).isFalse();
+		assertThat(result.getStatus()).isEqualTo(-1);
+	}
+
+	@Test
+	public void testProbesFailAfterShutdown() throws Exception {
+		engine.shutdown();
+		HttpProbeResult result = probe(new HttpProbe(server.url("/")));
+		assertThat(result.isSuccess()).isFalse();
+	}
+
+	@Test
+	public void testManyProbesRunConcurrently() throws Exception {
+		server.delay = 300;
+		List<CompletableFuture<HttpProbeResult>> futures = new ArrayList<>();
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < 20; i++) {
+			futures.add(engine.probe(new HttpProbe(server.url("/" + i))));
+		}
+		for (CompletableFuture<HttpProbeResult> f : futures) {
+			HttpProbeResult result = f.get();
+			assertThat(result.isSuccess()).isTrue();
+			assertThat(result.getLatencyMillis()).isGreaterThanOrEqualTo(290);
+		}
+		assertThat(System.currentTimeMillis() - start).isLessThan(20 * 300 / 2);
+	}
+
+	@Test
+	public void testWebPortPollerRecordsProbes() throws Exception {
+		String url = server.url("/");
+		WebPortPoller poller = new WebPortPoller("test") {
+			@Override
+			protected String getURL(IServer server) {
+				return url;
+			}
+
+			@Override
+			protected HttpProbeEngine getProbeEngine() {
+				return engine;
+			}
+		};
+		poller.beginPolling(null, SERVER_STATE.UP);
+		long end = System.currentTimeMillis() + 5000;
+		while (!poller.isComplete() && System.currentTimeMillis() < end) {
+			Thread.sleep(20);
+		}
+		assertThat(poller.getState()).isEqualTo(SERVER_STATE.UP);
+		assertThat(poller.getProbeCount()).isEqualTo(1);
+		assertThat(poller.getLastProbeResult().getStatus()).isEqualTo(200);
+		assertThat(poller.getCurrentStateSynchronous(null)).isEqualTo(SERVER_STATE.UP);
+	}
+
+	private HttpProbeResult probe(HttpProbe probe) throws InterruptedException, ExecutionException {
+		return engine.probe(probe).get();
+	}
+
+	/**
+	 * A minimal keep-alive http server answering every request the same way.
+	 */
+	private static class TestServer {
+		private final ServerSocket socket;
+		private final List<Socket> clients = new ArrayList<>();
+		private final List<String> requests = new ArrayList<>();
+		private final AtomicInteger connections = new AtomicInteger();
+		private volatile int status = 200;
+		private volatile String body = "ok";
+		private volatile boolean chunked = false;
+		private volatile boolean closeAfterResponse = false;
+		private volatile long delay = 0;
+
+		private TestServer() throws IOException {
+			this.socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+			Thread t = new Thread(this::accept);
+			t.setDaemon(true);
+			t.start();
+		}
+
+		private String url(String path) {
+			// the address that was bound to, localhost may resolve to the other family
+			String host = socket.getInetAddress().getHostAddress();
+			if (host.contains(":")) {
+				host = "[" + host + "]";
+			}
+			return "http://" + host + ":" + socket.getLocalPort() + path;
+		}
+
+		private void accept() {
+			try {
+				while (true) {
+					Socket client = socket.accept();
+					connections.incrementAndGet();
+					synchronized (clients) {
+						clients.add(client);
+					}
+					Thread t = new Thread(() -> serve(client));
+					t.setDaemon(true);
+					t.start();
+				}
+			} catch(IOException e) {
+				// closed
+			}
+		}
+
+		private void serve(Socket client) {
+			try (Socket c = client) {
+				InputStream in = c.getInputStream();
+				OutputStream out = c.getOutputStream();
+				String request;
+				while ((request = readRequest(in)) != null) {
+					synchronized (requests) {
+						requests.add(request);
+					}
+					// decided before responding, the client may change it once it has the response
+					boolean close = closeAfterResponse;
+					if (delay > 0) {
+						Thread.sleep(delay);
+					}
+					byte[] content = body.getBytes(StandardCharsets.UTF_8);
+					boolean head = request.startsWith("HEAD");
+					StringBuilder response = new StringBuilder("HTTP/1.1 " + status + " Whatever\r\n");
+					if (chunked) {
+						response.append("Transfer-Encoding: chunked\r\n\r\n");
+						if (!head) {
+							int half = content.length / 2;
+							response.append(Integer.toHexString(half)).append("\r\n")
+								.append(body, 0, half).append("\r\n")
+								.append(Integer.toHexString(content.length - half)).append(";ext=1\r\n")
+								.append(body.substring(half)).append("\r\n")
+								.append("0\r\n\r\n");
+						}
+					} else {
+						response.append("Content-Length: ").append(content.length).append("\r\n\r\n");
+						if (!head) {
+							response.append(body);
+						}
+					}
+					out.write(response.toString().getBytes(StandardCharsets.UTF_8));
+					out.flush();
+					if (close) {
+						return;
+					}
+				}
+			} catch(IOException | InterruptedException e) {
+				// client went away
+			}
+		}
+
+		private String readRequest(InputStream in) throws IOException {
+			ByteArrayOutputStream request = new ByteArrayOutputStream();
+			int last = 0;
+			int b;
+			while ((b = in.read()) != -1) {
+				request.write(b);
+				last = (last << 8) | b;
+				if (last == 0x0d0a0d0a) {
+					return new String(request.toByteArray(), StandardCharsets.ISO_8859_1);
+				}
+			}
+			return null;
+		}
+
+		private void close() throws IOException {
+			socket.close();
+			synchronized (clients) {
+				for (Socket c : clients) {
+					c.close();
+				}
+			}
+		}
+	}
+}
@@ -20,8 +20,11 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.jboss.tools.rsp.api.DefaultServerAttributes;
@@ -301,6 +304,40 @@ public class PollThreadTest {
 		pollThread.cancel();
 	}
 
+	@Test
+	public void checksRunAsOnePeriodicTask() throws Exception {
+		// given
+		IServerStatePoller poller = mockPoller(SERVER_STATE.UP);
+		doReturn(false).doReturn(false).doReturn(true).when(poller).isComplete();
+		List<ScheduledFuture<?>> periodic = new CopyOnWriteArrayList<>();
+		PollingScheduler scheduler = new PollingScheduler(1) {
+			@Override
+			public ScheduledFuture<?> scheduleWithFixedDelay(Runnable runnable, long delayMillis) {
+				ScheduledFuture<?> future = super.scheduleWithFixedDelay(runnable, delayMillis);
+				periodic.add(future);
+				return future;
+			}
+		};
+		PollThread pollThread = new PollThread(SERVER_STATE.UP, poller, resultListener, server, TIMEOUT) {
+			@Override
+			protected PollingScheduler getScheduler() {
+				return scheduler;
+			}
+		};
+
+		// when
+		pollThread.start();
+		pollThread.join();
+
+		// then
+		AssertedState state = resultListener.getNextNotifiedState();
+		assertThat(state.isAsserted()).isTrue();
+		assertThat(pollThread.isAlive()).isFalse();
+		assertThat(periodic).hasSize(1);
+		assertThat(periodic.get(0).isCancelled()).isTrue();
+		verify(poller, times(3)).isComplete();
+	}
+
 	private IServerDelegate mockServerDelegate() {
 		return mock(IServerDelegate.class);
 	}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.spi.publishing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.jboss.tools.rsp.api.ServerManagementAPIConstants;
+import org.jboss.tools.rsp.api.dao.DeployableReference;
+import org.jboss.tools.rsp.eclipse.core.runtime.CoreException;
+import org.jboss.tools.rsp.server.spi.model.IDataStoreModel;
+import org.jboss.tools.rsp.server.spi.model.IServerManagementModel;
+import org.jboss.tools.rsp.server.spi.servertype.IServer;
+import org.jboss.tools.rsp.server.spi.servertype.IServerDelegate;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FilesystemPublishManifestTest {
+
+	private Path data;
+	private Path deployFolder;
+	private Path source;
+	private IServer server;
+	private DeployableReference reference;
+
+	@Before
+	public void before() throws IOException {
+		this.data = Files.createTempDirectory("rsp_publish_data");
+		this.deployFolder = Files.createTempDirectory("rsp_publish_deploy");
+		this.source = Files.createTempDirectory("rsp_publish_src").resolve("app.war");
+		Files.createDirectories(source.resolve("WEB-INF/lib"));
+		Files.write(source.resolve("index.html"), "index".getBytes());
+		Files.write(source.resolve("WEB-INF/web.xml"), "<web-app/>".getBytes());
+		Files.write(source.resolve("WEB-INF/lib/a.jar"), new byte[4096]);
+
+		IDataStoreModel dataStore = mock(IDataStoreModel.class);
+		when(dataStore.getDataLocation()).thenReturn(data.toFile());
+		IServerManagementModel mgmt = mock(IServerManagementModel.class);
+		when(mgmt.getDataStoreModel()).thenReturn(dataStore);
+		this.server = mock(IServer.class);
+		when(server.getId()).thenReturn("server1");
+		when(server.getName()).thenReturn("server1");
+		when(server.getServerManagementModel()).thenReturn(mgmt);
+		this.reference = new DeployableReference("app", source.toString());
+	}
+
+	@Test
+	public void testUnchangedFilesSkippedAfterRestart() throws CoreException, IOException {
+		TestController first = new TestController();
+		publish(first, ServerManagementAPIConstants.PUBLISH_FULL);
+		PublishCopyStatistics stats = first.getPublishCopyStatistics(reference);
+		assertThat(stats.getFilesCopied()).isEqualTo(3);
+		assertThat(stats.getBytesSkipped()).isEqualTo(0);
+
+		// A new controller reads the manifest back from the data location
+		Files.write(source.resolve("index.html"), "index2".getBytes());
+		Files.write(deployFolder.resolve("app.war/orphan.txt"), "orphan".getBytes());
+		TestController second = new TestController();
+		publish(second, ServerManagementAPIConstants.PUBLISH_FULL);
+		stats = second.getPublishCopyStatistics(reference);
+		assertThat(stats.getFilesCopied()).isEqualTo(1);
+		assertThat(stats.getBytesCopied()).isEqualTo(6);
+		assertThat(stats.getFilesSkipped()).isEqualTo(2);
+		assertThat(stats.getBytesSkipped()).isEqualTo(4096 + 10);
+		assertThat(stats.getFilesDeleted()).isEqualTo(1);
+		assertThat(deployFolder.resolve("app.war/orphan.txt").toFile()).doesNotExist();
+		assertThat(new String(Files.readAllBytes(deployFolder.resolve("app.war/index.html")))).isEqualTo("index2");
+	}
+
+	@Test
+	public void testTouchedFileWithSameContentSkipped() throws CoreException, IOException {
+		TestController controller = new TestController();
+		publish(controller, ServerManagementAPIConstants.PUBLISH_FULL);
+		Path jar = source.resolve("WEB-INF/lib/a.jar");
+		Files.setLastModifiedTime(jar, FileTime.fromMillis(
+				Files.getLastModifiedTime(jar).toMillis() + 10000));
+		publish(controller, ServerManagementAPIConstants.PUBLISH_FULL);
+		assertThat(controller.getPublishCopyStatistics(reference).getFilesCopied()).isEqualTo(0);
+	}
+
+	@Test
+	public void testTouchedFileWithNewContentOfSameSizeCopied() throws CoreException, IOException {
+		TestController controller = new TestController();
+		publish(controller, ServerManagementAPIConstants.PUBLISH_FULL);
+		Path jar = source.resolve("WEB-INF/lib/a.jar");
+		byte[] content = Files.readAllBytes(jar);
+		content[0]++;
+		long lastModified = Files.getLastModifiedTime(jar).toMillis();
+		Files.write(jar, content);
+		Files.setLastModifiedTime(jar, FileTime.fromMillis(lastModified + 10000));
+		publish(controller, ServerManagementAPIConstants.PUBLISH_FULL);
+		assertThat(controller.getPublishCopyStatistics(reference).getFilesCopied()).isEqualTo(1);
+		assertThat(Files.readAllBytes(deployFolder.resolve("app.war/WEB-INF/lib/a.jar"))).isEqualTo(content);
+	}
+
+	@Test
+	public void testCleanPublishCopiesEverything() throws CoreException {
+		TestController controller = new TestController();
+		publish(controller, ServerManagementAPIConstants.PUBLISH_FULL);
+		publish(controller, ServerManagementAPIConstants.PUBLISH_CLEAN);
+		assertThat(controller.getPublishCopyStatistics(reference).getFilesCopied()).isEqualTo(3);
+	}
+
+	@Test
+	public void testRemoveDeletesManifest() throws CoreException {
+		TestController controller = new TestController();
+		publish(controller, ServerManagementAPIConstants.PUBLISH_FULL);
+		Path manifest = controller.getPublishManifestPath(reference);
+		assertThat(manifest.toFile()).exists();
+		controller.publishModule(reference, ServerManagementAPIConstants.PUBLISH_FULL,
+				ServerManagementAPIConstants.PUBLISH_STATE_REMOVE);
+		assertThat(manifest.toFile()).doesNotExist();
+		assertThat(deployFolder.resolve("app.war").toFile()).doesNotExist();
+	}
+
+	@Test
+	public void testPublishedFilesHaveDefaultPermissions() throws CoreException, IOException {
+		assumeTrue(deployFolder.getFileSystem().supportedFileAttributeViews().contains("posix"));
+		Path plain = Files.createFile(deployFolder.resolve("plain.txt"));
+		TestController controller = new TestController();
+		publish(controller, ServerManagementAPIConstants.PUBLISH_FULL);
+		assertThat(Files.getPosixFilePermissions(deployFolder.resolve("app.war/index.html")))
+			.isEqualTo(Files.getPosixFilePermissions(plain));
+	}
+
+	private void publish(TestController controller, int publishType) throws CoreException {
+		int result = controller.publishModule(reference, publishType,
+				ServerManagementAPIConstants.PUBLISH_STATE_FULL);
+		assertThat(result).isEqualTo(ServerManagementAPIConstants.PUBLISH_STATE_NONE);
+	}
+
+	private class TestController extends AbstractFilesystemPublishController {
+		public TestController() {
+			super(server, mock(IServerDelegate.class));
+		}
+
+		@Override
+		protected String[] getSupportedSuffixes() {
+			return null;
+		}
+
+		@Override
+		protected Path getDeploymentFolder() {
+			return deployFolder;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.spi.publishing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelZipArchiverTest {
+
+	private Path source;
+	private Map<String, byte[]> expected;
+
+	@Before
+	public void before() throws IOException {
+		this.source = Files.createTempDirectory("rsp_zip_src");
+		this.expected = new HashMap<>();
+		for( int i = 0; i < 50; i++ ) {
+			byte[] content = ("file " + i + " ").getBytes();
+			byte[] repeated = new byte[content.length * (i + 1) * 10];
+			for( int j = 0; j < repeated.length; j++ )
+				repeated[j] = content[j % content.length];
+			add("WEB-INF/classes/pkg" + (i % 5) + "/File" + i + ".class", repeated);
+		}
+		add("empty.txt", new byte[0]);
+		// Larger than the in-memory limit, so it is streamed
+		byte[] large = new byte[9 * 1024 * 1024];
+		Arrays.fill(large, (byte)'x');
+		add("WEB-INF/lib/large.jar", large);
+	}
+
+	@Test
+	public void testDefaultCompression() throws IOException {
+		ParallelZipArchiver.Result result = packAndVerify(Deflater.DEFAULT_COMPRESSION);
+		assertThat(result.getBytesOut()).isLessThan(result.getBytesIn());
+	}
+
+	@Test
+	public void testStored() throws IOException {
+		ParallelZipArchiver.Result result = packAndVerify(ParallelZipArchiver.STORED);
+		assertThat(result.getBytesOut()).isGreaterThan(result.getBytesIn());
+	}
+
+	@Test
+	public void testFastestCompression() throws IOException {
+		packAndVerify(Deflater.BEST_SPEED);
+	}
+
+	private ParallelZipArchiver.Result packAndVerify(int level) throws IOException {
+		Path zip = Files.createTempDirectory("rsp_zip_out").resolve("out.war");
+		ParallelZipArchiver.Result result = new ParallelZipArchiver(level, 4).pack(source, zip);
+		assertThat(result.getEntries()).isEqualTo(expected.size());
+		assertThat(result.getBytesOut()).isEqualTo(Files.size(zip));
+
+		// The central directory
+		try (ZipFile zf = new ZipFile(zip.toFile())) {
+			assertThat(zf.size()).isEqualTo(expected.size());
+			for( Map.Entry<String, byte[]> e : expected.entrySet()) {
+				ZipEntry entry = zf.getEntry(e.getKey());
+				assertThat(entry).isNotNull();
+				try (InputStream is = zf.getInputStream(entry)) {
+					assertThat(Arrays.equals(readAll(is), e.getValue())).isTrue();
+				}
+			}
+		}
+		// The local headers, which also verifies every crc
+		int count = 0;
+		try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(zip))) {
+			ZipEntry entry;
+			while((entry = zis.getNextEntry()) != null) {
+				assertThat(Arrays.equals(readAll(zis), expected.get(entry.getName()))).isTrue();
+				count++;
+			}
+		}
+		assertThat(count).isEqualTo(expected.size());
+		return result;
+	}
+
+	private void add(String name, byte[] content) throws IOException {
+		Path p = source.resolve(name);
+		Files.createDirectories(p.getParent());
+		Files.write(p, content);
+		expected.put(name, content);
+	}
+
+	private static byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int n;
+		while((n = is.read(buffer)) != -1)
+			baos.write(buffer, 0, n);
+		return baos.toByteArray();
+	}
+}
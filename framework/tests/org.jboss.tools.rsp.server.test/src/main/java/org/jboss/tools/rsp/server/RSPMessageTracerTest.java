@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.lsp4j.jsonrpc.MessageConsumer;
+import org.eclipse.lsp4j.jsonrpc.json.MessageJsonHandler;
+import org.eclipse.lsp4j.jsonrpc.json.StreamMessageConsumer;
+import org.eclipse.lsp4j.jsonrpc.messages.NotificationMessage;
+import org.jboss.tools.rsp.api.dao.ServerHandle;
+import org.jboss.tools.rsp.api.dao.ServerProcessOutput;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class RSPMessageTracerTest {
+
+	private File dir;
+
+	@Before
+	public void before() throws IOException {
+		this.dir = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+	}
+
+	@After
+	public void after() {
+		for( File f : dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void testDisabledTracerOnlyPassesMessagesOn() {
+		AtomicInteger consumed = new AtomicInteger();
+		RSPMessageTracer tracer = new RSPMessageTracer("client", false, null);
+		MessageConsumer consumer = tracer.wrap(m -> consumed.incrementAndGet());
+		for( int i = 0; i < 10; i++ ) {
+			consumer.consume(createNotification(i));
+		}
+		assertThat(consumed.get()).isEqualTo(10);
+		assertThat(tracer.getTracedCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void testTracingCanBeSwitchedAtRuntime() throws IOException {
+		MessageCaptureFile capture = new MessageCaptureFile(new File(dir, "capture.jsonl"), 1024 * 1024, 1);
+		RSPMessageTracer tracer = new RSPMessageTracer("localhost:1234", false, capture);
+		MessageConsumer in = tracer.wrap(m -> {});
+		MessageConsumer out = tracer.wrap(new StreamMessageConsumer(new ByteArrayOutputStream(),
+				new MessageJsonHandler(Collections.emptyMap())));
+		in.consume(createNotification(0));
+		tracer.setEnabled(true);
+		in.consume(createNotification(1));
+		out.consume(createNotification(2));
+		tracer.setEnabled(false);
+		out.consume(createNotification(3));
+		capture.close();
+
+		List<String> lines = Files.readAllLines(capture.getFile().toPath(), StandardCharsets.UTF_8);
+		assertThat(lines).hasSize(2);
+		JsonObject first = new JsonParser().parse(lines.get(0)).getAsJsonObject();
+		assertThat(first.get("client").getAsString()).isEqualTo("localhost:1234");
+		assertThat(first.get("direction").getAsString()).isEqualTo(RSPMessageTracer.DIRECTION_IN);
+		JsonObject message = first.get("message").getAsJsonObject();
+		assertThat(message.get("method").getAsString()).isEqualTo("server/processOutputAppended");
+		assertThat(message.get("params").getAsJsonObject().get("text").getAsString()).isEqualTo("line 1\n");
+		JsonObject second = new JsonParser().parse(lines.get(1)).getAsJsonObject();
+		assertThat(second.get("direction").getAsString()).isEqualTo(RSPMessageTracer.DIRECTION_OUT);
+		assertThat(tracer.getTracedCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void testCaptureFileIsRolledOver() throws IOException {
+		MessageCaptureFile capture = new MessageCaptureFile(new File(dir, "capture.jsonl"), 1000, 2);
+		RSPMessageTracer tracer = new RSPMessageTracer("client", true, capture);
+		MessageConsumer consumer = tracer.wrap(m -> {});
+		for( int i = 0; i < 100; i++ ) {
+			consumer.consume(createNotification(i));
+		}
+		capture.close();
+		assertThat(capture.getFile().length()).isLessThanOrEqualTo(1000);
+		assertThat(capture.getBackup(1)).exists();
+		assertThat(capture.getBackup(2)).exists();
+		assertThat(capture.getBackup(3)).doesNotExist();
+		List<String> lines = Files.readAllLines(capture.getFile().toPath(), StandardCharsets.UTF_8);
+		assertThat(lines.get(lines.size() - 1)).contains("line 99");
+	}
+
+	/*
+	 * Compares the cost of sending a process output notification
+	 * with tracing switched off and on.
+	 */
+	@Test
+	public void testNotificationThroughput() {
+		int untraced = 200000;
+		int traced = 500;
+		double offNanos = measure(new RSPMessageTracer("client", false, null), untraced);
+		MessageCaptureFile capture = new MessageCaptureFile(new File(dir, "capture.jsonl"), 1024 * 1024, 1);
+		double onNanos = measure(new RSPMessageTracer("client", true, capture), traced);
+		capture.close();
+		System.out.println(String.format("RSPMessageTracer: %.0fns per notification with tracing off, %.0fns with tracing on",
+				offNanos, onNanos));
+		assertThat(offNanos).isLessThan(onNanos);
+	}
+
+	private double measure(RSPMessageTracer tracer, int count) {
+		AtomicInteger consumed = new AtomicInteger();
+		MessageConsumer consumer = tracer.wrap(m -> consumed.incrementAndGet());
+		NotificationMessage message = createNotification(0);
+		long start = System.nanoTime();
+		for( int i = 0; i < count; i++ ) {
+			consumer.consume(message);
+		}
+		long nanos = System.nanoTime() - start;
+		assertThat(consumed.get()).isEqualTo(count);
+		return (double)nanos / count;
+	}
+
+	private static NotificationMessage createNotification(int i) {
+		NotificationMessage message = new NotificationMessage();
+		message.setJsonrpc("2.0");
+		message.setMethod("server/processOutputAppended");
+		message.setParams(new ServerProcessOutput(new ServerHandle("wildfly", null),
+				"process", 1, "line " + i + "\n"));
+		return message;
+	}
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.tools.rsp.api.RSPClient;
+import org.jboss.tools.rsp.api.RSPServer;
+import org.jboss.tools.rsp.api.SocketLauncher;
+import org.jboss.tools.rsp.api.dao.ServerHandle;
+import org.jboss.tools.rsp.api.dao.ServerProcessOutput;
+import org.jboss.tools.rsp.server.spi.client.MessageContextStore;
+import org.jboss.tools.rsp.server.transport.NioTransport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RSPNioLauncherTest {
+
+	private NioTransport transport;
+	private RSPServer service;
+	private MessageContextStore<RSPClient> contextStore;
+	private BlockingQueue<RSPNioLauncher<RSPClient>> launchers;
+	private List<Socket> sockets;
+	private int port;
+
+	@Before
+	public void before() throws IOException {
+		this.service = mock(RSPServer.class);
+		this.contextStore = new MessageContextStore<>();
+		this.launchers = new LinkedBlockingQueue<>();
+		this.sockets = new ArrayList<>();
+		this.transport = new NioTransport();
+		InetSocketAddress address = (InetSocketAddress) transport.bind(
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+				connection -> {
+					RSPNioLauncher<RSPClient> launcher = RSPNioLauncher.create(service, RSPClient.class,
+							connection, contextStore, null);
+					launcher.startListening();
+					launchers.add(launcher);
+				});
+		this.port = address.getPort();
+		transport.start();
+	}
+
+	@After
+	public void after() throws IOException {
+		for (Socket s : sockets) {
+			s.close();
+		}
+		transport.stop();
+	}
+
+	@Test
+	public void testRequestsAndNotifications() throws Exception {
+		List<ServerHandle> handles = Collections.singletonList(new ServerHandle("wildfly", null));
+		when(service.getServerHandles()).thenReturn(CompletableFuture.completedFuture(handles));
+		RSPClient client = mock(RSPClient.class);
+		RSPServer server = connect(client);
+
+		List<ServerHandle> result = server.getServerHandles().get(5, TimeUnit.SECONDS);
+		assertThat(result).hasSize(1);
+		assertThat(result.get(0).getId()).isEqualTo("wildfly");
+
+		RSPNioLauncher<RSPClient> launcher = launchers.poll(5, TimeUnit.SECONDS);
+		launcher.getRemoteProxy().serverAdded(new ServerHandle("eap", null));
+		verify(client, timeout(5000)).serverAdded(any(ServerHandle.class));
+	}
+
+	@Test
+	public void testActiveClientIsKnownWhileHandlingRequests() throws Exception {
+		List<RSPClient> activeClients = new ArrayList<>();
+		when(service.getServerHandles()).thenAnswer(invocation -> {
+			activeClients.add(contextStore.getContext().getRemoteProxy());
+			return CompletableFuture.completedFuture(Collections.emptyList());
+		});
+		RSPServer server = connect(mock(RSPClient.class));
+		server.getServerHandles().get(5, TimeUnit.SECONDS);
+		RSPNioLauncher<RSPClient> launcher = launchers.poll(5, TimeUnit.SECONDS);
+		assertThat(activeClients).containsExactly(launcher.getRemoteProxy());
+	}
+
+	@Test
+	public void testLargeMessagesAndManyClients() throws Exception {
+		int count = 20;
+		List<RSPClient> clients = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			RSPClient client = mock(RSPClient.class);
+			clients.add(client);
+			connect(client);
+		}
+		StringBuilder text = new StringBuilder();
+		while (text.length() < 1024 * 1024) {
+			text.append("some server output that spans many buffers\n");
+		}
+		List<RSPNioLauncher<RSPClient>> all = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			all.add(launchers.poll(5, TimeUnit.SECONDS));
+		}
+		for (RSPNioLauncher<RSPClient> launcher : all) {
+			launcher.getRemoteProxy().serverProcessOutputAppended(
+					new ServerProcessOutput(null, "process", 1, text.toString()));
+		}
+		for (RSPClient client : clients) {
+			verify(client, timeout(10000)).serverProcessOutputAppended(any(ServerProcessOutput.class));
+		}
+		assertThat(transport.getConnections()).hasSize(count);
+	}
+
+	@Test
+	public void testClosedClientEndsListening() throws Exception {
+		RSPClient client = mock(RSPClient.class);
+		connect(client);
+		RSPNioLauncher<RSPClient> launcher = launchers.poll(5, TimeUnit.SECONDS);
+		CompletableFuture<Void> listening = launcher.startListening();
+		sockets.get(0).close();
+		listening.get(5, TimeUnit.SECONDS);
+		assertThat(transport.getConnections()).isEmpty();
+	}
+
+	private RSPServer connect(RSPClient client) throws IOException {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		sockets.add(socket);
+		SocketLauncher<RSPServer> launcher = new SocketLauncher<>(client, RSPServer.class, socket);
+		launcher.startListening();
+		return launcher.getRemoteProxy();
+	}
+}
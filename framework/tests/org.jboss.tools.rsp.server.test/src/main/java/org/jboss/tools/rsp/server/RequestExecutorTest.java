@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.tools.rsp.api.RSPClient;
+import org.jboss.tools.rsp.server.RequestExecutor.Lane;
+import org.jboss.tools.rsp.server.RequestExecutor.MethodStats;
+import org.jboss.tools.rsp.server.spi.client.ClientThreadLocal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestExecutorTest {
+
+	private RequestExecutor executor;
+
+	@Before
+	public void before() {
+		this.executor = new RequestExecutor(1, 1, 1);
+	}
+
+	@After
+	public void after() {
+		ClientThreadLocal.clear();
+		executor.shutdown();
+	}
+
+	@Test
+	public void testSlowRequestsDoNotBlockFastOnes() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		CompletableFuture<String> slow = executor.submit("slow", Lane.SLOW, () -> {
+			await(blocked);
+			return "slow";
+		});
+		CompletableFuture<String> fast = executor.submit("fast", Lane.FAST, () -> "fast");
+		assertThat(fast.get(5, TimeUnit.SECONDS)).isEqualTo("fast");
+		assertThat(slow.isDone()).isFalse();
+		blocked.countDown();
+		assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo("slow");
+	}
+
+	@Test
+	public void testActiveClientIsPropagatedAndCleared() throws Exception {
+		RSPClient client = mock(RSPClient.class);
+		ClientThreadLocal.setActiveClient(client);
+		assertThat(executor.submit("client", Lane.FAST, ClientThreadLocal::getActiveClient)
+				.get(5, TimeUnit.SECONDS)).isSameAs(client);
+		ClientThreadLocal.clear();
+		// the single thread of the lane must not remember the previous client
+		assertThat(executor.submit("client", Lane.FAST, ClientThreadLocal::getActiveClient)
+				.get(5, TimeUnit.SECONDS)).isNull();
+	}
+
+	@Test
+	public void testFailingRequestCompletesExceptionally() throws Exception {
+		RSPClient client = mock(RSPClient.class);
+		ClientThreadLocal.setActiveClient(client);
+		CompletableFuture<String> failing = executor.submit("failing", Lane.FAST, () -> {
+			throw new IllegalStateException("failed");
+		});
+		try {
+			failing.get(5, TimeUnit.SECONDS);
+			fail("Request should have failed");
+		} catch(ExecutionException ee) {
+			assertThat(ee.getCause()).isInstanceOf(IllegalStateException.class);
+		}
+		ClientThreadLocal.clear();
+		assertThat(executor.submit("client", Lane.FAST, ClientThreadLocal::getActiveClient)
+				.get(5, TimeUnit.SECONDS)).isNull();
+		MethodStats stats = executor.getStats().get("failing");
+		assertThat(stats.getCount()).isEqualTo(1);
+		assertThat(stats.getFailedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testRequestsBeyondQueueCapacityAreRejected() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		CompletableFuture<String> running = executor.submit("slow", Lane.SLOW, () -> {
+			await(blocked);
+			return "running";
+		});
+		// wait for the first one to leave the queue
+		long end = System.currentTimeMillis() + 5000;
+		while (executor.getActiveCount(Lane.SLOW) == 0 && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		CompletableFuture<String> queued = executor.submit("slow", Lane.SLOW, () -> "queued");
+		assertThat(executor.getQueueDepth(Lane.SLOW)).isEqualTo(1);
+		CompletableFuture<String> rejected = executor.submit("slow", Lane.SLOW, () -> "rejected");
+		assertThat(rejected.isCompletedExceptionally()).isTrue();
+		try {
+			rejected.get();
+			fail("Request should have been rejected");
+		} catch(ExecutionException ee) {
+			assertThat(ee.getCause()).isInstanceOf(RejectedExecutionException.class);
+		}
+		blocked.countDown();
+		assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("running");
+		assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+		MethodStats stats = executor.getStats().get("slow");
+		assertThat(stats.getCount()).isEqualTo(2);
+		assertThat(stats.getRejectedCount()).isEqualTo(1);
+		assertThat(stats.getAverageWaitMillis()).isGreaterThan(0);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch(InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.filewatcher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.tools.rsp.server.spi.filewatcher.FileWatcherEvent;
+import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherBatchEventListener;
+import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherEventListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileWatcherEventBatcherTest {
+
+	private static final Path A = Paths.get("/tmp/batch/a.txt");
+	private static final Path B = Paths.get("/tmp/batch/b.txt");
+	private static final Path C = Paths.get("/tmp/batch/c.txt");
+
+	private FileWatcherEventBatcher batcher;
+
+	@Before
+	public void before() {
+		this.batcher = new FileWatcherEventBatcher(200);
+	}
+
+	@After
+	public void after() {
+		batcher.dispose();
+	}
+
+	@Test
+	public void testDuplicatesCoalescedIntoOneBatch() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		List<List<FileWatcherEvent>> batches = Collections.synchronizedList(new ArrayList<>());
+		IFileWatcherBatchEventListener listener = events -> {
+			batches.add(events);
+			latch.countDown();
+		};
+
+		for( int i = 0; i < 1000; i++ ) {
+			batcher.enqueue(listener, new FileWatcherEvent(A, StandardWatchEventKinds.ENTRY_MODIFY));
+		}
+		batcher.enqueue(listener, new FileWatcherEvent(B, StandardWatchEventKinds.ENTRY_CREATE));
+		batcher.enqueue(listener, new FileWatcherEvent(B, StandardWatchEventKinds.ENTRY_MODIFY));
+		batcher.enqueue(listener, new FileWatcherEvent(C, StandardWatchEventKinds.ENTRY_CREATE));
+		batcher.enqueue(listener, new FileWatcherEvent(C, StandardWatchEventKinds.ENTRY_DELETE));
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals(1, batches.size());
+		List<FileWatcherEvent> batch = batches.get(0);
+		assertEquals(2, batch.size());
+		assertEquals(A, batch.get(0).getPath());
+		assertEquals(StandardWatchEventKinds.ENTRY_MODIFY, batch.get(0).getKind());
+		assertEquals(B, batch.get(1).getPath());
+		assertEquals(StandardWatchEventKinds.ENTRY_CREATE, batch.get(1).getKind());
+		assertEquals(1004, batcher.getReceivedCount());
+	}
+
+	@Test
+	public void testDeleteRecreateBecomesModify() {
+		assertEquals(StandardWatchEventKinds.ENTRY_MODIFY, FileWatcherEventBatcher.coalesce(
+				StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_CREATE));
+		assertEquals(StandardWatchEventKinds.ENTRY_DELETE, FileWatcherEventBatcher.coalesce(
+				StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+	}
+
+	@Test
+	public void testSimpleListenerReceivesEachEventOffCallerThread() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(2);
+		List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+		IFileWatcherEventListener listener = event -> {
+			threads.add(Thread.currentThread());
+			latch.countDown();
+		};
+		batcher.enqueue(listener, new FileWatcherEvent(A, StandardWatchEventKinds.ENTRY_MODIFY));
+		batcher.enqueue(listener, new FileWatcherEvent(B, StandardWatchEventKinds.ENTRY_MODIFY));
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals(2, threads.size());
+		assertNotEquals(Thread.currentThread(), threads.get(0));
+	}
+
+	@Test
+	public void testListenerAtLimitIsDeliveredBeforeWindowCloses() throws InterruptedException {
+		FileWatcherEventBatcher bounded = new FileWatcherEventBatcher(60000, 10);
+		try {
+			CountDownLatch latch = new CountDownLatch(1);
+			List<List<FileWatcherEvent>> batches = Collections.synchronizedList(new ArrayList<>());
+			IFileWatcherBatchEventListener listener = events -> {
+				batches.add(events);
+				latch.countDown();
+			};
+			for( int i = 0; i < 10; i++ ) {
+				bounded.enqueue(listener, new FileWatcherEvent(Paths.get("/tmp/batch/" + i), StandardWatchEventKinds.ENTRY_CREATE));
+			}
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+			assertEquals(10, batches.get(0).size());
+		} finally {
+			bounded.dispose();
+		}
+	}
+
+	@Test
+	public void testPendingPathsAreCollapsedWhileDispatchIsBehind() throws InterruptedException {
+		FileWatcherEventBatcher bounded = new FileWatcherEventBatcher(50, 100);
+		try {
+			CountDownLatch blocked = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			List<FileWatcherEvent> delivered = Collections.synchronizedList(new ArrayList<>());
+			IFileWatcherBatchEventListener listener = events -> {
+				delivered.addAll(events);
+				blocked.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			};
+			// keep the dispatch thread busy with a first batch
+			bounded.enqueue(listener, new FileWatcherEvent(A, StandardWatchEventKinds.ENTRY_MODIFY));
+			assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+			List<Path> created = new ArrayList<>();
+			for( int i = 0; i < 40000; i++ ) {
+				Path p = Paths.get("/tmp/batch/app.ear/dir" + (i % 20) + "/file" + i);
+				created.add(p);
+				bounded.enqueue(listener, new FileWatcherEvent(p, StandardWatchEventKinds.ENTRY_CREATE));
+			}
+			release.countDown();
+			long end = System.currentTimeMillis() + 5000;
+			while( bounded.getDeliveredCount() < 2 && System.currentTimeMillis() < end ) {
+				Thread.sleep(20);
+			}
+			Thread.sleep(200);
+
+			// one event for A, then the collapsed directories
+			assertTrue(delivered.size() <= 1 + 100);
+			List<Path> paths = new ArrayList<>();
+			for( FileWatcherEvent e : delivered ) {
+				paths.add(e.getPath());
+			}
+			for( Path p : created ) {
+				assertTrue(p + " is not covered", paths.contains(p) || paths.contains(p.getParent()));
+			}
+			assertEquals(40001, bounded.getReceivedCount());
+		} finally {
+			bounded.dispose();
+		}
+	}
+}
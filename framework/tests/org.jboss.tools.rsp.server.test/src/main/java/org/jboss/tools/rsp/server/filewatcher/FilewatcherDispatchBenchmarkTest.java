@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.filewatcher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.Watchable;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.tools.rsp.server.filewatcher.FilewatcherModelTest.TestableFileWatcherService;
+import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherEventListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Registers a large number of directories with the file watcher service
+ * and measures how long it takes to dispatch a single event.
+ *
+ * The registered directories do not exist on disk, so that this
+ * benchmark measures the model and not the operating system's
+ * watch limits.
+ */
+public class FilewatcherDispatchBenchmarkTest {
+
+	private static final int PARENTS = 100;
+	private static final int CHILDREN_PER_PARENT = 1000;
+	private static final int DISPATCH_ITERATIONS = 10000;
+
+	// Generous upper bound, so slow CI machines do not fail the build
+	private static final long MAX_AVERAGE_DISPATCH_NANOS = 5_000_000L;
+
+	private DispatchingFileWatcherService service;
+	private Path root;
+
+	@Before
+	public void before() throws IOException {
+		this.service = new DispatchingFileWatcherService();
+		service.start();
+		this.root = Files.createTempDirectory(getClass().getName());
+	}
+
+	@After
+	public void after() throws IOException {
+		service.stop();
+		Files.walk(root)
+			.sorted(Comparator.reverseOrder())
+			.forEach(p -> p.toFile().delete());
+	}
+
+	@Test
+	public void testDispatchLatencyWith100kRegistrations() {
+		AtomicInteger recursiveCount = new AtomicInteger();
+		AtomicInteger exactCount = new AtomicInteger();
+		IFileWatcherEventListener recursive = event -> recursiveCount.incrementAndGet();
+		IFileWatcherEventListener exact = event -> exactCount.incrementAndGet();
+
+		long start = System.nanoTime();
+		for( int i = 0; i < PARENTS; i++ ) {
+			Path parent = root.resolve("parent" + i);
+			for( int j = 0; j < CHILDREN_PER_PARENT; j++ ) {
+				service.addFileWatcherListener(parent.resolve("child" + j), exact, false);
+			}
+		}
+		service.addFileWatcherListener(root, recursive, true);
+		long registerNanos = System.nanoTime() - start;
+		assertEquals(PARENTS * CHILDREN_PER_PARENT + 1, service.getRequests().size());
+
+		Path target = root.resolve("parent" + (PARENTS / 2)).resolve("child" + (CHILDREN_PER_PARENT / 2));
+		start = System.nanoTime();
+		for( int i = 0; i < DISPATCH_ITERATIONS; i++ ) {
+			service.fireEvent(target, StandardWatchEventKinds.ENTRY_MODIFY);
+		}
+		long dispatchNanos = System.nanoTime() - start;
+		assertEquals(DISPATCH_ITERATIONS, recursiveCount.get());
+		assertEquals(DISPATCH_ITERATIONS, exactCount.get());
+
+		// Deleting one parent directory must only touch its own subtree
+		Path deleted = root.resolve("parent0");
+		start = System.nanoTime();
+		service.fireEvent(deleted, StandardWatchEventKinds.ENTRY_DELETE);
+		long deleteNanos = System.nanoTime() - start;
+
+		long averageDispatch = dispatchNanos / DISPATCH_ITERATIONS;
+		assertTrue("Registered " + (PARENTS * CHILDREN_PER_PARENT) + " paths in "
+				+ (registerNanos / 1000000) + "ms, average dispatch took " + averageDispatch
+				+ "ns, delete dispatch " + (deleteNanos / 1000) + "us",
+				averageDispatch < MAX_AVERAGE_DISPATCH_NANOS);
+	}
+
+	private static class DispatchingFileWatcherService extends TestableFileWatcherService {
+		public DispatchingFileWatcherService() {
+			// Deliver synchronously, so only the model is being measured
+			super(-1);
+		}
+
+		public void fireEvent(Path path, WatchEvent.Kind<Path> kind) {
+			handleSingleEvent(new StubWatchKey(path.getParent()),
+					new StubWatchEvent(kind, path.getFileName()));
+		}
+	}
+
+	private static class StubWatchKey implements WatchKey {
+		private final Path watchable;
+
+		public StubWatchKey(Path watchable) {
+			this.watchable = watchable;
+		}
+
+		@Override
+		public boolean isValid() {
+			return true;
+		}
+
+		@Override
+		public List<WatchEvent<?>> pollEvents() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public boolean reset() {
+			return true;
+		}
+
+		@Override
+		public void cancel() {
+			// ignore
+		}
+
+		@Override
+		public Watchable watchable() {
+			return watchable;
+		}
+	}
+
+	private static class StubWatchEvent implements WatchEvent<Path> {
+		private final Kind<Path> kind;
+		private final Path context;
+
+		public StubWatchEvent(Kind<Path> kind, Path context) {
+			this.kind = kind;
+			this.context = context;
+		}
+
+		@Override
+		public Kind<Path> kind() {
+			return kind;
+		}
+
+		@Override
+		public int count() {
+			return 1;
+		}
+
+		@Override
+		public Path context() {
+			return context;
+		}
+	}
+}
@@ -30,6 +30,12 @@ import org.junit.Test;
 public class FilewatcherModelTest {
 
 	public static class TestableFileWatcherService extends FileWatcherService {
+		public TestableFileWatcherService() {
+			super();
+		}
+		public TestableFileWatcherService(long batchWindow) {
+			super(batchWindow);
+		}
 		/*
 		 * Getters For testing
 		 */
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.filewatcher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jboss.tools.rsp.server.filewatcher.FilewatcherModelTest.TestableFileWatcherService;
+import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherEventListener;
+import org.junit.Test;
+
+/**
+ * Verifies that moving a whole tree into a recursively watched folder
+ * produces creation events for everything inside of it, and that every
+ * new folder is subscribed, both when events are delivered synchronously
+ * and when the tree is walked in parallel.
+ */
+public class FilewatcherSyntheticEventsTest {
+
+	private static final int WIDTH = 5;
+	private static final int DEPTH = 3;
+	private static final int FILES_PER_FOLDER = 4;
+
+	@Test
+	public void testMovedTreeSynchronous() throws IOException, InterruptedException {
+		verifyMovedTree(new TestableFileWatcherService(-1));
+	}
+
+	@Test
+	public void testMovedTreeBatchedParallel() throws IOException, InterruptedException {
+		verifyMovedTree(new TestableFileWatcherService(20));
+	}
+
+	private void verifyMovedTree(TestableFileWatcherService service) throws IOException, InterruptedException {
+		service.start();
+		try {
+			Path root = Files.createTempDirectory(getClass().getName() + "_root");
+			Path staging = Files.createTempDirectory(getClass().getName() + "_staging");
+			Path tree = staging.resolve("tree");
+			Set<Path> expected = new HashSet<>();
+			Set<Path> expectedFolders = new HashSet<>();
+			createTree(tree, root.resolve("tree"), DEPTH, expected, expectedFolders);
+			expected.add(root.resolve("tree"));
+			expectedFolders.add(root.resolve("tree"));
+
+			Map<Path, Boolean> created = new ConcurrentHashMap<>();
+			IFileWatcherEventListener listener = event -> {
+				if( event.getKind() == StandardWatchEventKinds.ENTRY_CREATE )
+					created.put(event.getPath(), Boolean.TRUE);
+			};
+			service.addFileWatcherListener(root, listener, true);
+
+			Files.move(tree, root.resolve("tree"));
+
+			long end = System.currentTimeMillis() + 10000;
+			while( created.size() < expected.size() && System.currentTimeMillis() < end ) {
+				Thread.sleep(50);
+			}
+			assertEquals(expected, new HashSet<>(created.keySet()));
+			assertTrue(service.getSubscriptions().keySet().containsAll(expectedFolders));
+		} finally {
+			service.stop();
+		}
+	}
+
+	private void createTree(Path folder, Path finalLocation, int depth,
+			Set<Path> expected, Set<Path> expectedFolders) throws IOException {
+		Files.createDirectories(folder);
+		for( int i = 0; i < FILES_PER_FOLDER; i++ ) {
+			Files.write(folder.resolve("file" + i + ".txt"), "test".getBytes());
+			expected.add(finalLocation.resolve("file" + i + ".txt"));
+		}
+		if( depth == 0 )
+			return;
+		for( int i = 0; i < WIDTH; i++ ) {
+			Path child = finalLocation.resolve("folder" + i);
+			expected.add(child);
+			expectedFolders.add(child);
+			createTree(folder.resolve("folder" + i), child, depth - 1, expected, expectedFolders);
+		}
+	}
+}
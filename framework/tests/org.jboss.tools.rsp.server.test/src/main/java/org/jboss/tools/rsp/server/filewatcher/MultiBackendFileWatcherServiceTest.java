@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.filewatcher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.tools.rsp.api.DefaultServerAttributes;
+import org.jboss.tools.rsp.server.filewatcher.FilewatcherModelTest.TestableFileWatcherService;
+import org.jboss.tools.rsp.server.spi.filewatcher.FileWatcherEvent;
+import org.jboss.tools.rsp.server.spi.filewatcher.IFileWatcherEventListener;
+import org.junit.Test;
+
+public class MultiBackendFileWatcherServiceTest {
+
+	@Test
+	public void testPollingReportsChanges() throws IOException {
+		PollingFileWatcherService service = new PollingFileWatcherService(0, -1);
+		service.start();
+		try {
+			Path root = Files.createTempDirectory(getClass().getName());
+			List<FileWatcherEvent> events = Collections.synchronizedList(new ArrayList<>());
+			service.addFileWatcherListener(root, events::add, true);
+			assertEquals(DefaultServerAttributes.FILE_WATCHER_BACKEND_POLLING, service.getBackend(root));
+
+			Path folder = Files.createDirectory(root.resolve("folder"));
+			Path file = Files.write(folder.resolve("a.txt"), "a".getBytes());
+			service.poll();
+			assertTrue(containsEvent(events, folder, StandardWatchEventKinds.ENTRY_CREATE));
+			assertTrue(containsEvent(events, file, StandardWatchEventKinds.ENTRY_CREATE));
+
+			events.clear();
+			Files.write(file, "longer".getBytes());
+			service.poll();
+			assertTrue(containsEvent(events, file, StandardWatchEventKinds.ENTRY_MODIFY));
+
+			events.clear();
+			Files.delete(file);
+			Files.delete(folder);
+			service.poll();
+			assertTrue(containsEvent(events, file, StandardWatchEventKinds.ENTRY_DELETE));
+			assertTrue(containsEvent(events, folder, StandardWatchEventKinds.ENTRY_DELETE));
+
+			events.clear();
+			service.poll();
+			assertTrue(events.isEmpty());
+		} finally {
+			service.stop();
+		}
+	}
+
+	@Test
+	public void testPollingNonRecursiveOnlyReportsPath() throws IOException {
+		PollingFileWatcherService service = new PollingFileWatcherService(0, -1);
+		service.start();
+		try {
+			Path root = Files.createTempDirectory(getClass().getName());
+			Path file = root.resolve("a.txt");
+			List<FileWatcherEvent> events = Collections.synchronizedList(new ArrayList<>());
+			IFileWatcherEventListener listener = events::add;
+			service.addFileWatcherListener(file, listener, false);
+
+			Files.write(file, "a".getBytes());
+			Files.write(root.resolve("b.txt"), "b".getBytes());
+			service.poll();
+			assertEquals(1, events.size());
+			assertEquals(file, events.get(0).getPath());
+			assertEquals(StandardWatchEventKinds.ENTRY_CREATE, events.get(0).getKind());
+
+			service.removeFileWatcherListener(file, listener);
+			assertEquals(0, service.getRootCount());
+		} finally {
+			service.stop();
+		}
+	}
+
+	@Test
+	public void testHybridPollsTreesPastBudget() throws IOException {
+		TestableFileWatcherService nio = new TestableFileWatcherService(-1);
+		PollingFileWatcherService polling = new PollingFileWatcherService(0, -1);
+		MultiBackendFileWatcherService service = new MultiBackendFileWatcherService(nio, polling,
+				DefaultServerAttributes.FILE_WATCHER_BACKEND_HYBRID, 30);
+		service.start();
+		try {
+			Path small = createTree("small", 3);
+			Path large = createTree("large", 50);
+			List<FileWatcherEvent> events = Collections.synchronizedList(new ArrayList<>());
+			IFileWatcherEventListener listener = events::add;
+			service.addFileWatcherListener(small, listener, true);
+			service.addFileWatcherListener(large, listener, true);
+
+			assertEquals(DefaultServerAttributes.FILE_WATCHER_BACKEND_NIO, service.getBackend(small));
+			assertEquals(DefaultServerAttributes.FILE_WATCHER_BACKEND_POLLING, service.getBackend(large));
+			assertTrue(nio.getRequests().containsKey(small));
+			assertTrue(!nio.getRequests().containsKey(large));
+			assertEquals(1, polling.getRootCount());
+
+			Path file = Files.write(large.resolve("folder7").resolve("new.txt"), "new".getBytes());
+			polling.poll();
+			assertTrue(containsEvent(events, file, StandardWatchEventKinds.ENTRY_CREATE));
+
+			service.removeFileWatcherListener(large, listener);
+			assertEquals(0, polling.getRootCount());
+			assertNull(service.getBackend(large));
+			assertEquals(1, service.getBackends().size());
+		} finally {
+			service.stop();
+		}
+	}
+
+	@Test
+	public void testPollingSharesBatcherWithNio() throws Exception {
+		TestableFileWatcherService nio = new TestableFileWatcherService(0);
+		PollingFileWatcherService polling = new PollingFileWatcherService(0, -1);
+		MultiBackendFileWatcherService service = new MultiBackendFileWatcherService(nio, polling,
+				DefaultServerAttributes.FILE_WATCHER_BACKEND_POLLING, 30);
+		service.start();
+		try {
+			FileWatcherEventBatcher batcher = nio.getBatcher();
+			assertSame(batcher, polling.getBatcher());
+
+			Path root = createTree("batched", 1);
+			List<FileWatcherEvent> events = Collections.synchronizedList(new ArrayList<>());
+			service.addFileWatcherListener(root, events::add, true);
+			Path file = Files.write(root.resolve("folder0").resolve("new.txt"), "new".getBytes());
+			polling.poll();
+			assertTrue(batcher.getReceivedCount() > 0);
+			long end = System.currentTimeMillis() + 5000;
+			while( !containsEvent(events, file, StandardWatchEventKinds.ENTRY_CREATE) 
+					&& System.currentTimeMillis() < end ) {
+				Thread.sleep(20);
+			}
+			assertTrue(containsEvent(events, file, StandardWatchEventKinds.ENTRY_CREATE));
+		} finally {
+			service.stop();
+		}
+		assertNull(polling.getBatcher());
+	}
+
+	@Test
+	public void testRequestedBackendOverridesDefault() throws IOException {
+		TestableFileWatcherService nio = new TestableFileWatcherService(-1);
+		PollingFileWatcherService polling = new PollingFileWatcherService(0, -1);
+		MultiBackendFileWatcherService service = new MultiBackendFileWatcherService(nio, polling,
+				DefaultServerAttributes.FILE_WATCHER_BACKEND_NIO, 30);
+		service.start();
+		try {
+			Path root = createTree("requested", 1);
+			service.addFileWatcherListener(root, event -> {}, true,
+					DefaultServerAttributes.FILE_WATCHER_BACKEND_POLLING, -1);
+			assertEquals(DefaultServerAttributes.FILE_WATCHER_BACKEND_POLLING, service.getBackend(root));
+			assertTrue(nio.getRequests().isEmpty());
+		} finally {
+			service.stop();
+		}
+	}
+
+	private Path createTree(String name, int folders) throws IOException {
+		Path root = Files.createTempDirectory(getClass().getName() + "_" + name);
+		for( int i = 0; i < folders; i++ ) {
+			Files.createDirectory(root.resolve("folder" + i));
+		}
+		return root;
+	}
+
+	private boolean containsEvent(List<FileWatcherEvent> events, Path p, Object kind) {
+		synchronized(events) {
+			for( FileWatcherEvent e : events ) {
+				if( e.getPath().equals(p) && e.getKind() == kind )
+					return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.filewatcher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class PathTrieTest {
+
+	private static final Path ROOT = Paths.get("/tmp/trie");
+
+	@Test
+	public void testPutGetRemove() {
+		PathTrie<String> trie = new PathTrie<>();
+		Path a = ROOT.resolve("a");
+		assertNull(trie.put(a, "a"));
+		assertEquals("a", trie.put(a, "a2"));
+		assertEquals(1, trie.size());
+		assertEquals("a2", trie.get(a));
+		assertNull(trie.get(ROOT));
+
+		assertEquals("a2", trie.remove(a));
+		assertNull(trie.remove(a));
+		assertTrue(trie.isEmpty());
+		assertFalse(trie.containsPathOrDescendant(ROOT));
+	}
+
+	@Test
+	public void testAncestors() {
+		PathTrie<String> trie = new PathTrie<>();
+		trie.put(ROOT, "root");
+		trie.put(ROOT.resolve("a"), "a");
+		trie.put(ROOT.resolve("a/b/c"), "c");
+		trie.put(ROOT.resolve("x"), "x");
+
+		List<String> found = new ArrayList<>();
+		trie.visitPathAndAncestors(ROOT.resolve("a/b/c/d"), (p, v) -> found.add(v));
+		assertEquals(Arrays.asList("root", "a", "c"), found);
+	}
+
+	@Test
+	public void testDescendants() {
+		PathTrie<String> trie = new PathTrie<>();
+		trie.put(ROOT.resolve("a"), "a");
+		trie.put(ROOT.resolve("a/b/c"), "c");
+		trie.put(ROOT.resolve("x"), "x");
+
+		assertTrue(trie.containsPathOrDescendant(ROOT));
+		assertTrue(trie.containsPathOrDescendant(ROOT.resolve("a/b")));
+		assertFalse(trie.containsPathOrDescendant(ROOT.resolve("a/z")));
+		assertEquals(new HashSet<>(Arrays.asList(ROOT.resolve("a"), ROOT.resolve("a/b/c"))),
+				new HashSet<>(trie.getPathAndDescendants(ROOT.resolve("a"))));
+	}
+
+	@Test
+	public void testRemoveSubtreePrunes() {
+		PathTrie<String> trie = new PathTrie<>();
+		trie.put(ROOT.resolve("a/b/c"), "c");
+		trie.put(ROOT.resolve("a/b/d"), "d");
+		trie.put(ROOT.resolve("x"), "x");
+
+		Map<Path, String> removed = trie.removeSubtree(ROOT.resolve("a"));
+		assertEquals(2, removed.size());
+		assertEquals("c", removed.get(ROOT.resolve("a/b/c")));
+		assertEquals(1, trie.size());
+		assertFalse(trie.containsPathOrDescendant(ROOT.resolve("a")));
+		assertEquals(1, trie.toMap().size());
+
+		trie.remove(ROOT.resolve("x"));
+		assertFalse(trie.containsPathOrDescendant(ROOT));
+	}
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.tools.rsp.api.RSPClient;
+import org.jboss.tools.rsp.api.dao.ServerHandle;
+import org.jboss.tools.rsp.server.ServerManagementServerImpl;
+import org.jboss.tools.rsp.server.model.ClientNotificationQueue.Policy;
+import org.junit.Test;
+
+public class ClientNotificationQueueTest {
+
+	@Test
+	public void testDropsOldestDroppableWhenFull() {
+		ManualExecutor executor = new ManualExecutor();
+		List<String> received = new ArrayList<>();
+		ClientNotificationQueue queue = new ClientNotificationQueue(mock(RSPClient.class), 5, executor);
+
+		queue.send(Policy.NEVER_DROP, c -> received.add("state1"));
+		for (int i = 0; i < 20; i++) {
+			String output = "out" + i;
+			queue.send(Policy.DROP_OLDEST, c -> received.add(output));
+		}
+		queue.send(Policy.NEVER_DROP, c -> received.add("state2"));
+		assertThat(queue.size()).isEqualTo(5);
+		assertThat(queue.getQueuedCount()).isEqualTo(22);
+		assertThat(queue.getDroppedCount()).isEqualTo(17);
+
+		executor.runAll();
+		assertThat(received).containsExactly("state1", "out17", "out18", "out19", "state2");
+		assertThat(queue.getSentCount()).isEqualTo(5);
+		assertThat(queue.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void testNeverDropsReliableNotifications() {
+		ManualExecutor executor = new ManualExecutor();
+		List<String> received = new ArrayList<>();
+		ClientNotificationQueue queue = new ClientNotificationQueue(mock(RSPClient.class), 2, executor);
+
+		for (int i = 0; i < 4; i++) {
+			String state = "state" + i;
+			queue.send(Policy.NEVER_DROP, c -> received.add(state));
+		}
+		queue.send(Policy.DROP_OLDEST, c -> received.add("output"));
+		assertThat(queue.getDroppedCount()).isEqualTo(1);
+
+		executor.runAll();
+		assertThat(received).containsExactly("state0", "state1", "state2", "state3");
+	}
+
+	@Test
+	public void testClosedQueueSendsNothing() {
+		ManualExecutor executor = new ManualExecutor();
+		List<String> received = new ArrayList<>();
+		ClientNotificationQueue queue = new ClientNotificationQueue(mock(RSPClient.class), 10, executor);
+		queue.send(Policy.NEVER_DROP, c -> received.add("state"));
+		queue.close();
+		queue.send(Policy.NEVER_DROP, c -> received.add("state"));
+		executor.runAll();
+		assertThat(received).isEmpty();
+	}
+
+	@Test
+	public void testStalledClientDoesNotBlockOthers() throws InterruptedException {
+		CountDownLatch stalled = new CountDownLatch(1);
+		RSPClient slow = mock(RSPClient.class);
+		doAnswer(invocation -> {
+			stalled.await(10, TimeUnit.SECONDS);
+			return null;
+		}).when(slow).serverAdded(any());
+		RSPClient fast = mock(RSPClient.class);
+
+		ServerManagementServerImpl rsp = mock(ServerManagementServerImpl.class, RETURNS_DEEP_STUBS);
+		when(rsp.getClients()).thenReturn(Arrays.asList(slow, fast));
+		RemoteEventManager manager = new RemoteEventManager(rsp);
+		manager.clientAdded(slow);
+		manager.clientAdded(fast);
+		try {
+			long start = System.currentTimeMillis();
+			for (int i = 0; i < 100; i++) {
+				manager.serverAdded(new ServerHandle("server" + i, null));
+			}
+			assertThat(System.currentTimeMillis() - start).isLessThan(5000);
+			verify(fast, timeout(5000).times(100)).serverAdded(any(ServerHandle.class));
+			verify(slow, timeout(5000)).serverAdded(any(ServerHandle.class));
+			assertThat(manager.getQueue(slow).size()).isEqualTo(99);
+		} finally {
+			stalled.countDown();
+			manager.clientRemoved(slow);
+			manager.clientRemoved(fast);
+		}
+	}
+
+	@Test
+	public void testRemovedClientIsNotNotified() {
+		RSPClient client = mock(RSPClient.class);
+		ServerManagementServerImpl rsp = mock(ServerManagementServerImpl.class, RETURNS_DEEP_STUBS);
+		when(rsp.getClients()).thenReturn(Arrays.asList(client));
+		RemoteEventManager manager = new RemoteEventManager(rsp);
+		manager.clientAdded(client);
+		assertThat(manager.getQueue(client)).isNotNull();
+		assertThat(manager.getAggregator(client)).isNotNull();
+
+		// a notification still in flight when the client disconnected
+		manager.clientRemoved(client);
+		manager.serverAdded(new ServerHandle("server", null));
+		manager.serverProcessOutputAppended(new ServerHandle("server", null), "process", 1, "output");
+
+		assertThat(manager.getQueue(client)).isNull();
+		assertThat(manager.getAggregator(client)).isNull();
+	}
+
+	@Test
+	public void testClientDisconnectedWhileAddedIsRemoved() {
+		RSPClient client = mock(RSPClient.class);
+		ServerManagementServerImpl rsp = mock(ServerManagementServerImpl.class, RETURNS_DEEP_STUBS);
+		when(rsp.getClients()).thenReturn(Collections.emptyList());
+		RemoteEventManager manager = new RemoteEventManager(rsp);
+		manager.clientAdded(client);
+
+		assertThat(manager.getQueue(client)).isNull();
+		assertThat(manager.getAggregator(client)).isNull();
+	}
+
+	private static class ManualExecutor implements Executor {
+		private final Queue<Runnable> tasks = new LinkedList<>();
+
+		@Override
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+
+		private void runAll() {
+			Runnable r;
+			while ((r = tasks.poll()) != null) {
+				r.run();
+			}
+		}
+	}
+}
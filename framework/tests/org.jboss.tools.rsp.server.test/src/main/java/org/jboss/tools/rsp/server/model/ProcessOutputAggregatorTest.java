@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.tools.rsp.api.RSPClient;
+import org.jboss.tools.rsp.api.dao.ServerHandle;
+import org.jboss.tools.rsp.api.dao.ServerProcessOutput;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProcessOutputAggregatorTest {
+
+	private static final ServerHandle SERVER = new ServerHandle("server", null);
+
+	private ScheduledThreadPoolExecutor scheduler;
+	private List<ServerProcessOutput> received;
+	private ProcessOutputAggregator aggregator;
+
+	@Before
+	public void before() {
+		this.scheduler = new ScheduledThreadPoolExecutor(1);
+		this.received = new CopyOnWriteArrayList<>();
+		RSPClient client = mock(RSPClient.class);
+		doAnswer(invocation -> {
+			received.add((ServerProcessOutput) invocation.getArguments()[0]);
+			return null;
+		}).when(client).serverProcessOutputAppended(any(ServerProcessOutput.class));
+		ClientNotificationQueue queue = new ClientNotificationQueue(client, 10000, Runnable::run);
+		this.aggregator = new ProcessOutputAggregator(queue, scheduler);
+	}
+
+	@After
+	public void after() {
+		aggregator.close();
+		scheduler.shutdownNow();
+	}
+
+	@Test
+	public void testOutputIsBatchedWithinWindow() throws InterruptedException {
+		aggregator.setFlushWindow(200);
+		StringBuilder all = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			String line = "line " + i + "\n";
+			all.append(line);
+			aggregator.append(SERVER, "process", 1, line);
+		}
+		waitForChars(all.length());
+		assertThat(received.size()).isLessThan(100);
+		assertThat(receivedText(1)).isEqualTo(all.toString());
+		assertThat(aggregator.getChunksSent()).isEqualTo(received.size());
+		assertThat(aggregator.getCharsDelayed()).isEqualTo(0);
+		assertThat(aggregator.getCharsDropped()).isEqualTo(0);
+	}
+
+	@Test
+	public void testStreamsAreSentSeparately() throws InterruptedException {
+		aggregator.setFlushWindow(100);
+		aggregator.append(SERVER, "process", 1, "out");
+		aggregator.append(SERVER, "process", 2, "err");
+		aggregator.append(SERVER, "process", 1, "put");
+		waitForChars(9);
+		assertThat(receivedText(1)).isEqualTo("output");
+		assertThat(receivedText(2)).isEqualTo("err");
+	}
+
+	@Test
+	public void testNoWindowSendsImmediately() {
+		aggregator.setFlushWindow(0);
+		for (int i = 0; i < 10; i++) {
+			aggregator.append(SERVER, "process", 1, "line " + i);
+		}
+		assertThat(received).hasSize(10);
+		assertThat(aggregator.getChunksSent()).isEqualTo(10);
+	}
+
+	@Test
+	public void testRateLimitDelaysOutput() throws InterruptedException {
+		aggregator.setFlushWindow(10);
+		aggregator.setMaxRate(ProcessOutputAggregator.MIN_RATE);
+		String text = repeat('a', 4 * ProcessOutputAggregator.MIN_RATE);
+		aggregator.append(SERVER, "process", 1, text);
+		waitForChars(1);
+		// a second worth goes out, the rest waits for its turn
+		assertThat(aggregator.getCharsSent()).isLessThan(text.length());
+		assertThat(aggregator.getCharsDelayed()).isGreaterThan(0);
+		aggregator.flushProcess(SERVER, "process");
+		assertThat(receivedText(1)).isEqualTo(text);
+		assertThat(aggregator.getCharsDropped()).isEqualTo(0);
+	}
+
+	@Test
+	public void testOldestOutputIsDroppedWhenTooMuchWaits() {
+		aggregator.setFlushWindow(ProcessOutputAggregator.MAX_FLUSH_WINDOW);
+		aggregator.setMaxRate(ProcessOutputAggregator.MIN_RATE);
+		String text = repeat('a', 10000) + repeat('b', ProcessOutputAggregator.MAX_PENDING);
+		aggregator.append(SERVER, "process", 1, text);
+		assertThat(aggregator.getCharsDropped()).isEqualTo(10000);
+		aggregator.flushProcess(SERVER, "process");
+		assertThat(receivedText(1)).isEqualTo(repeat('b', ProcessOutputAggregator.MAX_PENDING));
+	}
+
+	private void waitForChars(int chars) throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		while (aggregator.getCharsSent() < chars && System.currentTimeMillis() < end) {
+			TimeUnit.MILLISECONDS.sleep(10);
+		}
+	}
+
+	private String receivedText(int streamType) {
+		StringBuilder sb = new StringBuilder();
+		for (ServerProcessOutput output : received) {
+			if (output.getStreamType() == streamType) {
+				sb.append(output.getText());
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String repeat(char c, int times) {
+		StringBuilder sb = new StringBuilder(times);
+		for (int i = 0; i < times; i++) {
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+}
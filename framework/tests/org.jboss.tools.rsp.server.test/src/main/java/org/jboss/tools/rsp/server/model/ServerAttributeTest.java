@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.tools.rsp.server.model.internal.Server;
+import org.jboss.tools.rsp.server.spi.model.IServerManagementModel;
+import org.junit.Test;
+
+public class ServerAttributeTest {
+
+	private Server createServer() {
+		return new Server(new File("doesnotexist"), mock(IServerManagementModel.class));
+	}
+
+	@Test
+	public void testIntAndBooleanAttributes() {
+		Server server = createServer();
+		assertEquals(7, server.getAttribute("int", 7));
+		server.setAttribute("int", 5);
+		assertEquals(5, server.getAttribute("int", 7));
+		server.setAttribute("int", 6);
+		assertEquals(6, server.getAttribute("int", 7));
+
+		assertTrue(server.getAttribute("bool", true));
+		server.setAttribute("bool", false);
+		assertFalse(server.getAttribute("bool", true));
+		server.setAttribute("bool", true);
+		assertTrue(server.getAttribute("bool", false));
+	}
+
+	@Test
+	public void testAttributesThatAreNoInt() {
+		Server server = createServer();
+		server.setAttribute("string", "not a number");
+		assertEquals(7, server.getAttribute("string", 7));
+		assertFalse(server.getAttribute("string", true));
+		server.setAttribute("string", "12");
+		assertEquals(12, server.getAttribute("string", 7));
+		server.setAttribute("string", (String)null);
+		assertEquals(7, server.getAttribute("string", 7));
+	}
+
+	@Test
+	public void testAttributesReplacedAsAWhole() {
+		Server server = createServer();
+		server.setAttribute("int", 5);
+		assertEquals(5, server.getAttribute("int", 7));
+		Map<String, Object> values = new HashMap<>();
+		values.put("int", "8");
+		server.updateAttributes(values);
+		assertEquals(8, server.getAttribute("int", 7));
+		server.updateAttributes(null);
+		assertEquals(7, server.getAttribute("int", 7));
+	}
+}
@@ -316,6 +316,91 @@ public class ServerDeployableTest {
 		assertFalse(TestServerUtils.isOk(deployableStates[0]));
 	}
 
+	@Test
+	public void testParallelPublishIsFasterWithSlowCopies() throws CoreException {
+		long serial = publishSlowDeployables(1);
+		long parallel = publishSlowDeployables(6);
+		assertTrue("Parallel publish took " + parallel + "ms, serial publish " + serial + "ms",
+				parallel * 2 < serial);
+	}
+
+	@Test
+	public void testParallelPublishCollectsErrorsAndFinishesLast() throws CoreException {
+		AtomicInteger numOfPublished = new AtomicInteger();
+		AtomicInteger publishedAtFinish = new AtomicInteger(-1);
+		ServerModel sm = TestServerUtils.createServerModel(
+				SERVER_FILENAME, serversDir,
+				TestServerUtils.getServerWithoutDeployablesString(SERVER_ID, SERVER_TYPE),
+				(IServer server) -> new TestServerDelegate(server) {
+					@Override
+					protected int getPublishParallelism() {
+						return 3;
+					}
+					@Override
+					protected void publishDeployable(DeployableReference reference, int publishType,
+							int deployablemodulePublishType) throws CoreException {
+						sleep(100);
+						numOfPublished.incrementAndGet();
+						if ("gargamel".equals(reference.getLabel())) {
+							throw new CoreException(Status.CANCEL_STATUS);
+						}
+					}
+					@Override
+					protected void publishFinish(int publishType) throws CoreException {
+						publishedAtFinish.set(numOfPublished.get());
+						super.publishFinish(publishType);
+					}
+				},
+				SERVER_TYPE);
+		IServer server = sm.getServer(SERVER_ID);
+		sm.addDeployable(server, deployable);
+		sm.addDeployable(server, new DeployableReference("gargamel", "/in/the/woods"));
+		sm.addDeployable(server, new DeployableReference("azrael", "/in/the/mousehole"));
+
+		IStatus published = sm.publish(server, ServerManagementAPIConstants.PUBLISH_FULL);
+
+		assertEquals(3, numOfPublished.get());
+		assertEquals(3, publishedAtFinish.get());
+		assertFalse(TestServerUtils.isOk(published));
+		assertEquals(1, published.getChildren().length);
+	}
+
+	private long publishSlowDeployables(int parallelism) throws CoreException {
+		ServerModel sm = TestServerUtils.createServerModel(
+				SERVER_FILENAME, serversDir,
+				TestServerUtils.getServerWithoutDeployablesString(SERVER_ID, SERVER_TYPE),
+				(IServer server) -> new TestServerDelegate(server) {
+					@Override
+					protected int getPublishParallelism() {
+						return parallelism;
+					}
+					@Override
+					protected void publishDeployable(DeployableReference reference, int publishType,
+							int deployablemodulePublishType) throws CoreException {
+						// Simulate a slow copy
+						sleep(200);
+					}
+				},
+				SERVER_TYPE);
+		IServer server = sm.getServer(SERVER_ID);
+		for (int i = 0; i < 6; i++) {
+			sm.addDeployable(server, new DeployableReference("smurf" + i, "/smurf/village/" + i));
+		}
+		long start = System.currentTimeMillis();
+		IStatus published = sm.publish(server, ServerManagementAPIConstants.PUBLISH_FULL);
+		long duration = System.currentTimeMillis() - start;
+		assertTrue(TestServerUtils.isOk(published));
+		return duration;
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	@Test
 	public void testGetDeployableState() {
 		sm.addDeployable(server, deployable);
@@ -36,6 +36,7 @@ import org.jboss.tools.rsp.api.dao.CreateServerResponse;
 import org.jboss.tools.rsp.api.dao.ServerHandle;
 import org.jboss.tools.rsp.api.dao.ServerType;
 import org.jboss.tools.rsp.api.dao.util.CreateServerAttributesUtility;
+import org.jboss.tools.rsp.eclipse.core.runtime.CoreException;
 import org.jboss.tools.rsp.eclipse.core.runtime.Status;
 import org.jboss.tools.rsp.server.model.EditServerTest.EditServerServerDelegate;
 import org.jboss.tools.rsp.server.persistence.DataLocationCore;
@@ -208,6 +209,34 @@ public class ServerModelTest {
 		}
 	}
 	
+	@Test
+	public void testLoadServersIgnoresTempFiles() {
+		sm.addServerType(mockServerType("wonka1"));
+		Path dir = null;
+		Path s1 = null, tmp = null;
+		try {
+			dir = Files.createTempDirectory("servermodeltest");
+			s1 = createServerFile("s1", getServerString("abc123", "wonka1"), dir);
+			// left behind by a crash while saving
+			tmp = createServerFile(".s2.tmp", getServerString("abc456", "wonka1"), dir);
+			sm.loadServers(dir.toFile());
+			assertEquals(1, sm.getServers().size());
+			assertNotNull(sm.getServer("abc123"));
+
+			// unchanged servers are not written again
+			sm.saveServers();
+			long modified = s1.toFile().lastModified() - 10000;
+			s1.toFile().setLastModified(modified);
+			sm.saveServers();
+			assertEquals(modified, s1.toFile().lastModified());
+		} catch(IOException | CoreException e) {
+			fail();
+		} finally {
+			removeFile(s1);
+			removeFile(tmp);
+		}
+	}
+
 	@Test
 	public void testLoadMultipleServerHandles() {
 		sm.addServerType(mockServerType("wonka1"));
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.model.discovery;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+
+import org.jboss.tools.rsp.api.dao.ServerBean;
+import org.jboss.tools.rsp.server.discovery.DiscoveryIndex;
+import org.jboss.tools.rsp.server.discovery.serverbeans.ServerBeanTypeManager;
+import org.jboss.tools.rsp.server.spi.discovery.ServerBeanType;
+import org.jboss.tools.rsp.server.spi.model.IServerManagementModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DiscoveryIndexTest {
+
+	private static final String MARKER = "server.marker";
+
+	private Path dir;
+	private IServerManagementModel model;
+
+	@Before
+	public void before() throws IOException {
+		this.dir = Files.createTempDirectory("rsp-index");
+		ServerBeanTypeManager types = new ServerBeanTypeManager();
+		types.addTypeProvider(() -> new ServerBeanType[] { new MarkerServerBeanType() });
+		this.model = mock(IServerManagementModel.class);
+		when(model.getServerBeanTypeManager()).thenReturn(types);
+	}
+
+	@After
+	public void after() throws IOException {
+		Files.walk(dir)
+			.sorted(Comparator.reverseOrder())
+			.forEach(p -> p.toFile().delete());
+	}
+
+	@Test
+	public void testServerBeanIsRemembered() throws IOException {
+		File server = createServer("wildfly", "1.0.0.Final");
+		DiscoveryIndex index = new DiscoveryIndex(model);
+		int[] changed = new int[1];
+		index.addListener(i -> changed[0]++);
+
+		ServerBean bean = index.getServerBean(server);
+		assertThat(bean.getFullVersion()).isEqualTo("1.0.0.Final");
+		assertThat(index.getServerBean(server)).isSameAs(bean);
+		assertThat(index.getServerBean(new File(server.getPath()))).isSameAs(bean);
+		assertThat(index.getAnalyzedCount()).isEqualTo(1);
+		assertThat(index.getHitCount()).isEqualTo(2);
+		assertThat(changed[0]).isEqualTo(1);
+	}
+
+	@Test
+	public void testChangedServerIsAnalyzedAgain() throws IOException {
+		File server = createServer("wildfly", "1.0.0.Final");
+		DiscoveryIndex index = new DiscoveryIndex(model);
+		assertThat(index.getServerBean(server).getFullVersion()).isEqualTo("1.0.0.Final");
+
+		createServer("wildfly", "1.0.10.Final");
+		assertThat(index.getServerBean(server).getFullVersion()).isEqualTo("1.0.10.Final");
+		assertThat(index.getAnalyzedCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void testFolderBecomesServer() throws IOException {
+		File folder = dir.resolve("empty").toFile();
+		folder.mkdirs();
+		DiscoveryIndex index = new DiscoveryIndex(model);
+		assertThat(index.getServerBean(folder).getServerAdapterTypeId()).isNull();
+		assertThat(index.getServerBean(folder).getServerAdapterTypeId()).isNull();
+		assertThat(index.getAnalyzedCount()).isEqualTo(1);
+
+		createServer("empty", "1.0.0.Final");
+		assertThat(folder.setLastModified(folder.lastModified() - 10000)).isTrue();
+		assertThat(index.getServerBean(folder).getServerAdapterTypeId()).isEqualTo("marker.server");
+		assertThat(index.getAnalyzedCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		File wildfly = createServer("wildfly", "1.0.0.Final");
+		File eap = createServer("eap", "2.0.0.Final");
+		DiscoveryIndex index = new DiscoveryIndex(model);
+		index.getServerBean(wildfly);
+		index.getServerBean(eap);
+		File data = dir.resolve("discovery-index").toFile();
+		index.saveIndex(data);
+
+		DiscoveryIndex loaded = new DiscoveryIndex(model);
+		loaded.loadIndex(data);
+		ServerBean bean = loaded.getServerBean(wildfly);
+		assertThat(bean.getFullVersion()).isEqualTo("1.0.0.Final");
+		assertThat(bean.getLocation()).isEqualTo(wildfly.getAbsolutePath());
+		assertThat(loaded.getServerBean(eap).getFullVersion()).isEqualTo("2.0.0.Final");
+		assertThat(loaded.getAnalyzedCount()).isEqualTo(0);
+
+		createServer("eap", "2.0.10.Final");
+		assertThat(loaded.getServerBean(eap).getFullVersion()).isEqualTo("2.0.10.Final");
+		assertThat(loaded.getAnalyzedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testLoadIgnoresBrokenIndex() throws IOException {
+		File data = dir.resolve("discovery-index").toFile();
+		Files.write(data.toPath(), Arrays.asList("{ not json"));
+		DiscoveryIndex index = new DiscoveryIndex(model);
+		index.loadIndex(data);
+		index.loadIndex(dir.resolve("missing").toFile());
+		File server = createServer("wildfly", "1.0.0.Final");
+		assertThat(index.getServerBean(server).getFullVersion()).isEqualTo("1.0.0.Final");
+	}
+
+	@Test
+	public void testInvalidate() throws IOException {
+		File wildfly = createServer("opt/wildfly", "1.0.0.Final");
+		File eap = createServer("home/eap", "2.0.0.Final");
+		DiscoveryIndex index = new DiscoveryIndex(model);
+		index.getServerBean(wildfly);
+		index.getServerBean(eap);
+
+		index.invalidate(dir.resolve("opt").toFile());
+		index.getServerBean(wildfly);
+		index.getServerBean(eap);
+		assertThat(index.getAnalyzedCount()).isEqualTo(3);
+	}
+
+	private File createServer(String relative, String version) throws IOException {
+		File folder = dir.resolve(relative).toFile();
+		folder.mkdirs();
+		Files.write(new File(folder, MARKER).toPath(), Collections.singletonList(version));
+		return folder;
+	}
+
+	private static class MarkerServerBeanType extends ServerBeanType {
+
+		private MarkerServerBeanType() {
+			super("marker", "Marker");
+		}
+
+		@Override
+		public boolean isServerRoot(File location) {
+			return new File(location, MARKER).isFile();
+		}
+
+		@Override
+		public String getFullVersion(File root) {
+			try {
+				return Files.readAllLines(new File(root, MARKER).toPath()).get(0);
+			} catch (IOException e) {
+				return null;
+			}
+		}
+
+		@Override
+		public String getUnderlyingTypeId(File root) {
+			return "marker";
+		}
+
+		@Override
+		public String getServerAdapterTypeId(String version) {
+			return "marker.server";
+		}
+
+		@Override
+		public File[] getConsultedFiles(File root) {
+			return new File[] { root, new File(root, MARKER) };
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.model.discovery;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.jboss.tools.rsp.api.dao.ServerBean;
+import org.jboss.tools.rsp.eclipse.core.runtime.IStatus;
+import org.jboss.tools.rsp.eclipse.core.runtime.NullProgressMonitor;
+import org.jboss.tools.rsp.server.discovery.serverbeans.ServerBeanTreeScanner;
+import org.jboss.tools.rsp.server.discovery.serverbeans.ServerBeanTypeManager;
+import org.jboss.tools.rsp.server.jobs.JobManager;
+import org.jboss.tools.rsp.server.spi.discovery.ServerBeanType;
+import org.jboss.tools.rsp.server.spi.jobs.IJob;
+import org.jboss.tools.rsp.server.spi.jobs.IJobListener;
+import org.jboss.tools.rsp.server.spi.model.IServerManagementModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ServerBeanTreeScannerTest {
+
+	private static final String MARKER = "server.marker";
+
+	private Path dir;
+	private IServerManagementModel model;
+
+	@Before
+	public void before() throws IOException {
+		this.dir = Files.createTempDirectory("rsp-tree");
+		ServerBeanTypeManager types = new ServerBeanTypeManager();
+		types.addTypeProvider(() -> new ServerBeanType[] { new MarkerServerBeanType() });
+		this.model = mock(IServerManagementModel.class);
+		when(model.getServerBeanTypeManager()).thenReturn(types);
+	}
+
+	@After
+	public void after() throws IOException {
+		Files.walk(dir)
+			.sorted(Comparator.reverseOrder())
+			.forEach(p -> p.toFile().delete());
+	}
+
+	@Test
+	public void testFindsServersInTree() throws IOException {
+		createServer("opt/wildfly");
+		createServer("opt/vendor/eap");
+		createServer("home/user/servers/a/b/too-deep");
+		createServer("opt/wildfly/nested");
+		createServer("opt/node_modules/pruned");
+		createServer("opt/excluded/server");
+
+		Set<String> notified = ConcurrentHashMap.newKeySet();
+		ServerBeanTreeScanner scanner = new ServerBeanTreeScanner(dir.toFile(), 4,
+				Arrays.asList("**/excluded"), 4, model, b -> notified.add(b.getLocation()));
+		IStatus status = scanner.run(new NullProgressMonitor());
+
+		assertThat(status.isOK()).isTrue();
+		assertThat(locations(scanner.getServerBeans())).containsOnly(
+				path("opt/wildfly"), path("opt/vendor/eap"));
+		assertThat(notified).containsOnly(path("opt/wildfly"), path("opt/vendor/eap"));
+	}
+
+	@Test
+	public void testDepth() throws IOException {
+		createServer("a");
+		createServer("b/c");
+		ServerBeanTreeScanner scanner = new ServerBeanTreeScanner(dir.toFile(), 1,
+				null, 2, model, null);
+		scanner.run(new NullProgressMonitor());
+		assertThat(locations(scanner.getServerBeans())).containsOnly(path("a"));
+
+		createServer("");
+		scanner = new ServerBeanTreeScanner(dir.toFile(), 4, null, 2, model, null);
+		scanner.run(new NullProgressMonitor());
+		assertThat(locations(scanner.getServerBeans())).containsOnly(dir.toFile().getAbsolutePath());
+		assertThat(scanner.getScannedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testCanceled() throws IOException {
+		for (int i = 0; i < 10; i++) {
+			createServer("folder" + i + "/server");
+		}
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		ServerBeanTreeScanner scanner = new ServerBeanTreeScanner(dir.toFile(), 4, null, 2, model, null);
+		IStatus status = scanner.run(monitor);
+		assertThat(status.getSeverity()).isEqualTo(IStatus.CANCEL);
+		assertThat(scanner.getServerBeans()).isEmpty();
+		assertThat(scanner.getScannedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testRunsAsJob() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			createServer("folder" + i + "/server");
+		}
+		JobManager jobs = new JobManager();
+		CountDownLatch removed = new CountDownLatch(1);
+		double[] progress = new double[1];
+		IStatus[] result = new IStatus[1];
+		jobs.addJobListener(new IJobListener() {
+			@Override
+			public void jobAdded(IJob job) {
+				// ignore
+			}
+
+			@Override
+			public void progressChanged(IJob job, double work) {
+				progress[0] = work;
+			}
+
+			@Override
+			public void jobRemoved(IJob job, IStatus status) {
+				result[0] = status;
+				removed.countDown();
+			}
+		});
+		ServerBeanTreeScanner scanner = new ServerBeanTreeScanner(dir.toFile(), 4, null, 4, model, null);
+		jobs.scheduleJob("search", scanner);
+		assertThat(removed.await(10, TimeUnit.SECONDS)).isTrue();
+		jobs.shutdown();
+		assertThat(result[0].isOK()).isTrue();
+		assertThat(result[0].getMessage()).contains("Found 10 servers");
+		assertThat(progress[0]).isEqualTo(100d);
+		assertThat(scanner.getServerBeans()).hasSize(10);
+	}
+
+	private void createServer(String relative) throws IOException {
+		File folder = dir.resolve(relative).toFile();
+		folder.mkdirs();
+		Files.write(new File(folder, MARKER).toPath(), Collections.singletonList("1.0.0.Final"));
+	}
+
+	private String path(String relative) {
+		return dir.resolve(relative).toFile().getAbsolutePath();
+	}
+
+	private static List<String> locations(List<ServerBean> beans) {
+		return beans.stream()
+				.map(ServerBean::getLocation)
+				.collect(Collectors.toList());
+	}
+
+	private static class MarkerServerBeanType extends ServerBeanType {
+
+		private MarkerServerBeanType() {
+			super("marker", "Marker");
+		}
+
+		@Override
+		public boolean isServerRoot(File location) {
+			return new File(location, MARKER).isFile();
+		}
+
+		@Override
+		public String getFullVersion(File root) {
+			return "1.0.0.Final";
+		}
+
+		@Override
+		public String getUnderlyingTypeId(File root) {
+			return "marker";
+		}
+
+		@Override
+		public String getServerAdapterTypeId(String version) {
+			return "marker.server";
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.tools.rsp.server.persistence.PersistenceJournal.IContentWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PersistenceJournalTest {
+
+	private Path dir;
+	private PersistenceJournal journal;
+
+	@Before
+	public void before() throws IOException {
+		this.dir = Files.createTempDirectory("rsp-journal");
+		this.journal = new PersistenceJournal(60 * 1000);
+	}
+
+	@After
+	public void after() throws IOException {
+		journal.close();
+		for (File f : dir.toFile().listFiles()) {
+			f.delete();
+		}
+		Files.delete(dir);
+	}
+
+	@Test
+	public void testChangesAreCoalesced() throws IOException {
+		File target = dir.resolve("vms").toFile();
+		AtomicInteger calls = new AtomicInteger();
+		for (int i = 0; i < 5; i++) {
+			String content = "content " + i;
+			journal.markDirty(target, f -> {
+				calls.incrementAndGet();
+				Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+			});
+		}
+		assertThat(target).doesNotExist();
+		assertThat(journal.getDirtyCount()).isEqualTo(1);
+		journal.flush();
+		assertThat(calls.get()).isEqualTo(1);
+		assertThat(journal.getDirtyCount()).isEqualTo(0);
+		assertThat(new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8)).isEqualTo("content 4");
+		assertThat(dir.toFile().listFiles()).containsExactly(target);
+	}
+
+	@Test
+	public void testUnchangedContentIsSkipped() throws IOException {
+		File target = dir.resolve("discovery-paths").toFile();
+		IContentWriter writer = f -> Files.write(f.toPath(), "/some/path\n".getBytes(StandardCharsets.UTF_8));
+		assertThat(journal.write(target, writer)).isTrue();
+		assertThat(journal.write(target, writer)).isFalse();
+		assertThat(journal.getWrittenCount()).isEqualTo(1);
+		assertThat(journal.getSkippedCount()).isEqualTo(1);
+
+		// written again if the file went missing
+		target.delete();
+		assertThat(journal.write(target, writer)).isTrue();
+		assertThat(target).exists();
+	}
+
+	@Test
+	public void testFailedWriteKeepsPreviousContent() throws IOException {
+		File target = dir.resolve("vms").toFile();
+		Files.write(target.toPath(), "previous".getBytes(StandardCharsets.UTF_8));
+		try {
+			journal.write(target, f -> {
+				Files.write(f.toPath(), "half".getBytes(StandardCharsets.UTF_8));
+				throw new IOException("disk full");
+			});
+		} catch(IOException ioe) {
+			// expected
+		}
+		assertThat(new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8)).isEqualTo("previous");
+		assertThat(dir.toFile().listFiles()).containsExactly(target);
+	}
+
+	@Test
+	public void testCloseWritesDirtyFiles() throws IOException {
+		File target = dir.resolve("vms").toFile();
+		journal.markDirty(target, f -> Files.write(f.toPath(), "vms".getBytes(StandardCharsets.UTF_8)));
+		journal.close();
+		assertThat(target).exists();
+
+		// once closed, files are written right away
+		File other = dir.resolve("discovery-paths").toFile();
+		journal.markDirty(other, f -> Files.write(f.toPath(), "paths".getBytes(StandardCharsets.UTF_8)));
+		assertThat(other).exists();
+	}
+
+	@Test
+	public void testSteadyChangesAreWrittenAfterMaxDelay() throws IOException, InterruptedException {
+		PersistenceJournal steady = new PersistenceJournal(200, 500);
+		try {
+			File target = dir.resolve("discovery-paths").toFile();
+			long end = System.currentTimeMillis() + 3000;
+			// a change every 50ms would push the write delay back for ever
+			while (!target.exists() && System.currentTimeMillis() < end) {
+				steady.markDirty(target, f -> Files.write(f.toPath(), "paths".getBytes(StandardCharsets.UTF_8)));
+				Thread.sleep(50);
+			}
+			assertThat(target).exists();
+		} finally {
+			steady.close();
+		}
+	}
+
+	@Test
+	public void testWriteAtomically() throws IOException {
+		Path target = dir.resolve("server1");
+		PersistenceJournal.writeAtomically(target, "one".getBytes(StandardCharsets.UTF_8));
+		PersistenceJournal.writeAtomically(target, "two".getBytes(StandardCharsets.UTF_8));
+		assertThat(new String(Files.readAllBytes(target), StandardCharsets.UTF_8)).isEqualTo("two");
+		assertThat(dir.toFile().listFiles()).containsExactly(target.toFile());
+		assertThat(PersistenceJournal.isTempFile(dir.resolve(".server1.tmp").toFile())).isTrue();
+		assertThat(PersistenceJournal.isTempFile(target.toFile())).isFalse();
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class JsonRpcFrameParserTest {
+
+	@Test
+	public void testMessagesInOneRead() throws IOException {
+		List<String> messages = new ArrayList<>();
+		JsonRpcFrameParser parser = new JsonRpcFrameParser(messages::add);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		frame(bytes, "{\"id\":1}", null);
+		frame(bytes, "{\"id\":2}", null);
+		parser.feed(ByteBuffer.wrap(bytes.toByteArray()));
+		assertThat(messages).containsExactly("{\"id\":1}", "{\"id\":2}");
+	}
+
+	@Test
+	public void testMessageSplitAcrossReads() throws IOException {
+		List<String> messages = new ArrayList<>();
+		JsonRpcFrameParser parser = new JsonRpcFrameParser(messages::add);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		String text = "{\"text\":\"caf\u00e9 \u20ac\"}";
+		frame(bytes, text, null);
+		frame(bytes, "{}", null);
+		for (byte b : bytes.toByteArray()) {
+			parser.feed(ByteBuffer.wrap(new byte[] { b }));
+		}
+		assertThat(messages).containsExactly(text, "{}");
+	}
+
+	@Test
+	public void testContentTypeCharset() throws IOException {
+		List<String> messages = new ArrayList<>();
+		JsonRpcFrameParser parser = new JsonRpcFrameParser(messages::add);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		String text = "{\"text\":\"caf\u00e9\"}";
+		frame(bytes, text, StandardCharsets.ISO_8859_1);
+		parser.feed(ByteBuffer.wrap(bytes.toByteArray()));
+		assertThat(messages).containsExactly(text);
+	}
+
+	@Test(expected = IOException.class)
+	public void testMissingContentLength() throws IOException {
+		JsonRpcFrameParser parser = new JsonRpcFrameParser(m -> {});
+		parser.feed(ByteBuffer.wrap("Content-Type: application/json\r\n\r\n{}".getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	@Test(expected = IOException.class)
+	public void testHeadersTooLarge() throws IOException {
+		JsonRpcFrameParser parser = new JsonRpcFrameParser(m -> {});
+		byte[] garbage = new byte[JsonRpcFrameParser.MAX_HEADER_SIZE + 1];
+		parser.feed(ByteBuffer.wrap(garbage));
+	}
+
+	private static void frame(ByteArrayOutputStream out, String message, Charset charset) throws IOException {
+		byte[] content = message.getBytes(charset == null ? StandardCharsets.UTF_8 : charset);
+		StringBuilder header = new StringBuilder("Content-Length: ").append(content.length).append("\r\n");
+		if (charset != null) {
+			header.append("Content-Type: application/vscode-jsonrpc; charset=").append(charset.name()).append("\r\n");
+		}
+		header.append("\r\n");
+		out.write(header.toString().getBytes(StandardCharsets.US_ASCII));
+		out.write(content);
+	}
+}
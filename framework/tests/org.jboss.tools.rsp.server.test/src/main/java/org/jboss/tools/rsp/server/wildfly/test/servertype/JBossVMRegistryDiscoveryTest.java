@@ -15,6 +15,8 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -25,6 +27,10 @@ import org.jboss.tools.rsp.eclipse.jdt.launching.IVMInstallRegistry;
 import org.jboss.tools.rsp.eclipse.jdt.launching.StandardVMType;
 import org.jboss.tools.rsp.eclipse.jdt.launching.VMInstallRegistry;
 import org.jboss.tools.rsp.server.persistence.DataLocationCore;
+import org.jboss.tools.rsp.server.spi.servertype.IServer;
+import org.jboss.tools.rsp.server.spi.servertype.IServerDelegate;
+import org.jboss.tools.rsp.server.spi.servertype.IServerType;
+import org.jboss.tools.rsp.server.wildfly.beans.impl.IServerConstants;
 import org.jboss.tools.rsp.server.wildfly.servertype.JBossVMRegistryDiscovery;
 import org.junit.Before;
 import org.junit.Test;
@@ -121,6 +127,50 @@ public class JBossVMRegistryDiscoveryTest {
 		assertThat(registry.getVMs()).hasSize(1);
 	}
 
+	@Test
+	public void findCompatibleVMInstall() {
+		IVMInstall running = mockVMI("running", "14.0.1");
+		IVMInstall java7 = mockVMI("java7", "1.7.0");
+		IVMInstall java8 = mockVMI("java8", "1.8.0");
+		registry.addVMInstall(running);
+		registry.addVMInstall(java7);
+		registry.addVMInstall(java8);
+		IServerDelegate delegate = mockServerDelegate(IServerConstants.SERVER_EAP_60);
+
+		assertThat(registry.getDefaultVMInstall()).isEqualTo(running);
+		assertThat(discovery.findVMInstall(delegate)).isEqualTo(java8);
+
+		registry.removeVMInstall(java7);
+		registry.removeVMInstall(java8);
+		assertThat(discovery.findVMInstall(delegate)).isEqualTo(running);
+	}
+
+	@Test
+	public void defaultVMInstallIsKeptIfCompatible() {
+		IVMInstall running = mockVMI("running", "1.8.0");
+		registry.addVMInstall(running);
+		registry.addVMInstall(mockVMI("java7", "1.7.0"));
+
+		assertThat(discovery.findVMInstall(mockServerDelegate(IServerConstants.SERVER_EAP_60))).isEqualTo(running);
+	}
+
+	private IVMInstall mockVMI(String id, String version) {
+		IVMInstall vmi = mock(IVMInstall.class);
+		when(vmi.getId()).thenReturn(id);
+		when(vmi.getJavaVersion()).thenReturn(version);
+		return vmi;
+	}
+
+	private IServerDelegate mockServerDelegate(String serverTypeId) {
+		IServerType type = mock(IServerType.class);
+		when(type.getId()).thenReturn(serverTypeId);
+		IServer server = mock(IServer.class);
+		when(server.getServerType()).thenReturn(type);
+		IServerDelegate delegate = mock(IServerDelegate.class);
+		when(delegate.getServer()).thenReturn(server);
+		return delegate;
+	}
+
 	private IVMInstall createVMI(String id, String path) {
 		IVMInstall ivmi = StandardVMType.getDefault().createVMInstall(id);
 		String home = System.getProperty("java.home");
@@ -14,7 +14,6 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 
-import org.jboss.tools.rsp.server.wildfly.impl.util.JBossManifestUtility;
 
 public class DataVirtualization6ServerBeanType extends ServerBeanTypeUnknownAS72Product {
 	public DataVirtualization6ServerBeanType() {
@@ -36,8 +35,7 @@ public class DataVirtualization6ServerBeanType extends ServerBeanTypeUnknownAS72
 			List<String> layers = Arrays.asList(getLayers(location));
 			if( layers.contains("dv") ) {
 				String dvProductDir = "org.jboss.as.product.dv.dir";
-				File[] modules = new File[]{new File(location, "modules")};
-				String vers = JBossManifestUtility.getManifestPropFromJBossModulesFolder(modules, dvProductDir, 
+				String vers = probe(location).getManifestPropFromJBossModulesFolder(dvProductDir, 
 						"META-INF", "JBoss-Product-Release-Version");
 				if( vers.startsWith("6."))
 					return vers;
@@ -40,15 +40,28 @@ public abstract class JBossServerBeanType extends ServerBeanType implements ISer
 	}
 	
 	public String getFullVersion(File root, File systemJar) {
-		return JBossManifestUtility.getFullServerVersionFromZip(systemJar);
+		return probe(root).getFullServerVersionFromZip(systemJar);
 	}
 	
 	public String getFullServerVersionFromZipLegacy(File systemJarFile) {
 		return JBossManifestUtility.getFullServerVersionFromZip(systemJarFile);
 	}
 	
+	/**
+	 * Returns the probe that all server bean types read the given root through.
+	 */
+	protected static ServerRootProbe probe(File location) {
+		return ServerRootProbe.get(location);
+	}
+	
+	@Override
+	public File[] getConsultedFiles(File root) {
+		return probe(root).getConsultedFiles();
+	}
+
 	public static boolean scanFolderJarsForManifestProp(File location, String mainFolder, String property, String propPrefix) {
-		return JBossManifestUtility.scanFolderJarsForManifestProp(location, mainFolder, property, propPrefix);
+		String value = getManifestPropFromFolderJars(location, mainFolder, property);
+		return value != null && value.trim().startsWith(propPrefix);
 	}
 	
 	public static String asPath(String... vals) {
@@ -56,6 +69,6 @@ public abstract class JBossServerBeanType extends ServerBeanType implements ISer
 	}
 	
 	public static String getManifestPropFromFolderJars(File location, String mainFolder, String property) {
-		return JBossManifestUtility.getManifestPropFromFolderJars(location, mainFolder, property);
+		return probe(location).getManifestPropFromFolderJars(mainFolder, property);
 	}
 }
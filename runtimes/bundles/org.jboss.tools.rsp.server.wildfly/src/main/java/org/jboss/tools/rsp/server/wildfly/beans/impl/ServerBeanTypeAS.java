@@ -20,9 +20,9 @@ public class ServerBeanTypeAS extends JBossServerBeanType {
 	
 	@Override
 	public boolean isServerRoot(File location) {
-		File asSystemJar = new File(location, systemJarPath);
-		if (asSystemJar.exists() && asSystemJar.isFile()) {
-			String title = ManifestUtility.getJarProperty(asSystemJar, IMPLEMENTATION_TITLE);
+		ServerRootProbe probe = probe(location);
+		if (probe.isFile(systemJarPath)) {
+			String title = probe.getJarProperty(systemJarPath, IMPLEMENTATION_TITLE);
 			boolean isEAP = title != null && title.contains(ID_EAP); //$NON-NLS-1$
 			return !isEAP;
 		}
@@ -31,7 +31,7 @@ public class ServerBeanTypeAS extends JBossServerBeanType {
 
 	@Override
 	public String getFullVersion(File root, File systemJar) {
-		return getFullServerVersionFromZipLegacy(systemJar);
+		return probe(root).getFullServerVersionFromZip(systemJar);
 	}
 
 	@Override
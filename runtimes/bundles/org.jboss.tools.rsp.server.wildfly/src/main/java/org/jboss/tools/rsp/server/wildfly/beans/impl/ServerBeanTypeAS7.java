@@ -12,7 +12,6 @@ package org.jboss.tools.rsp.server.wildfly.beans.impl;
 
 import java.io.File;
 
-import org.jboss.tools.rsp.server.wildfly.impl.util.JBossManifestUtility;
 
 
 public class ServerBeanTypeAS7 extends JBossServerBeanType {
@@ -24,7 +23,7 @@ public class ServerBeanTypeAS7 extends JBossServerBeanType {
 	}
 	
 	public String getFullVersion(File location, File systemFile) {
-		return JBossManifestUtility.getManifestPropFromFolderJars(location, systemJarPath, JBAS7_RELEASE_VERSION);
+		return getManifestPropFromFolderJars(location, systemJarPath, JBAS7_RELEASE_VERSION);
 	}
 
 	@Override
@@ -11,11 +11,7 @@
 package org.jboss.tools.rsp.server.wildfly.beans.impl;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.util.Properties;
 
-import org.jboss.tools.rsp.server.wildfly.impl.util.JBossManifestUtility;
 
 public class ServerBeanTypeAS7GateIn extends JBossServerBeanType {
 
@@ -36,26 +32,20 @@ public class ServerBeanTypeAS7GateIn extends JBossServerBeanType {
 	}
 
 	public String getFullVersion(File location, File systemJarFile) {
-		File f = new File(location, AS7_GATE_IN_SYSTEM_JAR_FOLDER);
-		if( f.exists() ) {
-			File[] children = f.listFiles();
+		ServerRootProbe probe = probe(location);
+		File f = probe.getFile(AS7_GATE_IN_SYSTEM_JAR_FOLDER);
+		if( probe.exists(f) ) {
+			File[] children = probe.listFiles(f);
 			for( int i = 0; i < children.length; i++ ) {
 				if( children[i].getName().endsWith(IServerConstants.EXT_JAR)) {
-					String value = JBossManifestUtility.getJarProperty(children[i], "Specification-Version");
+					String value = probe.getJarProperty(children[i], "Specification-Version");
 					return value;
 				}
 			}
 		}
 		
-		File f2 = new File(location, GATEIN_35_PROPERTY_FILE);
-		if( f2.exists()) {
-			try {
-				Properties p = new Properties();
-				p.load(new FileInputStream(f2));
-				return p.getProperty(VERSION_PROP);
-			} catch(IOException ioe) {
-				// ignore
-			}
+		if( probe.exists(GATEIN_35_PROPERTY_FILE)) {
+			return probe.getProperties(GATEIN_35_PROPERTY_FILE).getProperty(VERSION_PROP);
 		}
 		return null;
 	}
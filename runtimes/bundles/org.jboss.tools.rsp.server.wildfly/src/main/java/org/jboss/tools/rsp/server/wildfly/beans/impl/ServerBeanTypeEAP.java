@@ -33,8 +33,7 @@ public class ServerBeanTypeEAP extends ServerBeanTypeEnterprise {
 	
 
 	public boolean isServerRoot(File location) {
-		File asSystemJar = new File(location, systemJarPath);
-		return asSystemJar.exists() && asSystemJar.isFile();
+		return probe(location).isFile(systemJarPath);
 	}
 
 }
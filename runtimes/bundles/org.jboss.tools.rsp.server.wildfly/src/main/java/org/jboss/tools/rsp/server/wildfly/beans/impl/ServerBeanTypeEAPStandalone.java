@@ -12,7 +12,6 @@ package org.jboss.tools.rsp.server.wildfly.beans.impl;
 
 import java.io.File;
 
-import org.jboss.tools.rsp.server.wildfly.impl.util.JBossManifestUtility;
 
 
 public class ServerBeanTypeEAPStandalone extends ServerBeanTypeEnterprise {
@@ -20,9 +19,9 @@ public class ServerBeanTypeEAPStandalone extends ServerBeanTypeEnterprise {
 		super("EAP_STD", NAME_EAP, BIN_TWIDDLE_PATH);
 	}
 	public boolean isServerRoot(File location) {
-		File asSystemJar = new File(location, systemJarPath);
-		if (asSystemJar.exists() && asSystemJar.isFile()) {
-			String title = JBossManifestUtility.getJarProperty(asSystemJar, IMPLEMENTATION_TITLE);
+		ServerRootProbe probe = probe(location);
+		if (probe.isFile(systemJarPath)) {
+			String title = probe.getJarProperty(systemJarPath, IMPLEMENTATION_TITLE);
 			boolean isEAP = title != null && title.contains(ID_EAP); //$NON-NLS-1$
 			return isEAP;
 		}
@@ -33,21 +33,17 @@ public class ServerBeanTypeEPP extends JBossServerBeanType {
 		return JBOSS_AS_PATH;
 	}
 	public boolean superIsServerRoot(File location) {
-		File asSystemJar = new File(location, asPath(JBOSS_AS_PATH,BIN,TWIDDLE_JAR_NAME));
-		return asSystemJar.exists() && asSystemJar.isFile();
+		return probe(location).isFile(asPath(JBOSS_AS_PATH,BIN,TWIDDLE_JAR_NAME));
 	}
 	public boolean isServerRoot(File location) {
 		if( !superIsServerRoot(location))
 			return false;
 		
-		File portletBridgeFolder = new File(location, JBOSS_PORTLETBRIDGE_PATH);
-		File portlalSarFolder = new File(location, 
-				asPath( JBOSS_AS_PATH,  SERVER, CONFIG_DEFAULT, DEPLOY, JBOSS_PORTAL_SAR));			
-		File asStdSystemJar = new File(location,
-				asPath(JBOSS_AS_PATH,BIN, RUN_JAR_NAME));
-		boolean pbfIsDir = portletBridgeFolder.exists() && portletBridgeFolder.isDirectory(); 
-		boolean psfIsDir = portlalSarFolder.exists() && portlalSarFolder.isDirectory(); 
-		boolean sysJarIsFile = asStdSystemJar.exists() && asStdSystemJar.isFile(); 
+		ServerRootProbe probe = probe(location);
+		boolean pbfIsDir = probe.isDirectory(JBOSS_PORTLETBRIDGE_PATH); 
+		boolean psfIsDir = probe.isDirectory(
+				asPath( JBOSS_AS_PATH,  SERVER, CONFIG_DEFAULT, DEPLOY, JBOSS_PORTAL_SAR)); 
+		boolean sysJarIsFile = probe.isFile(asPath(JBOSS_AS_PATH,BIN, RUN_JAR_NAME)); 
 		return ( pbfIsDir || psfIsDir ) && sysJarIsFile; 
 	}
 
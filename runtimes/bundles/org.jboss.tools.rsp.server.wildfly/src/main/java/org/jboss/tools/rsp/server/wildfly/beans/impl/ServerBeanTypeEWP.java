@@ -31,8 +31,7 @@ public class ServerBeanTypeEWP extends ServerBeanTypeEnterprise {
 	}
 	
 	public boolean isServerRoot(File location) {
-		File ewpSystemJar = new File(location,systemJarPath);
-		return ewpSystemJar.exists() && ewpSystemJar.isFile();
+		return probe(location).isFile(systemJarPath);
 	}
 	@Override
 	public String getServerAdapterTypeId(String version) {
@@ -16,7 +16,6 @@ import java.util.Properties;
 import org.jboss.tools.rsp.api.dao.ServerBean;
 import org.jboss.tools.rsp.eclipse.core.runtime.IPath;
 import org.jboss.tools.rsp.eclipse.core.runtime.Path;
-import org.jboss.tools.rsp.launching.utils.FileUtil;
 
 public abstract class ServerBeanTypeEnterprise extends JBossServerBeanType {
 
@@ -39,9 +38,10 @@ public abstract class ServerBeanTypeEnterprise extends JBossServerBeanType {
 	 */
 	public String getEAP6xVersion(File location,  String metaInfPath,
 			String versionPrefix, String slot, String releaseName) {
-		IPath productConf = new Path(location.getAbsolutePath()).append(BIN).append(PRODUCT_CONF);
-		if( productConf.toFile().exists()) {
-			Properties p = FileUtil.loadProperties(productConf.toFile());
+		ServerRootProbe probe = probe(location);
+		String productConf = asPath(BIN, PRODUCT_CONF);
+		if( probe.exists(productConf)) {
+			Properties p = probe.getProperties(productConf);
 			String product = (String) p.get(PRODUCT_CONF_SLOT); //$NON-NLS-1$
 			if(slot.equals(product)) { //$NON-NLS-1$
 				return getEAP6xVersionNoSlotCheck(location, metaInfPath, versionPrefix, releaseName);
@@ -51,11 +51,10 @@ public abstract class ServerBeanTypeEnterprise extends JBossServerBeanType {
 	}
 	public String getEAP6xVersionNoSlotCheck(File location,  String metaInfPath,
 			String versionPrefix, String releaseName) {
-		IPath rootPath = new Path(location.getAbsolutePath());
-		IPath eapDir = rootPath.append(metaInfPath);
-		if( eapDir.toFile().exists()) {
-			IPath manifest = eapDir.append(MANIFEST_MF); //$NON-NLS-1$
-			Properties p2 = FileUtil.loadProperties(manifest.toFile());
+		ServerRootProbe probe = probe(location);
+		if( probe.exists(metaInfPath)) {
+			String manifest = asPath(metaInfPath, MANIFEST_MF); //$NON-NLS-1$
+			Properties p2 = probe.getProperties(manifest);
 			String type = p2.getProperty(MANIFEST_PROD_RELEASE_NAME); //$NON-NLS-1$
 			String version = p2.getProperty(MANIFEST_PROD_RELEASE_VERS); //$NON-NLS-1$
 			boolean matchesName = releaseName == null || releaseName.equals(type);
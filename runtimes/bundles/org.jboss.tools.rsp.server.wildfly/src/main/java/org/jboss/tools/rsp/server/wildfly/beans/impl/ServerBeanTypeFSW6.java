@@ -15,7 +15,6 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.jboss.tools.rsp.server.spi.discovery.ServerBeanType;
-import org.jboss.tools.rsp.server.wildfly.impl.util.JBossManifestUtility;
 
 /**
  * Verifies the installation has:
@@ -43,8 +42,7 @@ public class ServerBeanTypeFSW6 extends ServerBeanTypeUnknownAS71Product {
 			List<String> layers = Arrays.asList(getLayers(location));
 			if( (hasSoa ? layers.contains("soa") : true ) && layers.contains("sramp")) {
 				String srampProductDir = "org.jboss.as.product.sramp.dir";
-				File[] modules = new File[]{new File(location, MODULES)};
-				String vers = JBossManifestUtility.getManifestPropFromJBossModulesFolder(modules, srampProductDir, 
+				String vers = probe(location).getManifestPropFromJBossModulesFolder(srampProductDir, 
 						META_INF, MANIFEST_PROD_RELEASE_VERS);
 				if( vers.startsWith("6.0"))
 					return vers;
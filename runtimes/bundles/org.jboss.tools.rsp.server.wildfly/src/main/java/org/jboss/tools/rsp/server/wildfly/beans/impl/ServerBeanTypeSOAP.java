@@ -29,8 +29,7 @@ public class ServerBeanTypeSOAP extends ServerBeanTypeEAP {
 
 	
 	public boolean isServerRoot(File location) {
-		File jbpmFolder = new File(location, SOAP_JBPM_JPDL_PATH);
-		return super.isServerRoot(location) && jbpmFolder.exists() && jbpmFolder.isDirectory();
+		return super.isServerRoot(location) && probe(location).isDirectory(SOAP_JBPM_JPDL_PATH);
 	}
 	
 	public String getFullVersion(File location, File systemFile) {
@@ -27,11 +27,10 @@ public class ServerBeanTypeSOAPStandalone extends ServerBeanTypeEnterprise {
 	}
 
 	public boolean isServerRoot(File location) {
-		File jbpmFolder = new File(location, SOAP_JBPM_JPDL_PATH);
-		File soaStdSystemJar = new File(location,JBOSS_ESB_PATH 
-				+ File.separatorChar + BIN + File.separatorChar + RUN_JAR_NAME);			
-		boolean sysJarIsFile = soaStdSystemJar.exists() && soaStdSystemJar.isFile();
-		boolean jbpmFolderIsDir = jbpmFolder.exists() && jbpmFolder.isDirectory(); 
+		ServerRootProbe probe = probe(location);
+		boolean sysJarIsFile = probe.isFile(JBOSS_ESB_PATH 
+				+ File.separatorChar + BIN + File.separatorChar + RUN_JAR_NAME);
+		boolean jbpmFolderIsDir = probe.isDirectory(SOAP_JBPM_JPDL_PATH); 
 		return jbpmFolderIsDir && sysJarIsFile;
 	}
 	@Override
@@ -11,11 +11,8 @@
 package org.jboss.tools.rsp.server.wildfly.beans.impl;
 
 import java.io.File;
-import java.nio.file.Path;
 import java.util.Properties;
 
-import org.jboss.tools.rsp.launching.utils.FileUtil;
-import org.jboss.tools.rsp.server.wildfly.impl.util.JBossManifestUtility;
 
 public class ServerBeanTypeUnknownAS71Product extends JBossServerBeanType {
 	public ServerBeanTypeUnknownAS71Product() {
@@ -55,8 +52,7 @@ public class ServerBeanTypeUnknownAS71Product extends JBossServerBeanType {
 			product += "." + productSlot;
 		}
 		product += ".dir";
-		File[] modules = new File[]{new File(location, MODULES)};
-		String vers = JBossManifestUtility.getManifestPropFromJBossModulesFolder(modules, product, "META-INF", "JBoss-Product-Release-Version");
+		String vers = probe(location).getManifestPropFromJBossModulesFolder(product, "META-INF", "JBoss-Product-Release-Version");
 		return vers;
 	}
 	
@@ -64,10 +60,10 @@ public class ServerBeanTypeUnknownAS71Product extends JBossServerBeanType {
 	 * @since 3.0 (actually 2.4.101)
 	 */
 	protected String getSlot(File location) {
-		Path rootPath = location.toPath();
-		Path productConf = rootPath.resolve(BIN).resolve(PRODUCT_CONF);
-		if( productConf.toFile().exists()) {
-			Properties p = FileUtil.loadProperties(productConf.toFile());
+		ServerRootProbe probe = probe(location);
+		String productConf = asPath(BIN, PRODUCT_CONF);
+		if( probe.exists(productConf)) {
+			Properties p = probe.getProperties(productConf);
 			return (String) p.get(PRODUCT_CONF_SLOT); //$NON-NLS-1$
 		}
 		return null;
@@ -77,11 +73,11 @@ public class ServerBeanTypeUnknownAS71Product extends JBossServerBeanType {
 	 * @since 3.0 (actually 2.4.101)
 	 */
 	protected String[] getLayers(File location) {
-		Path rootPath = location.toPath();
-		Path layersConf = rootPath.resolve(MODULES).resolve(LAYERS_CONF);
+		ServerRootProbe probe = probe(location);
+		String layersConf = asPath(MODULES, LAYERS_CONF);
 		String[] layers = new String[0];
-		if( layersConf.toFile().exists()) {
-			Properties p = FileUtil.loadProperties(layersConf.toFile());
+		if( probe.exists(layersConf)) {
+			Properties p = probe.getProperties(layersConf);
 			String layers2 = (String) p.get(LAYERS_CONF_LAYERS); //$NON-NLS-1$
 			layers = layers2 == null ? new String[0] : layers2.trim().split(",");
 		}
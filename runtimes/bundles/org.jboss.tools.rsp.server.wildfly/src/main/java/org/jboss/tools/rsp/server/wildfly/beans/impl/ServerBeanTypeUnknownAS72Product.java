@@ -12,7 +12,6 @@ package org.jboss.tools.rsp.server.wildfly.beans.impl;
 
 import java.io.File;
 
-import org.jboss.tools.rsp.server.wildfly.impl.util.JBossManifestUtility;
 
 public class ServerBeanTypeUnknownAS72Product extends ServerBeanTypeUnknownAS71Product {
 	public ServerBeanTypeUnknownAS72Product() {
@@ -29,11 +28,11 @@ public class ServerBeanTypeUnknownAS72Product extends ServerBeanTypeUnknownAS71P
 	}
 	
 	protected boolean server72OrHigher(File loc) {
-		File[] mods = new File[]{new File(loc, MODULES)};
-		String serverVersion = JBossManifestUtility.getManifestPropFromJBossModules(mods, 
+		ServerRootProbe probe = probe(loc);
+		String serverVersion = probe.getManifestPropFromJBossModules( 
 				"org.jboss.as.server", SLOT_MAIN, MANIFEST_PROD_RELEASE_VERS);
 		if( serverVersion == null ) {
-			serverVersion = JBossManifestUtility.getManifestPropFromJBossModules(mods, 
+			serverVersion = probe.getManifestPropFromJBossModules( 
 				"org.jboss.as.server", SLOT_MAIN, IMPLEMENTATION_VERSION);
 		}
 		if( serverVersion != null && serverVersion.length() > 3) {
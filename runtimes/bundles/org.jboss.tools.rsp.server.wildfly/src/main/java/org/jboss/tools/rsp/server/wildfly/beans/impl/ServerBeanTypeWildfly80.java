@@ -12,7 +12,6 @@ package org.jboss.tools.rsp.server.wildfly.beans.impl;
 
 import java.io.File;
 
-import org.jboss.tools.rsp.server.wildfly.impl.util.JBossManifestUtility;
 
 public class ServerBeanTypeWildfly80 extends JBossServerBeanType {
 	public ServerBeanTypeWildfly80() {
@@ -24,9 +23,9 @@ public class ServerBeanTypeWildfly80 extends JBossServerBeanType {
 	}
 	
 	public boolean isServerRoot(File location) {
-		return JBossManifestUtility.scanManifestPropFromJBossModules(
-				new File[]{new File(location, MODULES)}, 
-				"org.jboss.as.server", null, JBAS7_RELEASE_VERSION, "8.");
+		String value = probe(location).getManifestPropFromJBossModules(
+				"org.jboss.as.server", null, JBAS7_RELEASE_VERSION);
+		return value != null && value.trim().startsWith("8.");
 	}
 	public String getServerAdapterTypeId(String version) {	
 		// Just return adapter type wf8 until we discover incompatibility. 
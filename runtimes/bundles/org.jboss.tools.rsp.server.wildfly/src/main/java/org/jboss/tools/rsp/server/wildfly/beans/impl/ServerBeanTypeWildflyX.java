@@ -12,7 +12,6 @@ package org.jboss.tools.rsp.server.wildfly.beans.impl;
 
 import java.io.File;
 
-import org.jboss.tools.rsp.server.wildfly.impl.util.JBossManifestUtility;
 
 public class ServerBeanTypeWildflyX extends JBossServerBeanType {
 	private boolean web;
@@ -49,8 +48,7 @@ public class ServerBeanTypeWildflyX extends JBossServerBeanType {
 	
 
 	public static String getFullVersion(File location, File systemFile, String prefix) {
-		String vers = JBossManifestUtility.getManifestPropFromJBossModulesFolder(
-				new File[]{new File(location, MODULES)}, 
+		String vers = probe(location).getManifestPropFromJBossModulesFolder(
 				"org.jboss.as.product", "wildfly-full/dir/META-INF", 
 				MANIFEST_PROD_RELEASE_VERS);
 		if( vers != null && vers.startsWith(prefix)) {
@@ -60,8 +58,7 @@ public class ServerBeanTypeWildflyX extends JBossServerBeanType {
 	}
 
 	public static String getFullVersionWeb(File location, File systemFile, String prefix) {
-		String vers = JBossManifestUtility.getManifestPropFromJBossModulesFolder(
-				new File[]{new File(location, MODULES)}, 
+		String vers = probe(location).getManifestPropFromJBossModulesFolder(
 				"org.jboss.as.product", 
 				"wildfly-web/dir/META-INF", MANIFEST_PROD_RELEASE_VERS);
 		if( vers != null && vers.startsWith(prefix)) {
@@ -0,0 +1,402 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.wildfly.beans.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jboss.tools.rsp.launching.utils.FileUtil;
+import org.jboss.tools.rsp.server.wildfly.impl.util.LayeredModulePathFactory;
+
+/**
+ * A snapshot of what the server bean types look at in a server root:
+ * which files exist, the manifests of jars, properties files
+ * and the layered module paths.
+ *
+ * Every file is read once, no matter how many server bean types ask for it.
+ * Probes are cached by the path of the root and the modification times
+ * of the root and the folders and files that identify a server,
+ * so that looking at the same root again does not touch the disk
+ * beyond checking these timestamps. The timestamps themselves are
+ * checked at most once per revalidation interval, as every server bean type
+ * asks for the probe of the root it is looking at.
+ */
+public class ServerRootProbe implements IJBossServerResourceConstants {
+
+	private static final int CACHE_SIZE = 64;
+	private static final long DEFAULT_REVALIDATION_INTERVAL = 1000;
+
+	private static volatile long revalidationInterval = DEFAULT_REVALIDATION_INTERVAL;
+
+	/*
+	 * The paths, relative to the root, that change when a server
+	 * is installed, patched or replaced in the same folder.
+	 */
+	private static final String[] STAMPED = new String[] {
+			"", BIN, FileUtil.asPath(BIN, PRODUCT_CONF), MODULES, FileUtil.asPath(MODULES, LAYERS_CONF),
+			FileUtil.asPath(MODULES, "system", "layers"), FileUtil.asPath(MODULES, "system", "layers", "base"),
+			FileUtil.asPath(MODULES, "system", "layers", "base", ".overlays"),
+			FileUtil.asPath(MODULES, "system", "add-ons"), JBOSS_AS_PATH, "lib"
+	};
+
+	private static final Map<String, ServerRootProbe> CACHE = new LinkedHashMap<String, ServerRootProbe>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ServerRootProbe> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Returns the probe for the given root,
+	 * the cached one if nothing changed in the root since it was created.
+	 */
+	public static ServerRootProbe get(File root) {
+		File absolute = root.getAbsoluteFile();
+		String key = absolute.getPath();
+		long now = System.currentTimeMillis();
+		ServerRootProbe probe;
+		synchronized (CACHE) {
+			probe = CACHE.get(key);
+		}
+		if (probe != null && now - probe.validated < revalidationInterval) {
+			return probe;
+		}
+		long[] stamp = stamp(absolute);
+		synchronized (CACHE) {
+			probe = CACHE.get(key);
+			if (probe == null || !Arrays.equals(probe.stamp, stamp)) {
+				probe = new ServerRootProbe(absolute, stamp);
+				CACHE.put(key, probe);
+			}
+			probe.validated = now;
+			return probe;
+		}
+	}
+
+	/**
+	 * Sets for how long, in milliseconds, a probe is used
+	 * without checking whether the root changed.
+	 * A value of 0 checks on every access, a negative value restores the default.
+	 */
+	public static void setRevalidationInterval(long interval) {
+		revalidationInterval = interval < 0 ? DEFAULT_REVALIDATION_INTERVAL : interval;
+	}
+
+	/**
+	 * Forgets all cached probes.
+	 */
+	public static void clearCache() {
+		synchronized (CACHE) {
+			CACHE.clear();
+		}
+	}
+
+	private static long[] stamp(File root) {
+		long[] stamp = new long[STAMPED.length];
+		for (int i = 0; i < STAMPED.length; i++) {
+			stamp[i] = new File(root, STAMPED[i]).lastModified();
+		}
+		return stamp;
+	}
+
+	private static final int MISSING = 0;
+	private static final int FILE = 1;
+	private static final int DIRECTORY = 2;
+
+	private final File root;
+	private final long[] stamp;
+	private volatile long validated;
+	private final Map<File, Integer> kinds = new ConcurrentHashMap<>();
+	private final Map<File, File[]> children = new ConcurrentHashMap<>();
+	private final Map<File, Properties> properties = new ConcurrentHashMap<>();
+	private final Map<File, Properties> jarManifests = new ConcurrentHashMap<>();
+	private final Map<File, Attributes> manifests = new ConcurrentHashMap<>();
+	private final Map<File, File[]> layeredModulePaths = new ConcurrentHashMap<>();
+	private final AtomicInteger reads = new AtomicInteger();
+
+	private ServerRootProbe(File root, long[] stamp) {
+		this.root = root;
+		this.stamp = stamp;
+	}
+
+	public File getRoot() {
+		return root;
+	}
+
+	/**
+	 * Returns how many files or folders this probe read
+	 */
+	public int getReadCount() {
+		return reads.get();
+	}
+
+	/**
+	 * Returns the files and folders this probe looked at so far, 
+	 * including the ones that do not exist.
+	 */
+	public File[] getConsultedFiles() {
+		Set<File> files = new LinkedHashSet<>();
+		for (String stamped : STAMPED) {
+			files.add(getFile(stamped));
+		}
+		files.addAll(kinds.keySet());
+		files.addAll(children.keySet());
+		files.addAll(properties.keySet());
+		files.addAll(jarManifests.keySet());
+		files.addAll(manifests.keySet());
+		return files.toArray(new File[files.size()]);
+	}
+
+	public File getFile(String relative) {
+		return new File(root, relative);
+	}
+
+	public boolean exists(String relative) {
+		return exists(getFile(relative));
+	}
+
+	public boolean isFile(String relative) {
+		return isFile(getFile(relative));
+	}
+
+	public boolean isDirectory(String relative) {
+		return isDirectory(getFile(relative));
+	}
+
+	public boolean exists(File file) {
+		return getKind(file) != MISSING;
+	}
+
+	public boolean isFile(File file) {
+		return getKind(file) == FILE;
+	}
+
+	public boolean isDirectory(File file) {
+		return getKind(file) == DIRECTORY;
+	}
+
+	private int getKind(File file) {
+		return kinds.computeIfAbsent(file, f -> {
+			if (f.isFile())
+				return FILE;
+			return f.isDirectory() ? DIRECTORY : MISSING;
+		});
+	}
+
+	/**
+	 * Returns the children of the given folder, or an empty array
+	 */
+	public File[] listFiles(File folder) {
+		return children.computeIfAbsent(folder, f -> {
+			reads.incrementAndGet();
+			File[] files = f.listFiles();
+			return files == null ? new File[0] : files;
+		});
+	}
+
+	/**
+	 * Returns the properties in the given file, relative to the root.
+	 * The properties are empty if the file cannot be read.
+	 * They are shared, and must not be changed.
+	 */
+	public Properties getProperties(String relative) {
+		return getProperties(getFile(relative));
+	}
+
+	public Properties getProperties(File file) {
+		return properties.computeIfAbsent(file, f -> {
+			reads.incrementAndGet();
+			return FileUtil.loadProperties(f);
+		});
+	}
+
+	/**
+	 * Returns the value of the given property in the manifest of the given jar,
+	 * relative to the root, or <code>null</code>.
+	 */
+	public String getJarProperty(String relativeJar, String property) {
+		return getJarProperty(getFile(relativeJar), property);
+	}
+
+	public String getJarProperty(File jar, String property) {
+		return getJarManifest(jar).getProperty(property);
+	}
+
+	/**
+	 * Returns the manifest of the given jar, read as properties
+	 * as {@link ManifestUtility#getJarProperty(File, String)} does.
+	 * The properties are empty if the jar or its manifest cannot be read.
+	 * They are shared, and must not be changed.
+	 */
+	public Properties getJarManifest(File jar) {
+		return jarManifests.computeIfAbsent(jar, f -> {
+			Properties props = new Properties();
+			if (!f.canRead())
+				return props;
+			reads.incrementAndGet();
+			try (ZipFile zip = new ZipFile(f)) {
+				ZipEntry manifest = zip.getEntry("META-INF/MANIFEST.MF"); //$NON-NLS-1$
+				if (manifest != null) {
+					try (InputStream in = zip.getInputStream(manifest)) {
+						props.load(in);
+					}
+				}
+			} catch (IOException e) {
+				// Intentionally empty
+			}
+			return props;
+		});
+	}
+
+	/**
+	 * Returns the given main attribute of the given manifest.mf file, or <code>null</code>
+	 */
+	public String getManifestProperty(File manifestFile, String property) {
+		return manifests.computeIfAbsent(manifestFile, f -> {
+			reads.incrementAndGet();
+			try {
+				String contents = FileUtil.getContents(f);
+				if (contents != null) {
+					return new Manifest(new ByteArrayInputStream(contents.getBytes())).getMainAttributes();
+				}
+			} catch (IOException ioe) {
+				// Intentionally empty
+			}
+			return new Attributes();
+		}).getValue(property);
+	}
+
+	/**
+	 * Returns the given property of the manifest of the first jar
+	 * in the given folder, relative to the root.
+	 *
+	 * @see ManifestUtility#getManifestPropFromFolderJars(File, String, String)
+	 */
+	public String getManifestPropFromFolderJars(String mainFolder, String property) {
+		File folder = getFile(mainFolder);
+		if (exists(folder)) {
+			for (File child : listFiles(folder)) {
+				if (child.getName().endsWith(".jar")) {
+					return getJarProperty(child, property);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the given property of the manifest of the first jar
+	 * of the given module in the modules folder of the root.
+	 *
+	 * @see org.jboss.tools.rsp.server.wildfly.impl.util.JBossManifestUtility#getManifestPropFromJBossModules(File[], String, String, String)
+	 */
+	public String getManifestPropFromJBossModules(String moduleId, String slot, String property) {
+		for (File layeredRoot : getLayeredModulePath(getFile(MODULES))) {
+			File[] jars = getFilesForModule(layeredRoot, moduleId, slot,
+					f -> isFile(f) && f.getName().endsWith(".jar"));
+			if (jars.length > 0) {
+				return getJarProperty(jars[0], property);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the given property of the manifest.mf in the given folder
+	 * of the given module in the modules folder of the root.
+	 *
+	 * @see org.jboss.tools.rsp.server.wildfly.impl.util.JBossManifestUtility#getManifestPropFromJBossModulesFolder(File[], String, String, String)
+	 */
+	public String getManifestPropFromJBossModulesFolder(String moduleId, String slot, String property) {
+		for (File layeredRoot : getLayeredModulePath(getFile(MODULES))) {
+			File[] manifestFiles = getFilesForModule(layeredRoot, moduleId, slot,
+					f -> isFile(f) && f.getName().equalsIgnoreCase("manifest.mf"));
+			if (manifestFiles.length > 0) {
+				return getManifestProperty(manifestFiles[0], property);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the version in the manifest of the given jar,
+	 * or of the only jar in the given folder.
+	 *
+	 * @see ManifestUtility#getFullServerVersionFromZipLegacy(File, String[])
+	 */
+	public String getFullServerVersionFromZip(File systemJarFile) {
+		File jar = systemJarFile;
+		if (isDirectory(jar)) {
+			File[] jars = Arrays.stream(listFiles(jar))
+					.filter(f -> f.getName().endsWith(".jar"))
+					.toArray(File[]::new);
+			if (jars.length == 1) {
+				jar = jars[0];
+			}
+		}
+		Properties manifest = getJarManifest(jar);
+		for (String attribute : new String[] { "Bundle-Version", "Specification-Version", "Implementation-Version" }) {
+			String version = manifest.getProperty(attribute);
+			if (version != null && version.trim().length() > 0) {
+				return version;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the module path of the given modules folder, including its layers and add-ons.
+	 *
+	 * @see LayeredModulePathFactory#resolveLayeredModulePath(File...)
+	 */
+	public File[] getLayeredModulePath(File modulesFolder) {
+		return layeredModulePaths.computeIfAbsent(modulesFolder, f -> {
+			reads.incrementAndGet();
+			return LayeredModulePathFactory.resolveLayeredModulePath(f);
+		});
+	}
+
+	private File[] getFilesForModule(File modulesFolder, String moduleName, String slot, Predicate<File> filter) {
+		String slashed = moduleName.replaceAll("\\.", "/");
+		String relative = Paths.get(slashed, slot == null ? "main" : slot).toString();
+		for (File layer : getLayeredModulePath(modulesFolder)) {
+			File layeredPath = new File(layer.getAbsolutePath(), relative);
+			if (exists(layeredPath)) {
+				List<File> files = new ArrayList<>();
+				for (File child : listFiles(layeredPath)) {
+					if (filter.test(child)) {
+						files.add(child);
+					}
+				}
+				return files.toArray(new File[files.size()]);
+			}
+		}
+		return new File[0];
+	}
+}
@@ -88,6 +88,21 @@ public abstract class BaseJBossServerType implements IServerType{
 				"Set the inactivity limit before the autopublisher runs.", 
 				IJBossServerAttributes.AUTOPUBLISH_INACTIVITY_LIMIT_DEFAULT);
 
+		attrs.addAttribute(IJBossServerAttributes.FILE_WATCHER_BACKEND, 
+				ServerManagementAPIConstants.ATTR_TYPE_STRING, 
+				"How deployments are watched for changes: nio, polling, or hybrid. Hybrid uses native watches until the watch budget is used up, and polls larger trees.", 
+				null);
+
+		attrs.addAttribute(IJBossServerAttributes.FILE_WATCHER_WATCH_BUDGET, 
+				ServerManagementAPIConstants.ATTR_TYPE_INT, 
+				"The number of native file watches the hybrid file watcher may use.", 
+				IJBossServerAttributes.FILE_WATCHER_WATCH_BUDGET_DEFAULT);
+
+		attrs.addAttribute(IJBossServerAttributes.PUBLISH_PARALLELISM, 
+				ServerManagementAPIConstants.ATTR_TYPE_INT, 
+				"The number of deployments to publish at the same time.", 
+				IJBossServerAttributes.PUBLISH_PARALLELISM_DEFAULT);
+
 		attrs.addAttribute(IJBossServerAttributes.JBOSS_SERVER_HOST, 
 				ServerManagementAPIConstants.ATTR_TYPE_STRING, 
 				"Set the host you want your JBoss / WildFly instance to bind to. Use 0.0.0.0 for all.", 
@@ -14,9 +14,15 @@ import org.jboss.tools.rsp.eclipse.jdt.launching.IVMInstall;
 import org.jboss.tools.rsp.eclipse.jdt.launching.IVMInstallRegistry;
 import org.jboss.tools.rsp.eclipse.jdt.launching.IVMRunner;
 import org.jboss.tools.rsp.eclipse.jdt.launching.StandardVMType;
+import org.jboss.tools.rsp.eclipse.jdt.launching.VMInstallRegistry;
 import org.jboss.tools.rsp.server.LauncherSingleton;
+import org.jboss.tools.rsp.server.spi.servertype.IServer;
 import org.jboss.tools.rsp.server.spi.servertype.IServerAttributes;
 import org.jboss.tools.rsp.server.spi.servertype.IServerDelegate;
+import org.jboss.tools.rsp.server.spi.util.VersionComparisonUtility;
+import org.jboss.tools.rsp.server.wildfly.servertype.capabilities.ExtendedServerPropertiesAdapterFactory;
+import org.jboss.tools.rsp.server.wildfly.servertype.capabilities.JBossExtendedProperties;
+import org.jboss.tools.rsp.server.wildfly.servertype.capabilities.ServerExtendedProperties;
 
 public class JBossVMRegistryDiscovery {
 
@@ -44,6 +50,9 @@ public class JBossVMRegistryDiscovery {
 		IVMInstall vmi = null;
 		if( vmPath == null ) {
 			vmi = reg.getDefaultVMInstall();
+			if( delegate != null && delegate.getServer() != null ) {
+				vmi = findCompatibleVMInstall(vmi, reg, delegate.getServer());
+			}
 		} else {
 			if (ensureVMInstallAdded(vmPath, reg)) {
 				vmi = reg.findVMInstall(new File(vmPath));
@@ -52,6 +61,53 @@ public class JBossVMRegistryDiscovery {
 		return vmi;
 	}
 
+	/**
+	 * Returns the given vm install if the server can run on it. Otherwise
+	 * returns the vm install with the highest java version in the registry 
+	 * that the server can run on, or the given one if there is none.
+	 */
+	protected IVMInstall findCompatibleVMInstall(IVMInstall vmi, IVMInstallRegistry reg, IServer server) {
+		if( server.getServerType() == null || server.getServerType().getId() == null ) {
+			return vmi;
+		}
+		ServerExtendedProperties props = new ExtendedServerPropertiesAdapterFactory().getExtendedProperties(server);
+		if( !(props instanceof JBossExtendedProperties)) {
+			return vmi;
+		}
+		String min = ((JBossExtendedProperties)props).getMinimumJavaVersionString();
+		String max = ((JBossExtendedProperties)props).getMaximumJavaVersionString();
+		if( vmi == null || isJavaCompatible(vmi.getJavaVersion(), min, max)) {
+			return vmi;
+		}
+		int minMajor = min == null ? 0 : VMInstallRegistry.getMajorVersion(min);
+		int maxMajor = max == null ? Integer.MAX_VALUE : VMInstallRegistry.getMajorVersion(max);
+		if( minMajor < 0 || maxMajor < 0 ) {
+			return vmi;
+		}
+		IVMInstall ret = vmi;
+		int retMajor = -1;
+		for( IVMInstall candidate : reg.findVMInstalls(minMajor, maxMajor)) {
+			String version = candidate.getJavaVersion();
+			int major = VMInstallRegistry.getMajorVersion(version);
+			if( major > retMajor && isJavaCompatible(version, min, max)) {
+				ret = candidate;
+				retMajor = major;
+			}
+		}
+		return ret;
+	}
+
+	private boolean isJavaCompatible(String version, String min, String max) {
+		if( version == null ) {
+			return false;
+		}
+		try {
+			return VersionComparisonUtility.isJavaCompatible(version, min, max);
+		} catch(NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			return false;
+		}
+	}
+
 	private IVMInstallRegistry findDefaultRegistry(IServerDelegate delegate) {
 		if( delegate != null && delegate.getServer() != null 
 				&& delegate.getServer().getServerManagementModel() != null) {
@@ -12,7 +12,8 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jboss.tools.rsp.api.ServerManagementAPIConstants;
 import org.jboss.tools.rsp.api.dao.DeployableReference;
@@ -31,7 +32,8 @@ public class WildFlyPublishController extends StandardJBossPublishController {
 
 	private static final Logger LOG = LoggerFactory.getLogger(WildFlyPublishController.class);
     
-	private HashMap<String, String> markersToWrite = new HashMap<>();
+	// Deployables may be published in parallel
+	private Map<String, String> markersToWrite = new ConcurrentHashMap<>();
 	
 	public WildFlyPublishController(IServer server, AbstractJBossServerDelegate delegate) {
 		super(server, delegate);
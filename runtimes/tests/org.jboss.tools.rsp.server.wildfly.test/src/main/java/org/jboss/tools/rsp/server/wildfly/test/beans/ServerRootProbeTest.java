@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc. Distributed under license by Red Hat, Inc.
+ * All rights reserved. This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors: Red Hat, Inc.
+ ******************************************************************************/
+package org.jboss.tools.rsp.server.wildfly.test.beans;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.jboss.tools.rsp.server.spi.discovery.ServerBeanType;
+import org.jboss.tools.rsp.server.wildfly.beans.impl.IServerConstants;
+import org.jboss.tools.rsp.server.wildfly.beans.impl.ServerRootProbe;
+import org.jboss.tools.rsp.server.wildfly.impl.JBossServerBeanTypeProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ServerRootProbeTest {
+
+	private static final String PRODUCT_MODULE = "modules/system/layers/base/org/jboss/as/product/";
+
+	private Path dir;
+	private File wildfly20;
+	private File wildfly10;
+	private File as71;
+	private File eap73;
+	private File overlaid;
+	private File layered;
+	private File empty;
+
+	@Before
+	public void before() throws IOException {
+		ServerRootProbe.clearCache();
+		this.dir = Files.createTempDirectory("rsp-probe");
+		this.wildfly20 = createManifest("wildfly-20", PRODUCT_MODULE + "main/dir/META-INF/MANIFEST.MF",
+				"JBoss-Product-Release-Version", "20.0.1.Final");
+		this.wildfly10 = createManifest("wildfly-10", PRODUCT_MODULE + "wildfly-full/dir/META-INF/MANIFEST.MF",
+				"JBoss-Product-Release-Version", "10.1.0.Final");
+		this.as71 = createJar("jboss-as-7.1", "modules/org/jboss/as/server/main/jboss-as-server-7.1.1.Final.jar",
+				"JBossAS-Release-Version", "7.1.1.Final");
+		this.eap73 = dir.resolve("eap-7.3").toFile();
+		createFile(eap73, "modules/system/layers/base/org/jboss/as/product/eap/dir/META-INF/MANIFEST.MF",
+				"Manifest-Version: 1.0\nJBoss-Product-Release-Name: JBoss EAP\nJBoss-Product-Release-Version: 7.3.0.GA\n");
+		createFile(eap73, "bin/product.conf", "slot=eap\n");
+		// a patch that is applied as an overlay of the base layer
+		this.overlaid = createManifest("wildfly-10-patched", PRODUCT_MODULE + "wildfly-full/dir/META-INF/MANIFEST.MF",
+				"JBoss-Product-Release-Version", "10.1.0.Final");
+		createManifest("wildfly-10-patched", "modules/system/layers/base/.overlays/layer-base-patch-1/"
+				+ "org/jboss/as/product/wildfly-full/dir/META-INF/MANIFEST.MF",
+				"JBoss-Product-Release-Version", "10.1.1.Final");
+		createFile(overlaid, "modules/system/layers/base/.overlays/.overlays", "layer-base-patch-1\n");
+		// a layer that is configured to come before the base layer
+		this.layered = createManifest("wildfly-21-layered", "modules/system/layers/custom/org/jboss/as/product/main/dir/META-INF/MANIFEST.MF",
+				"JBoss-Product-Release-Version", "21.0.0.Final");
+		new File(layered, "modules/system/layers/base").mkdirs();
+		createFile(layered, "modules/layers.conf", "layers=custom\n");
+		this.empty = dir.resolve("empty").toFile();
+		empty.mkdirs();
+	}
+
+	@After
+	public void after() throws IOException {
+		ServerRootProbe.setRevalidationInterval(-1);
+		ServerRootProbe.clearCache();
+		Files.walk(dir)
+			.sorted(Comparator.reverseOrder())
+			.forEach(p -> p.toFile().delete());
+	}
+
+	@Test
+	public void testTypesAreDetected() {
+		assertThat(getVersion(wildfly20)).isEqualTo("20.0.1.Final");
+		assertThat(getVersion(wildfly10)).isEqualTo("10.1.0.Final");
+		assertThat(getVersion(as71)).isEqualTo("7.1.1.Final");
+		assertThat(findType(empty)).isNull();
+	}
+
+	@Test
+	public void testProductConfIsRespected() throws IOException {
+		assertThat(getVersion(eap73)).isEqualTo("7.3.0.GA");
+		assertThat(findType(eap73).getServerAdapterTypeId("7.3.0.GA")).isEqualTo(IServerConstants.SERVER_EAP_73);
+
+		ServerRootProbe.setRevalidationInterval(0);
+		File productConf = new File(eap73, "bin/product.conf");
+		createFile(eap73, "bin/product.conf", "slot=other\n");
+		assertThat(productConf.setLastModified(productConf.lastModified() - 10000)).isTrue();
+		assertThat(findType(eap73)).isNull();
+	}
+
+	@Test
+	public void testLayersAndOverlaysAreResolved() {
+		assertThat(getVersion(overlaid)).isEqualTo("10.1.1.Final");
+		assertThat(getVersion(layered)).isEqualTo("21.0.0.Final");
+	}
+
+	@Test
+	public void testFilesAreReadOnce() {
+		for (File root : new File[] { wildfly20, wildfly10, as71, empty }) {
+			findAll(root);
+			ServerRootProbe probe = ServerRootProbe.get(root);
+			int reads = probe.getReadCount();
+			findAll(root);
+			findAll(root);
+			assertThat(ServerRootProbe.get(root)).isSameAs(probe);
+			assertThat(probe.getReadCount()).isEqualTo(reads);
+		}
+	}
+
+	@Test
+	public void testProbeIsReplacedWhenRootChanges() throws IOException {
+		ServerRootProbe.setRevalidationInterval(0);
+		ServerRootProbe probe = ServerRootProbe.get(wildfly20);
+		assertThat(ServerRootProbe.get(new File(wildfly20.getPath()))).isSameAs(probe);
+
+		File modules = new File(wildfly20, "modules");
+		assertThat(modules.setLastModified(modules.lastModified() - 10000)).isTrue();
+		ServerRootProbe changed = ServerRootProbe.get(wildfly20);
+		assertThat(changed).isNotSameAs(probe);
+
+		// a server unzipped into a folder that was empty
+		assertThat(findType(empty)).isNull();
+		createManifest("empty", PRODUCT_MODULE + "main/dir/META-INF/MANIFEST.MF",
+				"JBoss-Product-Release-Version", "20.0.1.Final");
+		assertThat(getVersion(empty)).isEqualTo("20.0.1.Final");
+	}
+
+	@Test
+	public void testCachedProbesAreFaster() {
+		File[] roots = new File[] { wildfly20, wildfly10, as71, eap73, overlaid, layered, empty };
+		int runs = 20;
+		long cold = 0;
+		long cached = 0;
+		for (int i = 0; i < runs; i++) {
+			ServerRootProbe.clearCache();
+			long start = System.nanoTime();
+			for (File root : roots) {
+				findAll(root);
+			}
+			cold += System.nanoTime() - start;
+			int reads = getReadCount(roots);
+			assertThat(reads).isGreaterThan(0);
+
+			start = System.nanoTime();
+			for (File root : roots) {
+				findAll(root);
+			}
+			cached += System.nanoTime() - start;
+			assertThat(getReadCount(roots)).isEqualTo(reads);
+		}
+		assertThat(cached).isLessThan(cold);
+	}
+
+	private int getReadCount(File[] roots) {
+		int reads = 0;
+		for (File root : roots) {
+			reads += ServerRootProbe.get(root).getReadCount();
+		}
+		return reads;
+	}
+
+	private String getVersion(File root) {
+		ServerBeanType type = findType(root);
+		assertThat(type).isNotNull();
+		return type.getFullVersion(root);
+	}
+
+	private ServerBeanType findType(File root) {
+		for (ServerBeanType type : new JBossServerBeanTypeProvider().getServerBeanTypes()) {
+			if (type.isServerRoot(root)) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+	private void findAll(File root) {
+		for (ServerBeanType type : new JBossServerBeanTypeProvider().getServerBeanTypes()) {
+			if (type.isServerRoot(root)) {
+				type.getFullVersion(root);
+				type.getUnderlyingTypeId(root);
+			}
+		}
+	}
+
+	private File createManifest(String name, String path, String attribute, String value) throws IOException {
+		File root = dir.resolve(name).toFile();
+		File file = new File(root, path);
+		file.getParentFile().mkdirs();
+		String manifest = "Manifest-Version: 1.0\n" + attribute + ": " + value + "\n";
+		Files.write(file.toPath(), manifest.getBytes(StandardCharsets.UTF_8));
+		return root;
+	}
+
+	private File createFile(File root, String path, String content) throws IOException {
+		File file = new File(root, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private File createJar(String name, String path, String attribute, String value) throws IOException {
+		File root = dir.resolve(name).toFile();
+		File file = new File(root, path);
+		file.getParentFile().mkdirs();
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		manifest.getMainAttributes().putValue(attribute, value);
+		try (JarOutputStream out = new JarOutputStream(new FileOutputStream(file), manifest)) {
+			// manifest only
+		}
+		return root;
+	}
+}